@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+import fr.paris.lutece.portal.service.database.PluginConnectionService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * This class provides Data Access methods for the version of the directory definitions, stored in the single row of directory_definition_version
+ */
+public final class DefinitionVersionDAO implements IDefinitionVersionDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT = "SELECT version FROM directory_definition_version WHERE id_version = 1 ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE directory_definition_version SET version = ? WHERE id_version = 1 ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long load( Plugin plugin )
+    {
+        PluginConnectionService connectionService = plugin.getConnectionService( );
+        Connection connection = connectionService.getConnection( );
+
+        try
+        {
+            PreparedStatement statement = connection.prepareStatement( SQL_QUERY_SELECT );
+
+            try
+            {
+                ResultSet resultSet = statement.executeQuery( );
+
+                return resultSet.next( ) ? resultSet.getLong( 1 ) : 0L;
+            }
+            finally
+            {
+                statement.close( );
+            }
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( "Unable to load the version of the directory definitions : " + e.getMessage( ), e );
+        }
+        finally
+        {
+            connectionService.freeConnection( connection );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store( long lVersion, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin );
+        daoUtil.setLong( 1, lVersion );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+/**
+ * This class provides access to the version of the directory definitions, shared by all the nodes
+ */
+public final class DefinitionVersionHome
+{
+    // Static variable pointed at the DAO instance
+    private static IDefinitionVersionDAO _dao = SpringContextService.getBean( "directoryDefinitionVersionDAO" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private DefinitionVersionHome( )
+    {
+    }
+
+    /**
+     * Returns the committed version of the directory definitions
+     *
+     * @param plugin
+     *            the Plugin
+     * @return the version
+     */
+    public static long getVersion( Plugin plugin )
+    {
+        return _dao.load( plugin );
+    }
+
+    /**
+     * Changes the version of the directory definitions, in the transaction of the caller
+     *
+     * @param lVersion
+     *            the new version
+     * @param plugin
+     *            the Plugin
+     */
+    public static void update( long lVersion, Plugin plugin )
+    {
+        _dao.store( lVersion, plugin );
+    }
+}
@@ -41,6 +41,7 @@ import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.rbac.RBACResource;
 import fr.paris.lutece.portal.service.regularexpression.RegularExpressionRemovalListenerService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.workflow.WorkflowRemovalListenerService;
 import fr.paris.lutece.portal.service.workgroup.AdminWorkgroupResource;
 import fr.paris.lutece.portal.service.workgroup.WorkgroupRemovalListenerService;
@@ -58,7 +59,7 @@ import java.util.Locale;
  * Class Directory
  *
  */
-public class Directory implements AdminWorkgroupResource, RBACResource
+public class Directory implements AdminWorkgroupResource, RBACResource, Cloneable
 {
     public static final String ROLE_NONE = "none";
     public static final String RESOURCE_TYPE = "DIRECTORY_DIRECTORY_TYPE";
@@ -1036,4 +1037,22 @@ public class Directory implements AdminWorkgroupResource, RBACResource
     {
         _bSearchOperatorOr = bSearchOperatorOr;
     }
+
+    /**
+     * Return a shallow copy of the directory
+     * 
+     * @return the copy
+     */
+    @Override
+    public Directory clone( )
+    {
+        try
+        {
+            return (Directory) super.clone( );
+        }
+        catch( CloneNotSupportedException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
 }
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.directory.business;
 
 import fr.paris.lutece.plugins.directory.business.attribute.DirectoryAttributeHome;
+import fr.paris.lutece.plugins.directory.service.DirectoryCacheService;
 import fr.paris.lutece.plugins.directory.service.record.IRecordService;
 import fr.paris.lutece.plugins.directory.service.record.RecordService;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
@@ -131,6 +132,7 @@ public final class DirectoryHome
         DirectoryAttributeHome.create( directory.getIdDirectory( ), mapAttributes );
 
         _dao.store( directory, plugin );
+        DirectoryCacheService.getInstance( ).invalidate( );
     }
 
     /**
@@ -172,6 +174,7 @@ public final class DirectoryHome
 
         // Remove the directory
         _dao.delete( nIdDirectory, plugin );
+        DirectoryCacheService.getInstance( ).invalidate( );
     }
 
     // /////////////////////////////////////////////////////////////////////////
@@ -187,7 +190,22 @@ public final class DirectoryHome
      */
     public static Directory findByPrimaryKey( int nKey, Plugin plugin )
     {
-        Directory directory = _dao.load( nKey, plugin );
+        DirectoryCacheService cacheService = DirectoryCacheService.getInstance( );
+        Directory directory = cacheService.getDirectory( nKey );
+
+        if ( directory != null )
+        {
+            return directory;
+        }
+
+        long lVersion = cacheService.getVersion( );
+        directory = _dao.load( nKey, plugin );
+
+        if ( directory == null )
+        {
+            return null;
+        }
+
         Map<String, Object> mapAttributes = DirectoryAttributeHome.findByPrimaryKey( nKey );
 
         try
@@ -203,6 +221,8 @@ public final class DirectoryHome
             AppLogService.error( e );
         }
 
+        cacheService.putDirectory( lVersion, directory );
+
         return directory;
     }
 
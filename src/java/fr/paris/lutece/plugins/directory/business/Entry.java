@@ -38,6 +38,7 @@ import fr.paris.lutece.plugins.directory.utils.DirectoryErrorException;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.web.util.LocalizedPaginator;
 import fr.paris.lutece.util.ReferenceList;
 import fr.paris.lutece.util.html.HtmlTemplate;
@@ -60,7 +61,7 @@ import javax.servlet.http.HttpServletRequest;
  * class Entry
  *
  */
-public class Entry implements IEntry
+public class Entry implements IEntry, Cloneable
 {
     public static final String TAG_ENTRY = "entry";
     public static final String ATTRIBUTE_ENTRY_ID = "id";
@@ -1329,4 +1330,21 @@ public class Entry implements IEntry
         this._nNumberColumn = nNumberColumn;
     }
 
+    /**
+     * Return a shallow copy of the entry, its fields and children lists are shared
+     * 
+     * @return the copy
+     */
+    @Override
+    public Entry clone( )
+    {
+        try
+        {
+            return (Entry) super.clone( );
+        }
+        catch( CloneNotSupportedException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
 }
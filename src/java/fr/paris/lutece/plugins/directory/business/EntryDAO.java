@@ -33,9 +33,9 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.service.DirectoryCacheService;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
-import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.util.sql.DAOUtil;
 
 import java.util.ArrayList;
@@ -235,7 +235,6 @@ public final class EntryDAO implements IEntryDAO
         daoUtil.setInt( 1, nId );
         daoUtil.executeQuery( );
 
-        boolean bException = false;
         IEntry entry = null;
         EntryType entryType = null;
         IEntry entryParent = null;
@@ -251,30 +250,9 @@ public final class EntryDAO implements IEntryDAO
             entryType.setMyLuteceUser( daoUtil.getBoolean( 5 ) );
             entryType.setClassName( daoUtil.getString( 6 ) );
 
-            try
-            {
-                entry = (IEntry) Class.forName( entryType.getClassName( ) ).newInstance( );
-            }
-            catch( ClassNotFoundException e )
-            {
-                // class doesn't exist
-                AppLogService.error( e );
-                bException = true;
-            }
-            catch( InstantiationException e )
-            {
-                // Class is abstract or is an interface or haven't accessible builder
-                AppLogService.error( e );
-                bException = true;
-            }
-            catch( IllegalAccessException e )
-            {
-                // can't access to rhe class
-                AppLogService.error( e );
-                bException = true;
-            }
+            entry = DirectoryCacheService.getInstance( ).newEntry( entryType.getClassName( ) );
 
-            if ( bException )
+            if ( entry == null )
             {
                 daoUtil.free( );
 
@@ -648,7 +626,6 @@ public final class EntryDAO implements IEntryDAO
         IEntry entryParent = null;
         IEntry entry = null;
         Directory directory = null;
-        boolean bException = false;
 
         entryType = new EntryType( );
         entryType.setIdType( daoUtil.getInt( 1 ) );
@@ -658,30 +635,9 @@ public final class EntryDAO implements IEntryDAO
         entryType.setMyLuteceUser( daoUtil.getBoolean( 5 ) );
         entryType.setClassName( daoUtil.getString( 6 ) );
 
-        try
-        {
-            entry = (IEntry) Class.forName( entryType.getClassName( ) ).newInstance( );
-        }
-        catch( ClassNotFoundException e )
-        {
-            // class doesn't exist
-            AppLogService.error( e );
-            bException = true;
-        }
-        catch( InstantiationException e )
-        {
-            // Class is abstract or is an interface or haven't accessible builder
-            AppLogService.error( e );
-            bException = true;
-        }
-        catch( IllegalAccessException e )
-        {
-            // can't access to rhe class
-            AppLogService.error( e );
-            bException = true;
-        }
+        entry = DirectoryCacheService.getInstance( ).newEntry( entryType.getClassName( ) );
 
-        if ( bException )
+        if ( entry == null )
         {
             daoUtil.free( );
 
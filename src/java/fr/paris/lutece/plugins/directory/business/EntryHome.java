@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.service.DirectoryCacheService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 
@@ -65,7 +66,10 @@ public final class EntryHome
      */
     public static int create( IEntry entry, Plugin plugin )
     {
-        return _dao.insert( entry, plugin );
+        int nIdEntry = _dao.insert( entry, plugin );
+        DirectoryCacheService.getInstance( ).invalidate( );
+
+        return nIdEntry;
     }
 
     /**
@@ -115,6 +119,7 @@ public final class EntryHome
     public static void update( IEntry entry, Plugin plugin )
     {
         _dao.store( entry, plugin );
+        DirectoryCacheService.getInstance( ).invalidate( );
     }
 
     /**
@@ -142,6 +147,7 @@ public final class EntryHome
             }
 
             _dao.delete( nIdEntry, plugin );
+            DirectoryCacheService.getInstance( ).invalidate( );
         }
     }
 
@@ -159,7 +165,16 @@ public final class EntryHome
      */
     public static IEntry findByPrimaryKey( int nKey, Plugin plugin )
     {
-        IEntry entry = _dao.load( nKey, plugin );
+        DirectoryCacheService cacheService = DirectoryCacheService.getInstance( );
+        IEntry entry = cacheService.getEntry( nKey );
+
+        if ( entry != null )
+        {
+            return entry;
+        }
+
+        long lVersion = cacheService.getVersion( );
+        entry = _dao.load( nKey, plugin );
 
         if ( entry != null )
         {
@@ -167,6 +182,7 @@ public final class EntryHome
             filter.setIdEntryParent( entry.getIdEntry( ) );
             entry.setChildren( getEntryList( filter, plugin ) );
             entry.setFields( FieldHome.getFieldListByIdEntry( nKey, plugin ) );
+            cacheService.putEntry( lVersion, entry );
         }
 
         return entry;
@@ -230,18 +246,11 @@ public final class EntryHome
 
         for ( IEntry entry : listEntry )
         {
-            try
-            {
-                IEntry iEntry = (IEntry) Class.forName( ( entry.getEntryType( ).getClassName( ) ) ).newInstance( );
+            IEntry iEntry = DirectoryCacheService.getInstance( ).newEntry( entry.getEntryType( ).getClassName( ) );
 
-                if ( iEntry.isAnonymizable( ) )
-                {
-                    listEntryRes.add( entry );
-                }
-            }
-            catch( Exception e )
+            if ( ( iEntry != null ) && iEntry.isAnonymizable( ) )
             {
-                // Do nothing
+                listEntryRes.add( entry );
             }
         }
 
@@ -261,6 +270,7 @@ public final class EntryHome
     public static void updateEntryAnonymizeStatus( Integer nEntryId, Boolean bAnonymize, Plugin plugin )
     {
         _dao.updateEntryAnonymizeStatus( nEntryId, bAnonymize, plugin );
+        DirectoryCacheService.getInstance( ).invalidate( );
     }
 
     /**
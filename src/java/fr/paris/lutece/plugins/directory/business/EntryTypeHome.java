@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.service.DirectoryCacheService;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 
@@ -66,7 +67,21 @@ public final class EntryTypeHome
      */
     public static EntryType findByPrimaryKey( int nKey, Plugin plugin )
     {
-        return _dao.load( nKey, plugin );
+        DirectoryCacheService cacheService = DirectoryCacheService.getInstance( );
+        EntryType entryType = cacheService.getEntryType( nKey );
+
+        if ( entryType == null )
+        {
+            long lVersion = cacheService.getVersion( );
+            entryType = _dao.load( nKey, plugin );
+
+            if ( entryType != null )
+            {
+                cacheService.putEntryType( lVersion, entryType );
+            }
+        }
+
+        return entryType;
     }
 
     /**
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+import java.sql.Timestamp;
+
+/**
+ *
+ * ExportJob : an export of records run in background
+ *
+ */
+public class ExportJob
+{
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_RUNNING = 1;
+    public static final int STATUS_DONE = 2;
+    public static final int STATUS_FAILED = 3;
+    public static final int STATUS_CANCELLED = 4;
+    private int _nIdExportJob;
+    private int _nIdDirectory;
+    private int _nIdAdminUser;
+    private String _strFileName;
+    private String _strEncoding;
+    private volatile int _nStatus;
+    private int _nNbRecords;
+    private volatile int _nNbRecordsExported;
+    private Timestamp _tDateCreation;
+    private volatile Timestamp _tDateEnd;
+    private volatile String _strErrorMessage;
+    private String _strNodeName;
+
+    /**
+     * Get the id of the export job
+     * 
+     * @return the id of the export job
+     */
+    public int getIdExportJob( )
+    {
+        return _nIdExportJob;
+    }
+
+    /**
+     * Set the id of the export job
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     */
+    public void setIdExportJob( int nIdExportJob )
+    {
+        _nIdExportJob = nIdExportJob;
+    }
+
+    /**
+     * Get the id of the exported directory
+     * 
+     * @return the id of the directory
+     */
+    public int getIdDirectory( )
+    {
+        return _nIdDirectory;
+    }
+
+    /**
+     * Set the id of the exported directory
+     * 
+     * @param nIdDirectory
+     *            the id of the directory
+     */
+    public void setIdDirectory( int nIdDirectory )
+    {
+        _nIdDirectory = nIdDirectory;
+    }
+
+    /**
+     * Get the id of the admin user who requested the export
+     * 
+     * @return the id of the admin user
+     */
+    public int getIdAdminUser( )
+    {
+        return _nIdAdminUser;
+    }
+
+    /**
+     * Set the id of the admin user who requested the export
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     */
+    public void setIdAdminUser( int nIdAdminUser )
+    {
+        _nIdAdminUser = nIdAdminUser;
+    }
+
+    /**
+     * Get the name of the exported file
+     * 
+     * @return the file name
+     */
+    public String getFileName( )
+    {
+        return _strFileName;
+    }
+
+    /**
+     * Set the name of the exported file
+     * 
+     * @param strFileName
+     *            the file name
+     */
+    public void setFileName( String strFileName )
+    {
+        _strFileName = strFileName;
+    }
+
+    /**
+     * Get the encoding of the exported file
+     * 
+     * @return the encoding
+     */
+    public String getEncoding( )
+    {
+        return _strEncoding;
+    }
+
+    /**
+     * Set the encoding of the exported file
+     * 
+     * @param strEncoding
+     *            the encoding
+     */
+    public void setEncoding( String strEncoding )
+    {
+        _strEncoding = strEncoding;
+    }
+
+    /**
+     * Get the status of the export job
+     * 
+     * @return the status
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Set the status of the export job
+     * 
+     * @param nStatus
+     *            the status
+     */
+    public void setStatus( int nStatus )
+    {
+        _nStatus = nStatus;
+    }
+
+    /**
+     * Get the number of records to export
+     * 
+     * @return the number of records
+     */
+    public int getNbRecords( )
+    {
+        return _nNbRecords;
+    }
+
+    /**
+     * Set the number of records to export
+     * 
+     * @param nNbRecords
+     *            the number of records
+     */
+    public void setNbRecords( int nNbRecords )
+    {
+        _nNbRecords = nNbRecords;
+    }
+
+    /**
+     * Get the number of records exported so far
+     * 
+     * @return the number of records exported
+     */
+    public int getNbRecordsExported( )
+    {
+        return _nNbRecordsExported;
+    }
+
+    /**
+     * Set the number of records exported so far
+     * 
+     * @param nNbRecordsExported
+     *            the number of records exported
+     */
+    public void setNbRecordsExported( int nNbRecordsExported )
+    {
+        _nNbRecordsExported = nNbRecordsExported;
+    }
+
+    /**
+     * Get the percentage of records exported so far
+     * 
+     * @return the progress, between 0 and 100
+     */
+    public int getProgress( )
+    {
+        if ( _nNbRecords == 0 )
+        {
+            return ( _nStatus == STATUS_DONE ) ? 100 : 0;
+        }
+
+        return (int) ( ( 100L * _nNbRecordsExported ) / _nNbRecords );
+    }
+
+    /**
+     * Get the creation date of the export job
+     * 
+     * @return the creation date
+     */
+    public Timestamp getDateCreation( )
+    {
+        return _tDateCreation;
+    }
+
+    /**
+     * Set the creation date of the export job
+     * 
+     * @param tDateCreation
+     *            the creation date
+     */
+    public void setDateCreation( Timestamp tDateCreation )
+    {
+        _tDateCreation = tDateCreation;
+    }
+
+    /**
+     * Get the end date of the export job
+     * 
+     * @return the end date, or null if the job is not over
+     */
+    public Timestamp getDateEnd( )
+    {
+        return _tDateEnd;
+    }
+
+    /**
+     * Set the end date of the export job
+     * 
+     * @param tDateEnd
+     *            the end date
+     */
+    public void setDateEnd( Timestamp tDateEnd )
+    {
+        _tDateEnd = tDateEnd;
+    }
+
+    /**
+     * Get the error message of a failed export job
+     * 
+     * @return the error message
+     */
+    public String getErrorMessage( )
+    {
+        return _strErrorMessage;
+    }
+
+    /**
+     * Set the error message of a failed export job
+     * 
+     * @param strErrorMessage
+     *            the error message
+     */
+    public void setErrorMessage( String strErrorMessage )
+    {
+        _strErrorMessage = strErrorMessage;
+    }
+
+    /**
+     * Get the name of the node of the cluster running the export job
+     * 
+     * @return the name of the node
+     */
+    public String getNodeName( )
+    {
+        return _strNodeName;
+    }
+
+    /**
+     * Set the name of the node of the cluster running the export job
+     * 
+     * @param strNodeName
+     *            the name of the node
+     */
+    public void setNodeName( String strNodeName )
+    {
+        _strNodeName = strNodeName;
+    }
+
+    /**
+     * Tells if the export job is over, whatever its outcome
+     * 
+     * @return true if the job is over
+     */
+    public boolean isOver( )
+    {
+        return ( _nStatus != STATUS_PENDING ) && ( _nStatus != STATUS_RUNNING );
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for ExportJob objects
+ */
+public final class ExportJobDAO implements IExportJobDAO
+{
+    // Constants
+    private static final String SQL_QUERY_NEW_PK = "SELECT max( id_export_job ) FROM directory_export_job";
+    private static final String SQL_QUERY_SELECT = "SELECT id_export_job,id_directory,id_admin_user,file_name,encoding,status,nb_records,nb_records_exported,"
+            + "date_creation,date_end,error_message,node_name FROM directory_export_job ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = SQL_QUERY_SELECT + " WHERE id_export_job = ? ";
+    private static final String SQL_QUERY_SELECT_BY_ID_DIRECTORY_AND_ID_ADMIN_USER = SQL_QUERY_SELECT
+            + " WHERE id_directory = ? AND id_admin_user = ? ORDER BY id_export_job DESC ";
+    private static final String SQL_QUERY_SELECT_NOT_OVER = SQL_QUERY_SELECT + " WHERE status IN ( ?,? ) AND ( node_name = ? OR node_name IS NULL ) ";
+    private static final String SQL_QUERY_SELECT_OVER_BEFORE = SQL_QUERY_SELECT + " WHERE status NOT IN ( ?,? ) AND date_end < ? ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO directory_export_job( id_export_job,id_directory,id_admin_user,file_name,encoding,status,"
+            + "nb_records,nb_records_exported,date_creation,date_end,error_message,node_name ) VALUES(?,?,?,?,?,?,?,?,?,?,?,?)";
+    private static final String SQL_QUERY_UPDATE = "UPDATE directory_export_job SET status = ?,nb_records_exported = ?,date_end = ?,error_message = ?"
+            + " WHERE id_export_job = ? ";
+    private static final String SQL_QUERY_UPDATE_PROGRESS = "UPDATE directory_export_job SET nb_records_exported = ? WHERE id_export_job = ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM directory_export_job WHERE id_export_job = ? ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int newPrimaryKey( Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, plugin );
+        daoUtil.executeQuery( );
+
+        int nKey = 1;
+
+        if ( daoUtil.next( ) )
+        {
+            nKey = daoUtil.getInt( 1 ) + 1;
+        }
+
+        daoUtil.free( );
+
+        return nKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void insert( ExportJob exportJob, Plugin plugin )
+    {
+        exportJob.setIdExportJob( newPrimaryKey( plugin ) );
+
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
+        int nIndex = 1;
+        daoUtil.setInt( nIndex++, exportJob.getIdExportJob( ) );
+        daoUtil.setInt( nIndex++, exportJob.getIdDirectory( ) );
+        daoUtil.setInt( nIndex++, exportJob.getIdAdminUser( ) );
+        daoUtil.setString( nIndex++, exportJob.getFileName( ) );
+        daoUtil.setString( nIndex++, exportJob.getEncoding( ) );
+        daoUtil.setInt( nIndex++, exportJob.getStatus( ) );
+        daoUtil.setInt( nIndex++, exportJob.getNbRecords( ) );
+        daoUtil.setInt( nIndex++, exportJob.getNbRecordsExported( ) );
+        daoUtil.setTimestamp( nIndex++, exportJob.getDateCreation( ) );
+        daoUtil.setTimestamp( nIndex++, exportJob.getDateEnd( ) );
+        daoUtil.setString( nIndex++, exportJob.getErrorMessage( ) );
+        daoUtil.setString( nIndex, exportJob.getNodeName( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store( ExportJob exportJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin );
+        int nIndex = 1;
+        daoUtil.setInt( nIndex++, exportJob.getStatus( ) );
+        daoUtil.setInt( nIndex++, exportJob.getNbRecordsExported( ) );
+        daoUtil.setTimestamp( nIndex++, exportJob.getDateEnd( ) );
+        daoUtil.setString( nIndex++, exportJob.getErrorMessage( ) );
+        daoUtil.setInt( nIndex, exportJob.getIdExportJob( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeProgress( int nIdExportJob, int nNbRecordsExported, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_PROGRESS, plugin );
+        daoUtil.setInt( 1, nNbRecordsExported );
+        daoUtil.setInt( 2, nIdExportJob );
+
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExportJob load( int nIdExportJob, Plugin plugin )
+    {
+        ExportJob exportJob = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, plugin );
+        daoUtil.setInt( 1, nIdExportJob );
+        daoUtil.executeQuery( );
+
+        if ( daoUtil.next( ) )
+        {
+            exportJob = getExportJob( daoUtil );
+        }
+
+        daoUtil.free( );
+
+        return exportJob;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( int nIdExportJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin );
+        daoUtil.setInt( 1, nIdExportJob );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ExportJob> selectByIdDirectoryAndIdAdminUser( int nIdDirectory, int nIdAdminUser, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_ID_DIRECTORY_AND_ID_ADMIN_USER, plugin );
+        daoUtil.setInt( 1, nIdDirectory );
+        daoUtil.setInt( 2, nIdAdminUser );
+
+        return selectList( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ExportJob> selectNotOver( String strNodeName, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_NOT_OVER, plugin );
+        daoUtil.setInt( 1, ExportJob.STATUS_PENDING );
+        daoUtil.setInt( 2, ExportJob.STATUS_RUNNING );
+        daoUtil.setString( 3, strNodeName );
+
+        return selectList( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ExportJob> selectOverBefore( Timestamp tDateEnd, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_OVER_BEFORE, plugin );
+        daoUtil.setInt( 1, ExportJob.STATUS_PENDING );
+        daoUtil.setInt( 2, ExportJob.STATUS_RUNNING );
+        daoUtil.setTimestamp( 3, tDateEnd );
+
+        return selectList( daoUtil );
+    }
+
+    /**
+     * Execute a query selecting export jobs
+     *
+     * @param daoUtil
+     *            the daoUtil, with its parameters set
+     * @return the list of export jobs
+     */
+    private List<ExportJob> selectList( DAOUtil daoUtil )
+    {
+        List<ExportJob> listExportJob = new ArrayList<ExportJob>( );
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            listExportJob.add( getExportJob( daoUtil ) );
+        }
+
+        daoUtil.free( );
+
+        return listExportJob;
+    }
+
+    /**
+     * Build an export job from the current row of a query
+     *
+     * @param daoUtil
+     *            the daoUtil
+     * @return the export job
+     */
+    private ExportJob getExportJob( DAOUtil daoUtil )
+    {
+        ExportJob exportJob = new ExportJob( );
+        int nIndex = 1;
+        exportJob.setIdExportJob( daoUtil.getInt( nIndex++ ) );
+        exportJob.setIdDirectory( daoUtil.getInt( nIndex++ ) );
+        exportJob.setIdAdminUser( daoUtil.getInt( nIndex++ ) );
+        exportJob.setFileName( daoUtil.getString( nIndex++ ) );
+        exportJob.setEncoding( daoUtil.getString( nIndex++ ) );
+        exportJob.setStatus( daoUtil.getInt( nIndex++ ) );
+        exportJob.setNbRecords( daoUtil.getInt( nIndex++ ) );
+        exportJob.setNbRecordsExported( daoUtil.getInt( nIndex++ ) );
+        exportJob.setDateCreation( daoUtil.getTimestamp( nIndex++ ) );
+        exportJob.setDateEnd( daoUtil.getTimestamp( nIndex++ ) );
+        exportJob.setErrorMessage( daoUtil.getString( nIndex++ ) );
+        exportJob.setNodeName( daoUtil.getString( nIndex ) );
+
+        return exportJob;
+    }
+}
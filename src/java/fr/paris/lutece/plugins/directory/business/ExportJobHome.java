@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * This class provides instances management methods (create, find, ...) for ExportJob objects
+ */
+public final class ExportJobHome
+{
+    // Static variable pointed at the DAO instance
+    private static IExportJobDAO _dao = SpringContextService.getBean( "directoryExportJobDAO" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private ExportJobHome( )
+    {
+    }
+
+    /**
+     * Creation of an instance of export job
+     *
+     * @param exportJob
+     *            The instance of the export job which contains the informations to store
+     * @param plugin
+     *            the Plugin
+     */
+    public static void create( ExportJob exportJob, Plugin plugin )
+    {
+        _dao.insert( exportJob, plugin );
+    }
+
+    /**
+     * Update of the export job which is specified in parameter
+     *
+     * @param exportJob
+     *            The instance of the export job which contains the informations to update
+     * @param plugin
+     *            the Plugin
+     */
+    public static void update( ExportJob exportJob, Plugin plugin )
+    {
+        _dao.store( exportJob, plugin );
+    }
+
+    /**
+     * Update the number of records exported by an export job
+     *
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param nNbRecordsExported
+     *            the number of records exported so far
+     * @param plugin
+     *            the Plugin
+     */
+    public static void updateProgress( int nIdExportJob, int nNbRecordsExported, Plugin plugin )
+    {
+        _dao.storeProgress( nIdExportJob, nNbRecordsExported, plugin );
+    }
+
+    /**
+     * Remove the export job whose identifier is specified in parameter
+     *
+     * @param nIdExportJob
+     *            The export job id
+     * @param plugin
+     *            the Plugin
+     */
+    public static void remove( int nIdExportJob, Plugin plugin )
+    {
+        _dao.delete( nIdExportJob, plugin );
+    }
+
+    /**
+     * Returns an instance of an export job whose identifier is specified in parameter
+     *
+     * @param nIdExportJob
+     *            The export job primary key
+     * @param plugin
+     *            the Plugin
+     * @return an instance of ExportJob
+     */
+    public static ExportJob findByPrimaryKey( int nIdExportJob, Plugin plugin )
+    {
+        return _dao.load( nIdExportJob, plugin );
+    }
+
+    /**
+     * Load the export jobs of a directory requested by an admin user, the most recent first
+     *
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param nIdAdminUser
+     *            the id of the admin user
+     * @param plugin
+     *            the Plugin
+     * @return the list of export jobs
+     */
+    public static List<ExportJob> getListByIdDirectoryAndIdAdminUser( int nIdDirectory, int nIdAdminUser, Plugin plugin )
+    {
+        return _dao.selectByIdDirectoryAndIdAdminUser( nIdDirectory, nIdAdminUser, plugin );
+    }
+
+    /**
+     * Load the export jobs which are pending or running on a given node, or on an unknown one
+     *
+     * @param strNodeName
+     *            the name of the node
+     * @param plugin
+     *            the Plugin
+     * @return the list of export jobs
+     */
+    public static List<ExportJob> getListNotOver( String strNodeName, Plugin plugin )
+    {
+        return _dao.selectNotOver( strNodeName, plugin );
+    }
+
+    /**
+     * Load the export jobs over before a given date
+     *
+     * @param tDateEnd
+     *            the date
+     * @param plugin
+     *            the Plugin
+     * @return the list of export jobs
+     */
+    public static List<ExportJob> getListOverBefore( Timestamp tDateEnd, Plugin plugin )
+    {
+        return _dao.selectOverBefore( tDateEnd, plugin );
+    }
+}
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.directory.business;
 
 import fr.paris.lutece.portal.business.regularexpression.RegularExpression;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.workgroup.AdminWorkgroupResource;
 
 import java.util.Date;
@@ -44,7 +45,7 @@ import java.util.List;
  * class Field
  *
  */
-public class Field implements AdminWorkgroupResource
+public class Field implements AdminWorkgroupResource, Cloneable
 {
     public static final String ATTRIBUTE_FIELD_TITLE = "title";
     public static final String ATTRIBUTE_FIELD_ID = "id";
@@ -390,4 +391,22 @@ public class Field implements AdminWorkgroupResource
     {
         _strImageType = strImageType;
     }
+
+    /**
+     * Return a shallow copy of the field, its regular expression list is shared
+     * 
+     * @return the copy
+     */
+    @Override
+    public Field clone( )
+    {
+        try
+        {
+            return (Field) super.clone( );
+        }
+        catch( CloneNotSupportedException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
 }
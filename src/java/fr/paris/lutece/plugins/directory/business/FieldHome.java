@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.service.DirectoryCacheService;
 import fr.paris.lutece.portal.business.regularexpression.RegularExpression;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.regularexpression.RegularExpressionService;
@@ -67,7 +68,10 @@ public final class FieldHome
      */
     public static int create( Field field, Plugin plugin )
     {
-        return _dao.insert( field, plugin );
+        int nIdField = _dao.insert( field, plugin );
+        DirectoryCacheService.getInstance( ).invalidate( );
+
+        return nIdField;
     }
 
     /**
@@ -102,6 +106,7 @@ public final class FieldHome
     public static void update( Field field, Plugin plugin )
     {
         _dao.store( field, plugin );
+        DirectoryCacheService.getInstance( ).invalidate( );
     }
 
     /**
@@ -122,6 +127,7 @@ public final class FieldHome
         }
 
         _dao.delete( nIdField, plugin );
+        DirectoryCacheService.getInstance( ).invalidate( );
     }
 
     // /////////////////////////////////////////////////////////////////////////
@@ -142,32 +148,46 @@ public final class FieldHome
 
         if ( field != null )
         {
-            List<RegularExpression> listRegularExpression = new ArrayList<RegularExpression>( );
+            field.setRegularExpressionList( getRegularExpressionList( nKey, plugin ) );
+        }
 
-            if ( RegularExpressionService.getInstance( ).isAvailable( ) )
+        return field;
+    }
+
+    /**
+     * Returns the regular expressions associated to a field
+     *
+     * @param nIdField
+     *            The field id
+     * @param plugin
+     *            the Plugin
+     * @return the regular expressions, empty if the regular expression service is not available
+     */
+    public static List<RegularExpression> getRegularExpressionList( int nIdField, Plugin plugin )
+    {
+        List<RegularExpression> listRegularExpression = new ArrayList<RegularExpression>( );
+
+        if ( RegularExpressionService.getInstance( ).isAvailable( ) )
+        {
+            List<Integer> listRegularExpressionKeyEntry = getListRegularExpressionKeyByIdField( nIdField, plugin );
+
+            if ( ( listRegularExpressionKeyEntry != null ) && ( listRegularExpressionKeyEntry.size( ) != 0 ) )
             {
-                List<Integer> listRegularExpressionKeyEntry = getListRegularExpressionKeyByIdField( nKey, plugin );
+                RegularExpression regularExpression = null;
 
-                if ( ( listRegularExpressionKeyEntry != null ) && ( listRegularExpressionKeyEntry.size( ) != 0 ) )
+                for ( Integer regularExpressionKey : listRegularExpressionKeyEntry )
                 {
-                    RegularExpression regularExpression = null;
+                    regularExpression = RegularExpressionService.getInstance( ).getRegularExpressionByKey( regularExpressionKey );
 
-                    for ( Integer regularExpressionKey : listRegularExpressionKeyEntry )
+                    if ( regularExpression != null )
                     {
-                        regularExpression = RegularExpressionService.getInstance( ).getRegularExpressionByKey( regularExpressionKey );
-
-                        if ( regularExpression != null )
-                        {
-                            listRegularExpression.add( regularExpression );
-                        }
+                        listRegularExpression.add( regularExpression );
                     }
                 }
             }
-
-            field.setRegularExpressionList( listRegularExpression );
         }
 
-        return field;
+        return listRegularExpression;
     }
 
     /**
@@ -226,7 +246,17 @@ public final class FieldHome
      */
     public static List<Field> getFieldListByIdEntry( int nIdEntry, Plugin plugin )
     {
-        return _dao.selectFieldListByIdEntry( nIdEntry, plugin );
+        DirectoryCacheService cacheService = DirectoryCacheService.getInstance( );
+        List<Field> listFields = cacheService.getFieldList( nIdEntry );
+
+        if ( listFields == null )
+        {
+            long lVersion = cacheService.getVersion( );
+            listFields = _dao.selectFieldListByIdEntry( nIdEntry, plugin );
+            cacheService.putFieldList( lVersion, nIdEntry, listFields );
+        }
+
+        return listFields;
     }
 
     /**
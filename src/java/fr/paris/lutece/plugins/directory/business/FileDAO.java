@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.business.key.PrimaryKeyHome;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
 import java.util.ArrayList;
@@ -44,12 +46,16 @@ import java.util.List;
 public final class FileDAO implements IFileDAO
 {
     // Constants
-    private static final String SQL_QUERY_NEW_PK = "SELECT max( id_file ) FROM directory_file";
+    private static final String TABLE_NAME = "directory_file";
+    private static final String KEY_COLUMN_NAME = "id_file";
     private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_file,title,id_physical_file,file_size,mime_type,extension, date_expiration "
             + " FROM directory_file WHERE id_file = ?";
     private static final String SQL_QUERY_INSERT = "INSERT INTO directory_file(id_file,title,id_physical_file,file_size,mime_type,extension,date_expiration)"
             + " VALUES(?,?,?,?,?,?,?)";
     private static final String SQL_QUERY_DELETE = "DELETE FROM directory_file WHERE id_file = ? ";
+    private static final String SQL_QUERY_DELETE_BY_LIST_ID = "DELETE FROM directory_file WHERE id_file IN ( ?";
+    private static final String SQL_ADITIONAL_PARAMETER = ",?";
+    private static final String SQL_CLOSE_PARENTHESIS = " ) ";
     private static final String SQL_QUERY_UPDATE = "UPDATE  directory_file SET "
             + "id_file=?,title=?,id_physical_file=?,file_size=?,mime_type=?, extension=?, date_expiration=? WHERE id_file = ?";
     private static final String SQL_QUERY_PURGE = " UPDATE directory_file SET title = ?, file_size = ? WHERE id_file = ?";
@@ -61,28 +67,14 @@ public final class FileDAO implements IFileDAO
     @Override
     public int newPrimaryKey( Plugin plugin )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, plugin );
-        daoUtil.executeQuery( );
-
-        int nKey;
-
-        if ( !daoUtil.next( ) )
-        {
-            // if the table is empty
-            nKey = 1;
-        }
-
-        nKey = daoUtil.getInt( 1 ) + 1;
-        daoUtil.free( );
-
-        return nKey;
+        return PrimaryKeyHome.newPrimaryKey( TABLE_NAME, KEY_COLUMN_NAME, plugin );
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized int insert( File file, Plugin plugin )
+    public int insert( File file, Plugin plugin )
     {
         DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
         daoUtil.setString( 2, file.getTitle( ) );
@@ -159,6 +151,36 @@ public final class FileDAO implements IFileDAO
         daoUtil.free( );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( List<Integer> listIdFile, Plugin plugin )
+    {
+        for ( List<Integer> listIdFileChunk : DirectoryUtils.getSqlInListChunks( listIdFile ) )
+        {
+            int nListIdSize = listIdFileChunk.size( );
+            StringBuilder sbSQL = new StringBuilder( SQL_QUERY_DELETE_BY_LIST_ID );
+
+            for ( int i = 1; i < nListIdSize; i++ )
+            {
+                sbSQL.append( SQL_ADITIONAL_PARAMETER );
+            }
+
+            sbSQL.append( SQL_CLOSE_PARENTHESIS );
+
+            DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin );
+
+            for ( int i = 0; i < nListIdSize; i++ )
+            {
+                daoUtil.setInt( i + 1, listIdFileChunk.get( i ) );
+            }
+
+            daoUtil.executeUpdate( );
+            daoUtil.free( );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.directory.business;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -112,6 +113,34 @@ public final class FileHome
         _dao.delete( nIdFile, plugin );
     }
 
+    /**
+     * Delete files and their physical files, with set-based queries. Unlike {@link #remove(int, Plugin)}, the files are not reloaded : they must hold the
+     * ids of their physical files.
+     *
+     * @param listFile
+     *            The files to delete
+     * @param plugin
+     *            the Plugin
+     */
+    public static void remove( List<File> listFile, Plugin plugin )
+    {
+        List<Integer> listIdFile = new ArrayList<Integer>( listFile.size( ) );
+        List<Integer> listIdPhysicalFile = new ArrayList<Integer>( listFile.size( ) );
+
+        for ( File file : listFile )
+        {
+            listIdFile.add( file.getIdFile( ) );
+
+            if ( file.getPhysicalFile( ) != null )
+            {
+                listIdPhysicalFile.add( file.getPhysicalFile( ).getIdPhysicalFile( ) );
+            }
+        }
+
+        _dao.delete( listIdFile, plugin );
+        PhysicalFileHome.remove( listIdPhysicalFile, plugin );
+    }
+
     // /////////////////////////////////////////////////////////////////////////
     // Finders
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ *
+ * IExportJobDAO
+ *
+ */
+public interface IExportJobDAO
+{
+    /**
+     * Generates a new primary key
+     *
+     * @param plugin
+     *            the plugin
+     * @return The new primary key
+     */
+    int newPrimaryKey( Plugin plugin );
+
+    /**
+     * Insert a new export job in the table.
+     *
+     * @param exportJob
+     *            instance of the ExportJob object to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insert( ExportJob exportJob, Plugin plugin );
+
+    /**
+     * Update the export job in the table
+     *
+     * @param exportJob
+     *            the export job to update
+     * @param plugin
+     *            the plugin
+     */
+    void store( ExportJob exportJob, Plugin plugin );
+
+    /**
+     * Update the number of records exported by an export job
+     *
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param nNbRecordsExported
+     *            the number of records exported so far
+     * @param plugin
+     *            the plugin
+     */
+    void storeProgress( int nIdExportJob, int nNbRecordsExported, Plugin plugin );
+
+    /**
+     * Load the data of the export job from the table
+     *
+     * @param nIdExportJob
+     *            The identifier of the export job
+     * @param plugin
+     *            the plugin
+     * @return the instance of the ExportJob
+     */
+    ExportJob load( int nIdExportJob, Plugin plugin );
+
+    /**
+     * Delete an export job from the table
+     *
+     * @param nIdExportJob
+     *            The identifier of the export job
+     * @param plugin
+     *            the plugin
+     */
+    void delete( int nIdExportJob, Plugin plugin );
+
+    /**
+     * Load the export jobs of a directory requested by an admin user, the most recent first
+     *
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param nIdAdminUser
+     *            the id of the admin user
+     * @param plugin
+     *            the plugin
+     * @return the list of export jobs
+     */
+    List<ExportJob> selectByIdDirectoryAndIdAdminUser( int nIdDirectory, int nIdAdminUser, Plugin plugin );
+
+    /**
+     * Load the export jobs which are not over, run by a given node or by an unknown one
+     *
+     * @param strNodeName
+     *            the name of the node
+     * @param plugin
+     *            the plugin
+     * @return the list of export jobs
+     */
+    List<ExportJob> selectNotOver( String strNodeName, Plugin plugin );
+
+    /**
+     * Load the export jobs over before a given date
+     *
+     * @param tDateEnd
+     *            the date
+     * @param plugin
+     *            the plugin
+     * @return the list of export jobs
+     */
+    List<ExportJob> selectOverBefore( Timestamp tDateEnd, Plugin plugin );
+}
@@ -84,6 +84,16 @@ public interface IFileDAO
      */
     void delete( int nIdFile, Plugin plugin );
 
+    /**
+     * Delete files by list of id
+     *
+     * @param listIdFile
+     *            the ids of the files
+     * @param plugin
+     *            the plugin
+     */
+    void delete( List<Integer> listIdFile, Plugin plugin );
+
     /**
      * Update the file in the table
      *
@@ -63,6 +63,16 @@ public interface IIndexerActionDAO
      */
     void insert( IndexerAction indexerAction, Plugin plugin );
 
+    /**
+     * Insert a list of new records in the table with a single batch.
+     *
+     * @param listIndexerAction
+     *            the IndexerAction objects to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insert( List<IndexerAction> listIndexerAction, Plugin plugin );
+
     /**
      * Load the data of the IndexerAction from the table
      *
@@ -104,4 +114,25 @@ public interface IIndexerActionDAO
      * @return The List which contains the data of all action
      */
     List<IndexerAction> selectList( IndexerActionFilter filter, Plugin plugin );
+
+    /**
+     * Load the oldest indexerActions, in the order of their creation
+     * 
+     * @param nMaxActions
+     *            the maximum number of actions to load
+     * @param plugin
+     *            the plugin
+     * @return The List which contains the data of the actions
+     */
+    List<IndexerAction> selectFirstActions( int nMaxActions, Plugin plugin );
+
+    /**
+     * Delete a list of actions from the table
+     * 
+     * @param listIdAction
+     *            The identifiers of the actions
+     * @param plugin
+     *            the plugin
+     */
+    void deleteByListIdAction( List<Integer> listIdAction, Plugin plugin );
 }
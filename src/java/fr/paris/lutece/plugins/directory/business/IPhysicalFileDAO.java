@@ -35,6 +35,8 @@ package fr.paris.lutece.plugins.directory.business;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
+import java.util.List;
+
 /**
  *
  * IPhysicalFileDAO
@@ -83,6 +85,16 @@ public interface IPhysicalFileDAO
      */
     void delete( int nIdPhysicalFile, Plugin plugin );
 
+    /**
+     * Delete physical files by list of id
+     *
+     * @param listIdPhysicalFile
+     *            the ids of the physical files
+     * @param plugin
+     *            the plugin
+     */
+    void delete( List<Integer> listIdPhysicalFile, Plugin plugin );
+
     /**
      * Update the physical file in the table
      *
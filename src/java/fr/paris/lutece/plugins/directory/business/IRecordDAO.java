@@ -36,6 +36,7 @@ package fr.paris.lutece.plugins.directory.business;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -55,6 +56,16 @@ public interface IRecordDAO
      */
     int insert( Record record, Plugin plugin );
 
+    /**
+     * Insert records in a single batch, their keys being allocated at once
+     *
+     * @param listRecord
+     *            the records to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insert( List<Record> listRecord, Plugin plugin );
+
     /**
      * Load the data of the record from the table
      *
@@ -98,6 +109,16 @@ public interface IRecordDAO
      */
     void delete( int nIdRecord, Plugin plugin );
 
+    /**
+     * Delete records by list of id
+     *
+     * @param listIdRecord
+     *            the ids of the records
+     * @param plugin
+     *            the plugin
+     */
+    void delete( List<Integer> listIdRecord, Plugin plugin );
+
     /**
      * Delete list of record by directory id
      * 
@@ -161,4 +182,15 @@ public interface IRecordDAO
      * @return directory id
      */
     Integer getDirectoryIdByRecordId( Integer nRecordId, Plugin plugin );
+
+    /**
+     * Get the directory id of each record of a list. The records which do not exist are not in the returned map
+     * 
+     * @param listIdRecord
+     *            the list of record id
+     * @param plugin
+     *            the plugin
+     * @return the map record id / directory id
+     */
+    Map<Integer, Integer> getDirectoryIdByListRecordId( List<Integer> listIdRecord, Plugin plugin );
 }
@@ -54,6 +54,16 @@ public interface IRecordFieldDAO
      */
     void insert( RecordField recordField, Plugin plugin );
 
+    /**
+     * Insert record fields in a single batch, their keys being allocated at once
+     *
+     * @param listRecordField
+     *            the record fields to insert
+     * @param plugin
+     *            the plugin
+     */
+    void insert( List<RecordField> listRecordField, Plugin plugin );
+
     /**
      * Load the data of the record field from the table
      *
@@ -75,6 +85,16 @@ public interface IRecordFieldDAO
      */
     void delete( int nIdRecordField, Plugin plugin );
 
+    /**
+     * Delete record fields by list of record field id
+     *
+     * @param listIdRecordField
+     *            the ids of the record fields
+     * @param plugin
+     *            the plugin
+     */
+    void delete( List<Integer> listIdRecordField, Plugin plugin );
+
     /**
      * Delete list of record fields by list of record id
      * 
@@ -95,6 +115,16 @@ public interface IRecordFieldDAO
      */
     void store( RecordField recordField, Plugin plugin );
 
+    /**
+     * Update record fields in a single batch
+     *
+     * @param listRecordField
+     *            the record fields to update
+     * @param plugin
+     *            the plugin
+     */
+    void store( List<RecordField> listRecordField, Plugin plugin );
+
     /**
      * Load the data of all the record field who verify the filter and returns them in a list
      * 
@@ -106,6 +136,20 @@ public interface IRecordFieldDAO
      */
     List<RecordField> selectListByFilter( RecordFieldFilter filter, Plugin plugin );
 
+    /**
+     * Load the data of all the record field who verify the filter, with the associations of the fetch plan loaded in the same query, and returns them
+     * in a list
+     * 
+     * @param filter
+     *            the filter
+     * @param fetchPlan
+     *            the associations to load
+     * @param plugin
+     *            the plugin
+     * @return the list of record field
+     */
+    List<RecordField> selectListByFilter( RecordFieldFilter filter, RecordFieldFetchPlan fetchPlan, Plugin plugin );
+
     /**
      * Load full record field data (except binary file data) of given list of Record id * /!\ include record data
      * 
@@ -130,6 +174,19 @@ public interface IRecordFieldDAO
      */
     List<RecordField> selectSpecificList( List<Integer> lEntryId, Integer nIdRecord, Plugin plugin );
 
+    /**
+     * Load full record field data (except binary file data) of a list of records /!\ record data is NOT load, only the id
+     * 
+     * @param lEntryId
+     *            List entry to load
+     * @param listIdRecord
+     *            the ids of the records
+     * @param plugin
+     *            the plugin
+     * @return list of record fields, ordered by entry and field position
+     */
+    List<RecordField> selectSpecificListByListIdRecord( List<Integer> lEntryId, List<Integer> listIdRecord, Plugin plugin );
+
     /**
      * return the number of record field who verify the filter
      * 
@@ -206,4 +263,40 @@ public interface IRecordFieldDAO
      * @return the list of record field
      */
     RecordField loadByFile( int nIdFile, Plugin plugin );
+
+    /**
+     * Load the values of all the record fields of an entry
+     * 
+     * @param nIdEntry
+     *            The entry Id
+     * @param plugin
+     *            The plugin
+     * @return the list of values, one for each record field
+     */
+    List<String> selectValuesListByIdEntry( int nIdEntry, Plugin plugin );
+
+    /**
+     * Load the entry and the value of all the record fields of a record. Only the id of the entry is loaded.
+     * 
+     * @param nIdRecord
+     *            The record Id
+     * @param plugin
+     *            The plugin
+     * @return the list of record fields
+     */
+    List<RecordField> selectEntryValuesListByIdRecord( int nIdRecord, Plugin plugin );
+
+    /**
+     * Load the record, the entry and the value of the record fields of a list of records, restricted to a list of entries. Only the id of the record and
+     * the id of the entry are loaded. The record fields are sorted by record, then in the order of the entries and fields of the directory.
+     * 
+     * @param listIdRecord
+     *            The list of record Id
+     * @param listIdEntry
+     *            The list of entry Id
+     * @param plugin
+     *            The plugin
+     * @return the list of record fields
+     */
+    List<RecordField> selectEntryValuesListByListIdRecord( List<Integer> listIdRecord, List<Integer> listIdEntry, Plugin plugin );
 }
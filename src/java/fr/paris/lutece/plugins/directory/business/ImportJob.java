@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+import java.sql.Timestamp;
+
+/**
+ *
+ * ImportJob : an import of records from a CSV file run in background
+ *
+ */
+public class ImportJob
+{
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_RUNNING = 1;
+    public static final int STATUS_DONE = 2;
+    public static final int STATUS_FAILED = 3;
+    public static final int STATUS_CANCELLED = 4;
+    private int _nIdImportJob;
+    private int _nIdDirectory;
+    private int _nIdAdminUser;
+    private String _strFileName;
+    private volatile int _nStatus;
+    private long _lFileSize;
+    private volatile long _lNbBytesRead;
+    private volatile int _nNbLines;
+    private volatile int _nNbLinesImported;
+    private volatile int _nNbLinesFailure;
+    private Timestamp _tDateCreation;
+    private volatile Timestamp _tDateEnd;
+    private volatile String _strErrorMessage;
+    private String _strNodeName;
+
+    /**
+     * Get the id of the import job
+     * 
+     * @return the id of the import job
+     */
+    public int getIdImportJob( )
+    {
+        return _nIdImportJob;
+    }
+
+    /**
+     * Set the id of the import job
+     * 
+     * @param nIdImportJob
+     *            the id of the import job
+     */
+    public void setIdImportJob( int nIdImportJob )
+    {
+        _nIdImportJob = nIdImportJob;
+    }
+
+    /**
+     * Get the id of the directory the records are imported in
+     * 
+     * @return the id of the directory
+     */
+    public int getIdDirectory( )
+    {
+        return _nIdDirectory;
+    }
+
+    /**
+     * Set the id of the directory the records are imported in
+     * 
+     * @param nIdDirectory
+     *            the id of the directory
+     */
+    public void setIdDirectory( int nIdDirectory )
+    {
+        _nIdDirectory = nIdDirectory;
+    }
+
+    /**
+     * Get the id of the admin user who requested the import
+     * 
+     * @return the id of the admin user
+     */
+    public int getIdAdminUser( )
+    {
+        return _nIdAdminUser;
+    }
+
+    /**
+     * Set the id of the admin user who requested the import
+     * 
+     * @param nIdAdminUser
+     *            the id of the admin user
+     */
+    public void setIdAdminUser( int nIdAdminUser )
+    {
+        _nIdAdminUser = nIdAdminUser;
+    }
+
+    /**
+     * Get the name of the imported file
+     * 
+     * @return the file name
+     */
+    public String getFileName( )
+    {
+        return _strFileName;
+    }
+
+    /**
+     * Set the name of the imported file
+     * 
+     * @param strFileName
+     *            the file name
+     */
+    public void setFileName( String strFileName )
+    {
+        _strFileName = strFileName;
+    }
+
+    /**
+     * Get the status of the import job
+     * 
+     * @return the status
+     */
+    public int getStatus( )
+    {
+        return _nStatus;
+    }
+
+    /**
+     * Set the status of the import job
+     * 
+     * @param nStatus
+     *            the status
+     */
+    public void setStatus( int nStatus )
+    {
+        _nStatus = nStatus;
+    }
+
+    /**
+     * Get the size of the imported file
+     * 
+     * @return the size in bytes
+     */
+    public long getFileSize( )
+    {
+        return _lFileSize;
+    }
+
+    /**
+     * Set the size of the imported file
+     * 
+     * @param lFileSize
+     *            the size in bytes
+     */
+    public void setFileSize( long lFileSize )
+    {
+        _lFileSize = lFileSize;
+    }
+
+    /**
+     * Get the number of bytes of the file read so far
+     * 
+     * @return the number of bytes read
+     */
+    public long getNbBytesRead( )
+    {
+        return _lNbBytesRead;
+    }
+
+    /**
+     * Set the number of bytes of the file read so far
+     * 
+     * @param lNbBytesRead
+     *            the number of bytes read
+     */
+    public void setNbBytesRead( long lNbBytesRead )
+    {
+        _lNbBytesRead = lNbBytesRead;
+    }
+
+    /**
+     * Get the number of lines read so far
+     * 
+     * @return the number of lines
+     */
+    public int getNbLines( )
+    {
+        return _nNbLines;
+    }
+
+    /**
+     * Set the number of lines read so far
+     * 
+     * @param nNbLines
+     *            the number of lines
+     */
+    public void setNbLines( int nNbLines )
+    {
+        _nNbLines = nNbLines;
+    }
+
+    /**
+     * Get the number of lines imported so far
+     * 
+     * @return the number of lines imported
+     */
+    public int getNbLinesImported( )
+    {
+        return _nNbLinesImported;
+    }
+
+    /**
+     * Set the number of lines imported so far
+     * 
+     * @param nNbLinesImported
+     *            the number of lines imported
+     */
+    public void setNbLinesImported( int nNbLinesImported )
+    {
+        _nNbLinesImported = nNbLinesImported;
+    }
+
+    /**
+     * Get the number of lines rejected so far
+     * 
+     * @return the number of lines in error
+     */
+    public int getNbLinesFailure( )
+    {
+        return _nNbLinesFailure;
+    }
+
+    /**
+     * Set the number of lines rejected so far
+     * 
+     * @param nNbLinesFailure
+     *            the number of lines in error
+     */
+    public void setNbLinesFailure( int nNbLinesFailure )
+    {
+        _nNbLinesFailure = nNbLinesFailure;
+    }
+
+    /**
+     * Get the progress of the import job, from the part of the file read
+     * 
+     * @return the progress, in percent
+     */
+    public int getProgress( )
+    {
+        if ( _lFileSize == 0 )
+        {
+            return ( _nStatus == STATUS_DONE ) ? 100 : 0;
+        }
+
+        return (int) ( ( 100L * Math.min( _lNbBytesRead, _lFileSize ) ) / _lFileSize );
+    }
+
+    /**
+     * Get the creation date of the import job
+     * 
+     * @return the creation date
+     */
+    public Timestamp getDateCreation( )
+    {
+        return _tDateCreation;
+    }
+
+    /**
+     * Set the creation date of the import job
+     * 
+     * @param tDateCreation
+     *            the creation date
+     */
+    public void setDateCreation( Timestamp tDateCreation )
+    {
+        _tDateCreation = tDateCreation;
+    }
+
+    /**
+     * Get the end date of the import job
+     * 
+     * @return the end date, or null if the job is not over
+     */
+    public Timestamp getDateEnd( )
+    {
+        return _tDateEnd;
+    }
+
+    /**
+     * Set the end date of the import job
+     * 
+     * @param tDateEnd
+     *            the end date
+     */
+    public void setDateEnd( Timestamp tDateEnd )
+    {
+        _tDateEnd = tDateEnd;
+    }
+
+    /**
+     * Get the error message of a failed import job
+     * 
+     * @return the error message
+     */
+    public String getErrorMessage( )
+    {
+        return _strErrorMessage;
+    }
+
+    /**
+     * Set the error message of a failed import job
+     * 
+     * @param strErrorMessage
+     *            the error message
+     */
+    public void setErrorMessage( String strErrorMessage )
+    {
+        _strErrorMessage = strErrorMessage;
+    }
+
+    /**
+     * Get the name of the node of the cluster running the import job
+     * 
+     * @return the name of the node
+     */
+    public String getNodeName( )
+    {
+        return _strNodeName;
+    }
+
+    /**
+     * Set the name of the node of the cluster running the import job
+     * 
+     * @param strNodeName
+     *            the name of the node
+     */
+    public void setNodeName( String strNodeName )
+    {
+        _strNodeName = strNodeName;
+    }
+
+    /**
+     * Tells if the import job is over, whatever its outcome
+     * 
+     * @return true if the job is over
+     */
+    public boolean isOver( )
+    {
+        return ( _nStatus != STATUS_PENDING ) && ( _nStatus != STATUS_RUNNING );
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for ImportJob objects
+ */
+public final class ImportJobDAO implements IImportJobDAO
+{
+    // Constants
+    private static final String SQL_QUERY_NEW_PK = "SELECT max( id_import_job ) FROM directory_import_job";
+    private static final String SQL_QUERY_SELECT = "SELECT id_import_job,id_directory,id_admin_user,file_name,status,file_size,nb_bytes_read,nb_lines,"
+            + "nb_lines_imported,nb_lines_failure,date_creation,date_end,error_message,node_name FROM directory_import_job ";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = SQL_QUERY_SELECT + " WHERE id_import_job = ? ";
+    private static final String SQL_QUERY_SELECT_BY_ID_DIRECTORY_AND_ID_ADMIN_USER = SQL_QUERY_SELECT
+            + " WHERE id_directory = ? AND id_admin_user = ? ORDER BY id_import_job DESC ";
+    private static final String SQL_QUERY_SELECT_NOT_OVER = SQL_QUERY_SELECT + " WHERE status IN ( ?,? ) AND ( node_name = ? OR node_name IS NULL ) ";
+    private static final String SQL_QUERY_SELECT_OVER_BEFORE = SQL_QUERY_SELECT + " WHERE status NOT IN ( ?,? ) AND date_end < ? ";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO directory_import_job( id_import_job,id_directory,id_admin_user,file_name,status,file_size,"
+            + "nb_bytes_read,nb_lines,nb_lines_imported,nb_lines_failure,date_creation,date_end,error_message,node_name ) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+    private static final String SQL_QUERY_UPDATE = "UPDATE directory_import_job SET status = ?,nb_bytes_read = ?,nb_lines = ?,nb_lines_imported = ?,"
+            + "nb_lines_failure = ?,date_end = ?,error_message = ? WHERE id_import_job = ? ";
+    private static final String SQL_QUERY_UPDATE_PROGRESS = "UPDATE directory_import_job SET nb_bytes_read = ?,nb_lines = ?,nb_lines_imported = ?,"
+            + "nb_lines_failure = ? WHERE id_import_job = ? ";
+    private static final String SQL_QUERY_DELETE = "DELETE FROM directory_import_job WHERE id_import_job = ? ";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int newPrimaryKey( Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, plugin );
+        daoUtil.executeQuery( );
+
+        int nKey = 1;
+
+        if ( daoUtil.next( ) )
+        {
+            nKey = daoUtil.getInt( 1 ) + 1;
+        }
+
+        daoUtil.free( );
+
+        return nKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void insert( ImportJob importJob, Plugin plugin )
+    {
+        importJob.setIdImportJob( newPrimaryKey( plugin ) );
+
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
+        int nIndex = 1;
+        daoUtil.setInt( nIndex++, importJob.getIdImportJob( ) );
+        daoUtil.setInt( nIndex++, importJob.getIdDirectory( ) );
+        daoUtil.setInt( nIndex++, importJob.getIdAdminUser( ) );
+        daoUtil.setString( nIndex++, importJob.getFileName( ) );
+        daoUtil.setInt( nIndex++, importJob.getStatus( ) );
+        daoUtil.setLong( nIndex++, importJob.getFileSize( ) );
+        daoUtil.setLong( nIndex++, importJob.getNbBytesRead( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLines( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLinesImported( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLinesFailure( ) );
+        daoUtil.setTimestamp( nIndex++, importJob.getDateCreation( ) );
+        daoUtil.setTimestamp( nIndex++, importJob.getDateEnd( ) );
+        daoUtil.setString( nIndex++, importJob.getErrorMessage( ) );
+        daoUtil.setString( nIndex, importJob.getNodeName( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store( ImportJob importJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin );
+        int nIndex = 1;
+        daoUtil.setInt( nIndex++, importJob.getStatus( ) );
+        daoUtil.setLong( nIndex++, importJob.getNbBytesRead( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLines( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLinesImported( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLinesFailure( ) );
+        daoUtil.setTimestamp( nIndex++, importJob.getDateEnd( ) );
+        daoUtil.setString( nIndex++, importJob.getErrorMessage( ) );
+        daoUtil.setInt( nIndex, importJob.getIdImportJob( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void storeProgress( ImportJob importJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE_PROGRESS, plugin );
+        int nIndex = 1;
+        daoUtil.setLong( nIndex++, importJob.getNbBytesRead( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLines( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLinesImported( ) );
+        daoUtil.setInt( nIndex++, importJob.getNbLinesFailure( ) );
+        daoUtil.setInt( nIndex, importJob.getIdImportJob( ) );
+
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ImportJob load( int nIdImportJob, Plugin plugin )
+    {
+        ImportJob importJob = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_FIND_BY_PRIMARY_KEY, plugin );
+        daoUtil.setInt( 1, nIdImportJob );
+        daoUtil.executeQuery( );
+
+        if ( daoUtil.next( ) )
+        {
+            importJob = getImportJob( daoUtil );
+        }
+
+        daoUtil.free( );
+
+        return importJob;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( int nIdImportJob, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin );
+        daoUtil.setInt( 1, nIdImportJob );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ImportJob> selectByIdDirectoryAndIdAdminUser( int nIdDirectory, int nIdAdminUser, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_ID_DIRECTORY_AND_ID_ADMIN_USER, plugin );
+        daoUtil.setInt( 1, nIdDirectory );
+        daoUtil.setInt( 2, nIdAdminUser );
+
+        return selectList( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ImportJob> selectNotOver( String strNodeName, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_NOT_OVER, plugin );
+        daoUtil.setInt( 1, ImportJob.STATUS_PENDING );
+        daoUtil.setInt( 2, ImportJob.STATUS_RUNNING );
+        daoUtil.setString( 3, strNodeName );
+
+        return selectList( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ImportJob> selectOverBefore( Timestamp tDateEnd, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_OVER_BEFORE, plugin );
+        daoUtil.setInt( 1, ImportJob.STATUS_PENDING );
+        daoUtil.setInt( 2, ImportJob.STATUS_RUNNING );
+        daoUtil.setTimestamp( 3, tDateEnd );
+
+        return selectList( daoUtil );
+    }
+
+    /**
+     * Execute a query selecting import jobs
+     *
+     * @param daoUtil
+     *            the daoUtil, with its parameters set
+     * @return the list of import jobs
+     */
+    private List<ImportJob> selectList( DAOUtil daoUtil )
+    {
+        List<ImportJob> listImportJob = new ArrayList<ImportJob>( );
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            listImportJob.add( getImportJob( daoUtil ) );
+        }
+
+        daoUtil.free( );
+
+        return listImportJob;
+    }
+
+    /**
+     * Build an import job from the current row of a query
+     *
+     * @param daoUtil
+     *            the daoUtil
+     * @return the import job
+     */
+    private ImportJob getImportJob( DAOUtil daoUtil )
+    {
+        ImportJob importJob = new ImportJob( );
+        int nIndex = 1;
+        importJob.setIdImportJob( daoUtil.getInt( nIndex++ ) );
+        importJob.setIdDirectory( daoUtil.getInt( nIndex++ ) );
+        importJob.setIdAdminUser( daoUtil.getInt( nIndex++ ) );
+        importJob.setFileName( daoUtil.getString( nIndex++ ) );
+        importJob.setStatus( daoUtil.getInt( nIndex++ ) );
+        importJob.setFileSize( daoUtil.getLong( nIndex++ ) );
+        importJob.setNbBytesRead( daoUtil.getLong( nIndex++ ) );
+        importJob.setNbLines( daoUtil.getInt( nIndex++ ) );
+        importJob.setNbLinesImported( daoUtil.getInt( nIndex++ ) );
+        importJob.setNbLinesFailure( daoUtil.getInt( nIndex++ ) );
+        importJob.setDateCreation( daoUtil.getTimestamp( nIndex++ ) );
+        importJob.setDateEnd( daoUtil.getTimestamp( nIndex++ ) );
+        importJob.setErrorMessage( daoUtil.getString( nIndex++ ) );
+        importJob.setNodeName( daoUtil.getString( nIndex ) );
+
+        return importJob;
+    }
+}
@@ -43,9 +43,11 @@ public class IndexerAction
     public static final int TASK_CREATE = 1;
     public static final int TASK_MODIFY = 2;
     public static final int TASK_DELETE = 3;
+    public static final int TASK_DELETE_DIRECTORY = 4;
     private int _nIdAction;
     private int _nIdTask;
     private int _nIdRecord;
+    private int _nIdDirectory;
 
     /**
      * Get the id of the action
@@ -109,4 +111,25 @@ public class IndexerAction
     {
         _nIdTask = idTask;
     }
+
+    /**
+     * Get the id of the directory, only set for the actions on a whole directory
+     * 
+     * @return the directory Id
+     */
+    public int getIdDirectory( )
+    {
+        return _nIdDirectory;
+    }
+
+    /**
+     * set the directory id
+     * 
+     * @param idDirectory
+     *            the directory id
+     */
+    public void setIdDirectory( int idDirectory )
+    {
+        _nIdDirectory = idDirectory;
+    }
 }
@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.business.key.PrimaryKeyHome;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
@@ -46,13 +47,19 @@ import java.util.List;
 public final class IndexerActionDAO implements IIndexerActionDAO
 {
     // Constants
-    private static final String SQL_QUERY_NEW_PK = "SELECT max( id_action ) FROM directory_indexer_action";
-    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_action,id_record,id_task" + " FROM directory_indexer_action WHERE id_action = ?";
-    private static final String SQL_QUERY_INSERT = "INSERT INTO directory_indexer_action( id_action,id_record,id_task)" + " VALUES(?,?,?)";
+    private static final String TABLE_NAME = "directory_indexer_action";
+    private static final String KEY_COLUMN_NAME = "id_action";
+    private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_action,id_record,id_task,id_directory"
+            + " FROM directory_indexer_action WHERE id_action = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO directory_indexer_action( id_action,id_record,id_task,id_directory)" + " VALUES(?,?,?,?)";
     private static final String SQL_QUERY_DELETE = "DELETE FROM directory_indexer_action WHERE id_action = ? ";
-    private static final String SQL_QUERY_UPDATE = "UPDATE directory_indexer_action SET id_action=?,id_record=?,id_task=? WHERE id_action = ? ";
-    private static final String SQL_QUERY_SELECT = "SELECT id_action,id_record,id_task" + " FROM directory_indexer_action  ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE directory_indexer_action SET id_action=?,id_record=?,id_task=?,id_directory=? WHERE id_action = ? ";
+    private static final String SQL_QUERY_SELECT = "SELECT id_action,id_record,id_task,id_directory" + " FROM directory_indexer_action  ";
     private static final String SQL_FILTER_ID_TASK = " id_task = ? ";
+    private static final String SQL_ORDER_BY_ID_ACTION = " ORDER BY id_action ";
+    private static final String SQL_QUERY_DELETE_BY_LIST_ID_ACTION = "DELETE FROM directory_indexer_action WHERE id_action IN ( ?";
+    private static final String SQL_ADITIONAL_PARAMETER = ",?";
+    private static final String SQL_CLOSE_PARENTHESIS = " ) ";
 
     /**
      * {@inheritDoc}
@@ -60,28 +67,14 @@ public final class IndexerActionDAO implements IIndexerActionDAO
     @Override
     public int newPrimaryKey( Plugin plugin )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, plugin );
-        daoUtil.executeQuery( );
-
-        int nKey;
-
-        if ( !daoUtil.next( ) )
-        {
-            // if the table is empty
-            nKey = 1;
-        }
-
-        nKey = daoUtil.getInt( 1 ) + 1;
-        daoUtil.free( );
-
-        return nKey;
+        return PrimaryKeyHome.newPrimaryKey( TABLE_NAME, KEY_COLUMN_NAME, plugin );
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized void insert( IndexerAction indexerAction, Plugin plugin )
+    public void insert( IndexerAction indexerAction, Plugin plugin )
     {
         indexerAction.setIdAction( newPrimaryKey( plugin ) );
 
@@ -89,12 +82,41 @@ public final class IndexerActionDAO implements IIndexerActionDAO
         daoUtil.setInt( 1, indexerAction.getIdAction( ) );
         daoUtil.setInt( 2, indexerAction.getIdRecord( ) );
         daoUtil.setInt( 3, indexerAction.getIdTask( ) );
+        daoUtil.setInt( 4, indexerAction.getIdDirectory( ) );
 
         daoUtil.executeUpdate( );
 
         daoUtil.free( );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert( List<IndexerAction> listIndexerAction, Plugin plugin )
+    {
+        if ( listIndexerAction.isEmpty( ) )
+        {
+            return;
+        }
+
+        int nKey = PrimaryKeyHome.newPrimaryKeys( TABLE_NAME, KEY_COLUMN_NAME, listIndexerAction.size( ), plugin );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
+
+        for ( IndexerAction indexerAction : listIndexerAction )
+        {
+            indexerAction.setIdAction( nKey++ );
+            daoUtil.setInt( 1, indexerAction.getIdAction( ) );
+            daoUtil.setInt( 2, indexerAction.getIdRecord( ) );
+            daoUtil.setInt( 3, indexerAction.getIdTask( ) );
+            daoUtil.setInt( 4, indexerAction.getIdDirectory( ) );
+            daoUtil.addBatch( );
+        }
+
+        daoUtil.executeBatch( );
+        daoUtil.free( );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -113,6 +135,7 @@ public final class IndexerActionDAO implements IIndexerActionDAO
             indexerAction.setIdAction( daoUtil.getInt( 1 ) );
             indexerAction.setIdRecord( daoUtil.getInt( 2 ) );
             indexerAction.setIdTask( daoUtil.getInt( 3 ) );
+            indexerAction.setIdDirectory( daoUtil.getInt( 4 ) );
         }
 
         daoUtil.free( );
@@ -142,8 +165,9 @@ public final class IndexerActionDAO implements IIndexerActionDAO
         daoUtil.setInt( 1, indexerAction.getIdAction( ) );
         daoUtil.setInt( 2, indexerAction.getIdRecord( ) );
         daoUtil.setInt( 3, indexerAction.getIdTask( ) );
+        daoUtil.setInt( 4, indexerAction.getIdDirectory( ) );
 
-        daoUtil.setInt( 4, indexerAction.getIdAction( ) );
+        daoUtil.setInt( 5, indexerAction.getIdAction( ) );
 
         daoUtil.executeUpdate( );
         daoUtil.free( );
@@ -184,6 +208,36 @@ public final class IndexerActionDAO implements IIndexerActionDAO
             indexerAction.setIdAction( daoUtil.getInt( 1 ) );
             indexerAction.setIdRecord( daoUtil.getInt( 2 ) );
             indexerAction.setIdTask( daoUtil.getInt( 3 ) );
+            indexerAction.setIdDirectory( daoUtil.getInt( 4 ) );
+
+            indexerActionList.add( indexerAction );
+        }
+
+        daoUtil.free( );
+
+        return indexerActionList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<IndexerAction> selectFirstActions( int nMaxActions, Plugin plugin )
+    {
+        List<IndexerAction> indexerActionList = new ArrayList<IndexerAction>( );
+        IndexerAction indexerAction = null;
+
+        // The reading stops after the first actions instead of using a paging clause, which is not the same for all the databases
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT + SQL_ORDER_BY_ID_ACTION, plugin );
+        daoUtil.executeQuery( );
+
+        while ( ( indexerActionList.size( ) < nMaxActions ) && daoUtil.next( ) )
+        {
+            indexerAction = new IndexerAction( );
+            indexerAction.setIdAction( daoUtil.getInt( 1 ) );
+            indexerAction.setIdRecord( daoUtil.getInt( 2 ) );
+            indexerAction.setIdTask( daoUtil.getInt( 3 ) );
+            indexerAction.setIdDirectory( daoUtil.getInt( 4 ) );
 
             indexerActionList.add( indexerAction );
         }
@@ -192,4 +246,34 @@ public final class IndexerActionDAO implements IIndexerActionDAO
 
         return indexerActionList;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteByListIdAction( List<Integer> listIdAction, Plugin plugin )
+    {
+        for ( List<Integer> listIdActionChunk : DirectoryUtils.getSqlInListChunks( listIdAction ) )
+        {
+            int nSize = listIdActionChunk.size( );
+            StringBuilder sb = new StringBuilder( SQL_QUERY_DELETE_BY_LIST_ID_ACTION );
+
+            for ( int i = 1; i < nSize; i++ )
+            {
+                sb.append( SQL_ADITIONAL_PARAMETER );
+            }
+
+            sb.append( SQL_CLOSE_PARENTHESIS );
+
+            DAOUtil daoUtil = new DAOUtil( sb.toString( ), plugin );
+
+            for ( int i = 0; i < nSize; i++ )
+            {
+                daoUtil.setInt( i + 1, listIdActionChunk.get( i ) );
+            }
+
+            daoUtil.executeUpdate( );
+            daoUtil.free( );
+        }
+    }
 }
@@ -67,6 +67,19 @@ public final class IndexerActionHome
         _dao.insert( indexerAction, plugin );
     }
 
+    /**
+     * Creation of a list of Indexer Actions with a single batch
+     *
+     * @param listIndexerAction
+     *            The indexer actions to store
+     * @param plugin
+     *            the Plugin
+     */
+    public static void create( List<IndexerAction> listIndexerAction, Plugin plugin )
+    {
+        _dao.insert( listIndexerAction, plugin );
+    }
+
     /**
      * Update of the indexerAction which is specified in parameter
      *
@@ -94,6 +107,19 @@ public final class IndexerActionHome
         _dao.delete( nId, plugin );
     }
 
+    /**
+     * Remove the indexerActions whose identifiers are specified in parameter
+     *
+     * @param listIdAction
+     *            The IndexerAction ids
+     * @param plugin
+     *            the Plugin
+     */
+    public static void removeByListIdAction( List<Integer> listIdAction, Plugin plugin )
+    {
+        _dao.deleteByListIdAction( listIdAction, plugin );
+    }
+
     // /////////////////////////////////////////////////////////////////////////
     // Finders
 
@@ -124,4 +150,18 @@ public final class IndexerActionHome
     {
         return _dao.selectList( filter, plugin );
     }
+
+    /**
+     * Loads the oldest IndexerActions, in the order of their creation
+     *
+     * @param nMaxActions
+     *            the maximum number of actions to load
+     * @param plugin
+     *            the Plugin
+     * @return the list which contains the data of the indexerActions
+     */
+    public static List<IndexerAction> getFirstActions( int nMaxActions, Plugin plugin )
+    {
+        return _dao.selectFirstActions( nMaxActions, plugin );
+    }
 }
@@ -33,20 +33,28 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.business.key.PrimaryKeyHome;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.sql.DAOUtil;
 
+import java.util.List;
+
 /**
  * This class provides Data Access methods for Field objects
  */
 public final class PhysicalFileDAO implements IPhysicalFileDAO
 {
     // Constants
-    private static final String SQL_QUERY_NEW_PK = "SELECT max( id_physical_file ) FROM directory_physical_file";
+    private static final String TABLE_NAME = "directory_physical_file";
+    private static final String KEY_COLUMN_NAME = "id_physical_file";
     private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_physical_file,file_value"
             + " FROM directory_physical_file WHERE id_physical_file = ?";
     private static final String SQL_QUERY_INSERT = "INSERT INTO directory_physical_file(id_physical_file,file_value)" + " VALUES(?,?)";
     private static final String SQL_QUERY_DELETE = "DELETE FROM directory_physical_file WHERE id_physical_file = ? ";
+    private static final String SQL_QUERY_DELETE_BY_LIST_ID = "DELETE FROM directory_physical_file WHERE id_physical_file IN ( ?";
+    private static final String SQL_ADITIONAL_PARAMETER = ",?";
+    private static final String SQL_CLOSE_PARENTHESIS = " ) ";
     private static final String SQL_QUERY_PURGE = "UPDATE directory_physical_file SET file_value = ? WHERE id_physical_file = ? ";
     private static final String SQL_QUERY_UPDATE = "UPDATE  directory_physical_file SET " + "id_physical_file=?,file_value=? WHERE id_physical_file = ?";
 
@@ -56,28 +64,14 @@ public final class PhysicalFileDAO implements IPhysicalFileDAO
     @Override
     public int newPrimaryKey( Plugin plugin )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, plugin );
-        daoUtil.executeQuery( );
-
-        int nKey;
-
-        if ( !daoUtil.next( ) )
-        {
-            // if the table is empty
-            nKey = 1;
-        }
-
-        nKey = daoUtil.getInt( 1 ) + 1;
-        daoUtil.free( );
-
-        return nKey;
+        return PrimaryKeyHome.newPrimaryKey( TABLE_NAME, KEY_COLUMN_NAME, plugin );
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized int insert( PhysicalFile physicalFile, Plugin plugin )
+    public int insert( PhysicalFile physicalFile, Plugin plugin )
     {
         physicalFile.setIdPhysicalFile( newPrimaryKey( plugin ) );
 
@@ -127,6 +121,36 @@ public final class PhysicalFileDAO implements IPhysicalFileDAO
         daoUtil.free( );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( List<Integer> listIdPhysicalFile, Plugin plugin )
+    {
+        for ( List<Integer> listIdPhysicalFileChunk : DirectoryUtils.getSqlInListChunks( listIdPhysicalFile ) )
+        {
+            int nListIdSize = listIdPhysicalFileChunk.size( );
+            StringBuilder sbSQL = new StringBuilder( SQL_QUERY_DELETE_BY_LIST_ID );
+
+            for ( int i = 1; i < nListIdSize; i++ )
+            {
+                sbSQL.append( SQL_ADITIONAL_PARAMETER );
+            }
+
+            sbSQL.append( SQL_CLOSE_PARENTHESIS );
+
+            DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin );
+
+            for ( int i = 0; i < nListIdSize; i++ )
+            {
+                daoUtil.setInt( i + 1, listIdPhysicalFileChunk.get( i ) );
+            }
+
+            daoUtil.executeUpdate( );
+            daoUtil.free( );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -36,6 +36,8 @@ package fr.paris.lutece.plugins.directory.business;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 
+import java.util.List;
+
 /**
  * This class provides instances management methods (create, find, ...) for physical file objects
  */
@@ -94,6 +96,19 @@ public final class PhysicalFileHome
         _dao.delete( nIdPhysicalFile, plugin );
     }
 
+    /**
+     * Delete the physical files whose identifiers are specified in parameter, with set-based queries
+     *
+     * @param listIdPhysicalFile
+     *            The identifiers of the physical files
+     * @param plugin
+     *            the Plugin
+     */
+    public static void remove( List<Integer> listIdPhysicalFile, Plugin plugin )
+    {
+        _dao.delete( listIdPhysicalFile, plugin );
+    }
+
     // /////////////////////////////////////////////////////////////////////////
     // Finders
 
@@ -334,6 +334,43 @@ public class Record implements AdminWorkgroupResource, IExtendableResource
     public StringBuffer getXml( Plugin plugin, Locale locale, boolean bWithHtmlCode, State state, List<IEntry> listEntryResultSearch,
             boolean bDisplayTitleEntryTypeSelect, boolean bDisplayFront, boolean bDisplayExport, boolean bDisplayDateCreation,
             boolean bDisplayDateModification, Map<Integer, Field> mapFieldEntry )
+    {
+        return getXml( plugin, locale, bWithHtmlCode, state, listEntryResultSearch, bDisplayTitleEntryTypeSelect, bDisplayFront, bDisplayExport,
+                bDisplayDateCreation, bDisplayDateModification, mapFieldEntry, null );
+    }
+
+    /**
+     * The Xml of the record
+     * 
+     * @param plugin
+     *            the plugin
+     * @param locale
+     *            the locale
+     * @param bWithHtmlCode
+     *            true if the xml must contain html code 
+     * @param state
+     *            the state of the record
+     * @param listEntryResultSearch
+     *            the list of entry to display
+     * @param bDisplayTitleEntryTypeSelect
+     *            true if template front or false if template back
+     * @param bDisplayFront
+     *            true if template front or false if template back
+     * @param bDisplayExport
+     *            true if it must be displayed in export
+     * @param bDisplayDateCreation
+     *            true if the date creation must be displayed
+     * @param bDisplayDateModification
+     *            true if the modification date must be displayed, false otherwise
+     * @param mapFieldEntry
+     *            a map containing all fields associated to the list of entry
+     * @param mapEntryRecordFields
+     *            the record fields of the record by entry id, already loaded with the other records of a page, or null to load them
+     * @return xml
+     */
+    public StringBuffer getXml( Plugin plugin, Locale locale, boolean bWithHtmlCode, State state, List<IEntry> listEntryResultSearch,
+            boolean bDisplayTitleEntryTypeSelect, boolean bDisplayFront, boolean bDisplayExport, boolean bDisplayDateCreation,
+            boolean bDisplayDateModification, Map<Integer, Field> mapFieldEntry, Map<String, List<RecordField>> mapEntryRecordFields )
     {
         StringBuffer strXml = new StringBuffer( );
         Map<String, String> model = new HashMap<String, String>( );
@@ -359,8 +396,10 @@ public class Record implements AdminWorkgroupResource, IExtendableResource
 
         XmlUtil.beginElement( strXml, Entry.TAG_LIST_ENTRY );
 
-        Map<String, List<RecordField>> mapEntryRecordFields = DirectoryUtils.getSpecificMapIdEntryListRecordField( listEntryResultSearch, this.getIdRecord( ),
-                plugin, mapFieldEntry );
+        if ( mapEntryRecordFields == null )
+        {
+            mapEntryRecordFields = DirectoryUtils.getSpecificMapIdEntryListRecordField( listEntryResultSearch, this.getIdRecord( ), plugin, mapFieldEntry );
+        }
 
         for ( IEntry entry : listEntryResultSearch )
         {
@@ -467,7 +506,8 @@ public class Record implements AdminWorkgroupResource, IExtendableResource
                 {
                     if ( recordField.getFile( ) != null )
                     {
-                        IEntry entryFile = EntryHome.findByPrimaryKey( recordField.getEntry( ).getIdEntry( ), plugin );
+                        // the display size of the entry is loaded with the record field
+                        IEntry entryFile = recordField.getEntry( );
 
                         XmlUtil.addElementHtml( strXml, TAG_RECORD_FIELD_VALUE,
                                 entry.convertRecordFieldValueToString( recordField, locale, bDisplayFront, bDisplayExport ) );
@@ -579,6 +619,43 @@ public class Record implements AdminWorkgroupResource, IExtendableResource
     public StringBuffer getXmlForCsvExport( Plugin plugin, Locale locale, boolean bWithHtmlCode, State state, List<IEntry> listEntryResultSearch,
             boolean bDisplayTitleEntryTypeSelect, boolean bDisplayFront, boolean bDisplayExport, boolean bDisplayDateCreation,
             boolean bDisplayDateModification, Map<Integer, Field> mapFieldEntry )
+    {
+        return getXmlForCsvExport( plugin, locale, bWithHtmlCode, state, listEntryResultSearch, bDisplayTitleEntryTypeSelect, bDisplayFront, bDisplayExport,
+                bDisplayDateCreation, bDisplayDateModification, mapFieldEntry, null );
+    }
+
+    /**
+     * The Xml of the record
+     * 
+     * @param plugin
+     *            the plugin
+     * @param locale
+     *            the locale
+     * @param bWithHtmlCode
+     *            true if the xml must contain html code 
+     * @param state
+     *            the state of the record
+     * @param listEntryResultSearch
+     *            the list of entry to display
+     * @param bDisplayTitleEntryTypeSelect
+     *            true if the title must be display for entry type select
+     * @param bDisplayFront
+     *            true if template front or false if template back
+     * @param bDisplayExport
+     *            true if it must be displayed in export
+     * @param bDisplayDateCreation
+     *            true if the date creation must be displayed
+     * @param bDisplayDateModification
+     *            true if the modification date must be displayed, false otherwise
+     * @param mapFieldEntry
+     *            a map containing all fields associated to the list of entry
+     * @param mapEntryRecordFields
+     *            the record fields of the record by entry id, already loaded with the other records of a page, or null to load them
+     * @return xml
+     */
+    public StringBuffer getXmlForCsvExport( Plugin plugin, Locale locale, boolean bWithHtmlCode, State state, List<IEntry> listEntryResultSearch,
+            boolean bDisplayTitleEntryTypeSelect, boolean bDisplayFront, boolean bDisplayExport, boolean bDisplayDateCreation,
+            boolean bDisplayDateModification, Map<Integer, Field> mapFieldEntry, Map<String, List<RecordField>> mapEntryRecordFields )
     {
         StringBuffer strXml = new StringBuffer( );
         Map<String, String> model = new HashMap<String, String>( );
@@ -594,8 +671,10 @@ public class Record implements AdminWorkgroupResource, IExtendableResource
 
         XmlUtil.beginElement( strXml, Entry.TAG_LIST_ENTRY );
 
-        Map<String, List<RecordField>> mapEntryRecordFields = DirectoryUtils.getSpecificMapIdEntryListRecordField( listEntryResultSearch, this.getIdRecord( ),
-                plugin, mapFieldEntry );
+        if ( mapEntryRecordFields == null )
+        {
+            mapEntryRecordFields = DirectoryUtils.getSpecificMapIdEntryListRecordField( listEntryResultSearch, this.getIdRecord( ), plugin, mapFieldEntry );
+        }
 
         if ( bDisplayDateCreation )
         {
@@ -33,6 +33,7 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.business.key.PrimaryKeyHome;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.workgroup.AdminWorkgroupService;
@@ -45,7 +46,9 @@ import java.sql.Timestamp;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class provides Data Access methods for record objects
@@ -53,7 +56,8 @@ import java.util.List;
 public final class RecordDAO implements IRecordDAO
 {
     // Constants
-    private static final String SQL_QUERY_NEW_PK = "SELECT MAX( id_record ) FROM directory_record";
+    private static final String TABLE_NAME = "directory_record";
+    private static final String KEY_COLUMN_NAME = "id_record";
     private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT id_record,date_creation,id_directory,is_enabled,role_key,workgroup_key,date_modification "
             + "FROM directory_record WHERE id_record=? ";
     private static final String SQL_QUERY_FIND_BY_LIST_PRIMARY_KEY = "SELECT id_record,date_creation,id_directory,is_enabled,role_key,workgroup_key,date_modification "
@@ -62,6 +66,7 @@ public final class RecordDAO implements IRecordDAO
             + "id_record,date_creation,id_directory,is_enabled,role_key,workgroup_key,date_modification ) VALUES(?,?,?,?,?,?,?)";
     private static final String SQL_QUERY_DELETE = "DELETE FROM directory_record WHERE id_record = ? ";
     private static final String SQL_QUERY_DELETE_BY_ID_DIRECTORY = "DELETE FROM directory_record WHERE id_directory = ?";
+    private static final String SQL_QUERY_DELETE_BY_LIST_ID = "DELETE FROM directory_record WHERE id_record IN ( ?";
     private static final String SQL_QUERY_UPDATE = "UPDATE directory_record SET "
             + "id_record=?,date_creation=?,id_directory=?,is_enabled=?,role_key=?,workgroup_key=?,date_modification=? WHERE id_record=?";
     private static final String SQL_QUERY_SELECT_RECORD_BY_FILTER = "SELECT dr.id_record,dr.date_creation,dr.id_directory,dr.is_enabled,dr.role_key,dr.workgroup_key,dr.date_modification "
@@ -69,6 +74,7 @@ public final class RecordDAO implements IRecordDAO
     private static final String SQL_QUERY_SELECT_RECORD_ID_BY_FILTER = "SELECT dr.id_record FROM directory_record dr ";
     private static final String SQL_QUERY_SELECT_COUNT_BY_FILTER = "SELECT COUNT(dr.id_record) " + "FROM directory_record dr  ";
     private static final String SQL_QUERY_SELECT_DIRECTORY_ID = "SELECT id_directory FROM directory_record WHERE id_record=?";
+    private static final String SQL_QUERY_SELECT_DIRECTORY_ID_BY_LIST_ID_RECORD = "SELECT id_record,id_directory FROM directory_record WHERE id_record IN ( ?";
     private static final String SQL_QUERY_SELECT_COUNT_DIRECYTORY_RECORD_HAS_WORKFLOW = "SELECT COUNT(*) FROM directory_record WHERE id_directory = ? AND workgroup_key IS NOT NULL";
     private static final String SQL_FILTER_ID_DIRECTORY = "	 dr.id_directory = ? ";
     private static final String SQL_FILTER_IS_ENABLED = " dr.is_enabled = ? ";
@@ -95,28 +101,14 @@ public final class RecordDAO implements IRecordDAO
      */
     private int newPrimaryKey( Plugin plugin )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, plugin );
-        daoUtil.executeQuery( );
-
-        int nKey;
-
-        if ( !daoUtil.next( ) )
-        {
-            // if the table is empty
-            nKey = 1;
-        }
-
-        nKey = daoUtil.getInt( 1 ) + 1;
-        daoUtil.free( );
-
-        return nKey;
+        return PrimaryKeyHome.newPrimaryKey( TABLE_NAME, KEY_COLUMN_NAME, plugin );
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized int insert( Record record, Plugin plugin )
+    public int insert( Record record, Plugin plugin )
     {
         record.setIdRecord( newPrimaryKey( plugin ) );
 
@@ -135,6 +127,37 @@ public final class RecordDAO implements IRecordDAO
         return record.getIdRecord( );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert( List<Record> listRecord, Plugin plugin )
+    {
+        if ( listRecord.isEmpty( ) )
+        {
+            return;
+        }
+
+        int nKey = PrimaryKeyHome.newPrimaryKeys( TABLE_NAME, KEY_COLUMN_NAME, listRecord.size( ), plugin );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
+
+        for ( Record record : listRecord )
+        {
+            record.setIdRecord( nKey++ );
+            daoUtil.setInt( 1, record.getIdRecord( ) );
+            daoUtil.setTimestamp( 2, record.getDateCreation( ) );
+            daoUtil.setInt( 3, record.getDirectory( ).getIdDirectory( ) );
+            daoUtil.setBoolean( 4, record.isEnabled( ) );
+            daoUtil.setString( 5, record.getRoleKey( ) );
+            daoUtil.setString( 6, record.getWorkgroup( ) );
+            daoUtil.setTimestamp( 7, record.getDateModification( ) );
+            daoUtil.addBatch( );
+        }
+
+        daoUtil.executeBatch( );
+        daoUtil.free( );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -212,72 +235,99 @@ public final class RecordDAO implements IRecordDAO
             // array to keep order from listId
             // because we have no way to keep it with a query
             Record [ ] tabRecords = new Record [ nSize];
+            Map<Integer, Integer> mapPositions = new HashMap<Integer, Integer>( nSize * 2 );
 
-            Directory directory;
-
-            StringBuilder sb = new StringBuilder( SQL_QUERY_FIND_BY_LIST_PRIMARY_KEY );
-
-            for ( int i = 1; i < nSize; i++ )
+            for ( int i = nSize - 1; i >= 0; i-- )
             {
-                sb.append( SQL_ADITIONAL_PARAMETER );
+                mapPositions.put( listId.get( i ), i );
             }
 
-            sb.append( SQL_FILTER_CLOSE_PARENTHESIS );
-
-            DAOUtil daoUtil = new DAOUtil( sb.toString( ), plugin );
-
-            for ( int i = 0; i < nSize; i++ )
+            for ( List<Integer> listIdChunk : DirectoryUtils.getSqlInListChunks( listId ) )
             {
-                daoUtil.setInt( 1 + i, listId.get( i ) );
+                loadChunk( listIdChunk, tabRecords, mapPositions, plugin );
             }
 
-            daoUtil.executeQuery( );
+            // get list from array
+            lRecord = Arrays.asList( tabRecords );
+        }
+        else
+        {
+            lRecord = new ArrayList<Record>( );
+        }
 
-            while ( daoUtil.next( ) )
-            {
-                Record record = new Record( );
-                record.setIdRecord( daoUtil.getInt( 1 ) );
+        return lRecord;
+    }
 
-                if ( daoUtil.getTimestamp( 2 ) == null )
-                {
-                    record.setDateCreation( new Timestamp( 0 ) );
-                }
-                else
-                {
-                    record.setDateCreation( daoUtil.getTimestamp( 2 ) );
-                }
+    /**
+     * Load the records of a chunk of ids, small enough to be used in a single IN list
+     *
+     * @param listIdChunk
+     *            the ids of the records
+     * @param tabRecords
+     *            the array of the loaded records, filled at the position of their ids
+     * @param mapPositions
+     *            the position of each id in the array
+     * @param plugin
+     *            the plugin
+     */
+    private void loadChunk( List<Integer> listIdChunk, Record [ ] tabRecords, Map<Integer, Integer> mapPositions, Plugin plugin )
+    {
+        int nSize = listIdChunk.size( );
+        Directory directory;
 
-                directory = new Directory( );
-                directory.setIdDirectory( daoUtil.getInt( 3 ) );
-                record.setDirectory( directory );
-                record.setEnabled( daoUtil.getBoolean( 4 ) );
-                record.setRoleKey( daoUtil.getString( 5 ) );
-                record.setWorkgroup( daoUtil.getString( 6 ) );
+        StringBuilder sb = new StringBuilder( SQL_QUERY_FIND_BY_LIST_PRIMARY_KEY );
 
-                if ( daoUtil.getTimestamp( 7 ) == null )
-                {
-                    record.setDateModification( new Timestamp( 0 ) );
-                }
-                else
-                {
-                    record.setDateModification( daoUtil.getTimestamp( 7 ) );
-                }
+        for ( int i = 1; i < nSize; i++ )
+        {
+            sb.append( SQL_ADITIONAL_PARAMETER );
+        }
 
-                // keep id order
-                tabRecords [listId.indexOf( record.getIdRecord( ) )] = record;
-            }
+        sb.append( SQL_FILTER_CLOSE_PARENTHESIS );
 
-            daoUtil.free( );
+        DAOUtil daoUtil = new DAOUtil( sb.toString( ), plugin );
 
-            // get list from array
-            lRecord = Arrays.asList( tabRecords );
+        for ( int i = 0; i < nSize; i++ )
+        {
+            daoUtil.setInt( 1 + i, listIdChunk.get( i ) );
         }
-        else
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
         {
-            lRecord = new ArrayList<Record>( );
+            Record record = new Record( );
+            record.setIdRecord( daoUtil.getInt( 1 ) );
+
+            if ( daoUtil.getTimestamp( 2 ) == null )
+            {
+                record.setDateCreation( new Timestamp( 0 ) );
+            }
+            else
+            {
+                record.setDateCreation( daoUtil.getTimestamp( 2 ) );
+            }
+
+            directory = new Directory( );
+            directory.setIdDirectory( daoUtil.getInt( 3 ) );
+            record.setDirectory( directory );
+            record.setEnabled( daoUtil.getBoolean( 4 ) );
+            record.setRoleKey( daoUtil.getString( 5 ) );
+            record.setWorkgroup( daoUtil.getString( 6 ) );
+
+            if ( daoUtil.getTimestamp( 7 ) == null )
+            {
+                record.setDateModification( new Timestamp( 0 ) );
+            }
+            else
+            {
+                record.setDateModification( daoUtil.getTimestamp( 7 ) );
+            }
+
+            // keep id order
+            tabRecords [mapPositions.get( record.getIdRecord( ) )] = record;
         }
 
-        return lRecord;
+        daoUtil.free( );
     }
 
     /**
@@ -292,6 +342,36 @@ public final class RecordDAO implements IRecordDAO
         daoUtil.free( );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete( List<Integer> listIdRecord, Plugin plugin )
+    {
+        for ( List<Integer> listIdRecordChunk : DirectoryUtils.getSqlInListChunks( listIdRecord ) )
+        {
+            int nListIdSize = listIdRecordChunk.size( );
+            StringBuilder sbSQL = new StringBuilder( SQL_QUERY_DELETE_BY_LIST_ID );
+
+            for ( int i = 1; i < nListIdSize; i++ )
+            {
+                sbSQL.append( SQL_ADITIONAL_PARAMETER );
+            }
+
+            sbSQL.append( SQL_FILTER_CLOSE_PARENTHESIS );
+
+            DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin );
+
+            for ( int i = 0; i < nListIdSize; i++ )
+            {
+                daoUtil.setInt( i + 1, listIdRecordChunk.get( i ) );
+            }
+
+            daoUtil.executeUpdate( );
+            daoUtil.free( );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -387,6 +467,46 @@ public final class RecordDAO implements IRecordDAO
         return nResult;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Integer> getDirectoryIdByListRecordId( List<Integer> listIdRecord, Plugin plugin )
+    {
+        Map<Integer, Integer> mapDirectoryId = new HashMap<Integer, Integer>( );
+
+        for ( List<Integer> listIdRecordChunk : DirectoryUtils.getSqlInListChunks( listIdRecord ) )
+        {
+            int nSize = listIdRecordChunk.size( );
+            StringBuilder sb = new StringBuilder( SQL_QUERY_SELECT_DIRECTORY_ID_BY_LIST_ID_RECORD );
+
+            for ( int i = 1; i < nSize; i++ )
+            {
+                sb.append( SQL_ADITIONAL_PARAMETER );
+            }
+
+            sb.append( SQL_FILTER_CLOSE_PARENTHESIS );
+
+            DAOUtil daoUtil = new DAOUtil( sb.toString( ), plugin );
+
+            for ( int i = 0; i < nSize; i++ )
+            {
+                daoUtil.setInt( i + 1, listIdRecordChunk.get( i ) );
+            }
+
+            daoUtil.executeQuery( );
+
+            while ( daoUtil.next( ) )
+            {
+                mapDirectoryId.put( daoUtil.getInt( 1 ), daoUtil.getInt( 2 ) );
+            }
+
+            daoUtil.free( );
+        }
+
+        return mapDirectoryId;
+    }
+
     /**
      * {@inheritDoc}
      */
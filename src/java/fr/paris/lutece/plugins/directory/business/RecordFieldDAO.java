@@ -33,12 +33,14 @@
  */
 package fr.paris.lutece.plugins.directory.business;
 
+import fr.paris.lutece.plugins.directory.business.key.PrimaryKeyHome;
+import fr.paris.lutece.plugins.directory.service.DirectoryCacheService;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
-import fr.paris.lutece.portal.service.util.AppLogService;
 import fr.paris.lutece.util.sql.DAOUtil;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -47,7 +49,8 @@ import java.util.List;
 public final class RecordFieldDAO implements IRecordFieldDAO
 {
     // Constants
-    private static final String SQL_QUERY_NEW_PK = "SELECT MAX( id_record_field ) FROM directory_record_field";
+    private static final String TABLE_NAME = "directory_record_field";
+    private static final String KEY_COLUMN_NAME = "id_record_field";
     private static final String SQL_QUERY_FIND_BY_PRIMARY_KEY = "SELECT "
             + "drf.id_record_field,drf.id_record,drf.record_field_value,type.class_name,ent.id_entry,ent.title,ent.display_width,ent.display_height, "
             + "drf.id_field,drf.id_file FROM directory_record_field drf,directory_entry ent,directory_entry_type type  "
@@ -56,11 +59,26 @@ public final class RecordFieldDAO implements IRecordFieldDAO
             + "id_record_field,id_record,record_field_value,id_entry,id_field,id_file) VALUES(?,?,?,?,?,?)";
     private static final String SQL_QUERY_DELETE = "DELETE FROM directory_record_field WHERE id_record_field = ? ";
     private static final String SQL_QUERY_DELETE_BY_LIST_RECORD_ID = "DELETE FROM directory_record_field WHERE id_record IN ( ?";
+    private static final String SQL_QUERY_DELETE_BY_LIST_ID = "DELETE FROM directory_record_field WHERE id_record_field IN ( ?";
     private static final String SQL_QUERY_UPDATE = "UPDATE  directory_record_field SET "
             + "id_record_field=?,id_record=?,record_field_value=?,id_entry=?,id_field=?,id_file=? WHERE id_record_field=?";
     private static final String SQL_QUERY_SELECT_RECORD_FIELD_BY_FILTER = "SELECT "
             + "drf.id_record_field,drf.id_record,drf.record_field_value,type.class_name,type.id_type,ent.id_entry,ent.title,ent.display_width"
-            + ",ent.display_height,drf.id_field,drf.id_file " + "FROM directory_record_field drf,directory_entry ent,directory_entry_type type ";
+            + ",ent.display_height,drf.id_field,drf.id_file";
+    private static final String SQL_FETCH_FILE_COLUMNS = ",fil.id_file,fil.title,fil.id_physical_file,fil.file_size,fil.mime_type,fil.extension"
+            + ",fil.date_expiration";
+    private static final String SQL_FETCH_FIELD_COLUMNS = ",dfield.id_field,dfield.id_entry,dfield.title,dfield.default_value,dfield.height,dfield.width"
+            + ",dfield.is_default_value,dfield.max_size_enter,dfield.field_position,dfield.value_type_date,dfield.role_key,dfield.workgroup_key"
+            + ",dfield.is_shown_in_result_list,dfield.is_shown_in_result_record,dfield.image_type";
+    private static final String SQL_FETCH_RECORD_COLUMNS = ",dr.id_record,dr.date_creation,dr.id_directory,dr.is_enabled,dr.role_key,dr.workgroup_key"
+            + ",dr.date_modification";
+    private static final String SQL_FROM_RECORD_FIELD_JOIN_ENTRY = " FROM directory_record_field drf"
+            + " INNER JOIN directory_entry ent ON (drf.id_entry=ent.id_entry) INNER JOIN directory_entry_type type ON (ent.id_type=type.id_type) ";
+    private static final int NB_FETCH_FILE_COLUMNS = 7;
+    private static final int NB_FETCH_FIELD_COLUMNS = 15;
+    private static final String SQL_JOIN_FILE = " LEFT JOIN directory_file fil ON (drf.id_file=fil.id_file) ";
+    private static final String SQL_JOIN_FIELD = " LEFT JOIN directory_field dfield ON (drf.id_field=dfield.id_field) ";
+    private static final String SQL_JOIN_RECORD = " LEFT JOIN directory_record dr ON (drf.id_record=dr.id_record) ";
     private static final String SQL_QUERY_SELECT_FULL_RECORD_FIELD_LIST = "SELECT drf.id_record_field,drf.id_record,drf.record_field_value,type.class_name,ent.id_entry,ent.title,ent.display_width,ent.display_height,"
             + " fil.id_file,fil.title,fil.id_physical_file,fil.file_size,fil.mime_type,"
             + " dfield.id_field,dfield.id_entry,dfield.title,dfield.default_value,dfield.height,dfield.width,dfield.is_default_value,dfield.max_size_enter,dfield.field_position,dfield.value_type_date,dfield.role_key,dfield.workgroup_key"
@@ -70,6 +88,11 @@ public final class RecordFieldDAO implements IRecordFieldDAO
             + " LEFT JOIN directory_file fil ON (drf.id_file=fil.id_file)"
             + " LEFT JOIN directory_field dfield ON (drf.id_field=dfield.id_field) ";
     private static final String SQL_QUERY_SELECT_VALUES_RECORD_FIELD_LIST = "SELECT id_record_field, record_field_value FROM directory_record_field drf ";
+    private static final String SQL_QUERY_SELECT_VALUES_BY_ID_ENTRY = "SELECT record_field_value FROM directory_record_field WHERE id_entry = ? AND record_field_value IS NOT NULL ";
+    private static final String SQL_QUERY_SELECT_ENTRY_VALUES_BY_ID_RECORD = "SELECT id_entry, record_field_value FROM directory_record_field WHERE id_record = ? ";
+    private static final String SQL_QUERY_SELECT_ENTRY_VALUES_BY_LIST_ID_RECORD = "SELECT drf.id_record, drf.id_entry, drf.record_field_value FROM directory_record_field drf "
+            + " INNER JOIN directory_entry ent ON (drf.id_entry=ent.id_entry)" + " LEFT JOIN directory_field dfield ON (drf.id_field=dfield.id_field) ";
+    private static final String SQL_ORDER_BY_ID_RECORD_ENTRY_POSITION = " ORDER BY drf.id_record, ent.entry_position, dfield.field_position ";
     private static final String SQL_QUERY_SELECT_FULL_RECORD_FIELD_LIST_WITH_RECORD = "SELECT drf.id_record_field,drf.id_record,drf.record_field_value,type.class_name,ent.id_entry,ent.title,ent.display_width,ent.display_height,"
             + " fil.id_file,fil.title,fil.id_physical_file,fil.file_size,fil.mime_type,"
             + " dfield.id_field,dfield.id_entry,dfield.title,dfield.default_value,dfield.height,dfield.width,dfield.is_default_value,dfield.max_size_enter,dfield.field_position,dfield.value_type_date,dfield.role_key,dfield.workgroup_key,"
@@ -123,33 +146,59 @@ public final class RecordFieldDAO implements IRecordFieldDAO
      */
     private int newPrimaryKey( Plugin plugin )
     {
-        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_NEW_PK, plugin );
-        daoUtil.executeQuery( );
+        return PrimaryKeyHome.newPrimaryKey( TABLE_NAME, KEY_COLUMN_NAME, plugin );
+    }
 
-        int nKey;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void insert( RecordField recordField, Plugin plugin )
+    {
+        recordField.setIdRecordField( newPrimaryKey( plugin ) );
 
-        if ( !daoUtil.next( ) )
-        {
-            // if the table is empty
-            nKey = 1;
-        }
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
+        setRecordFieldParameters( daoUtil, recordField );
+        daoUtil.executeUpdate( );
 
-        nKey = daoUtil.getInt( 1 ) + 1;
         daoUtil.free( );
-
-        return nKey;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public synchronized void insert( RecordField recordField, Plugin plugin )
+    public void insert( List<RecordField> listRecordField, Plugin plugin )
     {
-        recordField.setIdRecordField( newPrimaryKey( plugin ) );
+        if ( listRecordField.isEmpty( ) )
+        {
+            return;
+        }
 
+        int nKey = PrimaryKeyHome.newPrimaryKeys( TABLE_NAME, KEY_COLUMN_NAME, listRecordField.size( ), plugin );
         DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
 
+        for ( RecordField recordField : listRecordField )
+        {
+            recordField.setIdRecordField( nKey++ );
+            setRecordFieldParameters( daoUtil, recordField );
+            daoUtil.addBatch( );
+        }
+
+        daoUtil.executeBatch( );
+        daoUtil.free( );
+    }
+
+    /**
+     * Set the columns of a record field as the first parameters of an insert or update query
+     *
+     * @param daoUtil
+     *            the daoUtil
+     * @param recordField
+     *            the record field
+     */
+    private void setRecordFieldParameters( DAOUtil daoUtil, RecordField recordField )
+    {
         daoUtil.setInt( 1, recordField.getIdRecordField( ) );
         daoUtil.setInt( 2, recordField.getRecord( ).getIdRecord( ) );
         daoUtil.setString( 3, recordField.getValue( ) );
@@ -173,10 +222,6 @@ public final class RecordFieldDAO implements IRecordFieldDAO
         {
             daoUtil.setIntNull( 6 );
         }
-
-        daoUtil.executeUpdate( );
-
-        daoUtil.free( );
     }
 
     /**
@@ -199,7 +244,6 @@ public final class RecordFieldDAO implements IRecordFieldDAO
 
     private RecordField load( int nIdRecordField, String strSQL, Plugin plugin )
     {
-        boolean bException = false;
         RecordField recordField = null;
         File file = null;
         IEntry entry = null;
@@ -225,30 +269,9 @@ public final class RecordFieldDAO implements IRecordFieldDAO
             entryType = new EntryType( );
             entryType.setClassName( daoUtil.getString( 4 ) );
 
-            try
-            {
-                entry = (IEntry) Class.forName( entryType.getClassName( ) ).newInstance( );
-            }
-            catch( ClassNotFoundException e )
-            {
-                // class doesn't exist
-                AppLogService.error( e );
-                bException = true;
-            }
-            catch( InstantiationException e )
-            {
-                // Class is abstract or is an interface or haven't accessible builder
-                AppLogService.error( e );
-                bException = true;
-            }
-            catch( IllegalAccessException e )
-            {
-                // can't access to the class
-                AppLogService.error( e );
-                bException = true;
-            }
+            entry = DirectoryCacheService.getInstance( ).newEntry( entryType.getClassName( ) );
 
-            if ( bException )
+            if ( entry == null )
             {
                 daoUtil.free( );
 
@@ -299,12 +322,41 @@ public final class RecordFieldDAO implements IRecordFieldDAO
      * {@inheritDoc}
      */
     @Override
-    public void deleteByListRecordId( List<Integer> lListRecordId, Plugin plugin )
+    public void delete( List<Integer> listIdRecordField, Plugin plugin )
     {
-        int nListIdSize = lListRecordId.size( );
+        for ( List<Integer> listIdRecordFieldChunk : DirectoryUtils.getSqlInListChunks( listIdRecordField ) )
+        {
+            int nListIdSize = listIdRecordFieldChunk.size( );
+            StringBuilder sbSQL = new StringBuilder( SQL_QUERY_DELETE_BY_LIST_ID );
+
+            for ( int i = 1; i < nListIdSize; i++ )
+            {
+                sbSQL.append( SQL_FILTER_ADITIONAL_PARAMETER );
+            }
+
+            sbSQL.append( SQL_FILTER_CLOSE_PARENTHESIS );
+
+            DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin );
+
+            for ( int i = 0; i < nListIdSize; i++ )
+            {
+                daoUtil.setInt( i + 1, listIdRecordFieldChunk.get( i ) );
+            }
 
-        if ( nListIdSize > 0 )
+            daoUtil.executeUpdate( );
+            daoUtil.free( );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteByListRecordId( List<Integer> lListRecordId, Plugin plugin )
+    {
+        for ( List<Integer> listRecordIdChunk : DirectoryUtils.getSqlInListChunks( lListRecordId ) )
         {
+            int nListIdSize = listRecordIdChunk.size( );
             StringBuffer sbSQL = new StringBuffer( SQL_QUERY_DELETE_BY_LIST_RECORD_ID );
 
             for ( int i = 1; i < nListIdSize; i++ )
@@ -318,7 +370,7 @@ public final class RecordFieldDAO implements IRecordFieldDAO
 
             for ( int i = 0; i < nListIdSize; i++ )
             {
-                daoUtil.setInt( i + 1, lListRecordId.get( i ) );
+                daoUtil.setInt( i + 1, listRecordIdChunk.get( i ) );
             }
 
             daoUtil.executeUpdate( );
@@ -333,34 +385,33 @@ public final class RecordFieldDAO implements IRecordFieldDAO
     public void store( RecordField recordField, Plugin plugin )
     {
         DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin );
+        setRecordFieldParameters( daoUtil, recordField );
+        daoUtil.setInt( 7, recordField.getIdRecordField( ) );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
 
-        daoUtil.setInt( 1, recordField.getIdRecordField( ) );
-        daoUtil.setInt( 2, recordField.getRecord( ).getIdRecord( ) );
-        daoUtil.setString( 3, recordField.getValue( ) );
-
-        // daoUtil.setBytes( 3 , recordField.getValue().getBytes() );
-        daoUtil.setInt( 4, recordField.getEntry( ).getIdEntry( ) );
-
-        if ( recordField.getField( ) != null )
-        {
-            daoUtil.setInt( 5, recordField.getField( ).getIdField( ) );
-        }
-        else
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store( List<RecordField> listRecordField, Plugin plugin )
+    {
+        if ( listRecordField.isEmpty( ) )
         {
-            daoUtil.setIntNull( 5 );
+            return;
         }
 
-        if ( recordField.getFile( ) != null )
-        {
-            daoUtil.setInt( 6, recordField.getFile( ).getIdFile( ) );
-        }
-        else
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin );
+
+        for ( RecordField recordField : listRecordField )
         {
-            daoUtil.setIntNull( 6 );
+            setRecordFieldParameters( daoUtil, recordField );
+            daoUtil.setInt( 7, recordField.getIdRecordField( ) );
+            daoUtil.addBatch( );
         }
 
-        daoUtil.setInt( 7, recordField.getIdRecordField( ) );
-        daoUtil.executeUpdate( );
+        daoUtil.executeBatch( );
         daoUtil.free( );
     }
 
@@ -370,150 +421,150 @@ public final class RecordFieldDAO implements IRecordFieldDAO
     @Override
     public List<RecordField> getRecordFieldListByRecordIdList( List<Integer> lIdRecordList, Plugin plugin )
     {
-        boolean bException = false;
         List<RecordField> recordFieldList = new ArrayList<RecordField>( );
-        int nIdRecordListSize = lIdRecordList.size( );
 
-        if ( nIdRecordListSize > 0 )
+        // the record fields are ordered by entry position within each chunk of records
+        for ( List<Integer> listIdRecordChunk : DirectoryUtils.getSqlInListChunks( lIdRecordList ) )
         {
-            RecordField recordField;
-            IEntry entry = null;
-            EntryType entryType = null;
-            Field field = null;
-            File file = null;
-            Record record = null;
-            Directory directory = null;
+            if ( !selectRecordFieldListByRecordIdChunk( listIdRecordChunk, recordFieldList, plugin ) )
+            {
+                return null;
+            }
+        }
+
+        return recordFieldList;
+    }
+
+    /**
+     * Load the record fields of a chunk of records, small enough to be used in a single IN list
+     *
+     * @param listIdRecordChunk
+     *            the ids of the records
+     * @param recordFieldList
+     *            the list the record fields are added to
+     * @param plugin
+     *            the plugin
+     * @return false if an entry type class cannot be instantiated, true otherwise
+     */
+    private boolean selectRecordFieldListByRecordIdChunk( List<Integer> listIdRecordChunk, List<RecordField> recordFieldList, Plugin plugin )
+    {
+        int nIdRecordListSize = listIdRecordChunk.size( );
+        RecordField recordField;
+        IEntry entry = null;
+        EntryType entryType = null;
+        Field field = null;
+        File file = null;
+        Record record = null;
+        Directory directory = null;
 
-            StringBuffer sbSQL = new StringBuffer( SQL_QUERY_SELECT_FULL_RECORD_FIELD_LIST_WITH_RECORD );
+        StringBuffer sbSQL = new StringBuffer( SQL_QUERY_SELECT_FULL_RECORD_FIELD_LIST_WITH_RECORD );
 
-            sbSQL.append( SQL_WHERE );
+        sbSQL.append( SQL_WHERE );
 
-            for ( int i = 0; i < nIdRecordListSize; i++ )
+        for ( int i = 0; i < nIdRecordListSize; i++ )
+        {
+            if ( i < 1 )
             {
-                if ( i < 1 )
-                {
-                    sbSQL.append( SQL_FILTER_ID_RECORD_IN );
-                }
-                else
-                {
-                    sbSQL.append( SQL_FILTER_ADITIONAL_PARAMETER );
-                }
+                sbSQL.append( SQL_FILTER_ID_RECORD_IN );
+            }
+            else
+            {
+                sbSQL.append( SQL_FILTER_ADITIONAL_PARAMETER );
             }
+        }
 
-            sbSQL.append( SQL_FILTER_CLOSE_PARENTHESIS + SQL_ORDER_BY_ID_RECORD_FIELD );
+        sbSQL.append( SQL_FILTER_CLOSE_PARENTHESIS + SQL_ORDER_BY_ID_RECORD_FIELD );
 
-            DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin );
+        DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin );
 
-            for ( int i = 0; i < nIdRecordListSize; i++ )
+        for ( int i = 0; i < nIdRecordListSize; i++ )
+        {
+            daoUtil.setInt( i + 1, listIdRecordChunk.get( i ) );
+        }
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            recordField = new RecordField( );
+            recordField.setIdRecordField( daoUtil.getInt( 1 ) ); // drf.id_record_field
+            record = new Record( );
+            record.setIdRecord( daoUtil.getInt( 2 ) ); // drf.id_record
+
+            record.setDateCreation( daoUtil.getTimestamp( 26 ) ); // dr.date_creation
+            directory = new Directory( );
+            directory.setIdDirectory( daoUtil.getInt( 27 ) ); // dr.id_directory
+            record.setDirectory( directory );
+            record.setEnabled( daoUtil.getBoolean( 28 ) ); // dr.is_enabled
+            record.setRoleKey( daoUtil.getString( 29 ) ); // dr.role_key
+            record.setWorkgroup( daoUtil.getString( 30 ) ); // dr.workgroup_key
+            record.setDateModification( daoUtil.getTimestamp( 31 ) );
+
+            recordField.setRecord( record );
+            recordField.setValue( daoUtil.getString( 3 ) ); // drf.record_field_value
+
+            entryType = new EntryType( );
+            entryType.setClassName( daoUtil.getString( 4 ) ); // type.class_name
+
+            entry = DirectoryCacheService.getInstance( ).newEntry( entryType.getClassName( ) );
+
+            if ( entry == null )
             {
-                daoUtil.setInt( i + 1, lIdRecordList.get( i ) );
+                daoUtil.free( );
+
+                return false;
             }
 
-            daoUtil.executeQuery( );
+            entry.setEntryType( entryType );
+            entry.setIdEntry( daoUtil.getInt( 5 ) ); // ent.id_entry
+            entry.setTitle( daoUtil.getString( 6 ) ); // ent.title
+            entry.setDisplayWidth( daoUtil.getInt( 7 ) ); // ent.display_width
+            entry.setDisplayHeight( daoUtil.getInt( 8 ) ); // ent.display_height
+            recordField.setEntry( entry );
 
-            while ( daoUtil.next( ) )
+            if ( daoUtil.getObject( 14 ) != null ) // field.id_field
             {
-                recordField = new RecordField( );
-                recordField.setIdRecordField( daoUtil.getInt( 1 ) ); // drf.id_record_field
-                record = new Record( );
-                record.setIdRecord( daoUtil.getInt( 2 ) ); // drf.id_record
-
-                record.setDateCreation( daoUtil.getTimestamp( 26 ) ); // dr.date_creation
-                directory = new Directory( );
-                directory.setIdDirectory( daoUtil.getInt( 27 ) ); // dr.id_directory
-                record.setDirectory( directory );
-                record.setEnabled( daoUtil.getBoolean( 28 ) ); // dr.is_enabled
-                record.setRoleKey( daoUtil.getString( 29 ) ); // dr.role_key
-                record.setWorkgroup( daoUtil.getString( 30 ) ); // dr.workgroup_key
-                record.setDateModification( daoUtil.getTimestamp( 31 ) );
-
-                recordField.setRecord( record );
-                recordField.setValue( daoUtil.getString( 3 ) ); // drf.record_field_value
-
-                entryType = new EntryType( );
-                entryType.setClassName( daoUtil.getString( 4 ) ); // type.class_name
-
-                try
-                {
-                    entry = (IEntry) Class.forName( entryType.getClassName( ) ).newInstance( );
-                }
-                catch( ClassNotFoundException e )
-                {
-                    // class doesn't exist
-                    AppLogService.error( e );
-                    bException = true;
-                }
-                catch( InstantiationException e )
-                {
-                    // Class is abstract or is an interface or haven't accessible builder
-                    AppLogService.error( e );
-                    bException = true;
-                }
-                catch( IllegalAccessException e )
-                {
-                    // can't access to rhe class
-                    AppLogService.error( e );
-                    bException = true;
-                }
-
-                if ( bException )
-                {
-                    daoUtil.free( );
+                field = new Field( );
+                field.setIdField( daoUtil.getInt( 14 ) ); // field.id_field
 
-                    return null;
-                }
+                Entry entryField = new Entry( );
+                entryField.setIdEntry( daoUtil.getInt( 15 ) ); // field.id_entry
+                field.setEntry( entryField );
 
-                entry.setEntryType( entryType );
-                entry.setIdEntry( daoUtil.getInt( 5 ) ); // ent.id_entry
-                entry.setTitle( daoUtil.getString( 6 ) ); // ent.title
-                entry.setDisplayWidth( daoUtil.getInt( 7 ) ); // ent.display_width
-                entry.setDisplayHeight( daoUtil.getInt( 8 ) ); // ent.display_height
-                recordField.setEntry( entry );
+                field.setTitle( daoUtil.getString( 16 ) ); // field.id_entry
+                field.setValue( daoUtil.getString( 17 ) ); // field.default_value
+                field.setHeight( daoUtil.getInt( 18 ) ); // field.height
+                field.setWidth( daoUtil.getInt( 19 ) ); // field.width
+                field.setDefaultValue( daoUtil.getBoolean( 20 ) ); // field.default_value
+                field.setMaxSizeEnter( daoUtil.getInt( 21 ) ); // field.max_size_enter
+                field.setPosition( daoUtil.getInt( 22 ) ); // field.field_position
+                field.setValueTypeDate( daoUtil.getDate( 23 ) ); // field.value_type_date
+                field.setRoleKey( daoUtil.getString( 24 ) ); // field.role_key
+                field.setWorkgroup( daoUtil.getString( 25 ) ); // field.workgroup_key
 
-                if ( daoUtil.getObject( 14 ) != null ) // field.id_field
-                {
-                    field = new Field( );
-                    field.setIdField( daoUtil.getInt( 14 ) ); // field.id_field
-
-                    Entry entryField = new Entry( );
-                    entryField.setIdEntry( daoUtil.getInt( 15 ) ); // field.id_entry
-                    field.setEntry( entryField );
-
-                    field.setTitle( daoUtil.getString( 16 ) ); // field.id_entry
-                    field.setValue( daoUtil.getString( 17 ) ); // field.default_value
-                    field.setHeight( daoUtil.getInt( 18 ) ); // field.height
-                    field.setWidth( daoUtil.getInt( 19 ) ); // field.width
-                    field.setDefaultValue( daoUtil.getBoolean( 20 ) ); // field.default_value
-                    field.setMaxSizeEnter( daoUtil.getInt( 21 ) ); // field.max_size_enter
-                    field.setPosition( daoUtil.getInt( 22 ) ); // field.field_position
-                    field.setValueTypeDate( daoUtil.getDate( 23 ) ); // field.value_type_date
-                    field.setRoleKey( daoUtil.getString( 24 ) ); // field.role_key
-                    field.setWorkgroup( daoUtil.getString( 25 ) ); // field.workgroup_key
-
-                    recordField.setField( field );
-                }
+                recordField.setField( field );
+            }
 
-                if ( daoUtil.getObject( 9 ) != null ) // fil.id_file
-                {
-                    file = new File( );
-                    file.setIdFile( daoUtil.getInt( 9 ) ); // fil.id_file
-                    file.setTitle( daoUtil.getString( 10 ) ); // fil.title
-
-                    PhysicalFile pf = new PhysicalFile( );
-                    pf.setIdPhysicalFile( daoUtil.getInt( 11 ) ); // fil.id_physical_file
-                    file.setPhysicalFile( pf );
-                    file.setSize( daoUtil.getInt( 12 ) ); // fil.file_size
-                    file.setMimeType( daoUtil.getString( 13 ) ); // fil.mime_type
-                    recordField.setFile( file );
-                }
+            if ( daoUtil.getObject( 9 ) != null ) // fil.id_file
+            {
+                file = new File( );
+                file.setIdFile( daoUtil.getInt( 9 ) ); // fil.id_file
+                file.setTitle( daoUtil.getString( 10 ) ); // fil.title
 
-                recordFieldList.add( recordField );
+                PhysicalFile pf = new PhysicalFile( );
+                pf.setIdPhysicalFile( daoUtil.getInt( 11 ) ); // fil.id_physical_file
+                file.setPhysicalFile( pf );
+                file.setSize( daoUtil.getInt( 12 ) ); // fil.file_size
+                file.setMimeType( daoUtil.getString( 13 ) ); // fil.mime_type
+                recordField.setFile( file );
             }
 
-            daoUtil.free( );
+            recordFieldList.add( recordField );
         }
 
-        return recordFieldList;
+        daoUtil.free( );
+
+        return true;
     }
 
     /**
@@ -522,8 +573,50 @@ public final class RecordFieldDAO implements IRecordFieldDAO
     @Override
     public List<RecordField> selectSpecificList( List<Integer> lEntryId, Integer nIdRecord, Plugin plugin )
     {
-        boolean bException = false;
         List<RecordField> recordFieldList = new ArrayList<RecordField>( );
+
+        if ( !selectSpecificList( lEntryId, Collections.singletonList( nIdRecord ), recordFieldList, plugin ) )
+        {
+            return null;
+        }
+
+        return recordFieldList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RecordField> selectSpecificListByListIdRecord( List<Integer> lEntryId, List<Integer> listIdRecord, Plugin plugin )
+    {
+        List<RecordField> recordFieldList = new ArrayList<RecordField>( );
+
+        for ( List<Integer> listIdRecordChunk : DirectoryUtils.getSqlInListChunks( listIdRecord ) )
+        {
+            if ( !selectSpecificList( lEntryId, listIdRecordChunk, recordFieldList, plugin ) )
+            {
+                return null;
+            }
+        }
+
+        return recordFieldList;
+    }
+
+    /**
+     * Load full record field data (except binary file data) of some entries of a list of records, ordered by entry and field position
+     *
+     * @param lEntryId
+     *            List entry to load
+     * @param listIdRecord
+     *            the ids of the records, small enough to be used in a single IN list
+     * @param recordFieldList
+     *            the list the record fields are added to
+     * @param plugin
+     *            the plugin
+     * @return false if an entry type class cannot be instantiated, true otherwise
+     */
+    private boolean selectSpecificList( List<Integer> lEntryId, List<Integer> listIdRecord, List<RecordField> recordFieldList, Plugin plugin )
+    {
         RecordField recordField;
         IEntry entry = null;
         EntryType entryType = null;
@@ -533,7 +626,16 @@ public final class RecordFieldDAO implements IRecordFieldDAO
 
         StringBuffer sbSQL = new StringBuffer( SQL_QUERY_SELECT_FULL_RECORD_FIELD_LIST );
 
-        sbSQL.append( SQL_WHERE + SQL_FILTER_ID_RECORD );
+        int nListIdRecordSize = listIdRecord.size( );
+
+        sbSQL.append( SQL_WHERE + SQL_FILTER_ID_RECORD_IN );
+
+        for ( int i = 1; i < nListIdRecordSize; i++ )
+        {
+            sbSQL.append( SQL_FILTER_ADITIONAL_PARAMETER );
+        }
+
+        sbSQL.append( SQL_FILTER_CLOSE_PARENTHESIS );
 
         int nListEntryIdSize = lEntryId.size( );
 
@@ -557,13 +659,17 @@ public final class RecordFieldDAO implements IRecordFieldDAO
         sbSQL.append( SQL_ORDER_BY_ID_RECORD_FIELD + SQL_FILTER_COMMA + SQL_ORDER_BY_FIELD_POSITION );
 
         DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin );
-        daoUtil.setInt( 1, nIdRecord );
+
+        for ( int i = 0; i < nListIdRecordSize; i++ )
+        {
+            daoUtil.setInt( i + 1, listIdRecord.get( i ) );
+        }
 
         if ( nListEntryIdSize > 0 )
         {
             for ( int i = 0; i < nListEntryIdSize; i++ )
             {
-                daoUtil.setInt( i + 2, lEntryId.get( i ) );
+                daoUtil.setInt( i + nListIdRecordSize + 1, lEntryId.get( i ) );
             }
         }
 
@@ -581,34 +687,13 @@ public final class RecordFieldDAO implements IRecordFieldDAO
             entryType = new EntryType( );
             entryType.setClassName( daoUtil.getString( 4 ) ); // type.class_name
 
-            try
-            {
-                entry = (IEntry) Class.forName( entryType.getClassName( ) ).newInstance( );
-            }
-            catch( ClassNotFoundException e )
-            {
-                // class doesn't exist
-                AppLogService.error( e );
-                bException = true;
-            }
-            catch( InstantiationException e )
-            {
-                // Class is abstract or is an interface or haven't accessible builder
-                AppLogService.error( e );
-                bException = true;
-            }
-            catch( IllegalAccessException e )
-            {
-                // can't access to rhe class
-                AppLogService.error( e );
-                bException = true;
-            }
+            entry = DirectoryCacheService.getInstance( ).newEntry( entryType.getClassName( ) );
 
-            if ( bException )
+            if ( entry == null )
             {
                 daoUtil.free( );
 
-                return null;
+                return false;
             }
 
             entry.setEntryType( entryType );
@@ -660,7 +745,7 @@ public final class RecordFieldDAO implements IRecordFieldDAO
 
         daoUtil.free( );
 
-        return recordFieldList;
+        return true;
     }
 
     /**
@@ -669,7 +754,15 @@ public final class RecordFieldDAO implements IRecordFieldDAO
     @Override
     public List<RecordField> selectListByFilter( RecordFieldFilter filter, Plugin plugin )
     {
-        boolean bException = false;
+        return selectListByFilter( filter, new RecordFieldFetchPlan( ), plugin );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RecordField> selectListByFilter( RecordFieldFilter filter, RecordFieldFetchPlan fetchPlan, Plugin plugin )
+    {
         List<RecordField> recordFieldList = new ArrayList<RecordField>( );
         RecordField recordField;
         IEntry entry = null;
@@ -679,8 +772,6 @@ public final class RecordFieldDAO implements IRecordFieldDAO
         Record record = null;
 
         List<String> listStrFilter = new ArrayList<String>( );
-        listStrFilter.add( SQL_FILTER_ASSOCIATION_ON_ID_ENTRY );
-        listStrFilter.add( SQL_FILTER_ASSOCIATION_ON_ID_TYPE );
 
         if ( filter.containsIdRecord( ) )
         {
@@ -712,7 +803,31 @@ public final class RecordFieldDAO implements IRecordFieldDAO
             listStrFilter.add( SQL_FILTER_CONTAINS_FILE );
         }
 
-        String strSQL = DirectoryUtils.buildRequetteWithFilter( SQL_QUERY_SELECT_RECORD_FIELD_BY_FILTER, listStrFilter, SQL_ORDER_BY_ID_RECORD_FIELD );
+        // the associations of the fetch plan are joined, so that a single query loads everything
+        StringBuilder sbSQL = new StringBuilder( SQL_QUERY_SELECT_RECORD_FIELD_BY_FILTER );
+        StringBuilder sbJoins = new StringBuilder( SQL_FROM_RECORD_FIELD_JOIN_ENTRY );
+
+        if ( fetchPlan.isWithFile( ) )
+        {
+            sbSQL.append( SQL_FETCH_FILE_COLUMNS );
+            sbJoins.append( SQL_JOIN_FILE );
+        }
+
+        if ( fetchPlan.isWithField( ) )
+        {
+            sbSQL.append( SQL_FETCH_FIELD_COLUMNS );
+            sbJoins.append( SQL_JOIN_FIELD );
+        }
+
+        if ( fetchPlan.isWithRecord( ) )
+        {
+            sbSQL.append( SQL_FETCH_RECORD_COLUMNS );
+            sbJoins.append( SQL_JOIN_RECORD );
+        }
+
+        sbSQL.append( sbJoins );
+
+        String strSQL = DirectoryUtils.buildQueryWithFilter( sbSQL, listStrFilter, SQL_ORDER_BY_ID_RECORD_FIELD );
 
         DAOUtil daoUtil = new DAOUtil( strSQL, plugin );
         int nIndex = 1;
@@ -763,30 +878,9 @@ public final class RecordFieldDAO implements IRecordFieldDAO
             entryType = new EntryType( );
             entryType.setClassName( daoUtil.getString( 4 ) );
 
-            try
-            {
-                entry = (IEntry) Class.forName( entryType.getClassName( ) ).newInstance( );
-            }
-            catch( ClassNotFoundException e )
-            {
-                // class doesn't exist
-                AppLogService.error( e );
-                bException = true;
-            }
-            catch( InstantiationException e )
-            {
-                // Class is abstract or is an interface or haven't accessible builder
-                AppLogService.error( e );
-                bException = true;
-            }
-            catch( IllegalAccessException e )
-            {
-                // can't access to rhe class
-                AppLogService.error( e );
-                bException = true;
-            }
+            entry = DirectoryCacheService.getInstance( ).newEntry( entryType.getClassName( ) );
 
-            if ( bException )
+            if ( entry == null )
             {
                 daoUtil.free( );
 
@@ -815,6 +909,33 @@ public final class RecordFieldDAO implements IRecordFieldDAO
                 recordField.setFile( file );
             }
 
+            int nColumn = 12;
+
+            if ( fetchPlan.isWithFile( ) )
+            {
+                if ( recordField.getFile( ) != null )
+                {
+                    recordField.setFile( ( daoUtil.getObject( nColumn ) != null ) ? getFetchedFile( daoUtil, nColumn ) : null );
+                }
+
+                nColumn += NB_FETCH_FILE_COLUMNS;
+            }
+
+            if ( fetchPlan.isWithField( ) )
+            {
+                if ( recordField.getField( ) != null )
+                {
+                    recordField.setField( ( daoUtil.getObject( nColumn ) != null ) ? getFetchedField( daoUtil, nColumn ) : null );
+                }
+
+                nColumn += NB_FETCH_FIELD_COLUMNS;
+            }
+
+            if ( fetchPlan.isWithRecord( ) )
+            {
+                recordField.setRecord( ( daoUtil.getObject( nColumn ) != null ) ? getFetchedRecord( daoUtil, nColumn ) : null );
+            }
+
             recordFieldList.add( recordField );
         }
 
@@ -823,6 +944,97 @@ public final class RecordFieldDAO implements IRecordFieldDAO
         return recordFieldList;
     }
 
+    /**
+     * Get the file fetched with a record field
+     *
+     * @param daoUtil
+     *            the daoUtil positioned on the row of the record field
+     * @param nColumn
+     *            the first column of the file
+     * @return the file, without its physical file
+     */
+    private File getFetchedFile( DAOUtil daoUtil, int nColumn )
+    {
+        File file = new File( );
+        file.setIdFile( daoUtil.getInt( nColumn ) );
+        file.setTitle( daoUtil.getString( nColumn + 1 ) );
+
+        if ( daoUtil.getObject( nColumn + 2 ) != null )
+        {
+            PhysicalFile physicalFile = new PhysicalFile( );
+            physicalFile.setIdPhysicalFile( daoUtil.getInt( nColumn + 2 ) );
+            file.setPhysicalFile( physicalFile );
+        }
+
+        file.setSize( daoUtil.getInt( nColumn + 3 ) );
+        file.setMimeType( daoUtil.getString( nColumn + 4 ) );
+        file.setExtension( daoUtil.getString( nColumn + 5 ) );
+        file.setDateExpiration( daoUtil.getTimestamp( nColumn + 6 ) );
+
+        return file;
+    }
+
+    /**
+     * Get the field fetched with a record field
+     *
+     * @param daoUtil
+     *            the daoUtil positioned on the row of the record field
+     * @param nColumn
+     *            the first column of the field
+     * @return the field, without its regular expressions
+     */
+    private Field getFetchedField( DAOUtil daoUtil, int nColumn )
+    {
+        Field field = new Field( );
+        field.setIdField( daoUtil.getInt( nColumn ) );
+
+        // parent entry
+        Entry entry = new Entry( );
+        entry.setIdEntry( daoUtil.getInt( nColumn + 1 ) );
+        field.setEntry( entry );
+        field.setTitle( daoUtil.getString( nColumn + 2 ) );
+        field.setValue( daoUtil.getString( nColumn + 3 ) );
+        field.setHeight( daoUtil.getInt( nColumn + 4 ) );
+        field.setWidth( daoUtil.getInt( nColumn + 5 ) );
+        field.setDefaultValue( daoUtil.getBoolean( nColumn + 6 ) );
+        field.setMaxSizeEnter( daoUtil.getInt( nColumn + 7 ) );
+        field.setPosition( daoUtil.getInt( nColumn + 8 ) );
+        field.setValueTypeDate( daoUtil.getDate( nColumn + 9 ) );
+        field.setRoleKey( daoUtil.getString( nColumn + 10 ) );
+        field.setWorkgroup( daoUtil.getString( nColumn + 11 ) );
+        field.setShownInResultList( daoUtil.getBoolean( nColumn + 12 ) );
+        field.setShownInResultRecord( daoUtil.getBoolean( nColumn + 13 ) );
+        field.setImageType( daoUtil.getString( nColumn + 14 ) );
+
+        return field;
+    }
+
+    /**
+     * Get the record fetched with a record field
+     *
+     * @param daoUtil
+     *            the daoUtil positioned on the row of the record field
+     * @param nColumn
+     *            the first column of the record
+     * @return the record
+     */
+    private Record getFetchedRecord( DAOUtil daoUtil, int nColumn )
+    {
+        Record record = new Record( );
+        record.setIdRecord( daoUtil.getInt( nColumn ) );
+        record.setDateCreation( daoUtil.getTimestamp( nColumn + 1 ) );
+
+        Directory directory = new Directory( );
+        directory.setIdDirectory( daoUtil.getInt( nColumn + 2 ) );
+        record.setDirectory( directory );
+        record.setEnabled( daoUtil.getBoolean( nColumn + 3 ) );
+        record.setRoleKey( daoUtil.getString( nColumn + 4 ) );
+        record.setWorkgroup( daoUtil.getString( nColumn + 5 ) );
+        record.setDateModification( daoUtil.getTimestamp( nColumn + 6 ) );
+
+        return record;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1026,4 +1238,119 @@ public final class RecordFieldDAO implements IRecordFieldDAO
         daoUtil.executeUpdate( );
         daoUtil.free( );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> selectValuesListByIdEntry( int nIdEntry, Plugin plugin )
+    {
+        List<String> listValues = new ArrayList<String>( );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_VALUES_BY_ID_ENTRY, plugin );
+        daoUtil.setInt( 1, nIdEntry );
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            listValues.add( daoUtil.getString( 1 ) );
+        }
+
+        daoUtil.free( );
+
+        return listValues;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RecordField> selectEntryValuesListByIdRecord( int nIdRecord, Plugin plugin )
+    {
+        List<RecordField> recordFieldList = new ArrayList<RecordField>( );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ENTRY_VALUES_BY_ID_RECORD, plugin );
+        daoUtil.setInt( 1, nIdRecord );
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            IEntry entry = new Entry( );
+            entry.setIdEntry( daoUtil.getInt( 1 ) ); // drf.id_entry
+
+            RecordField recordField = new RecordField( );
+            recordField.setEntry( entry );
+            recordField.setValue( daoUtil.getString( 2 ) ); // drf.record_field_value
+            recordFieldList.add( recordField );
+        }
+
+        daoUtil.free( );
+
+        return recordFieldList;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RecordField> selectEntryValuesListByListIdRecord( List<Integer> listIdRecord, List<Integer> listIdEntry, Plugin plugin )
+    {
+        List<RecordField> recordFieldList = new ArrayList<RecordField>( );
+        int nIdRecordListSize = listIdRecord.size( );
+        int nIdEntryListSize = listIdEntry.size( );
+
+        if ( ( nIdRecordListSize == 0 ) || ( nIdEntryListSize == 0 ) )
+        {
+            return recordFieldList;
+        }
+
+        StringBuilder sbSQL = new StringBuilder( SQL_QUERY_SELECT_ENTRY_VALUES_BY_LIST_ID_RECORD );
+        sbSQL.append( SQL_WHERE ).append( SQL_FILTER_ID_RECORD_IN );
+
+        for ( int i = 1; i < nIdRecordListSize; i++ )
+        {
+            sbSQL.append( SQL_FILTER_ADITIONAL_PARAMETER );
+        }
+
+        sbSQL.append( SQL_FILTER_CLOSE_PARENTHESIS ).append( SQL_FILTER_ID_ENTRY_IN );
+
+        for ( int i = 1; i < nIdEntryListSize; i++ )
+        {
+            sbSQL.append( SQL_FILTER_ADITIONAL_PARAMETER );
+        }
+
+        sbSQL.append( SQL_FILTER_CLOSE_PARENTHESIS ).append( SQL_ORDER_BY_ID_RECORD_ENTRY_POSITION );
+
+        DAOUtil daoUtil = new DAOUtil( sbSQL.toString( ), plugin );
+        int nIndex = 1;
+
+        for ( Integer nIdRecord : listIdRecord )
+        {
+            daoUtil.setInt( nIndex++, nIdRecord );
+        }
+
+        for ( Integer nIdEntry : listIdEntry )
+        {
+            daoUtil.setInt( nIndex++, nIdEntry );
+        }
+
+        daoUtil.executeQuery( );
+
+        while ( daoUtil.next( ) )
+        {
+            Record record = new Record( );
+            record.setIdRecord( daoUtil.getInt( 1 ) ); // drf.id_record
+
+            IEntry entry = new Entry( );
+            entry.setIdEntry( daoUtil.getInt( 2 ) ); // drf.id_entry
+
+            RecordField recordField = new RecordField( );
+            recordField.setRecord( record );
+            recordField.setEntry( entry );
+            recordField.setValue( daoUtil.getString( 3 ) ); // drf.record_field_value
+            recordFieldList.add( recordField );
+        }
+
+        daoUtil.free( );
+
+        return recordFieldList;
+    }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business;
+
+/**
+ *
+ * class RecordFieldFetchPlan : the associations of the record fields loaded with them, in the same query, when listing record fields
+ *
+ */
+public class RecordFieldFetchPlan
+{
+    private boolean _bWithFile;
+    private boolean _bWithField;
+    private boolean _bWithRecord;
+
+    /**
+     * Constructor of a fetch plan loading only the ids of the associations
+     */
+    public RecordFieldFetchPlan( )
+    {
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param bWithFile
+     *            true if the files must be loaded
+     * @param bWithField
+     *            true if the fields must be loaded
+     * @param bWithRecord
+     *            true if the records must be loaded
+     */
+    public RecordFieldFetchPlan( boolean bWithFile, boolean bWithField, boolean bWithRecord )
+    {
+        _bWithFile = bWithFile;
+        _bWithField = bWithField;
+        _bWithRecord = bWithRecord;
+    }
+
+    /**
+     * Tells if the files of the record fields are loaded, without their physical file
+     * 
+     * @return true if the files are loaded
+     */
+    public boolean isWithFile( )
+    {
+        return _bWithFile;
+    }
+
+    /**
+     * Set if the files of the record fields are loaded, without their physical file
+     * 
+     * @param bWithFile
+     *            true if the files must be loaded
+     */
+    public void setWithFile( boolean bWithFile )
+    {
+        _bWithFile = bWithFile;
+    }
+
+    /**
+     * Tells if the fields of the record fields are loaded
+     * 
+     * @return true if the fields are loaded
+     */
+    public boolean isWithField( )
+    {
+        return _bWithField;
+    }
+
+    /**
+     * Set if the fields of the record fields are loaded
+     * 
+     * @param bWithField
+     *            true if the fields must be loaded
+     */
+    public void setWithField( boolean bWithField )
+    {
+        _bWithField = bWithField;
+    }
+
+    /**
+     * Tells if the records of the record fields are loaded
+     * 
+     * @return true if the records are loaded
+     */
+    public boolean isWithRecord( )
+    {
+        return _bWithRecord;
+    }
+
+    /**
+     * Set if the records of the record fields are loaded
+     * 
+     * @param bWithRecord
+     *            true if the records must be loaded
+     */
+    public void setWithRecord( boolean bWithRecord )
+    {
+        _bWithRecord = bWithRecord;
+    }
+}
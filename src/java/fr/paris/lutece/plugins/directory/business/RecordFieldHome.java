@@ -34,11 +34,13 @@
 package fr.paris.lutece.plugins.directory.business;
 
 import fr.paris.lutece.plugins.directory.service.DirectoryService;
-import fr.paris.lutece.plugins.directory.service.record.IRecordService;
-import fr.paris.lutece.plugins.directory.service.record.RecordService;
+import fr.paris.lutece.plugins.directory.service.record.RecordXmlCacheService;
+import fr.paris.lutece.portal.business.regularexpression.RegularExpression;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -74,6 +76,29 @@ public final class RecordFieldHome
         }
 
         _dao.insert( recordField, plugin );
+        invalidateRecordXml( recordField );
+    }
+
+    /**
+     * Creation of record fields and of their files, the record fields being inserted in a single batch
+     *
+     * @param listRecordField
+     *            The record fields which contain the informations to store
+     * @param plugin
+     *            the Plugin
+     */
+    public static void create( List<RecordField> listRecordField, Plugin plugin )
+    {
+        for ( RecordField recordField : listRecordField )
+        {
+            if ( recordField.getFile( ) != null )
+            {
+                recordField.getFile( ).setIdFile( FileHome.create( recordField.getFile( ), plugin ) );
+            }
+        }
+
+        _dao.insert( listRecordField, plugin );
+        invalidateRecordXml( listRecordField );
     }
 
     /**
@@ -100,6 +125,7 @@ public final class RecordFieldHome
         }
 
         _dao.insert( recordField, plugin );
+        invalidateRecordXml( recordField );
     }
 
     /**
@@ -119,6 +145,29 @@ public final class RecordFieldHome
         }
 
         _dao.store( recordField, plugin );
+        invalidateRecordXml( recordField );
+    }
+
+    /**
+     * Update of record fields and of their files, the record fields being updated in a single batch
+     *
+     * @param listRecordField
+     *            The record fields which contain the informations to update
+     * @param plugin
+     *            the Plugin
+     */
+    public static void update( List<RecordField> listRecordField, Plugin plugin )
+    {
+        for ( RecordField recordField : listRecordField )
+        {
+            if ( recordField.getFile( ) != null )
+            {
+                FileHome.update( recordField.getFile( ), plugin );
+            }
+        }
+
+        _dao.store( listRecordField, plugin );
+        invalidateRecordXml( listRecordField );
     }
 
     /**
@@ -159,6 +208,41 @@ public final class RecordFieldHome
         }
 
         _dao.delete( nIdRecordField, plugin );
+        invalidateRecordXml( recordField );
+    }
+
+    /**
+     * Delete record fields and their files, the record fields being deleted in a single query. Unlike {@link #remove(int, boolean, Plugin)}, the record
+     * fields are not reloaded : they must hold the ids of their files.
+     *
+     * @param listRecordField
+     *            The record fields to delete
+     * @param bRemoveAsynchronousFiles
+     *            true if it must remove the asynchronous files, false otherwise
+     * @param plugin
+     *            the Plugin
+     */
+    public static void remove( List<RecordField> listRecordField, boolean bRemoveAsynchronousFiles, Plugin plugin )
+    {
+        List<Integer> listIdRecordField = new ArrayList<Integer>( listRecordField.size( ) );
+
+        for ( RecordField recordField : listRecordField )
+        {
+            if ( recordField.getFile( ) != null )
+            {
+                FileHome.remove( recordField.getFile( ).getIdFile( ), plugin );
+            }
+
+            if ( bRemoveAsynchronousFiles )
+            {
+                DirectoryService.getInstance( ).removeAsynchronousFile( recordField, plugin );
+            }
+
+            listIdRecordField.add( recordField.getIdRecordField( ) );
+        }
+
+        _dao.delete( listIdRecordField, plugin );
+        invalidateRecordXml( listRecordField );
     }
 
     // /////////////////////////////////////////////////////////////////////////
@@ -199,6 +283,35 @@ public final class RecordFieldHome
         return recordField;
     }
 
+    /**
+     * Remove from cache the XML of the record of a record field which has been written, so that the modules writing the record fields directly don't get a
+     * stale rendering of the record
+     *
+     * @param recordField
+     *            the record field, may be null
+     */
+    private static void invalidateRecordXml( RecordField recordField )
+    {
+        if ( ( recordField != null ) && ( recordField.getRecord( ) != null ) )
+        {
+            RecordXmlCacheService.getInstance( ).invalidateRecord( recordField.getRecord( ).getIdRecord( ) );
+        }
+    }
+
+    /**
+     * Remove from cache the XML of the records of record fields which have been written
+     *
+     * @param listRecordField
+     *            the record fields
+     */
+    private static void invalidateRecordXml( List<RecordField> listRecordField )
+    {
+        for ( RecordField recordField : listRecordField )
+        {
+            invalidateRecordXml( recordField );
+        }
+    }
+
     /**
      * Replace "empty" sub object containing only an Id with "full" objects
      *
@@ -267,6 +380,43 @@ public final class RecordFieldHome
     public static void removeByListRecordId( List<Integer> lListRecordId, Plugin plugin )
     {
         _dao.deleteByListRecordId( lListRecordId, plugin );
+
+        for ( Integer nIdRecord : lListRecordId )
+        {
+            RecordXmlCacheService.getInstance( ).invalidateRecord( nIdRecord );
+        }
+    }
+
+    /**
+     * Delete the record fields of a list of records and their files, with set-based queries. The record fields of the records must be given with the ids of
+     * their files, as loaded by {@link #getRecordFieldListByRecordIdList(List, Plugin)}.
+     *
+     * @param listIdRecord
+     *            the ids of the records
+     * @param listRecordField
+     *            the record fields of the records
+     * @param plugin
+     *            the plugin
+     */
+    public static void removeByListRecordId( List<Integer> listIdRecord, List<RecordField> listRecordField, Plugin plugin )
+    {
+        List<File> listFile = new ArrayList<File>( );
+
+        for ( RecordField recordField : listRecordField )
+        {
+            if ( recordField.getFile( ) != null )
+            {
+                listFile.add( recordField.getFile( ) );
+            }
+        }
+
+        _dao.deleteByListRecordId( listIdRecord, plugin );
+        FileHome.remove( listFile, plugin );
+
+        for ( Integer nIdRecord : listIdRecord )
+        {
+            RecordXmlCacheService.getInstance( ).invalidateRecord( nIdRecord );
+        }
     }
 
     /**
@@ -300,28 +450,47 @@ public final class RecordFieldHome
      */
     public static List<RecordField> getRecordFieldList( RecordFieldFilter filter, boolean withFile, boolean withField, boolean withRecord, Plugin plugin )
     {
-        List<RecordField> listRecordField = _dao.selectListByFilter( filter, plugin );
-        IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
+        return getRecordFieldList( filter, new RecordFieldFetchPlan( withFile, withField, withRecord ), plugin );
+    }
 
-        if ( withFile || withField || withRecord )
+    /**
+     * Load the data of all the record field who verify the filter and returns them in a list. The associations of the fetch plan are loaded by the same
+     * query as the record fields.
+     *
+     * @param filter
+     *            the filter
+     * @param fetchPlan
+     *            the associations to load with the record fields
+     * @param plugin
+     *            the plugin
+     * @return the list of record fields
+     */
+    public static List<RecordField> getRecordFieldList( RecordFieldFilter filter, RecordFieldFetchPlan fetchPlan, Plugin plugin )
+    {
+        List<RecordField> listRecordField = _dao.selectListByFilter( filter, fetchPlan, plugin );
+
+        if ( fetchPlan.isWithField( ) )
         {
-	        for ( RecordField recordField : listRecordField )
-	        {
-	            if ( withFile && recordField.getFile( ) != null )
-	            {
-	                recordField.setFile( FileHome.findByPrimaryKey( recordField.getFile( ).getIdFile( ), plugin ) );
-	            }
-
-	            if ( withField && recordField.getField( ) != null )
-	            {
-	                recordField.setField( FieldHome.findByPrimaryKey( recordField.getField( ).getIdField( ), plugin ) );
-	            }
-
-	            if ( withRecord && recordField.getRecord( ) != null )
-	            {
-	                recordField.setRecord( recordService.findByPrimaryKey( recordField.getRecord( ).getIdRecord( ), plugin ) );
-	            }
-	        }
+            // the regular expressions are loaded once per field
+            Map<Integer, List<RegularExpression>> mapRegularExpressions = new HashMap<Integer, List<RegularExpression>>( );
+
+            for ( RecordField recordField : listRecordField )
+            {
+                Field field = recordField.getField( );
+
+                if ( field != null )
+                {
+                    List<RegularExpression> listRegularExpression = mapRegularExpressions.get( field.getIdField( ) );
+
+                    if ( listRegularExpression == null )
+                    {
+                        listRegularExpression = FieldHome.getRegularExpressionList( field.getIdField( ), plugin );
+                        mapRegularExpressions.put( field.getIdField( ), listRegularExpression );
+                    }
+
+                    field.setRegularExpressionList( listRegularExpression );
+                }
+            }
         }
 
         return listRecordField;
@@ -369,6 +538,35 @@ public final class RecordFieldHome
         return listRecordField;
     }
 
+    /**
+     * Load full record field data (except binary file data) of a list of records, in a single query /!\ record data is NOT load, only the id
+     * 
+     * @param lEntryId
+     *            List entry to load
+     * @param listIdRecord
+     *            the ids of the records
+     * @param plugin
+     *            the plugin
+     * @param mapFieldEntry
+     *            a map containing all fields associated to the list of entry
+     * @return list of record fields, ordered by entry and field position
+     */
+    public static List<RecordField> getRecordFieldSpecificList( List<Integer> lEntryId, List<Integer> listIdRecord, Plugin plugin,
+            Map<Integer, Field> mapFieldEntry )
+    {
+        List<RecordField> listRecordField = _dao.selectSpecificListByListIdRecord( lEntryId, listIdRecord, plugin );
+
+        for ( RecordField recordField : listRecordField )
+        {
+            if ( recordField.getField( ) != null )
+            {
+                recordField.setField( mapFieldEntry.get( recordField.getField( ).getIdField( ) ) );
+            }
+        }
+
+        return listRecordField;
+    }
+
     /**
      * return the number of record field who verify the filter
      * 
@@ -448,5 +646,51 @@ public final class RecordFieldHome
     public static void updateValue( String strNewValue, Integer nIdRecordField, Plugin plugin )
     {
         _dao.updateValue( strNewValue, nIdRecordField, plugin );
+        invalidateRecordXml( _dao.load( nIdRecordField, plugin ) );
+    }
+
+    /**
+     * Load the values of all the record fields of an entry
+     * 
+     * @param nIdEntry
+     *            The entry Id
+     * @param plugin
+     *            The plugin
+     * @return the list of values, one for each record field
+     */
+    public static List<String> getValuesListByIdEntry( int nIdEntry, Plugin plugin )
+    {
+        return _dao.selectValuesListByIdEntry( nIdEntry, plugin );
+    }
+
+    /**
+     * Load the entry and the value of all the record fields of a record. Only the id of the entry is loaded.
+     * 
+     * @param nIdRecord
+     *            The record Id
+     * @param plugin
+     *            The plugin
+     * @return the list of record fields
+     */
+    public static List<RecordField> getEntryValuesListByIdRecord( int nIdRecord, Plugin plugin )
+    {
+        return _dao.selectEntryValuesListByIdRecord( nIdRecord, plugin );
+    }
+
+    /**
+     * Load the record, the entry and the value of the record fields of a list of records, restricted to a list of entries. Only the id of the record and
+     * the id of the entry are loaded. The record fields are sorted by record, then in the order of the entries and fields of the directory.
+     * 
+     * @param listIdRecord
+     *            The list of record Id
+     * @param listIdEntry
+     *            The list of entry Id
+     * @param plugin
+     *            The plugin
+     * @return the list of record fields
+     */
+    public static List<RecordField> getEntryValuesListByListIdRecord( List<Integer> listIdRecord, List<Integer> listIdEntry, Plugin plugin )
+    {
+        return _dao.selectEntryValuesListByListIdRecord( listIdRecord, listIdEntry, plugin );
     }
 }
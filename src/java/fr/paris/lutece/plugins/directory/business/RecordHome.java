@@ -34,16 +34,23 @@
 package fr.paris.lutece.plugins.directory.business;
 
 import fr.paris.lutece.plugins.directory.service.DirectoryService;
-import fr.paris.lutece.plugins.directory.service.directorysearch.DirectoryIndexer;
+import fr.paris.lutece.plugins.directory.service.directorysearch.DirectoryAutocompleteService;
 import fr.paris.lutece.plugins.directory.service.directorysearch.DirectorySearchService;
+import fr.paris.lutece.plugins.directory.service.record.RecordXmlCacheService;
+import fr.paris.lutece.plugins.directory.utils.DirectoryTransactionUtils;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.workflow.WorkflowService;
-import fr.paris.lutece.util.sql.TransactionManager;
 
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * class RecordHome
@@ -75,7 +82,7 @@ public final class RecordHome
     {
         record.setDateModification( DirectoryUtils.getCurrentTimestamp( ) );
 
-        TransactionManager.beginTransaction( plugin );
+        DirectoryTransactionUtils.beginTransaction( plugin );
 
         try
         {
@@ -86,20 +93,109 @@ public final class RecordHome
             for ( RecordField recordField : record.getListRecordField( ) )
             {
                 recordField.setRecord( record );
-                RecordFieldHome.create( recordField, plugin );
             }
 
-            TransactionManager.commitTransaction( plugin );
+            RecordFieldHome.create( record.getListRecordField( ), plugin );
+            DirectoryAutocompleteService.getInstance( ).addRecordFields( record.getListRecordField( ), plugin );
+
+            DirectoryTransactionUtils.commitTransaction( plugin );
         }
         catch( Exception e )
         {
-            TransactionManager.rollBack( plugin );
+            DirectoryTransactionUtils.rollBack( plugin );
             throw new AppException( e.getMessage( ), e );
         }
 
         return record.getIdRecord( );
     }
 
+    /**
+     * Creation of records in a single transaction : the records and their record fields are inserted in batches, with a single batch of indexer actions
+     *
+     * @param listRecord
+     *            The records which contain the informations to store
+     * @param plugin
+     *            the Plugin
+     */
+    public static void create( List<Record> listRecord, Plugin plugin )
+    {
+        if ( listRecord.isEmpty( ) )
+        {
+            return;
+        }
+
+        List<RecordField> listRecordField = new ArrayList<RecordField>( );
+        List<Integer> listIdRecordIndexed = new ArrayList<Integer>( );
+        Map<Integer, Boolean> mapDirectoryIndexed = new HashMap<Integer, Boolean>( );
+
+        for ( Record record : listRecord )
+        {
+            record.setDateModification( DirectoryUtils.getCurrentTimestamp( ) );
+        }
+
+        DirectoryTransactionUtils.beginTransaction( plugin );
+
+        try
+        {
+            _dao.insert( listRecord, plugin );
+
+            for ( Record record : listRecord )
+            {
+                for ( RecordField recordField : record.getListRecordField( ) )
+                {
+                    recordField.setRecord( record );
+                    listRecordField.add( recordField );
+                }
+
+                if ( isDirectoryIndexed( record.getDirectory( ).getIdDirectory( ), mapDirectoryIndexed, plugin ) )
+                {
+                    listIdRecordIndexed.add( record.getIdRecord( ) );
+                }
+            }
+
+            RecordFieldHome.create( listRecordField, plugin );
+
+            if ( !listIdRecordIndexed.isEmpty( ) )
+            {
+                DirectorySearchService.getInstance( ).addIndexerActions( listIdRecordIndexed, IndexerAction.TASK_CREATE, plugin );
+            }
+
+            DirectoryAutocompleteService.getInstance( ).addRecordFields( listRecordField, plugin );
+
+            DirectoryTransactionUtils.commitTransaction( plugin );
+        }
+        catch( Exception e )
+        {
+            DirectoryTransactionUtils.rollBack( plugin );
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Tells if a directory is indexed, the answers being kept in a map
+     *
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param mapDirectoryIndexed
+     *            the answers already known, by id of directory
+     * @param plugin
+     *            the Plugin
+     * @return true if the directory exists and is indexed
+     */
+    private static boolean isDirectoryIndexed( int nIdDirectory, Map<Integer, Boolean> mapDirectoryIndexed, Plugin plugin )
+    {
+        Boolean bIndexed = mapDirectoryIndexed.get( nIdDirectory );
+
+        if ( bIndexed == null )
+        {
+            Directory directory = DirectoryHome.findByPrimaryKey( nIdDirectory, plugin );
+            bIndexed = ( directory != null ) && directory.isIndexed( );
+            mapDirectoryIndexed.put( nIdDirectory, bIndexed );
+        }
+
+        return bIndexed;
+    }
+
     /**
      * Copy an instance of record
      *
@@ -118,7 +214,7 @@ public final class RecordHome
         filter.setIdRecord( record.getIdRecord( ) );
         record.setListRecordField( RecordFieldHome.getRecordFieldList( filter, plugin ) );
 
-        TransactionManager.beginTransaction( plugin );
+        DirectoryTransactionUtils.beginTransaction( plugin );
 
         try
         {
@@ -151,11 +247,13 @@ public final class RecordHome
                 }
             }
 
-            TransactionManager.commitTransaction( plugin );
+            DirectoryAutocompleteService.getInstance( ).addRecordFields( record.getListRecordField( ), plugin );
+
+            DirectoryTransactionUtils.commitTransaction( plugin );
         }
         catch( Exception e )
         {
-            TransactionManager.rollBack( plugin );
+            DirectoryTransactionUtils.rollBack( plugin );
             throw new AppException( e.getMessage( ), e );
         }
 
@@ -175,10 +273,9 @@ public final class RecordHome
     {
         record.setDateModification( DirectoryUtils.getCurrentTimestamp( ) );
 
-        RecordFieldFilter filter = new RecordFieldFilter( );
-        filter.setIdRecord( record.getIdRecord( ) );
+        List<RecordField> listOldRecordField = DirectoryAutocompleteService.getInstance( ).getRecordFields( record.getIdRecord( ), plugin );
 
-        TransactionManager.beginTransaction( plugin );
+        DirectoryTransactionUtils.beginTransaction( plugin );
 
         try
         {
@@ -186,23 +283,144 @@ public final class RecordHome
 
             DirectorySearchService.getInstance( ).addIndexerAction( record.getIdRecord( ), IndexerAction.TASK_MODIFY, plugin );
 
-            // delete all record field in database associate
-            RecordFieldHome.removeByFilter( filter, plugin );
+            updateRecordFields( record, plugin );
+            DirectoryAutocompleteService.getInstance( ).removeRecordFields( listOldRecordField, plugin );
+            DirectoryAutocompleteService.getInstance( ).addRecordFields( record.getListRecordField( ), plugin );
 
-            // insert the new record Field
-            for ( RecordField recordField : record.getListRecordField( ) )
+            DirectoryTransactionUtils.commitTransaction( plugin );
+        }
+        catch( Exception e )
+        {
+            DirectoryTransactionUtils.rollBack( plugin );
+            throw new AppException( e.getMessage( ), e );
+        }
+
+        RecordXmlCacheService.getInstance( ).invalidateRecord( record.getIdRecord( ) );
+    }
+
+    /**
+     * Write the record fields of an updated record. The submitted record fields are compared with the stored ones so that only the changed rows are
+     * written : a record field identical to a stored one of the same entry keeps it, another one updates a remaining stored record field of its entry or
+     * is created, and the stored record fields left are removed. The record fields with a file are always removed and created again.
+     *
+     * @param record
+     *            the record holding the submitted record fields
+     * @param plugin
+     *            the Plugin
+     */
+    private static void updateRecordFields( Record record, Plugin plugin )
+    {
+        RecordFieldFilter filter = new RecordFieldFilter( );
+        filter.setIdRecord( record.getIdRecord( ) );
+
+        List<RecordField> listRecordFieldToRemove = new ArrayList<RecordField>( );
+        List<RecordField> listRecordFieldToUpdate = new ArrayList<RecordField>( );
+        List<RecordField> listRecordFieldToCreate = new ArrayList<RecordField>( );
+        List<RecordField> listRecordFieldUnmatched = new ArrayList<RecordField>( );
+
+        // the stored record fields without file, by entry
+        Map<Integer, List<RecordField>> mapStoredRecordFields = new HashMap<Integer, List<RecordField>>( );
+
+        for ( RecordField recordField : RecordFieldHome.getRecordFieldList( filter, new RecordFieldFetchPlan( ), plugin ) )
+        {
+            if ( recordField.getFile( ) != null )
             {
-                recordField.setRecord( record );
-                RecordFieldHome.create( recordField, plugin );
+                listRecordFieldToRemove.add( recordField );
             }
+            else
+            {
+                List<RecordField> listStored = mapStoredRecordFields.get( recordField.getEntry( ).getIdEntry( ) );
+
+                if ( listStored == null )
+                {
+                    listStored = new ArrayList<RecordField>( );
+                    mapStoredRecordFields.put( recordField.getEntry( ).getIdEntry( ), listStored );
+                }
 
-            TransactionManager.commitTransaction( plugin );
+                listStored.add( recordField );
+            }
         }
-        catch( Exception e )
+
+        for ( RecordField recordField : record.getListRecordField( ) )
         {
-            TransactionManager.rollBack( plugin );
-            throw new AppException( e.getMessage( ), e );
+            recordField.setRecord( record );
+
+            if ( recordField.getFile( ) != null )
+            {
+                listRecordFieldToCreate.add( recordField );
+            }
+            else
+            {
+                RecordField recordFieldStored = removeSameRecordField( mapStoredRecordFields.get( recordField.getEntry( ).getIdEntry( ) ), recordField );
+
+                if ( recordFieldStored != null )
+                {
+                    recordField.setIdRecordField( recordFieldStored.getIdRecordField( ) );
+                }
+                else
+                {
+                    listRecordFieldUnmatched.add( recordField );
+                }
+            }
         }
+
+        for ( RecordField recordField : listRecordFieldUnmatched )
+        {
+            List<RecordField> listStored = mapStoredRecordFields.get( recordField.getEntry( ).getIdEntry( ) );
+
+            if ( ( listStored != null ) && !listStored.isEmpty( ) )
+            {
+                recordField.setIdRecordField( listStored.remove( listStored.size( ) - 1 ).getIdRecordField( ) );
+                listRecordFieldToUpdate.add( recordField );
+            }
+            else
+            {
+                listRecordFieldToCreate.add( recordField );
+            }
+        }
+
+        for ( List<RecordField> listStored : mapStoredRecordFields.values( ) )
+        {
+            listRecordFieldToRemove.addAll( listStored );
+        }
+
+        RecordFieldHome.remove( listRecordFieldToRemove, false, plugin );
+        RecordFieldHome.update( listRecordFieldToUpdate, plugin );
+        RecordFieldHome.create( listRecordFieldToCreate, plugin );
+    }
+
+    /**
+     * Remove from a list the first record field with the same field and value as a given one
+     *
+     * @param listRecordField
+     *            the list of record fields, may be null
+     * @param recordField
+     *            the record field
+     * @return the removed record field, or null if there is none
+     */
+    private static RecordField removeSameRecordField( List<RecordField> listRecordField, RecordField recordField )
+    {
+        if ( listRecordField == null )
+        {
+            return null;
+        }
+
+        int nIdField = ( recordField.getField( ) != null ) ? recordField.getField( ).getIdField( ) : DirectoryUtils.CONSTANT_ID_NULL;
+
+        for ( Iterator<RecordField> iterator = listRecordField.iterator( ); iterator.hasNext( ); )
+        {
+            RecordField recordFieldStored = iterator.next( );
+            int nIdFieldStored = ( recordFieldStored.getField( ) != null ) ? recordFieldStored.getField( ).getIdField( ) : DirectoryUtils.CONSTANT_ID_NULL;
+
+            if ( ( nIdFieldStored == nIdField ) && StringUtils.equals( recordFieldStored.getValue( ), recordField.getValue( ) ) )
+            {
+                iterator.remove( );
+
+                return recordFieldStored;
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -218,6 +436,7 @@ public final class RecordHome
     {
         record.setDateModification( DirectoryUtils.getCurrentTimestamp( ) );
         _dao.store( record, plugin );
+        RecordXmlCacheService.getInstance( ).invalidateRecord( record.getIdRecord( ) );
         DirectorySearchService.getInstance( ).addIndexerAction( record.getIdRecord( ), IndexerAction.TASK_MODIFY, plugin );
     }
 
@@ -231,7 +450,9 @@ public final class RecordHome
      */
     public static void remove( int nIdRecord, Plugin plugin )
     {
-        TransactionManager.beginTransaction( plugin );
+        List<RecordField> listOldRecordField = DirectoryAutocompleteService.getInstance( ).getRecordFields( nIdRecord, plugin );
+
+        DirectoryTransactionUtils.beginTransaction( plugin );
 
         try
         {
@@ -243,13 +464,116 @@ public final class RecordHome
             filter.setIdRecord( nIdRecord );
             RecordFieldHome.removeByFilter( filter, true, plugin );
             _dao.delete( nIdRecord, plugin );
-            TransactionManager.commitTransaction( plugin );
+            DirectoryAutocompleteService.getInstance( ).removeRecordFields( listOldRecordField, plugin );
+            DirectoryTransactionUtils.commitTransaction( plugin );
+        }
+        catch( Exception e )
+        {
+            DirectoryTransactionUtils.rollBack( plugin );
+            throw new AppException( e.getMessage( ), e );
+        }
+
+        RecordXmlCacheService.getInstance( ).invalidateRecord( nIdRecord );
+    }
+
+    /**
+     * Remove records with set-based queries in a single transaction : their record fields, files, workflow resources and indexer actions are removed by
+     * lists of ids instead of record by record. The caller splits large lists so that the transaction stays short. The ids of records which do not exist
+     * are ignored.
+     *
+     * @param listIdRecord
+     *            The ids of the records to remove
+     * @param plugin
+     *            the Plugin
+     */
+    public static void remove( List<Integer> listIdRecord, Plugin plugin )
+    {
+        List<Integer> listIdRecordExisting = new ArrayList<Integer>( listIdRecord.size( ) );
+        List<Integer> listIdRecordIndexed = new ArrayList<Integer>( );
+        Map<Integer, List<Integer>> mapIdRecordByIdWorkflow = new HashMap<Integer, List<Integer>>( );
+
+        for ( Record record : _dao.loadList( listIdRecord, plugin ) )
+        {
+            // Ids which do not match a record leave a null in the list
+            if ( ( record == null ) || ( record.getDirectory( ) == null ) )
+            {
+                continue;
+            }
+
+            listIdRecordExisting.add( record.getIdRecord( ) );
+
+            Directory directory = DirectoryHome.findByPrimaryKey( record.getDirectory( ).getIdDirectory( ), plugin );
+
+            if ( directory == null )
+            {
+                continue;
+            }
+
+            if ( directory.isIndexed( ) )
+            {
+                listIdRecordIndexed.add( record.getIdRecord( ) );
+            }
+
+            if ( directory.getIdWorkflow( ) > DirectoryUtils.CONSTANT_ID_NULL )
+            {
+                List<Integer> listIdRecordWorkflow = mapIdRecordByIdWorkflow.get( directory.getIdWorkflow( ) );
+
+                if ( listIdRecordWorkflow == null )
+                {
+                    listIdRecordWorkflow = new ArrayList<Integer>( );
+                    mapIdRecordByIdWorkflow.put( directory.getIdWorkflow( ), listIdRecordWorkflow );
+                }
+
+                listIdRecordWorkflow.add( record.getIdRecord( ) );
+            }
+        }
+
+        if ( listIdRecordExisting.isEmpty( ) )
+        {
+            return;
+        }
+
+        List<RecordField> listRecordField = RecordFieldHome.getRecordFieldListByRecordIdList( listIdRecordExisting, plugin );
+        WorkflowService workflowService = WorkflowService.getInstance( );
+
+        DirectoryTransactionUtils.beginTransaction( plugin );
+
+        try
+        {
+            if ( !listIdRecordIndexed.isEmpty( ) )
+            {
+                DirectorySearchService.getInstance( ).addIndexerActions( listIdRecordIndexed, IndexerAction.TASK_DELETE, plugin );
+            }
+
+            if ( workflowService.isAvailable( ) )
+            {
+                for ( Map.Entry<Integer, List<Integer>> entry : mapIdRecordByIdWorkflow.entrySet( ) )
+                {
+                    workflowService.doRemoveWorkFlowResourceByListId( entry.getValue( ), Record.WORKFLOW_RESOURCE_TYPE, entry.getKey( ) );
+                }
+            }
+
+            RecordFieldHome.removeByListRecordId( listIdRecordExisting, listRecordField, plugin );
+            _dao.delete( listIdRecordExisting, plugin );
+            DirectoryAutocompleteService.getInstance( ).removeRecordFields( listRecordField, plugin );
+            DirectoryTransactionUtils.commitTransaction( plugin );
         }
         catch( Exception e )
         {
-            TransactionManager.rollBack( plugin );
+            DirectoryTransactionUtils.rollBack( plugin );
             throw new AppException( e.getMessage( ), e );
         }
+
+        for ( Integer nIdRecord : listIdRecordExisting )
+        {
+            RecordXmlCacheService.getInstance( ).invalidateRecord( nIdRecord );
+        }
+
+        // The files stored by a web service are removed once the transaction is over, not to hold the locks during the calls
+        for ( RecordField recordField : listRecordField )
+        {
+            DirectoryService.getInstance( ).removeAsynchronousFile( recordField, plugin );
+        }
     }
 
     /**
@@ -317,10 +641,14 @@ public final class RecordHome
         _dao.deleteRecordByDirectoryId( nIdDirectory, plugin );
 
         // --- Update index ---
-        // Hack to bypass problem of primary key violation on table "directory_indexer_action"
-        // when inserting many records
-        // TODO : fixe me
-        DirectoryIndexer.appendListRecordToDelete( listRecordId );
+        DirectorySearchService.getInstance( ).addIndexerActionDeleteDirectory( nIdDirectory, plugin );
+
+        for ( Integer nIdRecord : listRecordId )
+        {
+            RecordXmlCacheService.getInstance( ).invalidateRecord( nIdRecord );
+        }
+
+        DirectoryAutocompleteService.getInstance( ).invalidateAll( );
     }
 
     // /////////////////////////////////////////////////////////////////////////
@@ -423,4 +751,18 @@ public final class RecordHome
     {
         return _dao.getDirectoryIdByRecordId( nRecordId, plugin );
     }
+
+    /**
+     * Get the directory id of each record of a list
+     * 
+     * @param listIdRecord
+     *            the list of record id
+     * @param plugin
+     *            the plugin
+     * @return the map record id / directory id, without the records which do not exist
+     */
+    public static Map<Integer, Integer> getDirectoryIdByListRecordId( List<Integer> listIdRecord, Plugin plugin )
+    {
+        return _dao.getDirectoryIdByListRecordId( listIdRecord, plugin );
+    }
 }
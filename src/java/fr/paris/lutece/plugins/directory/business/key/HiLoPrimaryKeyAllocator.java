@@ -0,0 +1,533 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business.key;
+
+import fr.paris.lutece.portal.service.database.PluginConnectionService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.sql.DAOUtil;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Allocates the primary keys by blocks reserved in the table directory_key_sequence, which holds for each table the next key which is not reserved.
+ * Each node reserves blocks of directory.primaryKey.blockSize keys and allocates them from memory, so that the inserts of several nodes run in parallel
+ * and only the reservation of a block is serialized by the database. The next block is reserved ahead by a background thread, in its own connection,
+ * when half of the current block is allocated. The sequence of a table is created at its first use, after the greatest key of the table. Keys are lost
+ * when a node stops before using its whole blocks.
+ * <p>
+ * When no reserved key is left, the keys are reserved without caching them : in the transaction of the caller if any, since waiting for another
+ * connection of the pool while the transaction holds one could exhaust the pool, otherwise in their own connection.
+ * </p>
+ */
+public class HiLoPrimaryKeyAllocator implements IPrimaryKeyAllocator
+{
+    private static final String PROPERTY_BLOCK_SIZE = "directory.primaryKey.blockSize";
+    private static final int DEFAULT_BLOCK_SIZE = 50;
+    private static final int NB_RESERVATION_ATTEMPTS = 2;
+    private static final String THREAD_NAME_PREFIX = "directory-key-reservation-";
+    private static final String SQL_QUERY_RESERVE = "UPDATE directory_key_sequence SET next_key = next_key + ? WHERE sequence_name = ?";
+    private static final String SQL_QUERY_SELECT_NEXT_KEY = "SELECT next_key FROM directory_key_sequence WHERE sequence_name = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO directory_key_sequence ( sequence_name, next_key ) VALUES ( ?, ? )";
+    private static final String SQL_QUERY_SELECT_MAX_KEY = "SELECT MAX( %s ) FROM %s";
+    private final int _nBlockSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BLOCK_SIZE, DEFAULT_BLOCK_SIZE ) );
+    private final ConcurrentMap<String, KeyBlock> _mapBlocks = new ConcurrentHashMap<String, KeyBlock>( );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int newPrimaryKey( String strTableName, String strKeyColumnName, Plugin plugin )
+    {
+        return newPrimaryKeys( strTableName, strKeyColumnName, 1, plugin );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int newPrimaryKeys( String strTableName, String strKeyColumnName, int nCount, Plugin plugin )
+    {
+        KeyBlock block = _mapBlocks.get( strTableName );
+
+        if ( block == null )
+        {
+            _mapBlocks.putIfAbsent( strTableName, new KeyBlock( ) );
+            block = _mapBlocks.get( strTableName );
+        }
+
+        synchronized( block )
+        {
+            if ( block.getRemainingKeys( ) < nCount )
+            {
+                // the remaining keys of the block are dropped when the caller needs more of them
+                block.useReservedBlock( nCount );
+            }
+
+            if ( block.getRemainingKeys( ) >= nCount )
+            {
+                int nKey = block.take( nCount );
+
+                if ( block.getRemainingKeys( ) <= ( _nBlockSize / 2 ) )
+                {
+                    reserveAhead( block, strTableName, strKeyColumnName, plugin );
+                }
+
+                return nKey;
+            }
+
+            reserveAhead( block, strTableName, strKeyColumnName, plugin );
+        }
+
+        if ( isInTransaction( plugin ) )
+        {
+            return reserveInTransaction( strTableName, strKeyColumnName, nCount, plugin );
+        }
+
+        return reserve( strTableName, strKeyColumnName, nCount, plugin );
+    }
+
+    /**
+     * Start the reservation of the next block of a table in background, unless it is already reserved or being reserved. Must be called with the lock of
+     * the block.
+     * 
+     * @param block
+     *            the block of the table
+     * @param strTableName
+     *            the name of the table
+     * @param strKeyColumnName
+     *            the name of the primary key column
+     * @param plugin
+     *            the plugin
+     */
+    private void reserveAhead( KeyBlock block, String strTableName, String strKeyColumnName, Plugin plugin )
+    {
+        if ( !block.isReservationPending( ) && !block.hasReservedBlock( ) )
+        {
+            block.setReservationPending( true );
+
+            Thread thread = new Thread( new ReservationTask( block, strTableName, strKeyColumnName, plugin ), THREAD_NAME_PREFIX + strTableName );
+            thread.setDaemon( true );
+            thread.start( );
+        }
+    }
+
+    /**
+     * Tells if the current thread runs a transaction on the pool of the plugin, either with the TransactionManager or with a Spring transaction
+     * 
+     * @param plugin
+     *            the plugin
+     * @return true if a transaction is in progress
+     */
+    private static boolean isInTransaction( Plugin plugin )
+    {
+        return ( TransactionManager.getCurrentTransaction( plugin ) != null ) || TransactionSynchronizationManager.isActualTransactionActive( );
+    }
+
+    /**
+     * Reserve keys in the transaction of the caller. The keys are not cached since the reservation is lost if the transaction is rolled back. The
+     * sequence of the table stays locked until the end of the transaction.
+     * 
+     * @param strTableName
+     *            the name of the table
+     * @param strKeyColumnName
+     *            the name of the primary key column
+     * @param nSize
+     *            the number of keys to reserve
+     * @param plugin
+     *            the plugin
+     * @return the first reserved key
+     */
+    private static int reserveInTransaction( String strTableName, String strKeyColumnName, int nSize, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_RESERVE, plugin );
+        daoUtil.setInt( 1, nSize );
+        daoUtil.setString( 2, strTableName );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+
+        daoUtil = new DAOUtil( SQL_QUERY_SELECT_NEXT_KEY, plugin );
+        daoUtil.setString( 1, strTableName );
+        daoUtil.executeQuery( );
+
+        boolean bSequenceExists = daoUtil.next( );
+        int nNextKey = bSequenceExists ? daoUtil.getInt( 1 ) : 0;
+        daoUtil.free( );
+
+        if ( bSequenceExists )
+        {
+            return nNextKey - nSize;
+        }
+
+        // first use of the sequence : it starts after the greatest key of the table
+        daoUtil = new DAOUtil( String.format( SQL_QUERY_SELECT_MAX_KEY, strKeyColumnName, strTableName ), plugin );
+        daoUtil.executeQuery( );
+
+        int nFirstKey = ( daoUtil.next( ) ? daoUtil.getInt( 1 ) : 0 ) + 1;
+        daoUtil.free( );
+
+        daoUtil = new DAOUtil( SQL_QUERY_INSERT, plugin );
+        daoUtil.setString( 1, strTableName );
+        daoUtil.setInt( 2, nFirstKey + nSize );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+
+        return nFirstKey;
+    }
+
+    /**
+     * Reserve a block of keys in its own connection
+     * 
+     * @param strTableName
+     *            the name of the table
+     * @param strKeyColumnName
+     *            the name of the primary key column
+     * @param nSize
+     *            the number of keys to reserve
+     * @param plugin
+     *            the plugin
+     * @return the first key of the block
+     */
+    private static int reserve( String strTableName, String strKeyColumnName, int nSize, Plugin plugin )
+    {
+        PluginConnectionService connectionService = plugin.getConnectionService( );
+        Connection connection = connectionService.getConnection( );
+
+        try
+        {
+            boolean bAutoCommit = connection.getAutoCommit( );
+            connection.setAutoCommit( false );
+
+            try
+            {
+                for ( int nAttempt = 1;; nAttempt++ )
+                {
+                    try
+                    {
+                        int nFirstKey = reserve( connection, strTableName, strKeyColumnName, nSize );
+                        connection.commit( );
+
+                        return nFirstKey;
+                    }
+                    catch( SQLException e )
+                    {
+                        connection.rollback( );
+
+                        // the sequence may have been created by another node in the meantime
+                        if ( nAttempt >= NB_RESERVATION_ATTEMPTS )
+                        {
+                            throw e;
+                        }
+
+                        AppLogService.debug( "Retrying the reservation of keys for " + strTableName + " : " + e.getMessage( ) );
+                    }
+                }
+            }
+            finally
+            {
+                connection.setAutoCommit( bAutoCommit );
+            }
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( "Unable to reserve keys for " + strTableName + " : " + e.getMessage( ), e );
+        }
+        finally
+        {
+            connectionService.freeConnection( connection );
+        }
+    }
+
+    /**
+     * Reserve a block of keys, creating the sequence of the table if needed
+     * 
+     * @param connection
+     *            the connection, outside of auto-commit mode
+     * @param strTableName
+     *            the name of the table
+     * @param strKeyColumnName
+     *            the name of the primary key column
+     * @param nSize
+     *            the number of keys to reserve
+     * @return the first key of the block
+     * @throws SQLException
+     *             if an SQL error occurs
+     */
+    private static int reserve( Connection connection, String strTableName, String strKeyColumnName, int nSize ) throws SQLException
+    {
+        PreparedStatement statement = connection.prepareStatement( SQL_QUERY_RESERVE );
+
+        try
+        {
+            statement.setInt( 1, nSize );
+            statement.setString( 2, strTableName );
+
+            if ( statement.executeUpdate( ) == 0 )
+            {
+                // first use of the sequence : it starts after the greatest key of the table
+                int nFirstKey = selectInt( connection, String.format( SQL_QUERY_SELECT_MAX_KEY, strKeyColumnName, strTableName ), null ) + 1;
+                insertSequence( connection, strTableName, nFirstKey + nSize );
+
+                return nFirstKey;
+            }
+        }
+        finally
+        {
+            statement.close( );
+        }
+
+        return selectInt( connection, SQL_QUERY_SELECT_NEXT_KEY, strTableName ) - nSize;
+    }
+
+    /**
+     * Create the sequence of a table
+     * 
+     * @param connection
+     *            the connection
+     * @param strTableName
+     *            the name of the table
+     * @param nNextKey
+     *            the next key which is not reserved
+     * @throws SQLException
+     *             if an SQL error occurs, in particular if the sequence already exists
+     */
+    private static void insertSequence( Connection connection, String strTableName, int nNextKey ) throws SQLException
+    {
+        PreparedStatement statement = connection.prepareStatement( SQL_QUERY_INSERT );
+
+        try
+        {
+            statement.setString( 1, strTableName );
+            statement.setInt( 2, nNextKey );
+            statement.executeUpdate( );
+        }
+        finally
+        {
+            statement.close( );
+        }
+    }
+
+    /**
+     * Select an integer
+     * 
+     * @param connection
+     *            the connection
+     * @param strSql
+     *            the query
+     * @param strParameter
+     *            the parameter of the query, null if it has none
+     * @return the integer, 0 if the query returns nothing
+     * @throws SQLException
+     *             if an SQL error occurs
+     */
+    private static int selectInt( Connection connection, String strSql, String strParameter ) throws SQLException
+    {
+        PreparedStatement statement = connection.prepareStatement( strSql );
+
+        try
+        {
+            if ( strParameter != null )
+            {
+                statement.setString( 1, strParameter );
+            }
+
+            ResultSet resultSet = statement.executeQuery( );
+
+            return resultSet.next( ) ? resultSet.getInt( 1 ) : 0;
+        }
+        finally
+        {
+            statement.close( );
+        }
+    }
+
+    /**
+     * Reserves the next block of a table in its own connection
+     */
+    private final class ReservationTask implements Runnable
+    {
+        private final KeyBlock _block;
+        private final String _strTableName;
+        private final String _strKeyColumnName;
+        private final Plugin _plugin;
+
+        /**
+         * Constructor
+         * 
+         * @param block
+         *            the block of the table
+         * @param strTableName
+         *            the name of the table
+         * @param strKeyColumnName
+         *            the name of the primary key column
+         * @param plugin
+         *            the plugin
+         */
+        ReservationTask( KeyBlock block, String strTableName, String strKeyColumnName, Plugin plugin )
+        {
+            _block = block;
+            _strTableName = strTableName;
+            _strKeyColumnName = strKeyColumnName;
+            _plugin = plugin;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            boolean bReserved = false;
+            int nFirstKey = 0;
+
+            try
+            {
+                nFirstKey = reserve( _strTableName, _strKeyColumnName, _nBlockSize, _plugin );
+                bReserved = true;
+            }
+            catch( AppException e )
+            {
+                AppLogService.error( e.getMessage( ), e );
+            }
+            finally
+            {
+                synchronized( _block )
+                {
+                    _block.setReservationPending( false );
+
+                    if ( bReserved )
+                    {
+                        _block.setReservedBlock( nFirstKey, _nBlockSize );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The block of keys of a table in use, and the next block reserved ahead. Accessed with the lock of the block.
+     */
+    private static final class KeyBlock
+    {
+        private int _nNextKey;
+        private int _nEndKey;
+        private int _nReservedFirstKey;
+        private int _nReservedSize;
+        private boolean _bReservationPending;
+
+        /**
+         * @return the number of keys not yet allocated
+         */
+        int getRemainingKeys( )
+        {
+            return _nEndKey - _nNextKey;
+        }
+
+        /**
+         * Use the block reserved ahead, if it is big enough
+         * 
+         * @param nCount
+         *            the number of keys needed
+         */
+        void useReservedBlock( int nCount )
+        {
+            if ( _nReservedSize >= nCount )
+            {
+                _nNextKey = _nReservedFirstKey;
+                _nEndKey = _nReservedFirstKey + _nReservedSize;
+                _nReservedSize = 0;
+            }
+        }
+
+        /**
+         * @return true if a block has been reserved ahead
+         */
+        boolean hasReservedBlock( )
+        {
+            return _nReservedSize > 0;
+        }
+
+        /**
+         * @param nFirstKey
+         *            the first key of the block reserved ahead
+         * @param nSize
+         *            the number of keys of the block reserved ahead
+         */
+        void setReservedBlock( int nFirstKey, int nSize )
+        {
+            _nReservedFirstKey = nFirstKey;
+            _nReservedSize = nSize;
+        }
+
+        /**
+         * @return true if a block is being reserved ahead
+         */
+        boolean isReservationPending( )
+        {
+            return _bReservationPending;
+        }
+
+        /**
+         * @param bReservationPending
+         *            true if a block is being reserved ahead
+         */
+        void setReservationPending( boolean bReservationPending )
+        {
+            _bReservationPending = bReservationPending;
+        }
+
+        /**
+         * @param nCount
+         *            the number of keys to allocate
+         * @return the first allocated key
+         */
+        int take( int nCount )
+        {
+            int nKey = _nNextKey;
+            _nNextKey += nCount;
+
+            return nKey;
+        }
+    }
+}
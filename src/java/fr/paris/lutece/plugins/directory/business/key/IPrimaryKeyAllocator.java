@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business.key;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * Allocates the primary keys of the tables of the plugin. The allocator used by the DAOs is the Spring bean {@link #BEAN_NAME}, its implementations must
+ * be thread safe and may be called within or outside a transaction.
+ */
+public interface IPrimaryKeyAllocator
+{
+    /** Name of the bean of the allocator used by the plugin */
+    String BEAN_NAME = "directory.primaryKeyAllocator";
+
+    /**
+     * Allocate a new primary key
+     * 
+     * @param strTableName
+     *            the name of the table
+     * @param strKeyColumnName
+     *            the name of the primary key column
+     * @param plugin
+     *            the plugin
+     * @return the new primary key
+     */
+    int newPrimaryKey( String strTableName, String strKeyColumnName, Plugin plugin );
+
+    /**
+     * Allocate consecutive primary keys
+     * 
+     * @param strTableName
+     *            the name of the table
+     * @param strKeyColumnName
+     *            the name of the primary key column
+     * @param nCount
+     *            the number of keys to allocate
+     * @param plugin
+     *            the plugin
+     * @return the first of the nCount allocated keys
+     */
+    int newPrimaryKeys( String strTableName, String strKeyColumnName, int nCount, Plugin plugin );
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.business.key;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Allocates the primary keys from the greatest key of each table, as the plugin used to. The keys already allocated by this node are remembered, so
+ * that concurrent inserts of the node don't need to be serialized, but this allocator is not safe when several nodes insert in the same tables.
+ */
+public class MaxPrimaryKeyAllocator implements IPrimaryKeyAllocator
+{
+    private static final String SQL_QUERY_SELECT_MAX_KEY = "SELECT MAX( %s ) FROM %s";
+
+    // the last key allocated by this node for each table
+    private final Map<String, Integer> _mapLastKeys = new HashMap<String, Integer>( );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int newPrimaryKey( String strTableName, String strKeyColumnName, Plugin plugin )
+    {
+        return newPrimaryKeys( strTableName, strKeyColumnName, 1, plugin );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int newPrimaryKeys( String strTableName, String strKeyColumnName, int nCount, Plugin plugin )
+    {
+        int nKey = selectMaxKey( strTableName, strKeyColumnName, plugin ) + 1;
+
+        synchronized( _mapLastKeys )
+        {
+            Integer nLastKey = _mapLastKeys.get( strTableName );
+
+            if ( ( nLastKey != null ) && ( nLastKey >= nKey ) )
+            {
+                nKey = nLastKey + 1;
+            }
+
+            _mapLastKeys.put( strTableName, nKey + nCount - 1 );
+        }
+
+        return nKey;
+    }
+
+    /**
+     * Return the greatest key of a table
+     * 
+     * @param strTableName
+     *            the name of the table
+     * @param strKeyColumnName
+     *            the name of the primary key column
+     * @param plugin
+     *            the plugin
+     * @return the greatest key, 0 if the table is empty
+     */
+    private static int selectMaxKey( String strTableName, String strKeyColumnName, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( String.format( SQL_QUERY_SELECT_MAX_KEY, strKeyColumnName, strTableName ), plugin );
+        daoUtil.executeQuery( );
+
+        int nMaxKey = 0;
+
+        if ( daoUtil.next( ) )
+        {
+            nMaxKey = daoUtil.getInt( 1 );
+        }
+
+        daoUtil.free( );
+
+        return nMaxKey;
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service;
+
+import fr.paris.lutece.plugins.directory.business.DefinitionVersionHome;
+import fr.paris.lutece.plugins.directory.business.Directory;
+import fr.paris.lutece.plugins.directory.business.Entry;
+import fr.paris.lutece.plugins.directory.business.EntryType;
+import fr.paris.lutece.plugins.directory.business.Field;
+import fr.paris.lutece.plugins.directory.business.IEntry;
+import fr.paris.lutece.portal.business.regularexpression.RegularExpression;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DirectoryCacheService : keeps in memory the definitions of the directories (directories, entries with their children and fields, field lists and entry
+ * types) and the constructors of the entry classes. The cached definitions are stamped with a version which changes on each write of a directory, an
+ * entry or a field : a write invalidates all the definitions at once, the outdated ones being evicted as the cache fills. A definition is put in cache
+ * with the version read before it was loaded, so that a definition loaded during a write is never served afterwards. The definitions are copied in and out
+ * of the cache, the callers being free to modify the objects they get.
+ * The version combines a counter local to the node, incremented by its own writes, and a version shared by all the nodes in directory_definition_version,
+ * changed in the transaction of each write. The shared version is read again every directory.cache.definitions.versionTtl milliseconds, so that the
+ * writes made on another node, including the changes of roles, workgroups and activation of the directories, are seen within that delay.
+ */
+public final class DirectoryCacheService extends AbstractCacheableService
+{
+    private static final String SERVICE_NAME = "Directory Definitions Cache Service";
+    private static final String KEY_DIRECTORY = "directory:";
+    private static final String KEY_ENTRY = "entry:";
+    private static final String KEY_FIELD_LIST = "fields:";
+    private static final String KEY_ENTRY_TYPE = "entryType:";
+    private static final String KEY_SEPARATOR = ":";
+    private static final String PROPERTY_VERSION_TTL = "directory.cache.definitions.versionTtl";
+    private static final int DEFAULT_VERSION_TTL = 2000;
+    private static DirectoryCacheService _singleton = new DirectoryCacheService( );
+    private final AtomicLong _lLocalVersion = new AtomicLong( );
+    private final long _lVersionTtl = Math.max( 0, AppPropertiesService.getPropertyInt( PROPERTY_VERSION_TTL, DEFAULT_VERSION_TTL ) );
+    private volatile long _lSharedVersion;
+    private volatile long _lSharedVersionExpiration;
+    private final ConcurrentMap<String, Constructor<? extends IEntry>> _mapEntryConstructors =
+            new ConcurrentHashMap<String, Constructor<? extends IEntry>>( );
+
+    /**
+     * Private constructor
+     */
+    private DirectoryCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static DirectoryCacheService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Return the current version of the definitions, to be read before loading a definition which will be put in cache
+     * 
+     * @return the version
+     */
+    public long getVersion( )
+    {
+        long lNow = System.currentTimeMillis( );
+
+        if ( lNow >= _lSharedVersionExpiration )
+        {
+            _lSharedVersion = DefinitionVersionHome.getVersion( PluginService.getPlugin( DirectoryPlugin.PLUGIN_NAME ) );
+            _lSharedVersionExpiration = lNow + _lVersionTtl;
+        }
+
+        return _lSharedVersion + _lLocalVersion.get( );
+    }
+
+    /**
+     * Invalidate all the cached definitions, after the write of a directory, an entry or a field. The definitions of this node are invalidated at once,
+     * those of the other nodes when they read the new shared version.
+     */
+    public void invalidate( )
+    {
+        _lLocalVersion.incrementAndGet( );
+
+        // A random version is never reused, even when the transaction of the write is rolled back
+        DefinitionVersionHome.update( ThreadLocalRandom.current( ).nextLong( ), PluginService.getPlugin( DirectoryPlugin.PLUGIN_NAME ) );
+    }
+
+    /**
+     * Return a copy of a cached directory
+     * 
+     * @param nIdDirectory
+     *            the id of the directory
+     * @return the directory, or null if it is not in cache
+     */
+    public Directory getDirectory( int nIdDirectory )
+    {
+        Directory directory = (Directory) getCachedDefinition( KEY_DIRECTORY, nIdDirectory );
+
+        return ( directory != null ) ? directory.clone( ) : null;
+    }
+
+    /**
+     * Put a copy of a directory in cache
+     * 
+     * @param lVersion
+     *            the version read before loading the directory
+     * @param directory
+     *            the directory
+     */
+    public void putDirectory( long lVersion, Directory directory )
+    {
+        putCachedDefinition( KEY_DIRECTORY, lVersion, directory.getIdDirectory( ), directory.clone( ) );
+    }
+
+    /**
+     * Return a copy of a cached entry with its children and fields
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @return the entry, or null if it is not in cache
+     */
+    public IEntry getEntry( int nIdEntry )
+    {
+        IEntry entry = (IEntry) getCachedDefinition( KEY_ENTRY, nIdEntry );
+
+        return ( entry != null ) ? copyEntry( entry ) : null;
+    }
+
+    /**
+     * Put a copy of an entry with its children and fields in cache. Only the entries extending {@link Entry} can be copied, the others are not cached.
+     * 
+     * @param lVersion
+     *            the version read before loading the entry
+     * @param entry
+     *            the entry
+     */
+    public void putEntry( long lVersion, IEntry entry )
+    {
+        if ( entry instanceof Entry )
+        {
+            putCachedDefinition( KEY_ENTRY, lVersion, entry.getIdEntry( ), copyEntry( entry ) );
+        }
+    }
+
+    /**
+     * Return a copy of the cached fields of an entry
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @return the fields, or null if they are not in cache
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<Field> getFieldList( int nIdEntry )
+    {
+        List<Field> listFields = (List<Field>) getCachedDefinition( KEY_FIELD_LIST, nIdEntry );
+
+        return ( listFields != null ) ? copyFieldList( listFields ) : null;
+    }
+
+    /**
+     * Put a copy of the fields of an entry in cache
+     * 
+     * @param lVersion
+     *            the version read before loading the fields
+     * @param nIdEntry
+     *            the id of the entry
+     * @param listFields
+     *            the fields
+     */
+    public void putFieldList( long lVersion, int nIdEntry, List<Field> listFields )
+    {
+        putCachedDefinition( KEY_FIELD_LIST, lVersion, nIdEntry, copyFieldList( listFields ) );
+    }
+
+    /**
+     * Return a copy of a cached entry type
+     * 
+     * @param nIdType
+     *            the id of the entry type
+     * @return the entry type, or null if it is not in cache
+     */
+    public EntryType getEntryType( int nIdType )
+    {
+        EntryType entryType = (EntryType) getCachedDefinition( KEY_ENTRY_TYPE, nIdType );
+
+        return ( entryType != null ) ? copyEntryType( entryType ) : null;
+    }
+
+    /**
+     * Put a copy of an entry type in cache
+     * 
+     * @param lVersion
+     *            the version read before loading the entry type
+     * @param entryType
+     *            the entry type
+     */
+    public void putEntryType( long lVersion, EntryType entryType )
+    {
+        putCachedDefinition( KEY_ENTRY_TYPE, lVersion, entryType.getIdType( ), copyEntryType( entryType ) );
+    }
+
+    /**
+     * Create an instance of an entry class. The constructors are resolved once per class.
+     * 
+     * @param strClassName
+     *            the name of the entry class
+     * @return the new entry, or null if the class can't be instantiated
+     */
+    public IEntry newEntry( String strClassName )
+    {
+        try
+        {
+            Constructor<? extends IEntry> constructor = _mapEntryConstructors.get( strClassName );
+
+            if ( constructor == null )
+            {
+                constructor = Class.forName( strClassName ).asSubclass( IEntry.class ).getConstructor( );
+                _mapEntryConstructors.put( strClassName, constructor );
+            }
+
+            return constructor.newInstance( );
+        }
+        catch( ReflectiveOperationException e )
+        {
+            // the class doesn't exist, doesn't implement IEntry or can't be instantiated
+            AppLogService.error( e );
+        }
+        catch( ClassCastException e )
+        {
+            AppLogService.error( e );
+        }
+
+        return null;
+    }
+
+    /**
+     * Return a cached definition
+     * 
+     * @param strType
+     *            the type of definition
+     * @param nId
+     *            the id of the definition
+     * @return the definition, or null if it is not in cache for the current version
+     */
+    private Object getCachedDefinition( String strType, int nId )
+    {
+        return isCacheEnable( ) ? getFromCache( getCacheKey( strType, getVersion( ), nId ) ) : null;
+    }
+
+    /**
+     * Put a definition in cache
+     * 
+     * @param strType
+     *            the type of definition
+     * @param lVersion
+     *            the version read before loading the definition
+     * @param nId
+     *            the id of the definition
+     * @param definition
+     *            the definition
+     */
+    private void putCachedDefinition( String strType, long lVersion, int nId, Object definition )
+    {
+        if ( isCacheEnable( ) )
+        {
+            putInCache( getCacheKey( strType, lVersion, nId ), definition );
+        }
+    }
+
+    /**
+     * Return the cache key of a definition
+     * 
+     * @param strType
+     *            the type of definition
+     * @param lVersion
+     *            the version of the definition
+     * @param nId
+     *            the id of the definition
+     * @return the key
+     */
+    private static String getCacheKey( String strType, long lVersion, int nId )
+    {
+        return strType + lVersion + KEY_SEPARATOR + nId;
+    }
+
+    /**
+     * Copy an entry with its directory, parent, children and fields
+     * 
+     * @param entry
+     *            the entry
+     * @return the copy, or the entry itself if it doesn't extend {@link Entry}
+     */
+    private static IEntry copyEntry( IEntry entry )
+    {
+        if ( !( entry instanceof Entry ) )
+        {
+            return entry;
+        }
+
+        Entry entryCopy = ( (Entry) entry ).clone( );
+
+        if ( entry.getDirectory( ) != null )
+        {
+            entryCopy.setDirectory( entry.getDirectory( ).clone( ) );
+        }
+
+        if ( entry.getParent( ) != null )
+        {
+            entryCopy.setParent( copyEntry( entry.getParent( ) ) );
+        }
+
+        if ( entry.getFields( ) != null )
+        {
+            entryCopy.setFields( copyFieldList( entry.getFields( ) ) );
+        }
+
+        if ( entry.getChildren( ) != null )
+        {
+            List<IEntry> listChildren = new ArrayList<IEntry>( entry.getChildren( ).size( ) );
+
+            for ( IEntry entryChild : entry.getChildren( ) )
+            {
+                listChildren.add( copyEntry( entryChild ) );
+            }
+
+            entryCopy.setChildren( listChildren );
+        }
+
+        return entryCopy;
+    }
+
+    /**
+     * Copy a list of fields
+     * 
+     * @param listFields
+     *            the fields
+     * @return the copy
+     */
+    private static List<Field> copyFieldList( List<Field> listFields )
+    {
+        List<Field> listFieldsCopy = new ArrayList<Field>( listFields.size( ) );
+
+        for ( Field field : listFields )
+        {
+            Field fieldCopy = field.clone( );
+
+            if ( field.getRegularExpressionList( ) != null )
+            {
+                fieldCopy.setRegularExpressionList( new ArrayList<RegularExpression>( field.getRegularExpressionList( ) ) );
+            }
+
+            listFieldsCopy.add( fieldCopy );
+        }
+
+        return listFieldsCopy;
+    }
+
+    /**
+     * Copy an entry type
+     * 
+     * @param entryType
+     *            the entry type
+     * @return the copy
+     */
+    private static EntryType copyEntryType( EntryType entryType )
+    {
+        EntryType entryTypeCopy = new EntryType( );
+        entryTypeCopy.setIdType( entryType.getIdType( ) );
+        entryTypeCopy.setTitleI18nKey( entryType.getTitleI18nKey( ) );
+        entryTypeCopy.setClassName( entryType.getClassName( ) );
+        entryTypeCopy.setGroup( entryType.getGroup( ) );
+        entryTypeCopy.setComment( entryType.getComment( ) );
+        entryTypeCopy.setMyLuteceUser( entryType.getMyLuteceUser( ) );
+
+        return entryTypeCopy;
+    }
+}
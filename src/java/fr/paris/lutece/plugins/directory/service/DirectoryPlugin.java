@@ -33,6 +33,11 @@
  */
 package fr.paris.lutece.plugins.directory.service;
 
+import fr.paris.lutece.plugins.directory.service.directorysearch.DirectoryNearRealTimeIndexer;
+import fr.paris.lutece.plugins.directory.service.export.ExportJobService;
+import fr.paris.lutece.plugins.directory.service.importation.ImportJobService;
+import fr.paris.lutece.plugins.directory.service.record.MassWorkflowActionService;
+import fr.paris.lutece.portal.service.init.ShutdownServiceManager;
 import fr.paris.lutece.portal.service.plugin.PluginDefaultImplementation;
 
 /**
@@ -53,5 +58,19 @@ public class DirectoryPlugin extends PluginDefaultImplementation
     {
         // Initialize the Directory service
         DirectoryService.getInstance( ).init( );
+
+        // Close the export jobs interrupted by a restart, and stop them with the webapp
+        ExportJobService.getInstance( ).init( this );
+        ShutdownServiceManager.registerShutdownService( ExportJobService.getInstance( ) );
+
+        // Close the import jobs interrupted by a restart, and stop them with the webapp
+        ImportJobService.getInstance( ).init( this );
+        ShutdownServiceManager.registerShutdownService( ImportJobService.getInstance( ) );
+
+        // Stop the near real time indexing thread with the webapp
+        ShutdownServiceManager.registerShutdownService( DirectoryNearRealTimeIndexer.getInstance( ) );
+
+        // Stop the mass workflow actions with the webapp
+        ShutdownServiceManager.registerShutdownService( MassWorkflowActionService.getInstance( ) );
     }
 }
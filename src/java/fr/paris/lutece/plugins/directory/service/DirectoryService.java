@@ -54,10 +54,12 @@ import fr.paris.lutece.plugins.directory.service.parameter.DirectoryParameterSer
 import fr.paris.lutece.plugins.directory.service.parameter.EntryParameterService;
 import fr.paris.lutece.plugins.directory.service.record.IRecordService;
 import fr.paris.lutece.plugins.directory.service.record.RecordService;
+import fr.paris.lutece.plugins.directory.service.record.RecordStateResolver;
 import fr.paris.lutece.plugins.directory.service.security.DirectoryUserAttributesManager;
 import fr.paris.lutece.plugins.directory.service.upload.DirectoryAsynchronousUploadHandler;
 import fr.paris.lutece.plugins.directory.utils.DirectoryErrorException;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.plugins.directory.utils.RecordIdSet;
 import fr.paris.lutece.plugins.workflowcore.business.action.Action;
 import fr.paris.lutece.plugins.workflowcore.business.state.State;
 import fr.paris.lutece.portal.business.rbac.RBAC;
@@ -190,8 +192,7 @@ public class DirectoryService
             List<Integer> listResultRecordIds = DirectorySearchService.getInstance( ).getSearchResults( directory, null, null, null, null, filter, plugin );
             List<Integer> listTmpResultRecordIds = WorkflowService.getInstance( ).getAuthorizedResourceList( Record.WORKFLOW_RESOURCE_TYPE,
                     directory.getIdWorkflow( ), DirectoryUtils.CONSTANT_ID_NULL, Integer.valueOf( directory.getIdDirectory( ) ), user );
-            listResultRecordIds = DirectoryUtils.retainAllIdsKeepingFirstOrder( listResultRecordIds, listTmpResultRecordIds );
-            nNbRecords = listResultRecordIds.size( );
+            nNbRecords = RecordIdSet.valueOf( listResultRecordIds ).intersect( RecordIdSet.valueOf( listTmpResultRecordIds ) ).size( );
         }
         else
         {
@@ -495,6 +496,37 @@ public class DirectoryService
      */
     public Map<String, Object> getResourceAction( Record record, Directory directory, List<IEntry> listEntryResultSearch, AdminUser adminUser,
             List<DirectoryAction> listActionsForDirectoryEnable, List<DirectoryAction> listActionsForDirectoryDisable, boolean bGetFileName, Plugin plugin )
+    {
+        return getResourceAction( record, directory, listEntryResultSearch, adminUser, listActionsForDirectoryEnable, listActionsForDirectoryDisable,
+                bGetFileName, null, plugin );
+    }
+
+    /**
+     * Get the resource action for a record of a list of records
+     * 
+     * @param record
+     *            the record
+     * @param directory
+     *            the directory
+     * @param listEntryResultSearch
+     *            the list of entry
+     * @param adminUser
+     *            the AdminUser
+     * @param listActionsForDirectoryEnable
+     *            The list of actions to use if the record is enabled
+     * @param listActionsForDirectoryDisable
+     *            The list of actions to use if the record is disabled
+     * @param bGetFileName
+     *            True to get file names. <i>Warning :</i> The file name is fetch by a webservice call. Beware of performance.
+     * @param stateResolver
+     *            the resolver of the workflow states of the records of the list, or null to read the state of the record alone
+     * @param plugin
+     *            the plugin
+     * @return a map of string - object
+     */
+    public Map<String, Object> getResourceAction( Record record, Directory directory, List<IEntry> listEntryResultSearch, AdminUser adminUser,
+            List<DirectoryAction> listActionsForDirectoryEnable, List<DirectoryAction> listActionsForDirectoryDisable, boolean bGetFileName,
+            RecordStateResolver stateResolver, Plugin plugin )
     {
         if ( record.isEnabled( ) )
         {
@@ -518,8 +550,8 @@ public class DirectoryService
             WorkflowService workflowService = WorkflowService.getInstance( );
             Collection<Action> lListActions = workflowService.getActions( record.getIdRecord( ), Record.WORKFLOW_RESOURCE_TYPE, directory.getIdWorkflow( ),
                     adminUser );
-            State state = workflowService.getState( record.getIdRecord( ), Record.WORKFLOW_RESOURCE_TYPE, directory.getIdWorkflow( ),
-                    Integer.valueOf( directory.getIdDirectory( ) ) );
+            State state = ( stateResolver != null ) ? stateResolver.getState( record.getIdRecord( ) ) : workflowService.getState( record.getIdRecord( ),
+                    Record.WORKFLOW_RESOURCE_TYPE, directory.getIdWorkflow( ), Integer.valueOf( directory.getIdDirectory( ) ) );
             resourceActions.put( MARK_WORKFLOW_STATE, state );
             resourceActions.put( MARK_WORKFLOW_ACTION_LIST, lListActions );
         }
@@ -81,11 +81,7 @@ public class DirectoryWorkflowRecordRemovalDaemon extends Daemon
 
                     if ( ( listRecordId != null ) && ( listRecordId.size( ) > 0 ) )
                     {
-                        for ( int nRecordId : listRecordId )
-                        {
-                            recordService.remove( nRecordId, pluginDirectory );
-                        }
-
+                        recordService.removeAll( listRecordId, pluginDirectory );
                         nRemovedRecords += listRecordId.size( );
                     }
                 }
@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.directorysearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import fr.paris.lutece.plugins.directory.business.EntryHome;
+import fr.paris.lutece.plugins.directory.business.IEntry;
+import fr.paris.lutece.plugins.directory.business.RecordField;
+import fr.paris.lutece.plugins.directory.business.RecordFieldHome;
+import fr.paris.lutece.plugins.directory.utils.DirectoryTransactionUtils;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+/**
+ * DirectoryAutocompleteService : keeps for each autocomplete entry the sorted distinct values of its record fields, so that the values beginning with a
+ * given prefix are found in a single lookup. The values of an entry are loaded from the database at the first request on this entry, then maintained on
+ * record creation, update and removal, once the changes are committed. An entry changed while its values are loading is loaded again, since the load may
+ * have missed the change. Only the autocomplete entries are served, and their values are kept in a Lutece cache bounded by the settings of
+ * caches.properties.
+ */
+public final class DirectoryAutocompleteService extends AbstractCacheableService
+{
+    private static final String SERVICE_NAME = "Directory Autocomplete Cache Service";
+    private static final int NO_ENTRY = -1;
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+    private static DirectoryAutocompleteService _singleton = new DirectoryAutocompleteService( );
+    private final Object _lockChanges = new Object( );
+
+    // the entry whose values are loading, and whether it has been changed since the load began, guarded by _lockChanges
+    private int _nIdEntryLoading = NO_ENTRY;
+    private boolean _bEntryLoadingChanged;
+
+    /**
+     * Private constructor
+     */
+    private DirectoryAutocompleteService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static DirectoryAutocompleteService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Return the distinct values of an autocomplete entry of a directory beginning with the given prefix (case insensitive), in alphabetical order
+     * 
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param nIdEntry
+     *            the id of the entry
+     * @param strPrefix
+     *            the prefix, all the values are returned if the prefix is empty
+     * @param nMaxResults
+     *            the maximum number of values to return
+     * @param plugin
+     *            the plugin
+     * @return the values, none if the entry is not an autocomplete entry of the directory
+     */
+    public List<String> getValues( int nIdDirectory, int nIdEntry, String strPrefix, int nMaxResults, Plugin plugin )
+    {
+        List<String> listValues = new ArrayList<String>( );
+
+        if ( !isAutocompleteEntry( nIdDirectory, nIdEntry, plugin ) )
+        {
+            return listValues;
+        }
+
+        String strSearchedPrefix = StringUtils.defaultString( strPrefix );
+
+        for ( String strValue : getEntryValues( nIdEntry, plugin ).tailMap( strSearchedPrefix, true ).keySet( ) )
+        {
+            if ( ( listValues.size( ) >= nMaxResults ) || !strValue.regionMatches( true, 0, strSearchedPrefix, 0, strSearchedPrefix.length( ) ) )
+            {
+                break;
+            }
+
+            listValues.add( strValue );
+        }
+
+        return listValues;
+    }
+
+    /**
+     * Add the values of record fields which are created. The values are added once the transaction in progress is committed.
+     * 
+     * @param listRecordField
+     *            the record fields
+     * @param plugin
+     *            the plugin
+     */
+    public void addRecordFields( final List<RecordField> listRecordField, Plugin plugin )
+    {
+        if ( ( listRecordField == null ) || !isCacheEnable( ) )
+        {
+            return;
+        }
+
+        DirectoryTransactionUtils.runAfterCommit( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                applyChanges( listRecordField, true );
+            }
+        }, plugin );
+    }
+
+    /**
+     * Remove the values of record fields which are removed. The values are removed once the transaction in progress is committed.
+     * 
+     * @param listRecordField
+     *            the record fields as returned by {@link #getRecordFields( int, Plugin )}, null if they are not known
+     * @param plugin
+     *            the plugin
+     */
+    public void removeRecordFields( final List<RecordField> listRecordField, Plugin plugin )
+    {
+        if ( !isCacheEnable( ) )
+        {
+            return;
+        }
+
+        DirectoryTransactionUtils.runAfterCommit( new Runnable( )
+        {
+            @Override
+            public void run( )
+            {
+                applyChanges( listRecordField, false );
+            }
+        }, plugin );
+    }
+
+    /**
+     * Load the record fields of a record whose values are kept in memory, before the record is updated or removed. Nothing is loaded if no entry values
+     * are in memory.
+     * 
+     * @param nIdRecord
+     *            the id of the record
+     * @param plugin
+     *            the plugin
+     * @return the record fields, with only their entry and value, or null if they have not been loaded
+     */
+    public List<RecordField> getRecordFields( int nIdRecord, Plugin plugin )
+    {
+        if ( !isLoaded( ) )
+        {
+            return null;
+        }
+
+        return RecordFieldHome.getEntryValuesListByIdRecord( nIdRecord, plugin );
+    }
+
+    /**
+     * Drop all the values in memory. They will be reloaded at the next request on each entry
+     */
+    public void invalidateAll( )
+    {
+        synchronized( _lockChanges )
+        {
+            resetCache( );
+            _bEntryLoadingChanged = true;
+        }
+    }
+
+    /**
+     * Tells if an entry is an autocomplete entry of a directory
+     * 
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param nIdEntry
+     *            the id of the entry
+     * @param plugin
+     *            the plugin
+     * @return true if the entry is an autocomplete entry of the directory
+     */
+    private static boolean isAutocompleteEntry( int nIdDirectory, int nIdEntry, Plugin plugin )
+    {
+        IEntry entry = EntryHome.findByPrimaryKey( nIdEntry, plugin );
+
+        return ( entry != null ) && entry.isAutocompleteEntry( ) && ( entry.getDirectory( ) != null )
+                && ( entry.getDirectory( ).getIdDirectory( ) == nIdDirectory );
+    }
+
+    /**
+     * Tells if the values of some entries are in memory
+     * 
+     * @return true if some values are in memory
+     */
+    private boolean isLoaded( )
+    {
+        return isCacheEnable( ) && ( getCacheSize( ) > 0 );
+    }
+
+    /**
+     * Return the values of an entry, loading them if needed
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @param plugin
+     *            the plugin
+     * @return the values of the entry
+     */
+    @SuppressWarnings( "unchecked" )
+    private ConcurrentSkipListMap<String, Integer> getEntryValues( int nIdEntry, Plugin plugin )
+    {
+        String strKey = getCacheKey( nIdEntry );
+        ConcurrentSkipListMap<String, Integer> mapValues = isCacheEnable( ) ? (ConcurrentSkipListMap<String, Integer>) getFromCache( strKey ) : null;
+
+        if ( mapValues == null )
+        {
+            synchronized( this )
+            {
+                mapValues = isCacheEnable( ) ? (ConcurrentSkipListMap<String, Integer>) getFromCache( strKey ) : null;
+
+                if ( mapValues == null )
+                {
+                    mapValues = loadEntryValues( nIdEntry, plugin );
+                }
+            }
+        }
+
+        return mapValues;
+    }
+
+    /**
+     * Load the values of an entry from the database and put them in cache. The values are loaded again if the entry has been changed during the load : the
+     * query may have run before the commit of the change, and the change could not be applied to values not in cache yet. After several attempts, the
+     * values are returned without being put in cache, and will be loaded again by the next request.
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @param plugin
+     *            the plugin
+     * @return the values of the entry
+     */
+    private ConcurrentSkipListMap<String, Integer> loadEntryValues( int nIdEntry, Plugin plugin )
+    {
+        ConcurrentSkipListMap<String, Integer> mapValues = null;
+
+        for ( int nAttempt = 1; nAttempt <= MAX_LOAD_ATTEMPTS; nAttempt++ )
+        {
+            synchronized( _lockChanges )
+            {
+                _nIdEntryLoading = nIdEntry;
+                _bEntryLoadingChanged = false;
+            }
+
+            mapValues = new ConcurrentSkipListMap<String, Integer>( String.CASE_INSENSITIVE_ORDER );
+
+            for ( String strValue : RecordFieldHome.getValuesListByIdEntry( nIdEntry, plugin ) )
+            {
+                if ( StringUtils.isNotBlank( strValue ) )
+                {
+                    addValue( mapValues, strValue );
+                }
+            }
+
+            synchronized( _lockChanges )
+            {
+                _nIdEntryLoading = NO_ENTRY;
+
+                if ( !_bEntryLoadingChanged )
+                {
+                    if ( isCacheEnable( ) )
+                    {
+                        putInCache( getCacheKey( nIdEntry ), mapValues );
+                    }
+
+                    return mapValues;
+                }
+            }
+        }
+
+        return mapValues;
+    }
+
+    /**
+     * Apply committed changes of record fields to the values in cache. The entry whose values are loading is marked as changed if it is concerned.
+     * 
+     * @param listRecordField
+     *            the record fields, null if they are not known : the values loaded since then are dropped and the entry whose values are loading is marked
+     *            as changed
+     * @param bAdd
+     *            true if the record fields have been created, false if they have been removed
+     */
+    private void applyChanges( List<RecordField> listRecordField, boolean bAdd )
+    {
+        synchronized( _lockChanges )
+        {
+            if ( listRecordField == null )
+            {
+                // values loaded since the record fields were read may hold the removed values
+                if ( getCacheSize( ) > 0 )
+                {
+                    resetCache( );
+                }
+
+                _bEntryLoadingChanged = true;
+
+                return;
+            }
+
+            for ( RecordField recordField : listRecordField )
+            {
+                if ( ( recordField.getEntry( ) == null ) || StringUtils.isBlank( recordField.getValue( ) ) )
+                {
+                    continue;
+                }
+
+                if ( recordField.getEntry( ).getIdEntry( ) == _nIdEntryLoading )
+                {
+                    _bEntryLoadingChanged = true;
+                }
+
+                ConcurrentMap<String, Integer> mapValues = getLoadedEntryValues( recordField );
+
+                if ( mapValues == null )
+                {
+                    continue;
+                }
+
+                if ( bAdd )
+                {
+                    addValue( mapValues, recordField.getValue( ) );
+                }
+                else
+                {
+                    removeValue( mapValues, recordField.getValue( ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the values of the entry of a record field if they are in memory
+     * 
+     * @param recordField
+     *            the record field
+     * @return the values of the entry, or null if they are not loaded
+     */
+    @SuppressWarnings( "unchecked" )
+    private ConcurrentMap<String, Integer> getLoadedEntryValues( RecordField recordField )
+    {
+        if ( recordField.getEntry( ) == null )
+        {
+            return null;
+        }
+
+        return (ConcurrentMap<String, Integer>) getFromCache( getCacheKey( recordField.getEntry( ).getIdEntry( ) ) );
+    }
+
+    /**
+     * Return the cache key of the values of an entry
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @return the key
+     */
+    private static String getCacheKey( int nIdEntry )
+    {
+        return Integer.toString( nIdEntry );
+    }
+
+    /**
+     * Increment atomically the number of record fields having a value
+     * 
+     * @param mapValues
+     *            the values of an entry
+     * @param strValue
+     *            the value
+     */
+    private static void addValue( ConcurrentMap<String, Integer> mapValues, String strValue )
+    {
+        while ( true )
+        {
+            Integer nCount = mapValues.get( strValue );
+
+            if ( ( nCount == null ) ? ( mapValues.putIfAbsent( strValue, 1 ) == null ) : mapValues.replace( strValue, nCount, nCount + 1 ) )
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Decrement atomically the number of record fields having a value, the value being removed when no record field has it anymore
+     * 
+     * @param mapValues
+     *            the values of an entry
+     * @param strValue
+     *            the value
+     */
+    private static void removeValue( ConcurrentMap<String, Integer> mapValues, String strValue )
+    {
+        while ( true )
+        {
+            Integer nCount = mapValues.get( strValue );
+
+            if ( ( nCount == null ) || ( ( nCount <= 1 ) ? mapValues.remove( strValue, nCount ) : mapValues.replace( strValue, nCount, nCount - 1 ) ) )
+            {
+                return;
+            }
+        }
+    }
+}
@@ -49,12 +49,14 @@ import fr.paris.lutece.portal.service.message.SiteMessageException;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.CorruptIndexException;
@@ -64,10 +66,19 @@ import org.apache.lucene.index.Term;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Directory Indexer
@@ -81,7 +92,10 @@ public class DirectoryIndexer implements IDirectorySearchIndexer
     private static final String PROPERTY_INDEXER_NAME = "directory.internalIndexer.name";
     private static final String PROPERTY_INDEXER_VERSION = "directory.internalIndexer.version";
     private static final String PROPERTY_INDEXER_ENABLE = "directory.internalIndexer.enable";
-    private static final List<Integer> _lListIdRecordToDelete = new ArrayList<Integer>( );
+    private static final String PROPERTY_FULL_INDEXING_THREADS = "directory.internalIndexer.fullIndexing.threads";
+    private static final String PROPERTY_FULL_INDEXING_BATCH_SIZE = "directory.internalIndexer.fullIndexing.batchSize";
+    private static final String PROPERTY_INCREMENTAL_INDEXING_BATCH_SIZE = "directory.internalIndexer.incrementalIndexing.batchSize";
+    private static final int DEFAULT_INCREMENTAL_INDEXING_BATCH_SIZE = 500;
 
     /**
      * {@inheritDoc}
@@ -120,61 +134,319 @@ public class DirectoryIndexer implements IDirectorySearchIndexer
 
             int nListRecordSize = lListRecordId.size( );
 
-            if ( nListRecordSize > LIST_RECORD_STEP )
+            for ( int i = 0; i < nListRecordSize; i += LIST_RECORD_STEP )
             {
-                int nIndex = 0;
-                int nMax = nListRecordSize - LIST_RECORD_STEP;
+                indexRecordSlice( indexWriter, lListRecordId.subList( i, Math.min( i + LIST_RECORD_STEP, nListRecordSize ) ), directory, recordService,
+                        plugin );
+            }
+        }
 
-                for ( int i = 0; i < nMax; i += LIST_RECORD_STEP )
-                {
-                    List<RecordField> lListrecordField = RecordFieldHome.getRecordFieldListByRecordIdList( lListRecordId.subList( i, i + LIST_RECORD_STEP ),
-                            plugin );
+        return new HashMap<Integer, List<Integer>>( );
+    }
 
-                    for ( RecordField recordField : lListrecordField )
-                    {
-                        indexWriter.addDocument( getDocument( recordField, recordField.getRecord( ), directory ) );
-                    }
+    /**
+     * Index a slice of records of a directory : one document for each record field and one document for each record
+     * 
+     * @param indexWriter
+     *            the indexWriter
+     * @param lListRecordId
+     *            the list of id record to index
+     * @param directory
+     *            the directory of the records
+     * @param recordService
+     *            the record service
+     * @param plugin
+     *            the plugin
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void indexRecordSlice( IndexWriter indexWriter, List<Integer> lListRecordId, Directory directory, IRecordService recordService, Plugin plugin )
+            throws IOException, InterruptedException
+    {
+        indexWriter.addDocuments( buildDocuments( lListRecordId, directory, recordService, plugin ) );
+    }
+
+    /**
+     * Build the documents of a slice of records of a directory : one document for each record field and one document for each record
+     * 
+     * @param lListRecordId
+     *            the list of id record to index
+     * @param directory
+     *            the directory of the records
+     * @param recordService
+     *            the record service
+     * @param plugin
+     *            the plugin
+     * @return the documents
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private List<org.apache.lucene.document.Document> buildDocuments( List<Integer> lListRecordId, Directory directory, IRecordService recordService,
+            Plugin plugin ) throws IOException, InterruptedException
+    {
+        List<org.apache.lucene.document.Document> listDocuments = new ArrayList<org.apache.lucene.document.Document>( );
+        HashMap<Integer, List<RecordField>> mapRecordFieldsByRecord = new HashMap<Integer, List<RecordField>>( );
 
-                    for ( Record record : recordService.loadListByListId( lListRecordId.subList( i, i + LIST_RECORD_STEP ), plugin ) )
+        for ( RecordField recordField : RecordFieldHome.getRecordFieldListByRecordIdList( lListRecordId, plugin ) )
+        {
+            listDocuments.add( getDocument( recordField, recordField.getRecord( ), directory ) );
+
+            List<RecordField> listRecordField = mapRecordFieldsByRecord.get( recordField.getRecord( ).getIdRecord( ) );
+
+            if ( listRecordField == null )
+            {
+                listRecordField = new ArrayList<RecordField>( );
+                mapRecordFieldsByRecord.put( recordField.getRecord( ).getIdRecord( ), listRecordField );
+            }
+
+            listRecordField.add( recordField );
+        }
+
+        for ( Record record : recordService.loadListByListId( lListRecordId, plugin ) )
+        {
+            // the records removed since their ids have been listed are skipped
+            if ( record != null )
+            {
+                listDocuments.add( getDocument( record, directory, mapRecordFieldsByRecord.get( record.getIdRecord( ) ) ) );
+            }
+        }
+
+        return listDocuments;
+    }
+
+    /**
+     * Index all the indexed directories. The records are read by batches of ids, the documents of each batch are built by a pool of worker threads and
+     * the current thread is the only one feeding the index writer. The number of batches in progress is bounded, so that the memory used does not depend
+     * on the number of records.
+     * 
+     * @param indexWriter
+     *            the indexWriter
+     * @param sbLogs
+     *            the buffer log
+     * @param plugin
+     *            the plugin
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void indexAllDirectories( IndexWriter indexWriter, StringBuffer sbLogs, Plugin plugin ) throws IOException, InterruptedException
+    {
+        final IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
+        int nNbThreads = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_FULL_INDEXING_THREADS, Runtime.getRuntime( ).availableProcessors( ) ), 1 );
+        int nBatchSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_FULL_INDEXING_BATCH_SIZE, LIST_RECORD_STEP ), 1 );
+        int nMaxPendingBatches = nNbThreads * 2;
+
+        ExecutorService executor = Executors.newFixedThreadPool( nNbThreads );
+        CompletionService<List<org.apache.lucene.document.Document>> completionService = new ExecutorCompletionService<List<org.apache.lucene.document.Document>>(
+                executor );
+        int nPendingBatches = 0;
+        long lNbRecords = 0;
+        long lNbDocuments = 0;
+        long lStart = System.currentTimeMillis( );
+
+        try
+        {
+            // Index only the directories that have the attribute is_indexed as true
+            DirectoryFilter filter = new DirectoryFilter( );
+            filter.setIsIndexed( DirectoryFilter.FILTER_TRUE );
+
+            for ( final Directory directory : DirectoryHome.getDirectoryList( filter, plugin ) )
+            {
+                RecordFieldFilter recordFieldFilter = new RecordFieldFilter( );
+                recordFieldFilter.setIdDirectory( directory.getIdDirectory( ) );
+
+                List<Integer> listIdRecord = recordService.getListRecordId( recordFieldFilter, plugin );
+                int nListRecordSize = listIdRecord.size( );
+
+                sbLogs.append( "Indexing Directory id_directory=" );
+                sbLogs.append( directory.getIdDirectory( ) );
+                sbLogs.append( " : " );
+                sbLogs.append( nListRecordSize );
+                sbLogs.append( " records\r\n" );
+
+                for ( int i = 0; i < nListRecordSize; i += nBatchSize )
+                {
+                    if ( nPendingBatches >= nMaxPendingBatches )
                     {
-                        indexWriter.addDocument( getDocument( record, directory ) );
+                        lNbDocuments += addBatchDocuments( indexWriter, completionService );
+                        nPendingBatches--;
                     }
 
-                    nIndex = i;
+                    final List<Integer> listIdRecordBatch = new ArrayList<Integer>( listIdRecord.subList( i, Math.min( i + nBatchSize, nListRecordSize ) ) );
+                    completionService.submit( new Callable<List<org.apache.lucene.document.Document>>( )
+                    {
+                        @Override
+                        public List<org.apache.lucene.document.Document> call( ) throws Exception
+                        {
+                            return buildDocuments( listIdRecordBatch, directory, recordService, PluginService.getPlugin( DirectoryPlugin.PLUGIN_NAME ) );
+                        }
+                    } );
+                    nPendingBatches++;
                 }
 
-                nIndex += LIST_RECORD_STEP;
+                lNbRecords += nListRecordSize;
+            }
 
-                List<RecordField> lListrecordField = RecordFieldHome
-                        .getRecordFieldListByRecordIdList( lListRecordId.subList( nIndex, nListRecordSize ), plugin );
+            while ( nPendingBatches > 0 )
+            {
+                lNbDocuments += addBatchDocuments( indexWriter, completionService );
+                nPendingBatches--;
+            }
 
-                for ( RecordField recordField : lListrecordField )
-                {
-                    indexWriter.addDocument( getDocument( recordField, recordField.getRecord( ), directory ) );
-                }
+            // Every record has now its record document : the search engine can run the search forms on them
+            Document docRecordIndex = new Document( );
+            docRecordIndex.add( new StringField( DirectorySearchItem.FIELD_TYPE, DirectorySearchItem.TYPE_RECORD_INDEX, Field.Store.NO ) );
+            indexWriter.addDocument( docRecordIndex );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
 
-                for ( Record record : recordService.loadListByListId( lListRecordId.subList( nIndex, nListRecordSize ), plugin ) )
-                {
-                    indexWriter.addDocument( getDocument( record, directory ) );
-                }
+        long lDuration = Math.max( System.currentTimeMillis( ) - lStart, 1 );
+        sbLogs.append( "Indexed " );
+        sbLogs.append( lNbRecords );
+        sbLogs.append( " records (" );
+        sbLogs.append( lNbDocuments );
+        sbLogs.append( " documents) with " );
+        sbLogs.append( nNbThreads );
+        sbLogs.append( " threads in " );
+        sbLogs.append( lDuration );
+        sbLogs.append( " milliseconds : " );
+        sbLogs.append( ( lNbRecords * 1000 ) / lDuration );
+        sbLogs.append( " records per second\r\n" );
+    }
+
+    /**
+     * Wait for the next batch of documents built by the workers and add its documents to the index
+     * 
+     * @param indexWriter
+     *            the indexWriter
+     * @param completionService
+     *            the completion service of the workers
+     * @return the number of documents added
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private int addBatchDocuments( IndexWriter indexWriter, CompletionService<List<org.apache.lucene.document.Document>> completionService )
+            throws IOException, InterruptedException
+    {
+        List<org.apache.lucene.document.Document> listDocuments;
+
+        try
+        {
+            listDocuments = completionService.take( ).get( );
+        }
+        catch( ExecutionException e )
+        {
+            throw new AppException( "Error while building the documents of the directory index : " + e.getCause( ).getMessage( ), e.getCause( ) );
+        }
+
+        indexWriter.addDocuments( listDocuments );
+
+        return listDocuments.size( );
+    }
+
+    /**
+     * Apply a chunk of indexer actions to the index. The actions are collapsed per record, only the last action of a record is taken into account : the
+     * documents of the record are deleted, then the record is indexed again unless the last action is a deletion. The actions are then removed from the
+     * queue all at once.
+     * 
+     * @param indexWriter
+     *            the indexWriter
+     * @param listIndexerAction
+     *            the actions, in the order of their creation
+     * @param sbLogs
+     *            the buffer log
+     * @param plugin
+     *            the plugin
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void processIndexerActions( IndexWriter indexWriter, List<IndexerAction> listIndexerAction, StringBuffer sbLogs, Plugin plugin )
+            throws IOException, InterruptedException
+    {
+        if ( listIndexerAction.isEmpty( ) )
+        {
+            return;
+        }
+
+        Map<Integer, Integer> mapLastTaskByRecord = new LinkedHashMap<Integer, Integer>( );
+        List<Integer> listIdAction = new ArrayList<Integer>( listIndexerAction.size( ) );
+
+        for ( IndexerAction action : listIndexerAction )
+        {
+            if ( action.getIdTask( ) == IndexerAction.TASK_DELETE_DIRECTORY )
+            {
+                // the records of the directory have been deleted from the database : their actions, if any, only lead to deletions
+                sbLogs.append( "Indexing Directory : Delete directory id_directory=" );
+                sbLogs.append( action.getIdDirectory( ) );
+                sbLogs.append( "\r\n" );
+                indexWriter.deleteDocuments( new Term( DirectorySearchItem.FIELD_ID_DIRECTORY, Integer.toString( action.getIdDirectory( ) ) ) );
             }
             else
             {
-                List<RecordField> lListrecordField = RecordFieldHome.getRecordFieldListByRecordIdList( lListRecordId, plugin );
+                mapLastTaskByRecord.put( action.getIdRecord( ), action.getIdTask( ) );
+            }
 
-                for ( RecordField recordField : lListrecordField )
-                {
-                    indexWriter.addDocument( getDocument( recordField, recordField.getRecord( ), directory ) );
-                }
+            listIdAction.add( action.getIdAction( ) );
+        }
 
-                for ( Record record : recordService.loadListByListId( lListRecordId, plugin ) )
-                {
-                    indexWriter.addDocument( getDocument( record, directory ) );
-                }
+        List<Integer> listIdRecordToIndex = new ArrayList<Integer>( );
+
+        for ( Map.Entry<Integer, Integer> entry : mapLastTaskByRecord.entrySet( ) )
+        {
+            if ( entry.getValue( ) != IndexerAction.TASK_DELETE )
+            {
+                listIdRecordToIndex.add( entry.getKey( ) );
             }
         }
 
-        return new HashMap<Integer, List<Integer>>( );
+        IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
+        Map<Integer, Integer> mapDirectoryIdByRecord = recordService.getDirectoryIdByListRecordId( listIdRecordToIndex, plugin );
+        HashMap<Integer, List<Integer>> hm = new HashMap<Integer, List<Integer>>( );
+
+        for ( Map.Entry<Integer, Integer> entry : mapLastTaskByRecord.entrySet( ) )
+        {
+            Integer nDirectoryId = mapDirectoryIdByRecord.get( entry.getKey( ) );
+
+            if ( nDirectoryId != null )
+            {
+                sbLogRecord( sbLogs, entry.getKey( ), nDirectoryId, entry.getValue( ) );
+                this.appendKey( nDirectoryId, entry.getKey( ), hm );
+            }
+            else
+            {
+                // deleted record, or record deleted since the action was queued
+                sbLogRecord( sbLogs, entry.getKey( ), DirectoryUtils.CONSTANT_ID_NULL, IndexerAction.TASK_DELETE );
+            }
+        }
+
+        deleteRecordDocuments( indexWriter, mapLastTaskByRecord.keySet( ) );
+        this.indexListRecord( indexWriter, hm, plugin );
+
+        DirectorySearchService.getInstance( ).removeIndexerActions( listIdAction, plugin );
+    }
+
+    /**
+     * Delete all the documents of a collection of records with a single index operation
+     * 
+     * @param indexWriter
+     *            the indexWriter
+     * @param collectionIdRecord
+     *            the ids of the records
+     * @throws IOException
+     */
+    private void deleteRecordDocuments( IndexWriter indexWriter, Collection<Integer> collectionIdRecord ) throws IOException
+    {
+        Term [ ] terms = new Term [ collectionIdRecord.size( )];
+        int nIndex = 0;
+
+        for ( Integer nIdRecord : collectionIdRecord )
+        {
+            terms [nIndex++] = new Term( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD, Integer.toString( nIdRecord ) );
+        }
+
+        indexWriter.deleteDocuments( terms );
     }
 
     /**
@@ -211,86 +483,24 @@ public class DirectoryIndexer implements IDirectorySearchIndexer
     public void processIndexing( IndexWriter indexWriter, boolean bCreate, StringBuffer sbLogs ) throws IOException, InterruptedException, SiteMessageException
     {
         Plugin plugin = PluginService.getPlugin( DirectoryPlugin.PLUGIN_NAME );
-        RecordFieldFilter recordFieldFilter = new RecordFieldFilter( );
-        HashMap<Integer, List<Integer>> hm = new HashMap<Integer, List<Integer>>( );
-        IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
 
         if ( !bCreate )
         {
             // incremental indexing
-            // delete all record which must be delete
-            for ( IndexerAction action : DirectorySearchService.getInstance( ).getAllIndexerActionByTask( IndexerAction.TASK_DELETE, plugin ) )
-            {
-                sbLogRecord( sbLogs, action.getIdRecord( ), DirectoryUtils.CONSTANT_ID_NULL, IndexerAction.TASK_DELETE );
-                indexWriter.deleteDocuments( new Term( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD, Integer.toString( action.getIdRecord( ) ) ) );
-                DirectorySearchService.getInstance( ).removeIndexerAction( action.getIdAction( ), plugin );
-            }
+            int nBatchSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_INCREMENTAL_INDEXING_BATCH_SIZE, DEFAULT_INCREMENTAL_INDEXING_BATCH_SIZE ),
+                    1 );
+            List<IndexerAction> listIndexerAction;
 
-            // Hack : see this.appendListRecordToDelete() comments
-            for ( Integer nIdRecord : _lListIdRecordToDelete )
+            do
             {
-                indexWriter.deleteDocuments( new Term( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD, Integer.toString( nIdRecord ) ) );
+                listIndexerAction = DirectorySearchService.getInstance( ).getFirstIndexerActions( nBatchSize, plugin );
+                processIndexerActions( indexWriter, listIndexerAction, sbLogs, plugin );
             }
-
-            _lListIdRecordToDelete.clear( );
-
-            // Update all record which must be update
-            for ( IndexerAction action : DirectorySearchService.getInstance( ).getAllIndexerActionByTask( IndexerAction.TASK_MODIFY, plugin ) )
-            {
-                Integer nDirectoryId = recordService.getDirectoryIdByRecordId( Integer.valueOf( action.getIdRecord( ) ), plugin );
-
-                if ( nDirectoryId != null )
-                {
-                    sbLogRecord( sbLogs, action.getIdRecord( ), nDirectoryId.intValue( ), IndexerAction.TASK_MODIFY );
-
-                    indexWriter.deleteDocuments( new Term( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD, Integer.toString( action.getIdRecord( ) ) ) );
-
-                    this.appendKey( nDirectoryId, action.getIdRecord( ), hm );
-                }
-
-                DirectorySearchService.getInstance( ).removeIndexerAction( action.getIdAction( ), plugin );
-            }
-
-            hm = this.indexListRecord( indexWriter, hm, plugin );
-
-            // add all record which must be add
-            for ( IndexerAction action : DirectorySearchService.getInstance( ).getAllIndexerActionByTask( IndexerAction.TASK_CREATE, plugin ) )
-            {
-                Integer nDirectoryId = recordService.getDirectoryIdByRecordId( Integer.valueOf( action.getIdRecord( ) ), plugin );
-
-                if ( nDirectoryId != null )
-                {
-                    sbLogRecord( sbLogs, action.getIdRecord( ), nDirectoryId, IndexerAction.TASK_CREATE );
-
-                    this.appendKey( nDirectoryId, action.getIdRecord( ), hm );
-                }
-
-                DirectorySearchService.getInstance( ).removeIndexerAction( action.getIdAction( ), plugin );
-            }
-
-            hm = this.indexListRecord( indexWriter, hm, plugin );
+            while ( listIndexerAction.size( ) == nBatchSize );
         }
         else
         {
-            // Index only the directories that have the attribute is_indexed as true
-            DirectoryFilter filter = new DirectoryFilter( );
-            filter.setIsIndexed( DirectoryFilter.FILTER_TRUE );
-
-            for ( Directory directory : DirectoryHome.getDirectoryList( filter, plugin ) )
-            {
-                sbLogs.append( "Indexing Directory" );
-                sbLogs.append( "\r\n" );
-                recordFieldFilter.setIdDirectory( directory.getIdDirectory( ) );
-
-                for ( Record record : recordService.getListRecord( recordFieldFilter, plugin ) )
-                {
-                    sbLogRecord( sbLogs, record.getIdRecord( ), record.getDirectory( ).getIdDirectory( ), IndexerAction.TASK_CREATE );
-
-                    this.appendKey( directory.getIdDirectory( ), record.getIdRecord( ), hm );
-                }
-            }
-
-            hm = this.indexListRecord( indexWriter, hm, plugin );
+            indexAllDirectories( indexWriter, sbLogs, plugin );
         }
     }
 
@@ -322,6 +532,7 @@ public class DirectoryIndexer implements IDirectorySearchIndexer
         doc.add( new Field( DirectorySearchItem.FIELD_ID_DIRECTORY, Integer.toString( directory.getIdDirectory( ) ), ft ) );
 
         doc.add( new Field( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD, Integer.toString( record.getIdRecord( ) ), ft ) );
+        doc.add( new NumericDocValuesField( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD_VALUE, record.getIdRecord( ) ) );
 
         doc.add( new Field( DirectorySearchItem.FIELD_ID_DIRECTORY_ENTRY, Integer.toString( recordField.getEntry( ).getIdEntry( ) ), ft ) );
 
@@ -359,13 +570,16 @@ public class DirectoryIndexer implements IDirectorySearchIndexer
      *            the record to index
      * @param directory
      *            the directory associate to the recordField
+     * @param listRecordField
+     *            the record fields of the record, may be null
      * @return A Lucene Document containing QuestionAnswer Data
      * @throws IOException
      *             The IO Exception
      * @throws InterruptedException
      *             The InterruptedException
      */
-    private org.apache.lucene.document.Document getDocument( Record record, Directory directory ) throws IOException, InterruptedException
+    private org.apache.lucene.document.Document getDocument( Record record, Directory directory, List<RecordField> listRecordField ) throws IOException,
+            InterruptedException
     {
         // make a new, empty document
         org.apache.lucene.document.Document doc = new org.apache.lucene.document.Document( );
@@ -378,6 +592,9 @@ public class DirectoryIndexer implements IDirectorySearchIndexer
             doc.add( new Field( DirectorySearchItem.FIELD_ID_DIRECTORY, Integer.toString( directory.getIdDirectory( ) ), ft ) );
 
             doc.add( new Field( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD, Integer.toString( record.getIdRecord( ) ), ft ) );
+            doc.add( new NumericDocValuesField( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD_VALUE, record.getIdRecord( ) ) );
+
+            doc.add( new StringField( DirectorySearchItem.FIELD_TYPE, DirectorySearchItem.TYPE_RECORD, Field.Store.NO ) );
 
             if ( record.getWorkgroup( ) != null )
             {
@@ -394,12 +611,69 @@ public class DirectoryIndexer implements IDirectorySearchIndexer
 
             String strDateModification = DateTools.dateToString( record.getDateModification( ), DateTools.Resolution.DAY );
             doc.add( new Field( DirectorySearchItem.FIELD_DATE_MODIFICATION, strDateModification, ft ) );
+
+            if ( listRecordField != null )
+            {
+                for ( RecordField recordField : listRecordField )
+                {
+                    addEntrySearchFields( doc, recordField );
+                }
+            }
         }
 
         // return the document
         return doc;
     }
 
+    /**
+     * Add to the document of a record the search fields of one of its record fields, scoped to the entry of the record field. This allows a search on
+     * several entries to be run as a single query on the record documents.
+     * 
+     * @param doc
+     *            the document of the record
+     * @param recordField
+     *            the record field
+     */
+    private void addEntrySearchFields( org.apache.lucene.document.Document doc, RecordField recordField )
+    {
+        int nIdEntry = recordField.getEntry( ).getIdEntry( );
+        HashMap<String, Object> mapSearchItemField = new HashMap<String, Object>( );
+        recordField.getEntry( ).addSearchCriteria( mapSearchItemField, recordField );
+
+        List<Integer> listIdField = (List<Integer>) mapSearchItemField.get( DirectorySearchItem.FIELD_ID_DIRECTORY_FIELD );
+
+        if ( listIdField != null )
+        {
+            for ( Integer idField : listIdField )
+            {
+                doc.add( new StringField( DirectorySearchItem.getEntryFieldName( DirectorySearchItem.FIELD_ID_DIRECTORY_FIELD, nIdEntry ),
+                        Integer.toString( idField ), Field.Store.NO ) );
+            }
+        }
+
+        if ( mapSearchItemField.containsKey( DirectorySearchItem.FIELD_DATE ) )
+        {
+            String strDate = DateTools.dateToString( (Date) mapSearchItemField.get( DirectorySearchItem.FIELD_DATE ), DateTools.Resolution.DAY );
+            doc.add( new StringField( DirectorySearchItem.getEntryFieldName( DirectorySearchItem.FIELD_DATE, nIdEntry ), strDate, Field.Store.NO ) );
+        }
+
+        if ( mapSearchItemField.containsKey( DirectorySearchItem.FIELD_CONTENTS ) )
+        {
+            String strContents = (String) mapSearchItemField.get( DirectorySearchItem.FIELD_CONTENTS );
+            doc.add( new TextField( DirectorySearchItem.getEntryFieldName( DirectorySearchItem.FIELD_CONTENTS, nIdEntry ), strContents, Field.Store.NO ) );
+
+            // the contents of a cell of an array is also scoped to its field, so that each cell can be searched on its own
+            if ( listIdField != null )
+            {
+                for ( Integer idField : listIdField )
+                {
+                    doc.add( new TextField( DirectorySearchItem.getEntryFieldName( DirectorySearchItem.FIELD_CONTENTS, nIdEntry, idField ), strContents,
+                            Field.Store.NO ) );
+                }
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -485,15 +759,4 @@ public class DirectoryIndexer implements IDirectorySearchIndexer
 
         sbLogs.append( "\r\n" );
     }
-
-    /**
-     * Append list record id to delete Hack (ugly) to bypass problem of primary key violation on table "directory_indexer_action" when inserting many records
-     * 
-     * @param lListIdRecord
-     *            List record to delete
-     */
-    public static void appendListRecordToDelete( List<Integer> lListIdRecord )
-    {
-        _lListIdRecordToDelete.addAll( lListIdRecord );
-    }
 }
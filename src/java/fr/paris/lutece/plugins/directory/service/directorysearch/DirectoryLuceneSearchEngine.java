@@ -33,34 +33,40 @@
  */
 package fr.paris.lutece.plugins.directory.service.directorysearch;
 
+import fr.paris.lutece.plugins.directory.utils.RecordIdSet;
 import fr.paris.lutece.portal.service.search.IndexationService;
-import fr.paris.lutece.portal.service.search.LuceneSearchEngine;
 import fr.paris.lutece.portal.service.util.AppLogService;
 
 import org.apache.lucene.document.DateTools;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
-import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.util.BytesRef;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * LuceneSearchEngine
  */
 public class DirectoryLuceneSearchEngine implements IDirectorySearchEngine
 {
+    private final AtomicBoolean _bWarnFullIndexing = new AtomicBoolean( );
+
     /**
      * {@inheritDoc}
      */
@@ -72,7 +78,7 @@ public class DirectoryLuceneSearchEngine implements IDirectorySearchEngine
 
         try
         {
-            searcher = DirectorySearchService.getInstance( ).getSearcher( );
+            searcher = DirectorySearchService.getInstance( ).acquireSearcher( );
 
             Collection<String> queries = new ArrayList<String>( );
             Collection<String> fields = new ArrayList<String>( );
@@ -206,21 +212,277 @@ public class DirectoryLuceneSearchEngine implements IDirectorySearchEngine
                     flags.toArray( new BooleanClause.Occur [ flags.size( )] ), IndexationService.getAnalyser( ) );
 
             // Get results documents
-            TopDocs topDocs = searcher.search( queryMulti, LuceneSearchEngine.MAX_RESPONSES );
-            ScoreDoc [ ] hits = topDocs.scoreDocs;
+            listResults.addAll( getIdRecordResults( searcher, queryMulti ).toList( ) );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            DirectorySearchService.getInstance( ).releaseSearcher( searcher );
+        }
 
-            for ( int i = 0; i < hits.length; i++ )
+        return listResults;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RecordIdSet getSearchResults( DirectorySearchQuery searchQuery )
+    {
+        RecordIdSet setResults = new RecordIdSet( );
+        IndexSearcher searcher = null;
+
+        try
+        {
+            searcher = DirectorySearchService.getInstance( ).acquireSearcher( );
+
+            // An index built before the record documents existed has none of them until its next full indexing
+            if ( searcher.getIndexReader( ).docFreq( new Term( DirectorySearchItem.FIELD_TYPE, DirectorySearchItem.TYPE_RECORD_INDEX ) ) == 0 )
             {
-                int docId = hits [i].doc;
-                Document document = searcher.doc( docId );
-                listResults.add( new DirectorySearchItem( document ).getIdDirectoryRecord( ) );
+                if ( _bWarnFullIndexing.compareAndSet( false, true ) )
+                {
+                    AppLogService.info( "The directory index has not been fully rebuilt since the upgrade : "
+                            + "the searches run on the record field documents until the next full indexing" );
+                }
+
+                return getSearchResultsByCriterion( searchQuery );
             }
+
+            BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder( );
+            queryBuilder.add( new TermQuery( new Term( DirectorySearchItem.FIELD_ID_DIRECTORY, Integer.toString( searchQuery.getIdDirectory( ) ) ) ),
+                    BooleanClause.Occur.MUST );
+            queryBuilder.add( new TermQuery( new Term( DirectorySearchItem.FIELD_TYPE, DirectorySearchItem.TYPE_RECORD ) ), BooleanClause.Occur.MUST );
+
+            // criteria on the entries : the criteria of a same entry (cells of an array) must all be matched
+            Map<Integer, BooleanQuery.Builder> mapEntryQueries = new LinkedHashMap<Integer, BooleanQuery.Builder>( );
+
+            for ( HashMap<String, Object> mapSearchItem : searchQuery.getEntrySearchItems( ) )
+            {
+                Integer nIdEntry = (Integer) mapSearchItem.get( DirectorySearchItem.FIELD_ID_DIRECTORY_ENTRY );
+                BooleanQuery.Builder entryQueryBuilder = mapEntryQueries.get( nIdEntry );
+
+                if ( entryQueryBuilder == null )
+                {
+                    entryQueryBuilder = new BooleanQuery.Builder( );
+                    mapEntryQueries.put( nIdEntry, entryQueryBuilder );
+                }
+
+                addEntryClauses( entryQueryBuilder, nIdEntry, mapSearchItem );
+            }
+
+            if ( !mapEntryQueries.isEmpty( ) )
+            {
+                BooleanClause.Occur occurEntry = searchQuery.isSearchOperatorOr( ) ? BooleanClause.Occur.SHOULD : BooleanClause.Occur.MUST;
+                BooleanQuery.Builder entriesQueryBuilder = new BooleanQuery.Builder( );
+
+                for ( BooleanQuery.Builder entryQueryBuilder : mapEntryQueries.values( ) )
+                {
+                    entriesQueryBuilder.add( entryQueryBuilder.build( ), occurEntry );
+                }
+
+                queryBuilder.add( entriesQueryBuilder.build( ), BooleanClause.Occur.MUST );
+            }
+
+            // criteria on the record itself
+            HashMap<String, Object> mapRecordSearchItem = searchQuery.getRecordSearchItem( );
+            addDateClauses( queryBuilder, mapRecordSearchItem, DirectorySearchItem.FIELD_DATE_CREATION, DirectorySearchItem.FIELD_DATE_CREATION,
+                    DirectorySearchItem.FIELD_DATE_CREATION_BEGIN, DirectorySearchItem.FIELD_DATE_CREATION_END );
+            addDateClauses( queryBuilder, mapRecordSearchItem, DirectorySearchItem.FIELD_DATE_MODIFICATION, DirectorySearchItem.FIELD_DATE_MODIFICATION,
+                    DirectorySearchItem.FIELD_DATE_MODIFICATION_BEGIN, DirectorySearchItem.FIELD_DATE_MODIFICATION_END );
+
+            setResults = getIdRecordResults( searcher, queryBuilder.build( ) );
         }
         catch( Exception e )
         {
             AppLogService.error( e.getMessage( ), e );
         }
+        finally
+        {
+            DirectorySearchService.getInstance( ).releaseSearcher( searcher );
+        }
 
-        return listResults;
+        return setResults;
+    }
+
+    /**
+     * Run a search form criterion by criterion on the record field documents, as it was done before the record documents existed, and combine the
+     * results
+     * 
+     * @param searchQuery
+     *            the search form
+     * @return the ids of the records matching the search form
+     */
+    private RecordIdSet getSearchResultsByCriterion( DirectorySearchQuery searchQuery )
+    {
+        // the criteria of a same entry (cells of an array) must all be matched
+        Map<Integer, RecordIdSet> mapEntryResults = new LinkedHashMap<Integer, RecordIdSet>( );
+
+        for ( HashMap<String, Object> mapSearchItem : searchQuery.getEntrySearchItems( ) )
+        {
+            Integer nIdEntry = (Integer) mapSearchItem.get( DirectorySearchItem.FIELD_ID_DIRECTORY_ENTRY );
+            RecordIdSet setItemResults = RecordIdSet.valueOf( getSearchResults( mapSearchItem ) );
+            RecordIdSet setEntryResults = mapEntryResults.get( nIdEntry );
+            mapEntryResults.put( nIdEntry, ( setEntryResults == null ) ? setItemResults : setEntryResults.intersect( setItemResults ) );
+        }
+
+        RecordIdSet setResults = null;
+
+        for ( RecordIdSet setEntryResults : mapEntryResults.values( ) )
+        {
+            if ( setResults == null )
+            {
+                setResults = setEntryResults;
+            }
+            else
+                if ( searchQuery.isSearchOperatorOr( ) )
+                {
+                    setResults.union( setEntryResults );
+                }
+                else
+                {
+                    setResults.intersect( setEntryResults );
+                }
+        }
+
+        // criteria on the record itself
+        if ( !searchQuery.getRecordSearchItem( ).isEmpty( ) )
+        {
+            HashMap<String, Object> mapRecordSearchItem = new HashMap<String, Object>( searchQuery.getRecordSearchItem( ) );
+            mapRecordSearchItem.put( DirectorySearchItem.FIELD_ID_DIRECTORY, searchQuery.getIdDirectory( ) );
+
+            RecordIdSet setRecordResults = RecordIdSet.valueOf( getSearchResults( mapRecordSearchItem ) );
+            setResults = ( setResults == null ) ? setRecordResults : setResults.intersect( setRecordResults );
+        }
+
+        return ( setResults == null ) ? new RecordIdSet( ) : setResults;
+    }
+
+    /**
+     * Add to the query of an entry the clauses of a criteria map. The clauses target the fields of the record documents scoped to the entry.
+     * 
+     * @param entryQueryBuilder
+     *            the query of the entry
+     * @param nIdEntry
+     *            the id of the entry
+     * @param mapSearchItem
+     *            the criteria map
+     * @throws ParseException
+     *             if the contents can not be parsed
+     */
+    private void addEntryClauses( BooleanQuery.Builder entryQueryBuilder, int nIdEntry, HashMap<String, Object> mapSearchItem ) throws ParseException
+    {
+        List<Integer> listIdField = (List<Integer>) mapSearchItem.get( DirectorySearchItem.FIELD_ID_DIRECTORY_FIELD );
+
+        if ( listIdField != null )
+        {
+            BooleanQuery.Builder fieldQueryBuilder = new BooleanQuery.Builder( );
+
+            for ( Integer idField : listIdField )
+            {
+                fieldQueryBuilder.add(
+                        new TermQuery( new Term( DirectorySearchItem.getEntryFieldName( DirectorySearchItem.FIELD_ID_DIRECTORY_FIELD, nIdEntry ), Integer
+                                .toString( idField ) ) ), BooleanClause.Occur.SHOULD );
+            }
+
+            entryQueryBuilder.add( fieldQueryBuilder.build( ), BooleanClause.Occur.MUST );
+        }
+
+        if ( mapSearchItem.containsKey( DirectorySearchItem.FIELD_CONTENTS ) )
+        {
+            String strContents = (String) mapSearchItem.get( DirectorySearchItem.FIELD_CONTENTS );
+
+            if ( listIdField != null )
+            {
+                // cell of an array : the contents must be in one of the given fields
+                BooleanQuery.Builder contentsQueryBuilder = new BooleanQuery.Builder( );
+
+                for ( Integer idField : listIdField )
+                {
+                    contentsQueryBuilder.add( parseContents( DirectorySearchItem.getEntryFieldName( DirectorySearchItem.FIELD_CONTENTS, nIdEntry, idField ),
+                            strContents ), BooleanClause.Occur.SHOULD );
+                }
+
+                entryQueryBuilder.add( contentsQueryBuilder.build( ), BooleanClause.Occur.MUST );
+            }
+            else
+            {
+                entryQueryBuilder.add( parseContents( DirectorySearchItem.getEntryFieldName( DirectorySearchItem.FIELD_CONTENTS, nIdEntry ), strContents ),
+                        BooleanClause.Occur.MUST );
+            }
+        }
+
+        addDateClauses( entryQueryBuilder, mapSearchItem, DirectorySearchItem.getEntryFieldName( DirectorySearchItem.FIELD_DATE, nIdEntry ),
+                DirectorySearchItem.FIELD_DATE, DirectorySearchItem.FIELD_DATE_BEGIN, DirectorySearchItem.FIELD_DATE_END );
+    }
+
+    /**
+     * Add the clauses of a date criterion : either an exact date or a range of dates
+     * 
+     * @param queryBuilder
+     *            the query
+     * @param mapSearchItem
+     *            the criteria map
+     * @param strIndexField
+     *            the name of the indexed field
+     * @param strKeyDate
+     *            the key of the exact date in the criteria map
+     * @param strKeyDateBegin
+     *            the key of the begin date in the criteria map
+     * @param strKeyDateEnd
+     *            the key of the end date in the criteria map
+     */
+    private void addDateClauses( BooleanQuery.Builder queryBuilder, HashMap<String, Object> mapSearchItem, String strIndexField, String strKeyDate,
+            String strKeyDateBegin, String strKeyDateEnd )
+    {
+        if ( mapSearchItem.containsKey( strKeyDate ) )
+        {
+            String strDate = DateTools.dateToString( (Date) mapSearchItem.get( strKeyDate ), DateTools.Resolution.DAY );
+            queryBuilder.add( new TermQuery( new Term( strIndexField, strDate ) ), BooleanClause.Occur.MUST );
+        }
+
+        if ( mapSearchItem.containsKey( strKeyDateBegin ) && mapSearchItem.containsKey( strKeyDateEnd ) )
+        {
+            BytesRef strLowerTerm = new BytesRef( DateTools.dateToString( (Date) mapSearchItem.get( strKeyDateBegin ), DateTools.Resolution.DAY ) );
+            BytesRef strUpperTerm = new BytesRef( DateTools.dateToString( (Date) mapSearchItem.get( strKeyDateEnd ), DateTools.Resolution.DAY ) );
+            queryBuilder.add( new TermRangeQuery( strIndexField, strLowerTerm, strUpperTerm, true, true ), BooleanClause.Occur.MUST );
+        }
+    }
+
+    /**
+     * Parse the searched contents on the given field
+     * 
+     * @param strField
+     *            the name of the indexed field
+     * @param strContents
+     *            the searched contents
+     * @return the query
+     * @throws ParseException
+     *             if the contents can not be parsed
+     */
+    private Query parseContents( String strField, String strContents ) throws ParseException
+    {
+        return new QueryParser( strField, IndexationService.getAnalyser( ) ).parse( strContents );
+    }
+
+    /**
+     * Return the id of the records matching the query. All the matching records are returned
+     * 
+     * @param searcher
+     *            the searcher
+     * @param query
+     *            the query
+     * @return the set of record key
+     * @throws IOException
+     *             if there is a low-level IO error
+     */
+    private RecordIdSet getIdRecordResults( IndexSearcher searcher, Query query ) throws IOException
+    {
+        DirectoryRecordIdCollector collector = new DirectoryRecordIdCollector( );
+        searcher.search( query, collector );
+
+        return collector.getIdRecords( );
     }
 }
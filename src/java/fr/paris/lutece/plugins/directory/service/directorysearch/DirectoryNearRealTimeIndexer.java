@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.directorysearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import fr.paris.lutece.plugins.directory.business.IndexerAction;
+import fr.paris.lutece.plugins.directory.utils.DirectoryTransactionUtils;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.init.ShutdownService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+/**
+ * DirectoryNearRealTimeIndexer : optional near real time indexing. The indexer actions are pushed to a bounded in-memory queue, consumed by a background
+ * thread which applies them to the index at most a few moments (the latency budget) after the first pending action, then refreshes the searchers. The
+ * actions are still stored in the database, which remains the crash recovery log : the indexer applies the whole database queue, and the
+ * {@link DirectorySearchIndexerDaemon} still processes the actions which could not be applied by this thread. The thread is stopped when the webapp
+ * shuts down, once the indexing in progress, if any, is over : interrupting it would close the index files it is writing.
+ */
+public final class DirectoryNearRealTimeIndexer implements Runnable, ShutdownService
+{
+    private static final String PROPERTY_ENABLE = "directory.internalIndexer.nearRealTime.enable";
+    private static final String PROPERTY_LATENCY = "directory.internalIndexer.nearRealTime.latency";
+    private static final String PROPERTY_QUEUE_SIZE = "directory.internalIndexer.nearRealTime.queueSize";
+    private static final int DEFAULT_LATENCY = 1000;
+    private static final int DEFAULT_QUEUE_SIZE = 10000;
+    private static final long SHUTDOWN_TIMEOUT = 30000L;
+    private static final String THREAD_NAME = "directory-near-real-time-indexer";
+    private static final String SERVICE_NAME = "Directory near real time indexer";
+    private static DirectoryNearRealTimeIndexer _singleton = new DirectoryNearRealTimeIndexer( );
+    private final boolean _bEnabled;
+    private final int _nLatency;
+    private final BlockingQueue<IndexerAction> _queue;
+    private Thread _thread;
+    private boolean _bIndexing;
+    private boolean _bShutdown;
+
+    /**
+     * Private constructor
+     */
+    private DirectoryNearRealTimeIndexer( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLE, false );
+        _nLatency = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_LATENCY, DEFAULT_LATENCY ), 0 );
+        _queue = new ArrayBlockingQueue<IndexerAction>( Math.max( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ), 1 ) );
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static DirectoryNearRealTimeIndexer getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * @return true if the near real time indexing is enabled
+     */
+    public boolean isEnabled( )
+    {
+        return _bEnabled;
+    }
+
+    /**
+     * Push indexer actions which have just been stored in the database. They are pushed once the transaction storing them is committed, so that the
+     * thread can read them. Nothing is done if the near real time indexing is disabled. When the queue is full, an action is not pushed : it will be
+     * applied with the actions already pending, or by the daemon.
+     * 
+     * @param listIndexerAction
+     *            the indexer actions
+     * @param plugin
+     *            the plugin
+     */
+    public void push( final List<IndexerAction> listIndexerAction, Plugin plugin )
+    {
+        if ( _bEnabled )
+        {
+            DirectoryTransactionUtils.runAfterCommit( new Runnable( )
+            {
+                @Override
+                public void run( )
+                {
+                    startThread( );
+
+                    for ( IndexerAction indexerAction : listIndexerAction )
+                    {
+                        _queue.offer( indexerAction );
+                    }
+                }
+            }, plugin );
+        }
+    }
+
+    /**
+     * Start the background thread, if not already started
+     */
+    private synchronized void startThread( )
+    {
+        if ( !_bShutdown && ( ( _thread == null ) || !_thread.isAlive( ) ) )
+        {
+            _thread = new Thread( this, THREAD_NAME );
+            _thread.setDaemon( true );
+            _thread.start( );
+        }
+    }
+
+    /**
+     * Wait for the pending actions and apply them to the index
+     */
+    @Override
+    public void run( )
+    {
+        List<IndexerAction> listIndexerAction = new ArrayList<IndexerAction>( );
+
+        while ( !Thread.currentThread( ).isInterrupted( ) )
+        {
+            try
+            {
+                listIndexerAction.add( _queue.take( ) );
+
+                // let the actions of the latency budget accumulate, so that they are applied with a single commit
+                Thread.sleep( _nLatency );
+                _queue.drainTo( listIndexerAction );
+
+                if ( !startIndexing( ) )
+                {
+                    return;
+                }
+
+                try
+                {
+                    String strLogs = DirectorySearchService.getInstance( ).processIndexing( false );
+                    AppLogService.debug( "Near real time indexing of " + listIndexerAction.size( ) + " directory indexer actions : " + strLogs );
+                }
+                finally
+                {
+                    endIndexing( );
+                }
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Near real time indexing error : " + e.getMessage( ), e );
+            }
+            finally
+            {
+                listIndexerAction.clear( );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Stop the background thread : it is interrupted if it is waiting for actions, or stops once the indexing in progress is over. The actions left in
+     * the queue are applied by the daemon from the database.
+     */
+    @Override
+    public void process( )
+    {
+        Thread thread;
+
+        synchronized( this )
+        {
+            _bShutdown = true;
+            thread = _thread;
+
+            if ( ( thread != null ) && !_bIndexing )
+            {
+                thread.interrupt( );
+            }
+        }
+
+        if ( thread != null )
+        {
+            try
+            {
+                thread.join( SHUTDOWN_TIMEOUT );
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }
+    }
+
+    /**
+     * Mark the start of an indexing, unless the service is shut down
+     * 
+     * @return false if the service is shut down
+     */
+    private synchronized boolean startIndexing( )
+    {
+        _bIndexing = !_bShutdown;
+
+        return _bIndexing;
+    }
+
+    /**
+     * Mark the end of an indexing. The thread is interrupted if the service has been shut down meanwhile
+     */
+    private synchronized void endIndexing( )
+    {
+        _bIndexing = false;
+
+        if ( _bShutdown )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.directorysearch;
+
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.util.Bits;
+
+import fr.paris.lutece.plugins.directory.utils.RecordIdSet;
+
+/**
+ * Collector which streams the id of the records of all the matching documents into a record id set. The ids are read from the doc values of the field
+ * {@link DirectorySearchItem#FIELD_ID_DIRECTORY_RECORD_VALUE} : no stored document is loaded and the number of results is not limited. The documents
+ * indexed before the creation of this field, which may be merged with newer ones in the same segment, fall back to the stored id of the record.
+ */
+public class DirectoryRecordIdCollector extends SimpleCollector
+{
+    private final RecordIdSet _setIdRecord = new RecordIdSet( );
+    private LeafReader _reader;
+    private NumericDocValues _idRecordValues;
+    private Bits _docsWithIdRecordValue;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doSetNextReader( LeafReaderContext context ) throws IOException
+    {
+        _reader = context.reader( );
+        _idRecordValues = _reader.getNumericDocValues( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD_VALUE );
+        _docsWithIdRecordValue = ( _idRecordValues != null ) ? _reader.getDocsWithField( DirectorySearchItem.FIELD_ID_DIRECTORY_RECORD_VALUE ) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void collect( int nDoc ) throws IOException
+    {
+        // a document without doc value would read 0
+        if ( ( _docsWithIdRecordValue != null ) && _docsWithIdRecordValue.get( nDoc ) )
+        {
+            _setIdRecord.add( (int) _idRecordValues.get( nDoc ) );
+        }
+        else
+        {
+            Document document = _reader.document( nDoc );
+            _setIdRecord.add( new DirectorySearchItem( document ).getIdDirectoryRecord( ) );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean needsScores( )
+    {
+        return false;
+    }
+
+    /**
+     * Return the id of the records of the collected documents
+     * 
+     * @return the id of the records
+     */
+    public RecordIdSet getIdRecords( )
+    {
+        return _setIdRecord;
+    }
+}
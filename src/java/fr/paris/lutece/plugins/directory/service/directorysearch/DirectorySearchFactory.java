@@ -43,6 +43,7 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.NIOFSDirectory;
 
@@ -59,9 +60,13 @@ public class DirectorySearchFactory
     // Constants
     private static final String PATH_INDEX = "directory.internalIndexer.lucene.indexPath";
     private static final String PROPERTY_ANALYSER_CLASS_NAME = "directory.internalIndexer.lucene.analyser.className";
+    private static final String PROPERTY_WRITER_RAM_BUFFER_SIZE = "directory.internalIndexer.lucene.writer.ramBufferSizeMB";
+    private static final int DEFAULT_WRITER_RAM_BUFFER_SIZE = 64;
 
     // Variables
     private Analyzer _analyzer;
+    private Directory _luceneDirectory;
+    private volatile SearcherManager _searcherManager;
 
     /**
      * Constructor
@@ -102,17 +107,92 @@ public class DirectorySearchFactory
     }
 
     /**
-     * Return the IndexSearcher to use for the search
+     * Return a new IndexSearcher on its own reader, which is not shared with the other searches. The caller is responsible for closing the reader of the
+     * searcher, it must not be released with {@link #releaseIndexSearcher(IndexSearcher)}.
      * 
      * @return the index searcher to use for the search
      * @throws IOException
      *             - if there is a low-level IO error
+     * @deprecated use {@link #acquireIndexSearcher()} and {@link #releaseIndexSearcher(IndexSearcher)}, which share a single reader between the searches
      */
+    @Deprecated
     public IndexSearcher getIndexSearcher( ) throws IOException
     {
-        Directory luceneDirectory = getDirectory( );
+        return new IndexSearcher( DirectoryReader.open( getDirectory( ) ) );
+    }
 
-        return new IndexSearcher( DirectoryReader.open( luceneDirectory ) );
+    /**
+     * Acquire the shared IndexSearcher. The searcher is reference counted : each call must be followed by a call to
+     * {@link #releaseIndexSearcher(IndexSearcher)}
+     * 
+     * @return the index searcher to use for the search
+     * @throws IOException
+     *             - if there is a low-level IO error or if the index does not exist yet
+     */
+    public IndexSearcher acquireIndexSearcher( ) throws IOException
+    {
+        return getSearcherManager( ).acquire( );
+    }
+
+    /**
+     * Release an IndexSearcher acquired with {@link #acquireIndexSearcher()}
+     * 
+     * @param searcher
+     *            the searcher to release, may be null
+     */
+    public void releaseIndexSearcher( IndexSearcher searcher )
+    {
+        SearcherManager searcherManager = _searcherManager;
+
+        if ( ( searcher != null ) && ( searcherManager != null ) )
+        {
+            try
+            {
+                searcherManager.release( searcher );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to release the directory index searcher : " + e.getMessage( ), e );
+            }
+        }
+    }
+
+    /**
+     * Refresh the shared IndexSearcher so that it sees the last changes committed in the index. Searches in progress keep using their searcher until they
+     * release it.
+     */
+    public void refreshIndexSearcher( )
+    {
+        SearcherManager searcherManager = _searcherManager;
+
+        if ( searcherManager != null )
+        {
+            try
+            {
+                searcherManager.maybeRefresh( );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to refresh the directory index searcher : " + e.getMessage( ), e );
+            }
+        }
+    }
+
+    /**
+     * Return the searcher manager, creating it at the first call
+     * 
+     * @return the searcher manager
+     * @throws IOException
+     *             - if there is a low-level IO error or if the index does not exist yet
+     */
+    private synchronized SearcherManager getSearcherManager( ) throws IOException
+    {
+        if ( _searcherManager == null )
+        {
+            _searcherManager = new SearcherManager( getDirectory( ), null );
+        }
+
+        return _searcherManager;
     }
 
     /**
@@ -134,6 +214,7 @@ public class DirectorySearchFactory
         }
 
         IndexWriterConfig conf = new IndexWriterConfig( getAnalyzer( ) );
+        conf.setRAMBufferSizeMB( AppPropertiesService.getPropertyInt( PROPERTY_WRITER_RAM_BUFFER_SIZE, DEFAULT_WRITER_RAM_BUFFER_SIZE ) );
 
         if ( bCreateIndex.isTrue( ) )
         {
@@ -148,17 +229,21 @@ public class DirectorySearchFactory
     }
 
     /**
-     * Return the Directory to use for the search
+     * Return the Directory to use for the search. The same instance is shared by the searchers and the writers
      * 
      * @return the Directory to use for the search
      * @throws IOException
      *             - if the path string cannot be converted to a Path
      */
-    private Directory getDirectory( ) throws IOException
+    private synchronized Directory getDirectory( ) throws IOException
     {
-        String strIndex = AppPathService.getPath( PATH_INDEX );
+        if ( _luceneDirectory == null )
+        {
+            String strIndex = AppPathService.getPath( PATH_INDEX );
+            _luceneDirectory = NIOFSDirectory.open( Paths.get( strIndex ) );
+        }
 
-        return NIOFSDirectory.open( Paths.get( strIndex ) );
+        return _luceneDirectory;
     }
 
     /**
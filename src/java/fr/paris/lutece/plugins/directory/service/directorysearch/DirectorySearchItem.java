@@ -44,6 +44,7 @@ public class DirectorySearchItem
 {
     public static final String FIELD_ID_DIRECTORY = "id_directory";
     public static final String FIELD_ID_DIRECTORY_RECORD = "id_directory_record";
+    public static final String FIELD_ID_DIRECTORY_RECORD_VALUE = "id_directory_record_value";
     public static final String FIELD_ID_DIRECTORY_ENTRY = "id_directory_entry";
     public static final String FIELD_ID_DIRECTORY_FIELD = "id_directory_field";
     public static final String FIELD_CONTENTS = "contents";
@@ -58,6 +59,10 @@ public class DirectorySearchItem
     public static final String FIELD_DATE_MODIFICATION = "date_modification";
     public static final String FIELD_DATE_MODIFICATION_BEGIN = "date_modification_begin";
     public static final String FIELD_DATE_MODIFICATION_END = "date_modification_end";
+    public static final String FIELD_TYPE = "type";
+    public static final String TYPE_RECORD = "record";
+    public static final String TYPE_RECORD_INDEX = "record_index";
+    private static final String FIELD_NAME_SEPARATOR = "_";
 
     // Variables declarations
     private int _nIdDirectoryRecord;
@@ -73,6 +78,37 @@ public class DirectorySearchItem
         setIdDirectoryRecord( DirectoryUtils.convertStringToInt( document.get( FIELD_ID_DIRECTORY_RECORD ) ) );
     }
 
+    /**
+     * Return the name of a search field scoped to an entry. The document of a record contains the search fields of each of its record fields under these
+     * names, so that criteria on several entries can be checked on the record document alone.
+     * 
+     * @param strField
+     *            the search field, for example {@link #FIELD_CONTENTS}
+     * @param nIdEntry
+     *            the id of the entry
+     * @return the name of the field scoped to the entry
+     */
+    public static String getEntryFieldName( String strField, int nIdEntry )
+    {
+        return strField + FIELD_NAME_SEPARATOR + nIdEntry;
+    }
+
+    /**
+     * Return the name of a search field scoped to a field of an entry (used for the cells of an array)
+     * 
+     * @param strField
+     *            the search field, for example {@link #FIELD_CONTENTS}
+     * @param nIdEntry
+     *            the id of the entry
+     * @param nIdField
+     *            the id of the field
+     * @return the name of the field scoped to the field of the entry
+     */
+    public static String getEntryFieldName( String strField, int nIdEntry, int nIdField )
+    {
+        return getEntryFieldName( strField, nIdEntry ) + FIELD_NAME_SEPARATOR + nIdField;
+    }
+
     /**
      * @return the id of the directory record
      */
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.directorysearch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * DirectorySearchQuery : the whole search form of a directory (entries criteria, record dates and search operator) compiled so that it can be executed in
+ * a single pass by the search engine
+ */
+public class DirectorySearchQuery
+{
+    private int _nIdDirectory;
+    private boolean _bSearchOperatorOr;
+    private List<HashMap<String, Object>> _listEntrySearchItems = new ArrayList<HashMap<String, Object>>( );
+    private HashMap<String, Object> _mapRecordSearchItem = new HashMap<String, Object>( );
+
+    /**
+     * Create a search query on a directory
+     * 
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param bSearchOperatorOr
+     *            true if the entries criteria must be combined with the OR operator, false for the AND operator
+     */
+    public DirectorySearchQuery( int nIdDirectory, boolean bSearchOperatorOr )
+    {
+        _nIdDirectory = nIdDirectory;
+        _bSearchOperatorOr = bSearchOperatorOr;
+    }
+
+    /**
+     * @return the id of the directory
+     */
+    public int getIdDirectory( )
+    {
+        return _nIdDirectory;
+    }
+
+    /**
+     * @return true if the entries criteria must be combined with the OR operator
+     */
+    public boolean isSearchOperatorOr( )
+    {
+        return _bSearchOperatorOr;
+    }
+
+    /**
+     * Add the criteria of an entry. Several criteria may be added for the same entry (one for each cell of an array) : a record matches the entry if it
+     * matches all of them.
+     * 
+     * @param nIdEntry
+     *            the id of the entry
+     * @param mapSearchItem
+     *            the criteria built by the entry with addSearchCriteria
+     */
+    public void addEntrySearchItem( int nIdEntry, HashMap<String, Object> mapSearchItem )
+    {
+        mapSearchItem.put( DirectorySearchItem.FIELD_ID_DIRECTORY, _nIdDirectory );
+        mapSearchItem.put( DirectorySearchItem.FIELD_ID_DIRECTORY_ENTRY, nIdEntry );
+        _listEntrySearchItems.add( mapSearchItem );
+    }
+
+    /**
+     * @return the criteria of the entries, each one containing the id of its entry
+     */
+    public List<HashMap<String, Object>> getEntrySearchItems( )
+    {
+        return _listEntrySearchItems;
+    }
+
+    /**
+     * Add a criterion on the record itself (creation or modification date)
+     * 
+     * @param strField
+     *            the search field, for example {@link DirectorySearchItem#FIELD_DATE_CREATION}
+     * @param value
+     *            the value to search
+     */
+    public void addRecordSearchItem( String strField, Object value )
+    {
+        _mapRecordSearchItem.put( strField, value );
+    }
+
+    /**
+     * @return the criteria on the record itself
+     */
+    public HashMap<String, Object> getRecordSearchItem( )
+    {
+        return _mapRecordSearchItem;
+    }
+
+    /**
+     * @return true if the query contains no criteria
+     */
+    public boolean isEmpty( )
+    {
+        return _listEntrySearchItems.isEmpty( ) && _mapRecordSearchItem.isEmpty( );
+    }
+}
@@ -35,6 +35,7 @@ package fr.paris.lutece.plugins.directory.service.directorysearch;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -42,7 +43,7 @@ import java.util.Map.Entry;
 
 import javax.servlet.http.HttpServletRequest;
 
-import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.IndexSearcher;
@@ -58,7 +59,6 @@ import fr.paris.lutece.plugins.directory.business.IndexerActionHome;
 import fr.paris.lutece.plugins.directory.business.Record;
 import fr.paris.lutece.plugins.directory.business.RecordField;
 import fr.paris.lutece.plugins.directory.business.RecordFieldFilter;
-import fr.paris.lutece.plugins.directory.business.RecordFieldHome;
 import fr.paris.lutece.plugins.directory.service.record.IRecordService;
 import fr.paris.lutece.plugins.directory.service.record.RecordService;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
@@ -66,6 +66,7 @@ import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 /**
  * DirectorySearchService
@@ -75,7 +76,11 @@ public class DirectorySearchService
     private static final String BEAN_SEARCH_ENGINE = "directorySearchEngine";
     private static final String PARAMETER_ID_DIRECTORY = "id_directory";
     private static final String PARAMETER_ID_ENTRY = "id_entry";
+    private static final String PARAMETER_QUERY = "query";
+    private static final String PARAMETER_LIMIT = "limit";
     private static final String JSON_QUERY_RESULT = "query";
+    private static final String PROPERTY_AUTOCOMPLETE_MAX_RESULTS = "directory.autocomplete.maxResults";
+    private static final int DEFAULT_AUTOCOMPLETE_MAX_RESULTS = 50;
 
     private static IDirectorySearchIndexer _indexer;
     private static DirectorySearchFactory _directorySearchFactory;
@@ -167,67 +172,30 @@ public class DirectorySearchService
 
         if ( mapSearch != null )
         {
-            List<Integer> listRecordResultTmp = null;
-            List<RecordField> recordFieldSearch;
-            HashMap<String, Object> mapSearchItemEntry;
-            boolean bSearchRecordEmpty;
-            boolean bSearchEmpty;
-
             try
             {
-                IDirectorySearchEngine engine = SpringContextService.getBean( BEAN_SEARCH_ENGINE );
-
-                listRecordResultTmp = new ArrayList<Integer>( );
-                bSearchEmpty = true;
+                DirectorySearchQuery searchQuery = new DirectorySearchQuery( directory.getIdDirectory( ), directory.isSearchOperatorOr( ) );
 
-                for ( Object entryMapSearch : mapSearch.entrySet( ) )
+                for ( Entry<String, List<RecordField>> entryMapSearch : mapSearch.entrySet( ) )
                 {
-                    recordFieldSearch = ( (Entry<String, List<RecordField>>) entryMapSearch ).getValue( );
-
-                    int nIdEntry = DirectoryUtils.convertStringToInt( ( (Entry<String, List<RecordField>>) entryMapSearch ).getKey( ) );
-                    bSearchRecordEmpty = true;
+                    List<RecordField> recordFieldSearch = entryMapSearch.getValue( );
+                    int nIdEntry = DirectoryUtils.convertStringToInt( entryMapSearch.getKey( ) );
 
                     if ( recordFieldSearch != null )
                     {
-                        mapSearchItemEntry = new HashMap<String, Object>( );
-
-                        boolean bIsArray = false;
-                        boolean bFirstRecord = true;
+                        HashMap<String, Object> mapSearchItemEntry = new HashMap<String, Object>( );
 
                         for ( RecordField recordField : recordFieldSearch )
                         {
                             if ( recordField.getEntry( ) instanceof EntryTypeArray )
                             {
                                 // for array, we do a search on content for each case
-                                bIsArray = true;
-                                mapSearchItemEntry = new HashMap<String, Object>( );
-                                recordField.getEntry( ).addSearchCriteria( mapSearchItemEntry, recordField );
+                                HashMap<String, Object> mapSearchItemCell = new HashMap<String, Object>( );
+                                recordField.getEntry( ).addSearchCriteria( mapSearchItemCell, recordField );
 
-                                if ( mapSearchItemEntry.size( ) > 0 )
+                                if ( mapSearchItemCell.size( ) > 0 )
                                 {
-                                    bSearchRecordEmpty = false;
-                                    bSearchEmpty = false;
-                                    mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY, directory.getIdDirectory( ) );
-                                    mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY_ENTRY, nIdEntry );
-
-                                    List<Integer> ids = engine.getSearchResults( mapSearchItemEntry );
-
-                                    if ( CollectionUtils.isEmpty( ids ) )
-                                    {
-                                        listRecordResultTmp = new ArrayList<Integer>( );
-
-                                        break;
-                                    }
-                                    else
-                                        if ( bFirstRecord )
-                                        {
-                                            listRecordResultTmp = ids;
-                                            bFirstRecord = false;
-                                        }
-                                        else
-                                        {
-                                            listRecordResultTmp = (List<Integer>) CollectionUtils.intersection( listRecordResultTmp, ids );
-                                        }
+                                    searchQuery.addEntrySearchItem( nIdEntry, mapSearchItemCell );
                                 }
                             }
                             else
@@ -236,90 +204,50 @@ public class DirectorySearchService
                             }
                         }
 
-                        if ( !bIsArray && ( mapSearchItemEntry.size( ) > 0 ) )
+                        if ( mapSearchItemEntry.size( ) > 0 )
                         {
-                            bSearchRecordEmpty = false;
-                            bSearchEmpty = false;
-                            mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY, directory.getIdDirectory( ) );
-                            mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY_ENTRY, nIdEntry );
-                            listRecordResultTmp.addAll( engine.getSearchResults( mapSearchItemEntry ) );
-                        }
-
-                        if ( !bSearchRecordEmpty && !directory.isSearchOperatorOr( ) )
-                        {
-                            // keeping order is important for display
-                            listRecordResult = DirectoryUtils.retainAllIdsKeepingFirstOrder( listRecordResult, listRecordResultTmp );
-                            listRecordResultTmp = new ArrayList<Integer>( );
+                            searchQuery.addEntrySearchItem( nIdEntry, mapSearchItemEntry );
                         }
                     }
                 }
 
-                if ( directory.isSearchOperatorOr( ) && !bSearchEmpty )
-                {
-                    listRecordResult = DirectoryUtils.retainAllIdsKeepingFirstOrder( listRecordResult, listRecordResultTmp );
-                }
-
                 // date creation of a record
                 if ( dateCreation != null )
                 {
-                    listRecordResultTmp = new ArrayList<Integer>( );
-                    mapSearchItemEntry = new HashMap<String, Object>( );
-                    mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY, directory.getIdDirectory( ) );
                     dateCreation.setTime( dateCreation.getTime( ) + CONSTANT_TIME_CORRECTION );
-
-                    mapSearchItemEntry.put( DirectorySearchItem.FIELD_DATE_CREATION, dateCreation );
-                    listRecordResultTmp.addAll( engine.getSearchResults( mapSearchItemEntry ) );
-
-                    // keeping order is important for display
-                    listRecordResult = DirectoryUtils.retainAllIdsKeepingFirstOrder( listRecordResult, listRecordResultTmp );
+                    searchQuery.addRecordSearchItem( DirectorySearchItem.FIELD_DATE_CREATION, dateCreation );
                 }
                 else
                     if ( ( dateCreationBegin != null ) && ( dateCreationEnd != null ) )
                     {
                         dateCreationBegin.setTime( dateCreationBegin.getTime( ) + CONSTANT_TIME_CORRECTION );
                         dateCreationEnd.setTime( dateCreationEnd.getTime( ) + CONSTANT_TIME_CORRECTION );
-
-                        listRecordResultTmp = new ArrayList<Integer>( );
-                        mapSearchItemEntry = new HashMap<String, Object>( );
-                        mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY, directory.getIdDirectory( ) );
-                        mapSearchItemEntry.put( DirectorySearchItem.FIELD_DATE_CREATION_BEGIN, dateCreationBegin );
-                        mapSearchItemEntry.put( DirectorySearchItem.FIELD_DATE_CREATION_END, dateCreationEnd );
-                        listRecordResultTmp.addAll( engine.getSearchResults( mapSearchItemEntry ) );
-
-                        // keeping order is important for display
-                        listRecordResult = DirectoryUtils.retainAllIdsKeepingFirstOrder( listRecordResult, listRecordResultTmp );
+                        searchQuery.addRecordSearchItem( DirectorySearchItem.FIELD_DATE_CREATION_BEGIN, dateCreationBegin );
+                        searchQuery.addRecordSearchItem( DirectorySearchItem.FIELD_DATE_CREATION_END, dateCreationEnd );
                     }
 
                 // date modification of a record
                 if ( dateModification != null )
                 {
-                    listRecordResultTmp = new ArrayList<Integer>( );
-                    mapSearchItemEntry = new HashMap<String, Object>( );
-                    mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY, directory.getIdDirectory( ) );
                     dateModification.setTime( dateModification.getTime( ) + CONSTANT_TIME_CORRECTION );
-
-                    mapSearchItemEntry.put( DirectorySearchItem.FIELD_DATE_MODIFICATION, dateModification );
-                    listRecordResultTmp.addAll( engine.getSearchResults( mapSearchItemEntry ) );
-
-                    // keeping order is important for display
-                    listRecordResult = DirectoryUtils.retainAllIdsKeepingFirstOrder( listRecordResult, listRecordResultTmp );
+                    searchQuery.addRecordSearchItem( DirectorySearchItem.FIELD_DATE_MODIFICATION, dateModification );
                 }
                 else
                     if ( ( dateModificationBegin != null ) && ( dateModificationEnd != null ) )
                     {
                         dateModificationBegin.setTime( dateModificationBegin.getTime( ) + CONSTANT_TIME_CORRECTION );
                         dateModificationEnd.setTime( dateModificationEnd.getTime( ) + CONSTANT_TIME_CORRECTION );
+                        searchQuery.addRecordSearchItem( DirectorySearchItem.FIELD_DATE_MODIFICATION_BEGIN, dateModificationBegin );
+                        searchQuery.addRecordSearchItem( DirectorySearchItem.FIELD_DATE_MODIFICATION_END, dateModificationEnd );
+                    }
 
-                        listRecordResultTmp = new ArrayList<Integer>( );
-                        mapSearchItemEntry = new HashMap<String, Object>( );
-                        mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY, directory.getIdDirectory( ) );
-                        mapSearchItemEntry.put( DirectorySearchItem.FIELD_DATE_MODIFICATION_BEGIN, dateModificationBegin );
-                        mapSearchItemEntry.put( DirectorySearchItem.FIELD_DATE_MODIFICATION_END, dateModificationEnd );
-                        listRecordResultTmp.addAll( engine.getSearchResults( mapSearchItemEntry ) );
+                if ( !searchQuery.isEmpty( ) )
+                {
+                    IDirectorySearchEngine engine = SpringContextService.getBean( BEAN_SEARCH_ENGINE );
 
-                        // keeping order is important for display
-                        listRecordResult = DirectoryUtils.retainAllIdsKeepingFirstOrder( listRecordResult, listRecordResultTmp );
-                    }
+                    // the whole form is executed in a single query, keeping order is important for display
+                    listRecordResult = engine.getSearchResults( searchQuery ).retainInOrder( listRecordResult );
+                }
             }
             catch( Exception e )
             {
@@ -332,6 +260,16 @@ public class DirectorySearchService
         return listRecordResult;
     }
 
+    /**
+     * Return the values of an autocomplete entry of a directory beginning with the searched prefix, as a JSON object. The number of values is limited by
+     * the request parameter limit, and when a prefix is searched by the property directory.autocomplete.maxResults
+     * 
+     * @param request
+     *            the request
+     * @return the JSON object
+     * @throws Exception
+     *             if an error occurs
+     */
     public String getAutocompleteResult( HttpServletRequest request ) throws Exception
     {
         String strIdDirectory = request.getParameter( PARAMETER_ID_DIRECTORY );
@@ -339,38 +277,25 @@ public class DirectorySearchService
         Plugin plugin = PluginService.getPlugin( "directory" );
         StringBuffer result = new StringBuffer( );
 
-        IDirectorySearchEngine engine = SpringContextService.getBean( BEAN_SEARCH_ENGINE );
-
         if ( ( ( strIdDirectory != null ) && !strIdDirectory.equals( DirectoryUtils.EMPTY_STRING ) )
                 && ( ( strIdEntry != null ) && !strIdEntry.equals( DirectoryUtils.EMPTY_STRING ) ) )
         {
-            HashMap<String, Object> mapSearchItemEntry = new HashMap<String, Object>( );
-            mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY, Integer.parseInt( strIdDirectory ) );
-            mapSearchItemEntry.put( DirectorySearchItem.FIELD_ID_DIRECTORY_ENTRY, Integer.parseInt( strIdEntry ) );
+            String strQuery = request.getParameter( PARAMETER_QUERY );
+            int nLimit = DirectoryUtils.convertStringToInt( request.getParameter( PARAMETER_LIMIT ) );
 
-            List<Integer> listIntRecordField = engine.getSearchResults( mapSearchItemEntry );
-            List<RecordField> listRecordField = new ArrayList<RecordField>( );
+            // the clients sending no query get all the values, as they always did
+            int nMaxResults = StringUtils.isNotEmpty( strQuery ) ? AppPropertiesService.getPropertyInt( PROPERTY_AUTOCOMPLETE_MAX_RESULTS,
+                    DEFAULT_AUTOCOMPLETE_MAX_RESULTS ) : Integer.MAX_VALUE;
 
-            for ( Integer idDirectoryRecord : listIntRecordField )
+            if ( ( nLimit > 0 ) && ( nLimit < nMaxResults ) )
             {
-                RecordFieldFilter recordFilter = new RecordFieldFilter( );
-                recordFilter.setIdDirectory( Integer.parseInt( strIdDirectory ) );
-                recordFilter.setIdEntry( Integer.parseInt( strIdEntry ) );
-                recordFilter.setIdRecord( idDirectoryRecord );
-                listRecordField.addAll( RecordFieldHome.getRecordFieldList( recordFilter, plugin ) );
+                nMaxResults = nLimit;
             }
 
-            HashMap<String, String> mapResult = new HashMap<String, String>( );
-
-            for ( RecordField recordField : listRecordField )
+            for ( String strValue : DirectoryAutocompleteService.getInstance( ).getValues( DirectoryUtils.convertStringToInt( strIdDirectory ),
+                    DirectoryUtils.convertStringToInt( strIdEntry ), strQuery, nMaxResults, plugin ) )
             {
-                // result.append( recordField.getValue( ) + "%" );
-                mapResult.put( recordField.getValue( ), recordField.getValue( ) );
-            }
-
-            for ( String key : mapResult.keySet( ) )
-            {
-                result.append( key + "%" );
+                result.append( strValue + "%" );
             }
         }
 
@@ -389,13 +314,13 @@ public class DirectorySearchService
     }
 
     /**
-     * Process indexing
+     * Process indexing. The indexing is synchronized, since the daemon and the near real time indexer cannot write the index at the same time
      * 
      * @param bCreate
      *            true for start full indexing false for begin incremental indexing
      * @return the log
      */
-    public String processIndexing( boolean bCreate )
+    public synchronized String processIndexing( boolean bCreate )
     {
         StringBuffer sbLogs = new StringBuffer( );
         IndexWriter writer = null;
@@ -443,6 +368,9 @@ public class DirectorySearchService
             {
                 AppLogService.error( e.getMessage( ), e );
             }
+
+            // the changes are committed : the searchers can see them
+            _directorySearchFactory.refreshIndexSearcher( );
         }
 
         return sbLogs.toString( );
@@ -474,10 +402,54 @@ public class DirectorySearchService
                 indexerAction.setIdRecord( nIdRecord );
                 indexerAction.setIdTask( nIdTask );
                 IndexerActionHome.create( indexerAction, plugin );
+                DirectoryNearRealTimeIndexer.getInstance( ).push( Collections.singletonList( indexerAction ), plugin );
             }
         }
     }
 
+    /**
+     * Add a list of Indexer Actions to perform on records, with a single batch
+     * 
+     * @param listIdRecord
+     *            the list of id record
+     * @param nIdTask
+     *            the key of the action to do
+     * @param plugin
+     *            the plugin
+     */
+    public void addIndexerActions( List<Integer> listIdRecord, int nIdTask, Plugin plugin )
+    {
+        List<IndexerAction> listIndexerAction = new ArrayList<IndexerAction>( listIdRecord.size( ) );
+
+        for ( Integer nIdRecord : listIdRecord )
+        {
+            IndexerAction indexerAction = new IndexerAction( );
+            indexerAction.setIdRecord( nIdRecord );
+            indexerAction.setIdTask( nIdTask );
+            listIndexerAction.add( indexerAction );
+        }
+
+        IndexerActionHome.create( listIndexerAction, plugin );
+        DirectoryNearRealTimeIndexer.getInstance( ).push( listIndexerAction, plugin );
+    }
+
+    /**
+     * Add an Indexer Action removing all the records of a directory from the index
+     * 
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param plugin
+     *            the plugin
+     */
+    public void addIndexerActionDeleteDirectory( int nIdDirectory, Plugin plugin )
+    {
+        IndexerAction indexerAction = new IndexerAction( );
+        indexerAction.setIdDirectory( nIdDirectory );
+        indexerAction.setIdTask( IndexerAction.TASK_DELETE_DIRECTORY );
+        IndexerActionHome.create( indexerAction, plugin );
+        DirectoryNearRealTimeIndexer.getInstance( ).push( Collections.singletonList( indexerAction ), plugin );
+    }
+
     /**
      * Remove a Indexer Action
      * 
@@ -491,6 +463,33 @@ public class DirectorySearchService
         IndexerActionHome.remove( nIdAction, plugin );
     }
 
+    /**
+     * Remove a list of Indexer Actions
+     * 
+     * @param listIdAction
+     *            the keys of the actions to remove
+     * @param plugin
+     *            the plugin
+     */
+    public void removeIndexerActions( List<Integer> listIdAction, Plugin plugin )
+    {
+        IndexerActionHome.removeByListIdAction( listIdAction, plugin );
+    }
+
+    /**
+     * return the oldest IndexerActions, in the order of their creation
+     * 
+     * @param nMaxActions
+     *            the maximum number of actions to return
+     * @param plugin
+     *            the plugin
+     * @return a list of IndexerAction
+     */
+    public List<IndexerAction> getFirstIndexerActions( int nMaxActions, Plugin plugin )
+    {
+        return IndexerActionHome.getFirstActions( nMaxActions, plugin );
+    }
+
     /**
      * return a list of IndexerAction by task key
      * 
@@ -509,14 +508,40 @@ public class DirectorySearchService
     }
 
     /**
-     * return searcher
+     * return a searcher on its own reader, which is not shared with the other searches. The caller is responsible for closing the reader of the
+     * searcher, it must not be released with {@link #releaseSearcher(IndexSearcher)}.
      * 
      * @return searcher
      * @throws IOException
      *             - if there is a low-level IO error
+     * @deprecated use {@link #acquireSearcher()} and {@link #releaseSearcher(IndexSearcher)}, which share a single reader between the searches
      */
+    @Deprecated
     public IndexSearcher getSearcher( ) throws IOException
     {
         return _directorySearchFactory.getIndexSearcher( );
     }
+
+    /**
+     * acquire the shared searcher. It must be released with {@link #releaseSearcher(IndexSearcher)} once the search is done.
+     * 
+     * @return searcher
+     * @throws IOException
+     *             - if there is a low-level IO error
+     */
+    public IndexSearcher acquireSearcher( ) throws IOException
+    {
+        return _directorySearchFactory.acquireIndexSearcher( );
+    }
+
+    /**
+     * release a searcher obtained with {@link #acquireSearcher()}
+     * 
+     * @param searcher
+     *            the searcher to release
+     */
+    public void releaseSearcher( IndexSearcher searcher )
+    {
+        _directorySearchFactory.releaseIndexSearcher( searcher );
+    }
 }
@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.directory.service.directorysearch;
 
+import fr.paris.lutece.plugins.directory.utils.RecordIdSet;
+
 import java.util.HashMap;
 import java.util.List;
 
@@ -49,4 +51,13 @@ public interface IDirectorySearchEngine
      * @return Results as a collection of Record key
      */
     List<Integer> getSearchResults( HashMap<String, Object> mapSearchQuery );
+
+    /**
+     * Return the list of record key matching the whole search form of a directory. The query is executed in a single pass on the index.
+     *
+     * @param searchQuery
+     *            the search query
+     * @return Results as a set of Record key
+     */
+    RecordIdSet getSearchResults( DirectorySearchQuery searchQuery );
 }
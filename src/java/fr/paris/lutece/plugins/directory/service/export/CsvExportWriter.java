@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import fr.paris.lutece.plugins.directory.business.EntryTypeGeolocation;
+import fr.paris.lutece.plugins.directory.business.IEntry;
+import fr.paris.lutece.plugins.directory.business.Record;
+import fr.paris.lutece.plugins.directory.business.RecordField;
+import fr.paris.lutece.plugins.directory.service.DirectoryService;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.plugins.workflowcore.business.state.State;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.util.date.DateUtil;
+
+/**
+ * CsvExportWriter : writes the CSV export of records directly to a writer, without building their XML. The output is the one of the stock CSV export
+ * stylesheet : a header line with the titles of the entries, then the records, each value being enclosed in double quotes. As with the stylesheet, the
+ * records are followed by a new line only when they are not exported by pages.
+ */
+public class CsvExportWriter
+{
+    private static final String PROPERTY_ENTRY_TYPE_DATE_CREATION_TITLE = "directory.entry_type_date_creation.title";
+    private static final String PROPERTY_ENTRY_TYPE_DATE_MODIFICATION_TITLE = "directory.entry_type_date_modification.title";
+    private static final String STATUS_TITLE = "status";
+    private static final String SUFFIX_X = "_X";
+    private static final String SUFFIX_Y = "_Y";
+    private static final String SUFFIX_ADDRESS = "_address";
+    private static final char QUOTE = '"';
+    private static final char VALUE_SEPARATOR = ',';
+    private static final char NEW_LINE = '\n';
+    private final Writer _writer;
+    private final char _cSeparator;
+    private final Locale _locale;
+    private final boolean _bDisplayDateCreation;
+    private final boolean _bDisplayDateModification;
+    private final boolean _bDisplayStatus;
+    private final boolean _bRecordNewLine;
+
+    /**
+     * Constructor
+     * 
+     * @param writer
+     *            the writer of the export
+     * @param cSeparator
+     *            the separator of the columns
+     * @param locale
+     *            the locale
+     * @param bDisplayDateCreation
+     *            true if the creation date must be exported
+     * @param bDisplayDateModification
+     *            true if the modification date must be exported
+     * @param bDisplayStatus
+     *            true if the workflow state must be exported
+     * @param bRecordNewLine
+     *            true if each record must be followed by a new line
+     */
+    public CsvExportWriter( Writer writer, char cSeparator, Locale locale, boolean bDisplayDateCreation, boolean bDisplayDateModification,
+            boolean bDisplayStatus, boolean bRecordNewLine )
+    {
+        _writer = writer;
+        _cSeparator = cSeparator;
+        _locale = locale;
+        _bDisplayDateCreation = bDisplayDateCreation;
+        _bDisplayDateModification = bDisplayDateModification;
+        _bDisplayStatus = bDisplayStatus;
+        _bRecordNewLine = bRecordNewLine;
+    }
+
+    /**
+     * Write the header line
+     * 
+     * @param listEntry
+     *            the entries shown in export
+     * @throws IOException
+     *             if the line cannot be written
+     */
+    public void writeHeader( List<IEntry> listEntry ) throws IOException
+    {
+        List<String> listColumn = new ArrayList<String>( );
+
+        if ( _bDisplayDateCreation )
+        {
+            listColumn.add( quote( I18nService.getLocalizedString( PROPERTY_ENTRY_TYPE_DATE_CREATION_TITLE, _locale ) ) );
+        }
+
+        if ( _bDisplayDateModification )
+        {
+            listColumn.add( quote( I18nService.getLocalizedString( PROPERTY_ENTRY_TYPE_DATE_MODIFICATION_TITLE, _locale ) ) );
+        }
+
+        for ( IEntry entry : listEntry )
+        {
+            if ( entry.getEntryType( ).getComment( ) )
+            {
+                continue;
+            }
+
+            if ( entry instanceof EntryTypeGeolocation )
+            {
+                if ( DirectoryService.getInstance( ).showXY( entry ) )
+                {
+                    listColumn.add( quote( entry.getTitle( ) + SUFFIX_X ) );
+                    listColumn.add( quote( entry.getTitle( ) + SUFFIX_Y ) );
+                    listColumn.add( quote( entry.getTitle( ) + SUFFIX_ADDRESS ) );
+                }
+                else
+                {
+                    listColumn.add( quote( entry.getTitle( ) ) );
+                }
+            }
+            else
+            {
+                listColumn.add( quote( DirectoryUtils.substituteSpecialCaractersForExport( entry.getTitle( ) ) ) );
+            }
+        }
+
+        writeColumns( listColumn );
+
+        if ( _bDisplayStatus )
+        {
+            _writer.write( _cSeparator );
+            _writer.write( quote( STATUS_TITLE ) );
+            _writer.write( _cSeparator );
+        }
+
+        _writer.write( NEW_LINE );
+    }
+
+    /**
+     * Write the line of a record
+     * 
+     * @param record
+     *            the record
+     * @param state
+     *            the workflow state of the record, or null
+     * @param listEntry
+     *            the entries shown in export
+     * @param mapEntryRecordFields
+     *            the record fields of the record, by entry id
+     * @throws IOException
+     *             if the line cannot be written
+     */
+    public void writeRecord( Record record, State state, List<IEntry> listEntry, Map<String, List<RecordField>> mapEntryRecordFields ) throws IOException
+    {
+        List<String> listColumn = new ArrayList<String>( );
+
+        if ( _bDisplayDateCreation )
+        {
+            listColumn.add( quote( DateUtil.getDateString( record.getDateCreation( ), _locale ) ) );
+        }
+
+        if ( _bDisplayDateModification )
+        {
+            listColumn.add( quote( DateUtil.getDateString( record.getDateModification( ), _locale ) ) );
+        }
+
+        for ( IEntry entry : listEntry )
+        {
+            if ( entry.getEntryType( ).getGroup( ) && ( entry.getChildren( ) != null ) )
+            {
+                for ( IEntry entryChildren : entry.getChildren( ) )
+                {
+                    if ( !entryChildren.getEntryType( ).getComment( ) )
+                    {
+                        listColumn.add( getColumn( entryChildren, mapEntryRecordFields.get( Integer.toString( entryChildren.getIdEntry( ) ) ) ) );
+                    }
+                }
+            }
+            else
+                if ( !entry.getEntryType( ).getComment( ) )
+                {
+                    listColumn.add( getColumn( entry, mapEntryRecordFields.get( Integer.toString( entry.getIdEntry( ) ) ) ) );
+                }
+        }
+
+        writeColumns( listColumn );
+
+        if ( state != null )
+        {
+            _writer.write( _cSeparator );
+            _writer.write( quote( state.getName( ) ) );
+        }
+
+        if ( _bRecordNewLine )
+        {
+            _writer.write( NEW_LINE );
+        }
+    }
+
+    /**
+     * Get the column of an entry of a record
+     * 
+     * @param entry
+     *            the entry
+     * @param listRecordField
+     *            the record fields of the entry, may be null
+     * @return the column, enclosed in double quotes
+     */
+    private String getColumn( IEntry entry, List<RecordField> listRecordField )
+    {
+        StringBuilder sbColumn = new StringBuilder( );
+        sbColumn.append( QUOTE );
+
+        if ( listRecordField != null )
+        {
+            if ( entry instanceof EntryTypeGeolocation )
+            {
+                appendGeolocation( sbColumn, entry, listRecordField );
+            }
+            else
+            {
+                for ( int i = 0; i < listRecordField.size( ); i++ )
+                {
+                    if ( i > 0 )
+                    {
+                        sbColumn.append( VALUE_SEPARATOR );
+                    }
+
+                    sbColumn.append( getValue( entry, listRecordField.get( i ) ) );
+                }
+            }
+        }
+
+        sbColumn.append( QUOTE );
+
+        return sbColumn.toString( );
+    }
+
+    /**
+     * Append the values of a geolocation entry : the coordinates, if they are shown, then the address
+     * 
+     * @param sbColumn
+     *            the column
+     * @param entry
+     *            the geolocation entry
+     * @param listRecordField
+     *            the record fields of the entry
+     */
+    private void appendGeolocation( StringBuilder sbColumn, IEntry entry, List<RecordField> listRecordField )
+    {
+        boolean bShowXY = DirectoryService.getInstance( ).showXY( entry );
+
+        for ( RecordField recordField : listRecordField )
+        {
+            String strTitle = ( recordField.getField( ) != null ) ? recordField.getField( ).getTitle( ) : null;
+
+            if ( bShowXY && ( EntryTypeGeolocation.CONSTANT_X.equals( strTitle ) || EntryTypeGeolocation.CONSTANT_Y.equals( strTitle ) ) )
+            {
+                sbColumn.append( getValue( entry, recordField ) ).append( QUOTE ).append( _cSeparator ).append( QUOTE );
+            }
+            else
+                if ( EntryTypeGeolocation.CONSTANT_ADDRESS.equals( strTitle ) )
+                {
+                    sbColumn.append( getValue( entry, recordField ) );
+                }
+        }
+    }
+
+    /**
+     * Get the exported value of a record field
+     * 
+     * @param entry
+     *            the entry
+     * @param recordField
+     *            the record field
+     * @return the value
+     */
+    private String getValue( IEntry entry, RecordField recordField )
+    {
+        if ( recordField.getFile( ) != null )
+        {
+            String strValue = entry.convertRecordFieldValueToString( recordField, _locale, false, true );
+
+            return ( strValue != null ) ? strValue : DirectoryUtils.EMPTY_STRING;
+        }
+
+        return DirectoryUtils.substituteSpecialCaractersForExport( recordField.getEntry( ).convertRecordFieldValueToString( recordField, _locale, false,
+                true ) );
+    }
+
+    /**
+     * Write columns separated by the separator
+     * 
+     * @param listColumn
+     *            the columns
+     * @throws IOException
+     *             if the columns cannot be written
+     */
+    private void writeColumns( List<String> listColumn ) throws IOException
+    {
+        for ( int i = 0; i < listColumn.size( ); i++ )
+        {
+            if ( i > 0 )
+            {
+                _writer.write( _cSeparator );
+            }
+
+            _writer.write( listColumn.get( i ) );
+        }
+    }
+
+    /**
+     * Enclose a value in double quotes
+     * 
+     * @param strValue
+     *            the value
+     * @return the quoted value
+     */
+    private static String quote( String strValue )
+    {
+        return QUOTE + ( ( strValue != null ) ? strValue : DirectoryUtils.EMPTY_STRING ) + QUOTE;
+    }
+}
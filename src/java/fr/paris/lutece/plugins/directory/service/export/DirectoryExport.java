@@ -0,0 +1,592 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.export;
+
+import fr.paris.lutece.plugins.directory.business.Directory;
+import fr.paris.lutece.plugins.directory.business.DirectoryXsl;
+import fr.paris.lutece.plugins.directory.business.Entry;
+import fr.paris.lutece.plugins.directory.business.EntryFilter;
+import fr.paris.lutece.plugins.directory.business.EntryHome;
+import fr.paris.lutece.plugins.directory.business.Field;
+import fr.paris.lutece.plugins.directory.business.File;
+import fr.paris.lutece.plugins.directory.business.FileHome;
+import fr.paris.lutece.plugins.directory.business.IEntry;
+import fr.paris.lutece.plugins.directory.business.PhysicalFile;
+import fr.paris.lutece.plugins.directory.business.PhysicalFileHome;
+import fr.paris.lutece.plugins.directory.business.Record;
+import fr.paris.lutece.plugins.directory.business.RecordField;
+import fr.paris.lutece.plugins.directory.service.parameter.DirectoryParameterService;
+import fr.paris.lutece.plugins.directory.service.record.IRecordService;
+import fr.paris.lutece.plugins.directory.service.record.RecordService;
+import fr.paris.lutece.plugins.directory.service.record.RecordStateResolver;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.plugins.workflowcore.business.state.State;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.service.workflow.WorkflowService;
+import fr.paris.lutece.util.UniqueIDGenerator;
+import fr.paris.lutece.util.filesystem.UploadUtil;
+import fr.paris.lutece.util.xml.XmlUtil;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.transform.TransformerException;
+
+/**
+ * DirectoryExport : the export of a list of records of a directory with an export stylesheet. Everything the export needs is loaded when it is created,
+ * so that it can be written later, from the request thread or from a background job, to any writer.
+ */
+public class DirectoryExport
+{
+    /** Number of records loaded and written at once */
+    public static final int EXPORT_RECORD_STEP = 100;
+    private static final String PROPERTY_ENTRY_TYPE_DATE_CREATION_TITLE = "directory.entry_type_date_creation.title";
+    private static final String PROPERTY_ENTRY_TYPE_DATE_MODIFICATION_TITLE = "directory.entry_type_date_modification.title";
+    private static final String PROPERTY_EXPORT_CSV_NATIVE_XSL_IDS = "directory.export.csv.nativeXslIds";
+    private static final String PROPERTY_EXPORT_CSV_SEPARATOR = "directory.export.csv.separator";
+    private static final String TAG_STATUS = "status";
+    private static final String TAG_DISPLAY = "display";
+    private static final String TAG_YES = "yes";
+    private static final String TAG_NO = "no";
+    private static final String XSL_UNIQUE_PREFIX_ID = UniqueIDGenerator.getNewId( ) + "directory-";
+    private static final String EXPORT_XSL_BEGIN_PARTIAL_EXPORT = "<partialexport>";
+    private static final String EXPORT_XSL_END_PARTIAL_EXPORT = "</partialexport>";
+    private static final String EXPORT_CSV_EXT = "csv";
+    private static final String DEFAULT_EXPORT_CSV_SEPARATOR = ";";
+    private static final String CONSTANT_COMMA = ",";
+    private static final String CONSTANT_DOT = ".";
+    private static final String CONSTANT_CARRIAGE_RETURN = "\r";
+    private static final String PATH_STOCK_CSV_XSL = "/WEB-INF/plugins/directory/xsl/";
+    private static final String FILE_STOCK_CSV_XSL = "export_directory_csv.xsl";
+    private static final String STOCK_CSV_XSL_ENCODING = "UTF-8";
+    private static String _strStockCsvXsl;
+    private final Directory _directory;
+    private final List<Integer> _listIdRecord;
+    private final List<IEntry> _listEntry;
+    private final Map<Integer, Field> _mapFields;
+    private final Locale _locale;
+    private final Plugin _plugin;
+    private final String _strFileName;
+    private final String _strEncoding;
+    private final boolean _bIsCsvExport;
+    private final boolean _bIsNativeCsvExport;
+    private final boolean _bDisplayStatus;
+    private String _strCompression = ExportCompression.getCompression( null );
+    private String _strXslId;
+    private byte [ ] _xsl;
+
+    /**
+     * Constructor
+     * 
+     * @param directory
+     *            the directory
+     * @param directoryXsl
+     *            the export stylesheet
+     * @param listIdRecord
+     *            the ids of the records to export
+     * @param locale
+     *            the locale
+     * @param plugin
+     *            the plugin
+     */
+    public DirectoryExport( Directory directory, DirectoryXsl directoryXsl, List<Integer> listIdRecord, Locale locale, Plugin plugin )
+    {
+        _directory = directory;
+        _listIdRecord = listIdRecord;
+        _locale = locale;
+        _plugin = plugin;
+        _strFileName = UploadUtil.cleanFileName( directory.getTitle( ) + CONSTANT_DOT + directoryXsl.getExtension( ) );
+        _bIsCsvExport = EXPORT_CSV_EXT.equals( directoryXsl.getExtension( ) );
+        _bDisplayStatus = ( directory.getIdWorkflow( ) != DirectoryUtils.CONSTANT_ID_NULL ) && WorkflowService.getInstance( ).isAvailable( );
+        _strEncoding = _bIsCsvExport ? DirectoryParameterService.getService( ).getExportCSVEncoding( ) : DirectoryParameterService.getService( )
+                .getExportXMLEncoding( );
+
+        EntryFilter entryFilter = new EntryFilter( );
+        entryFilter.setIdDirectory( directory.getIdDirectory( ) );
+        entryFilter.setIsGroup( EntryFilter.FILTER_FALSE );
+        entryFilter.setIsComment( EntryFilter.FILTER_FALSE );
+        entryFilter.setIsShownInExport( EntryFilter.FILTER_TRUE );
+
+        _listEntry = EntryHome.getEntryList( entryFilter, plugin );
+        _mapFields = DirectoryUtils.getMapFieldsOfListEntry( _listEntry, plugin );
+
+        if ( directoryXsl.getFile( ) != null )
+        {
+            File fileTemplate = FileHome.findByPrimaryKey( directoryXsl.getFile( ).getIdFile( ), plugin );
+
+            if ( ( fileTemplate != null ) && ( fileTemplate.getPhysicalFile( ) != null ) )
+            {
+                PhysicalFile physicalFile = PhysicalFileHome.findByPrimaryKey( fileTemplate.getPhysicalFile( ).getIdPhysicalFile( ), plugin );
+
+                if ( physicalFile != null )
+                {
+                    _strXslId = XSL_UNIQUE_PREFIX_ID + physicalFile.getIdPhysicalFile( );
+                    _xsl = physicalFile.getValue( );
+                }
+            }
+        }
+
+        _bIsNativeCsvExport = _bIsCsvExport && isNativeCsvExport( directoryXsl.getIdDirectoryXsl( ), _xsl );
+    }
+
+    /**
+     * Get the directory exported
+     * 
+     * @return the directory
+     */
+    public Directory getDirectory( )
+    {
+        return _directory;
+    }
+
+    /**
+     * Get the name of the exported file
+     * 
+     * @return the file name
+     */
+    public String getFileName( )
+    {
+        return _strFileName;
+    }
+
+    /**
+     * Get the encoding of the export
+     * 
+     * @return the encoding
+     */
+    public String getEncoding( )
+    {
+        return _strEncoding;
+    }
+
+    /**
+     * Tells if the export is a CSV export
+     * 
+     * @return true if the export is a CSV export
+     */
+    public boolean isCsvExport( )
+    {
+        return _bIsCsvExport;
+    }
+
+    /**
+     * Get the compression of the export output
+     * 
+     * @return the compression, one of the {@link ExportCompression} constants
+     */
+    public String getCompression( )
+    {
+        return _strCompression;
+    }
+
+    /**
+     * Set the compression of the export output
+     * 
+     * @param strCompression
+     *            the compression, the default compression is used if it is unknown
+     */
+    public void setCompression( String strCompression )
+    {
+        _strCompression = ExportCompression.getCompression( strCompression );
+    }
+
+    /**
+     * Tells if the export output is compressed
+     * 
+     * @return true if the export output is compressed
+     */
+    public boolean isCompressed( )
+    {
+        return !ExportCompression.NONE.equals( _strCompression );
+    }
+
+    /**
+     * Get the name of the file downloaded by the user, compressed or not
+     * 
+     * @return the name of the downloaded file
+     */
+    public String getOutputFileName( )
+    {
+        return ExportCompression.getFileName( _strFileName, _strCompression );
+    }
+
+    /**
+     * Open the writer of the export to an output stream, through the compression of the export
+     * 
+     * @param out
+     *            the output stream
+     * @return the writer, to be closed once the export is written to complete the compressed output
+     * @throws IOException
+     *             if the writer cannot be opened
+     */
+    public Writer openWriter( OutputStream out ) throws IOException
+    {
+        return new BufferedWriter( new OutputStreamWriter( ExportCompression.compress( out, _strCompression, _strFileName ), _strEncoding ) );
+    }
+
+    /**
+     * Get the number of records to export
+     * 
+     * @return the number of records
+     */
+    public int getNbRecords( )
+    {
+        return _listIdRecord.size( );
+    }
+
+    /**
+     * Write the export, by pages of records
+     * 
+     * @param writer
+     *            the writer of the export
+     * @param listener
+     *            the listener of the progress of the export, may be null
+     * @return false if the export has been cancelled by the listener, true otherwise
+     * @throws IOException
+     *             if the export cannot be written
+     * @throws TransformerException
+     *             if the stylesheet cannot be applied
+     */
+    public boolean write( Writer writer, IExportProgressListener listener ) throws IOException, TransformerException
+    {
+        RecordStateResolver stateResolver = new RecordStateResolver( _directory, _listIdRecord );
+
+        if ( _bIsNativeCsvExport )
+        {
+            return writeNativeCsv( writer, stateResolver, listener );
+        }
+
+        if ( _xsl == null )
+        {
+            throw new TransformerException( "No stylesheet file for the export of the directory " + _directory.getIdDirectory( ) );
+        }
+
+        IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
+        XslExportWriter exportWriter = new XslExportWriter( _strXslId, _xsl, writer, _strEncoding );
+        StringBuffer strBufferListEntryXml = getListEntryXml( );
+        int nSize = _listIdRecord.size( );
+
+        if ( nSize > EXPORT_RECORD_STEP )
+        {
+            exportWriter.writeDirectory( XmlUtil.getXmlHeader( ) + _directory.getXml( _plugin, _locale, new StringBuffer( ), strBufferListEntryXml ) );
+
+            for ( int i = 0; i < nSize; i += EXPORT_RECORD_STEP )
+            {
+                if ( ( listener != null ) && listener.isCancelled( ) )
+                {
+                    return false;
+                }
+
+                List<Integer> listIdRecordPage = _listIdRecord.subList( i, Math.min( i + EXPORT_RECORD_STEP, nSize ) );
+                StringBuffer strBufferListRecordXml = new StringBuffer( XmlUtil.getXmlHeader( ) );
+                strBufferListRecordXml.append( EXPORT_XSL_BEGIN_PARTIAL_EXPORT );
+                appendListRecordXml( strBufferListRecordXml, recordService.loadListByListId( listIdRecordPage, _plugin ), stateResolver );
+                strBufferListRecordXml.append( EXPORT_XSL_END_PARTIAL_EXPORT );
+                exportWriter.writeRecords( strBufferListRecordXml.toString( ) );
+                notifyProgress( listener, i + listIdRecordPage.size( ), nSize );
+            }
+        }
+        else
+        {
+            StringBuffer strBufferListRecordXml = new StringBuffer( );
+            appendListRecordXml( strBufferListRecordXml, recordService.loadListByListId( _listIdRecord, _plugin ), stateResolver );
+            exportWriter.writeDocument( XmlUtil.getXmlHeader( ) + _directory.getXml( _plugin, _locale, strBufferListRecordXml, strBufferListEntryXml ) );
+            notifyProgress( listener, nSize, nSize );
+        }
+
+        exportWriter.close( );
+
+        return true;
+    }
+
+    /**
+     * Write the CSV export of the records directly to the writer, by pages of records
+     * 
+     * @param writer
+     *            the writer
+     * @param stateResolver
+     *            the resolver of the workflow states of the records
+     * @param listener
+     *            the listener of the progress of the export, may be null
+     * @return false if the export has been cancelled by the listener, true otherwise
+     * @throws IOException
+     *             if the export cannot be written
+     */
+    private boolean writeNativeCsv( Writer writer, RecordStateResolver stateResolver, IExportProgressListener listener ) throws IOException
+    {
+        IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
+        String strSeparator = AppPropertiesService.getProperty( PROPERTY_EXPORT_CSV_SEPARATOR, DEFAULT_EXPORT_CSV_SEPARATOR );
+        char cSeparator = StringUtils.isNotEmpty( strSeparator ) ? strSeparator.charAt( 0 ) : DEFAULT_EXPORT_CSV_SEPARATOR.charAt( 0 );
+        int nSize = _listIdRecord.size( );
+
+        // like the stylesheet, the records exported by pages are not followed by a new line
+        CsvExportWriter csvWriter = new CsvExportWriter( writer, cSeparator, _locale, _directory.isDateShownInExport( ),
+                _directory.isDateModificationShownInExport( ), _bDisplayStatus, nSize <= EXPORT_RECORD_STEP );
+
+        csvWriter.writeHeader( _listEntry );
+
+        for ( int i = 0; i < nSize; i += EXPORT_RECORD_STEP )
+        {
+            if ( ( listener != null ) && listener.isCancelled( ) )
+            {
+                return false;
+            }
+
+            List<Integer> listIdRecordPage = _listIdRecord.subList( i, Math.min( i + EXPORT_RECORD_STEP, nSize ) );
+
+            Map<Integer, Map<String, List<RecordField>>> mapRecordFields = DirectoryUtils.getSpecificMapIdRecordMapIdEntryListRecordField( _listEntry,
+                    listIdRecordPage, _plugin, _mapFields );
+
+            for ( Record record : recordService.loadListByListId( listIdRecordPage, _plugin ) )
+            {
+                State state = stateResolver.getState( record.getIdRecord( ) );
+
+                csvWriter.writeRecord( record, state, _listEntry, mapRecordFields.get( record.getIdRecord( ) ) );
+            }
+
+            notifyProgress( listener, i + listIdRecordPage.size( ), nSize );
+        }
+
+        return true;
+    }
+
+    /**
+     * Notify the progress of the export
+     * 
+     * @param listener
+     *            the listener, may be null
+     * @param nNbRecordsExported
+     *            the number of records written so far
+     * @param nNbRecords
+     *            the number of records to export
+     */
+    private void notifyProgress( IExportProgressListener listener, int nNbRecordsExported, int nNbRecords )
+    {
+        AppLogService.debug( "Directory export progress : " + ( ( (float) nNbRecordsExported / nNbRecords ) * 100 ) + "%" );
+
+        if ( listener != null )
+        {
+            listener.onProgress( nNbRecordsExported, nNbRecords );
+        }
+    }
+
+    /**
+     * Get the XML of the entries shown in export
+     * 
+     * @return the XML of the entries
+     */
+    private StringBuffer getListEntryXml( )
+    {
+        StringBuffer strBufferListEntryXml = new StringBuffer( );
+
+        if ( _directory.isDateShownInExport( ) && _bIsCsvExport )
+        {
+            appendDateEntryXml( strBufferListEntryXml, PROPERTY_ENTRY_TYPE_DATE_CREATION_TITLE );
+        }
+
+        if ( _directory.isDateModificationShownInExport( ) && _bIsCsvExport )
+        {
+            appendDateEntryXml( strBufferListEntryXml, PROPERTY_ENTRY_TYPE_DATE_MODIFICATION_TITLE );
+        }
+
+        for ( IEntry entry : _listEntry )
+        {
+            entry.getXml( _plugin, _locale, strBufferListEntryXml );
+        }
+
+        Map<String, String> model = new HashMap<String, String>( );
+        model.put( TAG_DISPLAY, _bDisplayStatus ? TAG_YES : TAG_NO );
+        XmlUtil.addEmptyElement( strBufferListEntryXml, TAG_STATUS, model );
+
+        return strBufferListEntryXml;
+    }
+
+    /**
+     * Append the XML of the pseudo entry of a date of the records
+     * 
+     * @param strBufferListEntryXml
+     *            the buffer
+     * @param strTitleKey
+     *            the key of the title of the entry
+     */
+    private void appendDateEntryXml( StringBuffer strBufferListEntryXml, String strTitleKey )
+    {
+        Map<String, String> model = new HashMap<String, String>( );
+        model.put( Entry.ATTRIBUTE_ENTRY_ID, "0" );
+        XmlUtil.beginElement( strBufferListEntryXml, Entry.TAG_ENTRY, model );
+        XmlUtil.addElementHtml( strBufferListEntryXml, Entry.TAG_TITLE, I18nService.getLocalizedString( strTitleKey, _locale ) );
+        XmlUtil.endElement( strBufferListEntryXml, Entry.TAG_ENTRY );
+    }
+
+    /**
+     * Append the XML of a list of records to export
+     * 
+     * @param strBufferListRecordXml
+     *            the buffer
+     * @param listRecord
+     *            the records
+     * @param stateResolver
+     *            the resolver of the workflow states of the records
+     */
+    private void appendListRecordXml( StringBuffer strBufferListRecordXml, List<Record> listRecord, RecordStateResolver stateResolver )
+    {
+        boolean bDisplayDateCreation = _directory.isDateShownInExport( );
+        boolean bDisplayDateModification = _directory.isDateModificationShownInExport( );
+        List<Integer> listIdRecord = new ArrayList<Integer>( listRecord.size( ) );
+
+        for ( Record record : listRecord )
+        {
+            listIdRecord.add( record.getIdRecord( ) );
+        }
+
+        // the record fields of the whole page are loaded at once
+        Map<Integer, Map<String, List<RecordField>>> mapRecordFields = DirectoryUtils.getSpecificMapIdRecordMapIdEntryListRecordField( _listEntry,
+                listIdRecord, _plugin, _mapFields );
+
+        for ( Record record : listRecord )
+        {
+            State state = stateResolver.getState( record.getIdRecord( ) );
+            Map<String, List<RecordField>> mapEntryRecordFields = mapRecordFields.get( record.getIdRecord( ) );
+
+            if ( _bIsCsvExport )
+            {
+                strBufferListRecordXml.append( record.getXmlForCsvExport( _plugin, _locale, false, state, _listEntry, false, false, true, bDisplayDateCreation,
+                        bDisplayDateModification, _mapFields, mapEntryRecordFields ) );
+            }
+            else
+            {
+                strBufferListRecordXml.append( record.getXml( _plugin, _locale, false, state, _listEntry, false, false, true, bDisplayDateCreation,
+                        bDisplayDateModification, _mapFields, mapEntryRecordFields ) );
+            }
+        }
+    }
+
+    /**
+     * Tells if an export stylesheet is rendered natively instead of through XSLT. The stylesheet must be listed in the directory.export.csv.nativeXslIds
+     * property and its content must still be the one of the stock CSV export stylesheet, whose output is reproduced by {@link CsvExportWriter}
+     * 
+     * @param nIdDirectoryXsl
+     *            the id of the export stylesheet
+     * @param xsl
+     *            the content of the export stylesheet, may be null
+     * @return true if the export is rendered natively
+     */
+    private static boolean isNativeCsvExport( int nIdDirectoryXsl, byte [ ] xsl )
+    {
+        String strNativeXslIds = AppPropertiesService.getProperty( PROPERTY_EXPORT_CSV_NATIVE_XSL_IDS );
+
+        if ( StringUtils.isBlank( strNativeXslIds ) || ( xsl == null ) )
+        {
+            return false;
+        }
+
+        for ( String strIdXsl : strNativeXslIds.split( CONSTANT_COMMA ) )
+        {
+            if ( DirectoryUtils.convertStringToInt( strIdXsl.trim( ) ) == nIdDirectoryXsl )
+            {
+                return getStockCsvXsl( ).equals( normalizeXsl( xsl ) );
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the content of the stock CSV export stylesheet, without its carriage returns
+     * 
+     * @return the content, empty if the stylesheet cannot be read
+     */
+    private static synchronized String getStockCsvXsl( )
+    {
+        if ( _strStockCsvXsl == null )
+        {
+            InputStream inputStream = null;
+
+            try
+            {
+                inputStream = AppPathService.getResourceAsStream( PATH_STOCK_CSV_XSL, FILE_STOCK_CSV_XSL );
+                _strStockCsvXsl = normalizeXsl( IOUtils.toByteArray( inputStream ) );
+            }
+            catch( Exception e )
+            {
+                AppLogService.error( "Unable to read the stock CSV export stylesheet : " + e.getMessage( ), e );
+                _strStockCsvXsl = DirectoryUtils.EMPTY_STRING;
+            }
+            finally
+            {
+                IOUtils.closeQuietly( inputStream );
+            }
+        }
+
+        return _strStockCsvXsl;
+    }
+
+    /**
+     * Get the content of a stylesheet without its carriage returns, so that it can be compared whatever its line separators
+     * 
+     * @param xsl
+     *            the stylesheet
+     * @return the content
+     */
+    private static String normalizeXsl( byte [ ] xsl )
+    {
+        try
+        {
+            return new String( xsl, STOCK_CSV_XSL_ENCODING ).replace( CONSTANT_CARRIAGE_RETURN, DirectoryUtils.EMPTY_STRING );
+        }
+        catch( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.export;
+
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.ReferenceList;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ExportCompression : the compressions of the export output. A compressed export is written through the compression stream as it is produced, so that
+ * neither the temporary files nor the responses hold the uncompressed export.
+ */
+public final class ExportCompression
+{
+    /** No compression */
+    public static final String NONE = "none";
+
+    /** Gzip compression, the file is named after the export with the .gz extension */
+    public static final String GZIP = "gzip";
+
+    /** Zip compression, the archive holds the export file under its own name */
+    public static final String ZIP = "zip";
+    private static final String PROPERTY_COMPRESSION_DEFAULT = "directory.export.compression.default";
+    private static final String PROPERTY_LABEL_PREFIX = "directory.manage_directory_record.export_compression.";
+    private static final String EXTENSION_GZIP = ".gz";
+    private static final String EXTENSION_ZIP = ".zip";
+    private static final String MIME_TYPE_GZIP = "application/gzip";
+    private static final String MIME_TYPE_ZIP = "application/zip";
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Private constructor
+     */
+    private ExportCompression( )
+    {
+    }
+
+    /**
+     * Get a valid compression
+     * 
+     * @param strCompression
+     *            the requested compression, may be null
+     * @return the requested compression if it is known, the default compression of the directory.export.compression.default property otherwise
+     */
+    public static String getCompression( String strCompression )
+    {
+        if ( isKnown( strCompression ) )
+        {
+            return strCompression;
+        }
+
+        String strDefaultCompression = AppPropertiesService.getProperty( PROPERTY_COMPRESSION_DEFAULT, NONE );
+
+        return isKnown( strDefaultCompression ) ? strDefaultCompression : NONE;
+    }
+
+    /**
+     * Get the list of the compressions, to be chosen by the user
+     * 
+     * @param locale
+     *            the locale
+     * @return the list of the compressions
+     */
+    public static ReferenceList getCompressionList( Locale locale )
+    {
+        ReferenceList refListCompression = new ReferenceList( );
+
+        for ( String strCompression : new String [ ] {
+                NONE, GZIP, ZIP
+        } )
+        {
+            refListCompression.addItem( strCompression, I18nService.getLocalizedString( PROPERTY_LABEL_PREFIX + strCompression, locale ) );
+        }
+
+        return refListCompression;
+    }
+
+    /**
+     * Get the name of the file written with a compression
+     * 
+     * @param strFileName
+     *            the name of the uncompressed file
+     * @param strCompression
+     *            the compression
+     * @return the name of the compressed file
+     */
+    public static String getFileName( String strFileName, String strCompression )
+    {
+        if ( GZIP.equals( strCompression ) )
+        {
+            return strFileName + EXTENSION_GZIP;
+        }
+
+        if ( ZIP.equals( strCompression ) )
+        {
+            return strFileName + EXTENSION_ZIP;
+        }
+
+        return strFileName;
+    }
+
+    /**
+     * Get the MIME type of a compressed file
+     * 
+     * @param strFileName
+     *            the name of the file
+     * @return the MIME type of the compressed file, or null if the file is not compressed
+     */
+    public static String getMimeType( String strFileName )
+    {
+        if ( strFileName.endsWith( EXTENSION_GZIP ) )
+        {
+            return MIME_TYPE_GZIP;
+        }
+
+        if ( strFileName.endsWith( EXTENSION_ZIP ) )
+        {
+            return MIME_TYPE_ZIP;
+        }
+
+        return null;
+    }
+
+    /**
+     * Wrap an output stream to compress what is written. Closing the returned stream completes the compressed output and closes the wrapped stream.
+     * 
+     * @param out
+     *            the output stream
+     * @param strCompression
+     *            the compression
+     * @param strFileName
+     *            the name of the uncompressed file, stored in the zip archives
+     * @return the compressing stream, or the output stream itself if there is no compression
+     * @throws IOException
+     *             if the compressed output cannot be started
+     */
+    public static OutputStream compress( OutputStream out, String strCompression, String strFileName ) throws IOException
+    {
+        if ( GZIP.equals( strCompression ) )
+        {
+            return new GZIPOutputStream( out, BUFFER_SIZE );
+        }
+
+        if ( ZIP.equals( strCompression ) )
+        {
+            ZipOutputStream zipOut = new ZipOutputStream( out );
+            zipOut.putNextEntry( new ZipEntry( strFileName ) );
+
+            return zipOut;
+        }
+
+        return out;
+    }
+
+    /**
+     * Tells if a compression is known
+     * 
+     * @param strCompression
+     *            the compression
+     * @return true if the compression is known
+     */
+    private static boolean isKnown( String strCompression )
+    {
+        return NONE.equals( strCompression ) || GZIP.equals( strCompression ) || ZIP.equals( strCompression );
+    }
+}
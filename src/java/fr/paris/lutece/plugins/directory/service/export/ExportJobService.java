@@ -0,0 +1,561 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.export;
+
+import fr.paris.lutece.plugins.directory.business.ExportJob;
+import fr.paris.lutece.plugins.directory.business.ExportJobHome;
+import fr.paris.lutece.plugins.directory.service.DirectoryPlugin;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.service.init.ShutdownService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Writer;
+
+import java.sql.Timestamp;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ExportJobService : runs the big directory exports in background. The jobs are stored in the database with their progress, run by a bounded pool of
+ * threads and write their output to a file of the export jobs directory, downloaded once the job is done. The files of the jobs over for more than
+ * directory.export.job.keepHours hours are removed with their job.
+ * <p>
+ * Each job is run by the node of the cluster which submitted it, and its file is written in the path.tmp directory of that node : on a cluster, the
+ * webapps need sticky sessions or a path.tmp shared between the nodes to download the files. A job cancelled or removed from another node is stopped
+ * by its own node on its next progress update.
+ * </p>
+ */
+public final class ExportJobService implements ShutdownService
+{
+    private static final String PROPERTY_ENABLE = "directory.export.job.enable";
+    private static final String PROPERTY_THRESHOLD = "directory.export.job.threshold";
+    private static final String PROPERTY_THREADS = "directory.export.job.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "directory.export.job.queueSize";
+    private static final String PROPERTY_KEEP_HOURS = "directory.export.job.keepHours";
+    private static final String PROPERTY_PATH_TMP = "path.tmp";
+    private static final int DEFAULT_THRESHOLD = 1000;
+    private static final int DEFAULT_THREADS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 20;
+    private static final int DEFAULT_KEEP_HOURS = 24;
+    private static final long PROGRESS_UPDATE_INTERVAL = 1000L;
+    private static final long MILLISECONDS_PER_HOUR = 3600000L;
+    private static final int ERROR_MESSAGE_MAX_LENGTH = 255;
+    private static final String EXPORT_JOBS_DIRECTORY = "directory_export_jobs";
+    private static final String EXPORT_JOB_FILE_PREFIX = "exportJob";
+    private static final String EXPORT_JOB_FILE_SUFFIX = ".part";
+    private static final String THREAD_NAME_PREFIX = "directory-export-job-";
+    private static final String MESSAGE_QUEUE_FULL = "Too many exports are pending";
+    private static final String MESSAGE_INTERRUPTED = "The export has been interrupted by a restart";
+    private static final String MESSAGE_SHUTDOWN = "The export has been interrupted by the shutdown of the webapp";
+    private static final String SERVICE_NAME = "Directory export jobs";
+    private static final long SHUTDOWN_TIMEOUT = 30000L;
+    private static ExportJobService _singleton = new ExportJobService( );
+    private final boolean _bEnabled;
+    private final int _nThreshold;
+    private final ThreadPoolExecutor _executor;
+    private final ConcurrentMap<Integer, ExportJob> _mapJobsInProgress = new ConcurrentHashMap<Integer, ExportJob>( );
+    private final ConcurrentMap<Integer, Boolean> _mapCancelledJobs = new ConcurrentHashMap<Integer, Boolean>( );
+    private volatile boolean _bShutdown;
+
+    /**
+     * Private constructor
+     */
+    private ExportJobService( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLE, true );
+        _nThreshold = AppPropertiesService.getPropertyInt( PROPERTY_THRESHOLD, DEFAULT_THRESHOLD );
+
+        int nThreads = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_THREADS, DEFAULT_THREADS ), 1 );
+        int nQueueSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ), 1 );
+        _executor = new ThreadPoolExecutor( nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>( nQueueSize ),
+                new ExportJobThreadFactory( ) );
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static ExportJobService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Stop the jobs when the webapp shuts down : the running jobs stop before their next page of records, and are marked as failed with the pending ones
+     */
+    @Override
+    public void process( )
+    {
+        _bShutdown = true;
+
+        for ( Integer nIdJob : _mapJobsInProgress.keySet( ) )
+        {
+            _mapCancelledJobs.put( nIdJob, Boolean.TRUE );
+        }
+
+        _executor.shutdownNow( );
+
+        try
+        {
+            _executor.awaitTermination( SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        // the pending jobs, and the running jobs which did not stop in time
+        Plugin plugin = PluginService.getPlugin( DirectoryPlugin.PLUGIN_NAME );
+
+        for ( ExportJob exportJob : _mapJobsInProgress.values( ) )
+        {
+            if ( !exportJob.isOver( ) )
+            {
+                deleteFile( exportJob );
+                endJob( exportJob, ExportJob.STATUS_FAILED, MESSAGE_SHUTDOWN, plugin );
+            }
+        }
+    }
+
+    /**
+     * Mark as failed the jobs left pending or running by a previous run of this node. The jobs of the other nodes are left to them.
+     * 
+     * @param plugin
+     *            the plugin
+     */
+    public void init( Plugin plugin )
+    {
+        for ( ExportJob exportJob : ExportJobHome.getListNotOver( DirectoryUtils.getNodeName( ), plugin ) )
+        {
+            if ( !_mapJobsInProgress.containsKey( exportJob.getIdExportJob( ) ) )
+            {
+                endJob( exportJob, ExportJob.STATUS_FAILED, MESSAGE_INTERRUPTED, plugin );
+            }
+        }
+    }
+
+    /**
+     * Tells if an export must be run in background
+     * 
+     * @param export
+     *            the export
+     * @return true if the export must be submitted as a job
+     */
+    public boolean isJobExport( DirectoryExport export )
+    {
+        return _bEnabled && ( export.getNbRecords( ) >= _nThreshold );
+    }
+
+    /**
+     * Submit an export as a background job
+     * 
+     * @param export
+     *            the export
+     * @param adminUser
+     *            the admin user requesting the export
+     * @param plugin
+     *            the plugin
+     * @return the export job, which is failed if too many exports are pending
+     */
+    public ExportJob submit( DirectoryExport export, AdminUser adminUser, Plugin plugin )
+    {
+        removeExpiredJobs( plugin );
+
+        ExportJob exportJob = new ExportJob( );
+        exportJob.setIdDirectory( export.getDirectory( ).getIdDirectory( ) );
+        exportJob.setIdAdminUser( adminUser.getUserId( ) );
+        exportJob.setFileName( export.getOutputFileName( ) );
+        exportJob.setEncoding( export.getEncoding( ) );
+        exportJob.setStatus( ExportJob.STATUS_PENDING );
+        exportJob.setNbRecords( export.getNbRecords( ) );
+        exportJob.setDateCreation( DirectoryUtils.getCurrentTimestamp( ) );
+        exportJob.setNodeName( DirectoryUtils.getNodeName( ) );
+        ExportJobHome.create( exportJob, plugin );
+
+        _mapJobsInProgress.put( exportJob.getIdExportJob( ), exportJob );
+
+        try
+        {
+            _executor.execute( new ExportJobRunnable( exportJob, export, plugin ) );
+        }
+        catch( RejectedExecutionException e )
+        {
+            _mapJobsInProgress.remove( exportJob.getIdExportJob( ) );
+            endJob( exportJob, ExportJob.STATUS_FAILED, MESSAGE_QUEUE_FULL, plugin );
+        }
+
+        return exportJob;
+    }
+
+    /**
+     * Get an export job, with its current progress
+     * 
+     * @param nIdExportJob
+     *            the id of the export job
+     * @param plugin
+     *            the plugin
+     * @return the export job, or null if it does not exist
+     */
+    public ExportJob getJob( int nIdExportJob, Plugin plugin )
+    {
+        ExportJob exportJob = _mapJobsInProgress.get( nIdExportJob );
+
+        return ( exportJob != null ) ? exportJob : ExportJobHome.findByPrimaryKey( nIdExportJob, plugin );
+    }
+
+    /**
+     * Get the export jobs of a directory requested by an admin user, with their current progress
+     * 
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param adminUser
+     *            the admin user
+     * @param plugin
+     *            the plugin
+     * @return the export jobs, the most recent first
+     */
+    public List<ExportJob> getJobs( int nIdDirectory, AdminUser adminUser, Plugin plugin )
+    {
+        List<ExportJob> listExportJob = ExportJobHome.getListByIdDirectoryAndIdAdminUser( nIdDirectory, adminUser.getUserId( ), plugin );
+
+        for ( int i = 0; i < listExportJob.size( ); i++ )
+        {
+            ExportJob exportJobInProgress = _mapJobsInProgress.get( listExportJob.get( i ).getIdExportJob( ) );
+
+            if ( exportJobInProgress != null )
+            {
+                listExportJob.set( i, exportJobInProgress );
+            }
+        }
+
+        return listExportJob;
+    }
+
+    /**
+     * Cancel an export job. A running job stops before its next page of records.
+     * 
+     * @param exportJob
+     *            the export job
+     * @param plugin
+     *            the plugin
+     */
+    public void cancel( ExportJob exportJob, Plugin plugin )
+    {
+        if ( exportJob.isOver( ) )
+        {
+            return;
+        }
+
+        _mapCancelledJobs.put( exportJob.getIdExportJob( ), Boolean.TRUE );
+
+        if ( !_mapJobsInProgress.containsKey( exportJob.getIdExportJob( ) ) )
+        {
+            // the job is not run by this node : its own node, if still running it, stops on its next progress update
+            endJob( exportJob, ExportJob.STATUS_CANCELLED, null, plugin );
+            _mapCancelledJobs.remove( exportJob.getIdExportJob( ) );
+        }
+    }
+
+    /**
+     * Remove an export job and its file. A job in progress is cancelled.
+     * 
+     * @param exportJob
+     *            the export job
+     * @param plugin
+     *            the plugin
+     */
+    public void remove( ExportJob exportJob, Plugin plugin )
+    {
+        cancel( exportJob, plugin );
+
+        if ( !_mapJobsInProgress.containsKey( exportJob.getIdExportJob( ) ) )
+        {
+            deleteFile( exportJob );
+        }
+
+        ExportJobHome.remove( exportJob.getIdExportJob( ), plugin );
+    }
+
+    /**
+     * Get the file written by an export job
+     * 
+     * @param exportJob
+     *            the export job
+     * @return the file, which exists only once the job is done
+     */
+    public File getFile( ExportJob exportJob )
+    {
+        return new File( getJobsDirectory( ), EXPORT_JOB_FILE_PREFIX + exportJob.getIdExportJob( ) + EXPORT_JOB_FILE_SUFFIX );
+    }
+
+    /**
+     * Remove the jobs over for too long, and their file
+     * 
+     * @param plugin
+     *            the plugin
+     */
+    private void removeExpiredJobs( Plugin plugin )
+    {
+        long lKeepTime = AppPropertiesService.getPropertyInt( PROPERTY_KEEP_HOURS, DEFAULT_KEEP_HOURS ) * MILLISECONDS_PER_HOUR;
+        Timestamp tLimit = new Timestamp( System.currentTimeMillis( ) - lKeepTime );
+
+        for ( ExportJob exportJob : ExportJobHome.getListOverBefore( tLimit, plugin ) )
+        {
+            deleteFile( exportJob );
+            ExportJobHome.remove( exportJob.getIdExportJob( ), plugin );
+        }
+    }
+
+    /**
+     * Store the end of a job
+     * 
+     * @param exportJob
+     *            the export job
+     * @param nStatus
+     *            the final status of the job
+     * @param strErrorMessage
+     *            the error message, or null
+     * @param plugin
+     *            the plugin
+     */
+    private void endJob( ExportJob exportJob, int nStatus, String strErrorMessage, Plugin plugin )
+    {
+        exportJob.setStatus( nStatus );
+        exportJob.setDateEnd( DirectoryUtils.getCurrentTimestamp( ) );
+        exportJob.setErrorMessage( StringUtils.abbreviate( strErrorMessage, ERROR_MESSAGE_MAX_LENGTH ) );
+        ExportJobHome.update( exportJob, plugin );
+    }
+
+    /**
+     * Delete the file of a job, if any
+     * 
+     * @param exportJob
+     *            the export job
+     */
+    private void deleteFile( ExportJob exportJob )
+    {
+        File file = getFile( exportJob );
+
+        if ( file.exists( ) && !file.delete( ) )
+        {
+            AppLogService.error( "Unable to delete the file of the directory export job " + exportJob.getIdExportJob( ) );
+        }
+    }
+
+    /**
+     * Get the directory of the files written by the export jobs, in the webapp tmp dir if possible
+     * 
+     * @return the directory
+     */
+    private File getJobsDirectory( )
+    {
+        String strPathTmp = AppPropertiesService.getProperty( PROPERTY_PATH_TMP );
+        File tmpDir = ( strPathTmp != null ) ? new File( AppPathService.getWebAppPath( ) + strPathTmp ) : new File( System.getProperty( "java.io.tmpdir" ) );
+
+        return new File( tmpDir, EXPORT_JOBS_DIRECTORY );
+    }
+
+    /**
+     * Runs an export job
+     */
+    private final class ExportJobRunnable implements Runnable, IExportProgressListener
+    {
+        private final ExportJob _exportJob;
+        private final DirectoryExport _export;
+        private final Plugin _plugin;
+        private long _lLastProgressUpdate;
+
+        /**
+         * Constructor
+         * 
+         * @param exportJob
+         *            the export job
+         * @param export
+         *            the export
+         * @param plugin
+         *            the plugin
+         */
+        ExportJobRunnable( ExportJob exportJob, DirectoryExport export, Plugin plugin )
+        {
+            _exportJob = exportJob;
+            _export = export;
+            _plugin = plugin;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            int nIdExportJob = _exportJob.getIdExportJob( );
+            Writer writer = null;
+            int nStatus = ExportJob.STATUS_FAILED;
+            String strErrorMessage = null;
+
+            try
+            {
+                checkCancelledByAnotherNode( );
+
+                if ( isCancelled( ) )
+                {
+                    nStatus = ExportJob.STATUS_CANCELLED;
+
+                    return;
+                }
+
+                _exportJob.setStatus( ExportJob.STATUS_RUNNING );
+                ExportJobHome.update( _exportJob, _plugin );
+
+                File file = getFile( _exportJob );
+                file.getParentFile( ).mkdirs( );
+                writer = _export.openWriter( new FileOutputStream( file ) );
+
+                boolean bCompleted = _export.write( writer, this );
+                writer.flush( );
+                nStatus = ( bCompleted && !isCancelled( ) ) ? ExportJob.STATUS_DONE : ExportJob.STATUS_CANCELLED;
+            }
+            catch( Exception e )
+            {
+                AppLogService.error( "Error during the directory export job " + nIdExportJob + " : " + e.getMessage( ), e );
+                strErrorMessage = e.getMessage( );
+            }
+            finally
+            {
+                IOUtils.closeQuietly( writer );
+
+                if ( _bShutdown && ( nStatus == ExportJob.STATUS_CANCELLED ) )
+                {
+                    nStatus = ExportJob.STATUS_FAILED;
+                    strErrorMessage = MESSAGE_SHUTDOWN;
+                }
+
+                if ( nStatus != ExportJob.STATUS_DONE )
+                {
+                    deleteFile( _exportJob );
+                }
+
+                endJob( _exportJob, nStatus, strErrorMessage, _plugin );
+                _mapJobsInProgress.remove( nIdExportJob );
+                _mapCancelledJobs.remove( nIdExportJob );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onProgress( int nNbRecordsExported, int nNbRecords )
+        {
+            _exportJob.setNbRecordsExported( nNbRecordsExported );
+
+            long lNow = System.currentTimeMillis( );
+
+            if ( ( lNow - _lLastProgressUpdate ) >= PROGRESS_UPDATE_INTERVAL )
+            {
+                _lLastProgressUpdate = lNow;
+                ExportJobHome.updateProgress( _exportJob.getIdExportJob( ), nNbRecordsExported, _plugin );
+                checkCancelledByAnotherNode( );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isCancelled( )
+        {
+            return _mapCancelledJobs.containsKey( _exportJob.getIdExportJob( ) );
+        }
+
+        /**
+         * Mark the job as cancelled if it has been cancelled or removed from another node
+         */
+        private void checkCancelledByAnotherNode( )
+        {
+            ExportJob storedExportJob = ExportJobHome.findByPrimaryKey( _exportJob.getIdExportJob( ), _plugin );
+
+            if ( ( storedExportJob == null ) || ( storedExportJob.getStatus( ) == ExportJob.STATUS_CANCELLED ) )
+            {
+                _mapCancelledJobs.put( _exportJob.getIdExportJob( ), Boolean.TRUE );
+            }
+        }
+    }
+
+    /**
+     * Creates the daemon threads of the export jobs
+     */
+    private static final class ExportJobThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger _nThreadNumber = new AtomicInteger( 1 );
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + _nThreadNumber.getAndIncrement( ) );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+}
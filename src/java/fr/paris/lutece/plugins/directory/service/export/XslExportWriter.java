@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.export;
+
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * XslExportWriter : streaming export of a directory through an export stylesheet. The stylesheet is compiled once and kept by
+ * {@link XslTemplatesCacheService}, then the directory document (without records) and each page of records (a <code>partialexport</code> document) are
+ * transformed into a single stream of SAX events, serialized directly to the output writer. The records transformed are inserted in the
+ * <code>list-record</code> element of the directory output, if any, else they are appended to the directory output. Only one page of records is held in
+ * memory, whatever the number of records exported.
+ */
+public class XslExportWriter
+{
+    private static final String TAG_LIST_RECORD = "list-record";
+    private final Templates _templates;
+    private final TransformerHandler _serializer;
+    private final ExportContentHandler _contentHandler;
+
+    /**
+     * Constructor
+     * 
+     * @param strXslId
+     *            the unique id of the stylesheet, used with its content to cache the compiled stylesheet
+     * @param xsl
+     *            the stylesheet
+     * @param writer
+     *            the writer of the export
+     * @param strEncoding
+     *            the encoding of the writer
+     * @throws TransformerException
+     *             if the stylesheet is invalid
+     */
+    public XslExportWriter( String strXslId, byte [ ] xsl, Writer writer, String strEncoding ) throws TransformerException
+    {
+        _templates = XslTemplatesCacheService.getInstance( ).getTemplates( strXslId, xsl );
+
+        SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance( );
+        _serializer = factory.newTransformerHandler( );
+        _serializer.getTransformer( ).setOutputProperties( _templates.getOutputProperties( ) );
+        _serializer.getTransformer( ).setOutputProperty( OutputKeys.ENCODING, strEncoding );
+        _serializer.setResult( new StreamResult( writer ) );
+        _contentHandler = new ExportContentHandler( _serializer );
+    }
+
+    /**
+     * Transform a complete directory document, including its records
+     * 
+     * @param strDirectoryXml
+     *            the XML of the directory
+     * @throws TransformerException
+     *             if the transformation fails
+     */
+    public void writeDocument( String strDirectoryXml ) throws TransformerException
+    {
+        _contentHandler.setPartialExport( true );
+        transform( strDirectoryXml );
+    }
+
+    /**
+     * Transform the directory document of a big export. The list of records of the document must be empty, the records are then written with
+     * {@link #writeRecords(String)}
+     * 
+     * @param strDirectoryXml
+     *            the XML of the directory
+     * @throws TransformerException
+     *             if the transformation fails
+     */
+    public void writeDirectory( String strDirectoryXml ) throws TransformerException
+    {
+        transform( strDirectoryXml );
+        _contentHandler.setPartialExport( true );
+    }
+
+    /**
+     * Transform a page of records
+     * 
+     * @param strPartialExportXml
+     *            the XML of the records, enclosed in a <code>partialexport</code> element
+     * @throws TransformerException
+     *             if the transformation fails
+     */
+    public void writeRecords( String strPartialExportXml ) throws TransformerException
+    {
+        transform( strPartialExportXml );
+    }
+
+    /**
+     * Terminate the export : closes the elements left open by the directory document
+     * 
+     * @throws TransformerException
+     *             if the output cannot be written
+     */
+    public void close( ) throws TransformerException
+    {
+        try
+        {
+            _contentHandler.close( );
+        }
+        catch( SAXException e )
+        {
+            throw new TransformerException( e );
+        }
+    }
+
+    /**
+     * Transform a document into the stream of events of the export
+     * 
+     * @param strXml
+     *            the document
+     * @throws TransformerException
+     *             if the transformation fails
+     */
+    private void transform( String strXml ) throws TransformerException
+    {
+        SAXResult result = new SAXResult( _contentHandler );
+        result.setLexicalHandler( _contentHandler );
+        _templates.newTransformer( ).transform( new StreamSource( new StringReader( strXml ) ), result );
+    }
+
+    /**
+     * Content handler forwarding the events of the successive transformations to the serializer as a single document. The events following the opening
+     * of the first <code>list-record</code> element of the directory output are deferred until the end of the export.
+     */
+    private static final class ExportContentHandler extends XMLFilterImpl implements LexicalHandler
+    {
+        private final TransformerHandler _handler;
+        private final List<DeferredEvent> _listDeferredEvent = new ArrayList<DeferredEvent>( );
+        private boolean _bDocumentStarted;
+        private boolean _bDeferred;
+        private boolean _bPartialExport;
+
+        /**
+         * Constructor
+         * 
+         * @param handler
+         *            the serializer
+         */
+        ExportContentHandler( TransformerHandler handler )
+        {
+            _handler = handler;
+            setContentHandler( handler );
+        }
+
+        /**
+         * @param bPartialExport
+         *            true once the directory document has been transformed : the following events are the records
+         */
+        void setPartialExport( boolean bPartialExport )
+        {
+            _bPartialExport = bPartialExport;
+
+            // the records are written in place of the deferred events
+            _bDeferred = false;
+        }
+
+        /**
+         * Replay the deferred events and end the document
+         * 
+         * @throws SAXException
+         *             if the serializer fails
+         */
+        void close( ) throws SAXException
+        {
+            _bDeferred = false;
+
+            for ( DeferredEvent event : _listDeferredEvent )
+            {
+                event.replay( _handler );
+            }
+
+            _listDeferredEvent.clear( );
+
+            if ( _bDocumentStarted )
+            {
+                _handler.endDocument( );
+            }
+        }
+
+        @Override
+        public void startDocument( ) throws SAXException
+        {
+            if ( !_bDocumentStarted )
+            {
+                _bDocumentStarted = true;
+                _handler.startDocument( );
+            }
+        }
+
+        @Override
+        public void endDocument( ) throws SAXException
+        {
+            // the document is ended by close( )
+        }
+
+        @Override
+        public void startElement( final String uri, final String localName, final String qName, Attributes atts ) throws SAXException
+        {
+            if ( _bDeferred )
+            {
+                final Attributes attributes = new AttributesImpl( atts );
+                _listDeferredEvent.add( new DeferredEvent( )
+                {
+                    @Override
+                    void replay( ContentHandler handler ) throws SAXException
+                    {
+                        handler.startElement( uri, localName, qName, attributes );
+                    }
+                } );
+            }
+            else
+            {
+                _handler.startElement( uri, localName, qName, atts );
+
+                if ( !_bPartialExport && TAG_LIST_RECORD.equals( qName ) )
+                {
+                    _bDeferred = true;
+                }
+            }
+        }
+
+        @Override
+        public void endElement( final String uri, final String localName, final String qName ) throws SAXException
+        {
+            if ( _bDeferred )
+            {
+                _listDeferredEvent.add( new DeferredEvent( )
+                {
+                    @Override
+                    void replay( ContentHandler handler ) throws SAXException
+                    {
+                        handler.endElement( uri, localName, qName );
+                    }
+                } );
+            }
+            else
+            {
+                _handler.endElement( uri, localName, qName );
+            }
+        }
+
+        @Override
+        public void characters( char [ ] ch, int start, int length ) throws SAXException
+        {
+            if ( _bDeferred )
+            {
+                final char [ ] chars = new char [ length];
+                System.arraycopy( ch, start, chars, 0, length );
+                _listDeferredEvent.add( new DeferredEvent( )
+                {
+                    @Override
+                    void replay( ContentHandler handler ) throws SAXException
+                    {
+                        handler.characters( chars, 0, chars.length );
+                    }
+                } );
+            }
+            else
+            {
+                _handler.characters( ch, start, length );
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace( char [ ] ch, int start, int length ) throws SAXException
+        {
+            characters( ch, start, length );
+        }
+
+        @Override
+        public void processingInstruction( final String target, final String data ) throws SAXException
+        {
+            if ( _bDeferred )
+            {
+                _listDeferredEvent.add( new DeferredEvent( )
+                {
+                    @Override
+                    void replay( ContentHandler handler ) throws SAXException
+                    {
+                        handler.processingInstruction( target, data );
+                    }
+                } );
+            }
+            else
+            {
+                _handler.processingInstruction( target, data );
+            }
+        }
+
+        @Override
+        public void startCDATA( ) throws SAXException
+        {
+            if ( !_bDeferred )
+            {
+                _handler.startCDATA( );
+            }
+        }
+
+        @Override
+        public void endCDATA( ) throws SAXException
+        {
+            if ( !_bDeferred )
+            {
+                _handler.endCDATA( );
+            }
+        }
+
+        @Override
+        public void comment( char [ ] ch, int start, int length ) throws SAXException
+        {
+            if ( !_bDeferred )
+            {
+                _handler.comment( ch, start, length );
+            }
+        }
+
+        @Override
+        public void startDTD( String name, String publicId, String systemId ) throws SAXException
+        {
+            // no DTD in the export
+        }
+
+        @Override
+        public void endDTD( ) throws SAXException
+        {
+            // no DTD in the export
+        }
+
+        @Override
+        public void startEntity( String name ) throws SAXException
+        {
+            // entities are expanded
+        }
+
+        @Override
+        public void endEntity( String name ) throws SAXException
+        {
+            // entities are expanded
+        }
+    }
+
+    /**
+     * An event of the directory output replayed at the end of the export
+     */
+    private abstract static class DeferredEvent
+    {
+        /**
+         * Replay the event
+         * 
+         * @param handler
+         *            the handler
+         * @throws SAXException
+         *             if the handler fails
+         */
+        abstract void replay( ContentHandler handler ) throws SAXException;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.export;
+
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * XslTemplatesCacheService : keeps in memory the compiled export stylesheets. A stylesheet is cached under its id and the digest of its content, so that
+ * an edited stylesheet, which keeps the id of its physical file, is compiled again. The cache can be reset from the cache administration page.
+ */
+public final class XslTemplatesCacheService extends AbstractCacheableService
+{
+    private static final String SERVICE_NAME = "Directory Export Stylesheets Cache Service";
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+    private static final String KEY_SEPARATOR = ":";
+    private static final int RADIX_HEXADECIMAL = 16;
+    private static XslTemplatesCacheService _singleton = new XslTemplatesCacheService( );
+
+    /**
+     * Private constructor
+     */
+    private XslTemplatesCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static XslTemplatesCacheService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Get a compiled stylesheet, compiling it if it is not in cache
+     * 
+     * @param strXslId
+     *            the unique id of the stylesheet
+     * @param xsl
+     *            the stylesheet
+     * @return the compiled stylesheet
+     * @throws TransformerException
+     *             if the stylesheet is invalid
+     */
+    public Templates getTemplates( String strXslId, byte [ ] xsl ) throws TransformerException
+    {
+        String strKey = isCacheEnable( ) ? getCacheKey( strXslId, xsl ) : null;
+        Templates templates = ( strKey != null ) ? (Templates) getFromCache( strKey ) : null;
+
+        if ( templates == null )
+        {
+            templates = TransformerFactory.newInstance( ).newTemplates( new StreamSource( new ByteArrayInputStream( xsl ) ) );
+
+            if ( strKey != null )
+            {
+                putInCache( strKey, templates );
+            }
+        }
+
+        return templates;
+    }
+
+    /**
+     * Return the cache key of a stylesheet
+     * 
+     * @param strXslId
+     *            the unique id of the stylesheet
+     * @param xsl
+     *            the stylesheet
+     * @return the key
+     */
+    private static String getCacheKey( String strXslId, byte [ ] xsl )
+    {
+        try
+        {
+            byte [ ] digest = MessageDigest.getInstance( DIGEST_ALGORITHM ).digest( xsl );
+
+            return strXslId + KEY_SEPARATOR + new BigInteger( 1, digest ).toString( RADIX_HEXADECIMAL );
+        }
+        catch( NoSuchAlgorithmException e )
+        {
+            // every Java platform provides SHA-1
+            throw new IllegalStateException( e );
+        }
+    }
+}
@@ -0,0 +1,530 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.importation;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+import fr.paris.lutece.plugins.directory.business.Directory;
+import fr.paris.lutece.plugins.directory.business.EntryFilter;
+import fr.paris.lutece.plugins.directory.business.EntryHome;
+import fr.paris.lutece.plugins.directory.business.EntryTypeNumbering;
+import fr.paris.lutece.plugins.directory.business.IEntry;
+import fr.paris.lutece.plugins.directory.business.Record;
+import fr.paris.lutece.plugins.directory.business.RecordField;
+import fr.paris.lutece.plugins.directory.service.record.IRecordService;
+import fr.paris.lutece.plugins.directory.service.record.RecordService;
+import fr.paris.lutece.plugins.directory.utils.DirectoryErrorException;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * DirectoryImport : imports the records of a directory from a CSV file, one line per record and one column per entry. The file is read by batches of
+ * directory.import.batchSize lines : the lines of a batch are validated by a pool of directory.import.validation.threads threads, then its valid records
+ * are created in a single transaction. Only one batch of lines is held in memory.
+ */
+public class DirectoryImport
+{
+    private static final String PROPERTY_CSV_DELIMITER = "directory.import.csv.delimiter";
+    private static final String PROPERTY_BATCH_SIZE = "directory.import.batchSize";
+    private static final String PROPERTY_VALIDATION_THREADS = "directory.import.validation.threads";
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int VALIDATION_TASK_SIZE = 50;
+    private static final char CSV_QUOTE = '\"';
+    private static final String NUMBER_KEY_SEPARATOR = ":";
+    private static final String MESSAGE_ERROR_CSV_NUMBER_SEPARATOR = "directory.message.error_csv_number_delimiter";
+    private static final String MESSAGE_DIRECTORY_ERROR = DirectoryUtils.MESSAGE_DIRECTORY_ERROR;
+    private static final String MESSAGE_DIRECTORY_ERROR_MANDATORY_FIELD = DirectoryUtils.MESSAGE_DIRECTORY_ERROR_MANDATORY_FIELD;
+    private static final String MESSAGE_NUMBER_ALREADY_IMPORTED = "Directory Error - The number already exists in an another line of the file.";
+    private final Directory _directory;
+    private final List<IEntry> _listEntry;
+    private final Locale _locale;
+    private final Plugin _plugin;
+    private final IRecordService _recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
+
+    // numbers of the numbering entries imported so far, as id entry:value
+    private final Set<String> _setImportedNumbers = new HashSet<String>( );
+    private int _nNbLines;
+    private int _nNbLinesImported;
+    private int _nNbLinesFailure;
+
+    /**
+     * Constructor
+     *
+     * @param directory
+     *            the directory the records are imported in
+     * @param locale
+     *            the locale of the error messages
+     * @param plugin
+     *            the plugin
+     */
+    public DirectoryImport( Directory directory, Locale locale, Plugin plugin )
+    {
+        _directory = directory;
+        _listEntry = getImportEntries( directory.getIdDirectory( ), plugin );
+        _locale = locale;
+        _plugin = plugin;
+    }
+
+    /**
+     * Get the entries of a directory matching the columns of an import file : the entries of the first level which are not groups, each one followed by
+     * its children, comments excluded
+     *
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param plugin
+     *            the plugin
+     * @return the entries, in the order of the columns
+     */
+    public static List<IEntry> getImportEntries( int nIdDirectory, Plugin plugin )
+    {
+        EntryFilter filter = new EntryFilter( );
+        filter.setIdDirectory( nIdDirectory );
+        filter.setIsComment( EntryFilter.FILTER_FALSE );
+        filter.setIsEntryParentNull( EntryFilter.FILTER_TRUE );
+
+        List<IEntry> listEntry = new ArrayList<IEntry>( );
+        List<IEntry> listEntryFirstLevel = EntryHome.getEntryList( filter, plugin );
+
+        filter.setIsEntryParentNull( EntryFilter.ALL_INT );
+
+        for ( IEntry entry : listEntryFirstLevel )
+        {
+            if ( !entry.getEntryType( ).getGroup( ) )
+            {
+                listEntry.add( EntryHome.findByPrimaryKey( entry.getIdEntry( ), plugin ) );
+            }
+
+            filter.setIdEntryParent( entry.getIdEntry( ) );
+
+            for ( IEntry entryChild : EntryHome.getEntryList( filter, plugin ) )
+            {
+                listEntry.add( EntryHome.findByPrimaryKey( entryChild.getIdEntry( ), plugin ) );
+            }
+        }
+
+        return listEntry;
+    }
+
+    /**
+     * Import the records of a CSV file
+     *
+     * @param reader
+     *            the reader of the file, which is not closed
+     * @param listener
+     *            the listener of the progress of the import
+     * @return true if the whole file has been read, false if the import has been cancelled
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public boolean read( Reader reader, IImportProgressListener listener ) throws IOException
+    {
+        char cDelimiter = AppPropertiesService.getProperty( PROPERTY_CSV_DELIMITER ).charAt( 0 );
+        int nBatchSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ), 1 );
+        int nNbThreads = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_VALIDATION_THREADS, Runtime.getRuntime( ).availableProcessors( ) ), 1 );
+        CSVReader csvReader = new CSVReader( reader, cDelimiter, CSV_QUOTE );
+        ExecutorService executor = ( nNbThreads > 1 ) ? Executors.newFixedThreadPool( nNbThreads ) : null;
+
+        try
+        {
+            String [ ] tabLine = csvReader.readNext( );
+
+            while ( tabLine != null )
+            {
+                if ( listener.isCancelled( ) )
+                {
+                    return false;
+                }
+
+                List<String [ ]> listLine = new ArrayList<String [ ]>( nBatchSize );
+
+                while ( ( tabLine != null ) && ( listLine.size( ) < nBatchSize ) )
+                {
+                    listLine.add( tabLine );
+                    tabLine = csvReader.readNext( );
+                }
+
+                importLines( listLine, executor, listener );
+            }
+
+            return true;
+        }
+        finally
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow( );
+            }
+        }
+    }
+
+    /**
+     * Import a batch of lines : the lines are validated, then the valid records are created all at once. If the batch cannot be stored, its records are
+     * created one by one so that only the faulty lines are rejected.
+     *
+     * @param listLine
+     *            the lines
+     * @param executor
+     *            the executor validating the lines, or null to validate them in the current thread
+     * @param listener
+     *            the listener of the progress of the import
+     */
+    private void importLines( List<String [ ]> listLine, ExecutorService executor, IImportProgressListener listener )
+    {
+        List<ImportLine> listImportLine = validateLines( _nNbLines + 1, listLine, executor );
+        List<ImportLine> listImportLineValid = new ArrayList<ImportLine>( listImportLine.size( ) );
+        List<Record> listRecord = new ArrayList<Record>( listImportLine.size( ) );
+        _nNbLines += listLine.size( );
+
+        for ( ImportLine importLine : listImportLine )
+        {
+            if ( ( importLine.getRecord( ) != null ) && checkNumbers( importLine ) )
+            {
+                listImportLineValid.add( importLine );
+                listRecord.add( importLine.getRecord( ) );
+            }
+            else
+            {
+                reject( importLine.getLine( ), importLine.getError( ), listener );
+            }
+        }
+
+        try
+        {
+            _recordService.create( listRecord, _plugin );
+            _nNbLinesImported += listRecord.size( );
+        }
+        catch( Exception e )
+        {
+            AppLogService.error( "Error while importing a batch of records in the directory " + _directory.getIdDirectory( )
+                    + ", its lines are imported one by one : " + e.getMessage( ), e );
+
+            for ( ImportLine importLine : listImportLineValid )
+            {
+                try
+                {
+                    _recordService.create( importLine.getRecord( ), _plugin );
+                    _nNbLinesImported++;
+                }
+                catch( Exception eRecord )
+                {
+                    reject( importLine.getLine( ), eRecord.getMessage( ), listener );
+                }
+            }
+        }
+
+        listener.onProgress( _nNbLines, _nNbLinesImported, _nNbLinesFailure );
+    }
+
+    /**
+     * Validate a batch of lines, in parallel if an executor is given
+     *
+     * @param nFirstLine
+     *            the number of the first line in the file
+     * @param listLine
+     *            the lines
+     * @param executor
+     *            the executor validating the lines, or null to validate them in the current thread
+     * @return the validated lines, in the order of the file
+     */
+    private List<ImportLine> validateLines( int nFirstLine, List<String [ ]> listLine, ExecutorService executor )
+    {
+        if ( ( executor == null ) || ( listLine.size( ) <= VALIDATION_TASK_SIZE ) )
+        {
+            return validateLines( nFirstLine, listLine );
+        }
+
+        List<Future<List<ImportLine>>> listFuture = new ArrayList<Future<List<ImportLine>>>( );
+
+        for ( int i = 0; i < listLine.size( ); i += VALIDATION_TASK_SIZE )
+        {
+            final int nTaskFirstLine = nFirstLine + i;
+            final List<String [ ]> listTaskLine = listLine.subList( i, Math.min( i + VALIDATION_TASK_SIZE, listLine.size( ) ) );
+            listFuture.add( executor.submit( new Callable<List<ImportLine>>( )
+            {
+                @Override
+                public List<ImportLine> call( )
+                {
+                    return validateLines( nTaskFirstLine, listTaskLine );
+                }
+            } ) );
+        }
+
+        List<ImportLine> listImportLine = new ArrayList<ImportLine>( listLine.size( ) );
+
+        try
+        {
+            for ( Future<List<ImportLine>> future : listFuture )
+            {
+                listImportLine.addAll( future.get( ) );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new AppException( "The directory import has been interrupted", e );
+        }
+        catch( ExecutionException e )
+        {
+            throw new AppException( "Error while validating the lines of a directory import : " + e.getCause( ).getMessage( ), e.getCause( ) );
+        }
+
+        return listImportLine;
+    }
+
+    /**
+     * Validate lines in the current thread
+     *
+     * @param nFirstLine
+     *            the number of the first line in the file
+     * @param listLine
+     *            the lines
+     * @return the validated lines
+     */
+    private List<ImportLine> validateLines( int nFirstLine, List<String [ ]> listLine )
+    {
+        List<ImportLine> listImportLine = new ArrayList<ImportLine>( listLine.size( ) );
+
+        for ( int i = 0; i < listLine.size( ); i++ )
+        {
+            listImportLine.add( validateLine( nFirstLine + i, listLine.get( i ) ) );
+        }
+
+        return listImportLine;
+    }
+
+    /**
+     * Validate a line and build its record. The entries are only read, so that the lines can be validated concurrently.
+     *
+     * @param nLine
+     *            the number of the line in the file
+     * @param tabLine
+     *            the values of the line
+     * @return the validated line, with its record or its error
+     */
+    private ImportLine validateLine( int nLine, String [ ] tabLine )
+    {
+        ImportLine importLine = new ImportLine( nLine );
+
+        if ( tabLine.length != _listEntry.size( ) )
+        {
+            importLine.setError( I18nService.getLocalizedString( MESSAGE_ERROR_CSV_NUMBER_SEPARATOR, _locale ) );
+
+            return importLine;
+        }
+
+        Record record = new Record( );
+        record.setDirectory( _directory );
+
+        List<RecordField> listRecordField = new ArrayList<RecordField>( );
+
+        try
+        {
+            for ( int i = 0; i < tabLine.length; i++ )
+            {
+                _listEntry.get( i ).getImportRecordFieldData( record, tabLine [i], true, listRecordField, _locale );
+            }
+
+            record.setListRecordField( listRecordField );
+            record.setDateCreation( DirectoryUtils.getCurrentTimestamp( ) );
+            // Autopublication
+            record.setEnabled( true );
+            importLine.setRecord( record );
+        }
+        catch( DirectoryErrorException error )
+        {
+            importLine.setError( getErrorMessage( error ) );
+        }
+
+        return importLine;
+    }
+
+    /**
+     * Reject a line whose numbers have already been imported from another line of the file, since the lines of a batch are not yet in the database when
+     * they are validated. The numbers of an accepted line are kept.
+     *
+     * @param importLine
+     *            a valid line
+     * @return false if the line has been rejected
+     */
+    private boolean checkNumbers( ImportLine importLine )
+    {
+        List<String> listNumber = new ArrayList<String>( );
+
+        for ( RecordField recordField : importLine.getRecord( ).getListRecordField( ) )
+        {
+            if ( recordField.getEntry( ) instanceof EntryTypeNumbering )
+            {
+                String strNumber = recordField.getEntry( ).getIdEntry( ) + NUMBER_KEY_SEPARATOR + recordField.getValue( );
+
+                if ( _setImportedNumbers.contains( strNumber ) )
+                {
+                    DirectoryErrorException error = new DirectoryErrorException( recordField.getEntry( ).getTitle( ), MESSAGE_NUMBER_ALREADY_IMPORTED );
+                    importLine.setRecord( null );
+                    importLine.setError( getErrorMessage( error ) );
+
+                    return false;
+                }
+
+                listNumber.add( strNumber );
+            }
+        }
+
+        _setImportedNumbers.addAll( listNumber );
+
+        return true;
+    }
+
+    /**
+     * Count a rejected line and notify the listener
+     *
+     * @param nLine
+     *            the number of the line
+     * @param strError
+     *            the reason of the rejection
+     * @param listener
+     *            the listener of the progress of the import
+     */
+    private void reject( int nLine, String strError, IImportProgressListener listener )
+    {
+        _nNbLinesFailure++;
+        listener.onError( nLine, strError );
+    }
+
+    /**
+     * Get the localized message of a validation error
+     *
+     * @param error
+     *            the validation error
+     * @return the message
+     */
+    private String getErrorMessage( DirectoryErrorException error )
+    {
+        if ( error.isMandatoryError( ) )
+        {
+            Object [ ] tabRequiredFields = {
+                error.getTitleField( )
+            };
+
+            return I18nService.getLocalizedString( MESSAGE_DIRECTORY_ERROR_MANDATORY_FIELD, tabRequiredFields, _locale );
+        }
+
+        Object [ ] tabRequiredFields = {
+                error.getTitleField( ), error.getErrorMessage( )
+        };
+
+        return I18nService.getLocalizedString( MESSAGE_DIRECTORY_ERROR, tabRequiredFields, _locale );
+    }
+
+    /**
+     * A line of the file, with its record if it is valid or its error
+     */
+    private static final class ImportLine
+    {
+        private final int _nLine;
+        private Record _record;
+        private String _strError;
+
+        /**
+         * Constructor
+         *
+         * @param nLine
+         *            the number of the line in the file
+         */
+        ImportLine( int nLine )
+        {
+            _nLine = nLine;
+        }
+
+        /**
+         * @return the number of the line in the file
+         */
+        int getLine( )
+        {
+            return _nLine;
+        }
+
+        /**
+         * @return the record of a valid line, or null
+         */
+        Record getRecord( )
+        {
+            return _record;
+        }
+
+        /**
+         * @param record
+         *            the record of the line
+         */
+        void setRecord( Record record )
+        {
+            _record = record;
+        }
+
+        /**
+         * @return the error of an invalid line
+         */
+        String getError( )
+        {
+            return _strError;
+        }
+
+        /**
+         * @param strError
+         *            the error of the line
+         */
+        void setError( String strError )
+        {
+            _strError = strError;
+        }
+    }
+}
@@ -0,0 +1,672 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.importation;
+
+import fr.paris.lutece.plugins.directory.business.Directory;
+import fr.paris.lutece.plugins.directory.business.DirectoryHome;
+import fr.paris.lutece.plugins.directory.business.ImportJob;
+import fr.paris.lutece.plugins.directory.business.ImportJobHome;
+import fr.paris.lutece.plugins.directory.service.DirectoryPlugin;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.service.fileupload.FileUploadService;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.init.ShutdownService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import java.sql.Timestamp;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ImportJobService : runs the big directory imports in background. The uploaded file is copied to the import jobs directory, then imported by a bounded
+ * pool of threads. The jobs are stored in the database with their progress, and the rejected lines are written to an error report downloaded once the
+ * job is over. The reports of the jobs over for more than directory.import.job.keepHours hours are removed with their job.
+ * <p>
+ * Each job is run by the node of the cluster which received the file, and its files are written in the path.tmp directory of that node : on a cluster,
+ * the webapps need sticky sessions or a path.tmp shared between the nodes to download the error reports. A job cancelled or removed from another node
+ * is stopped by its own node on its next progress update.
+ * </p>
+ */
+public final class ImportJobService implements ShutdownService
+{
+    public static final String ERROR_REPORT_ENCODING = "UTF-8";
+    private static final String PROPERTY_ENABLE = "directory.import.job.enable";
+    private static final String PROPERTY_THRESHOLD = "directory.import.job.threshold";
+    private static final String PROPERTY_THREADS = "directory.import.job.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "directory.import.job.queueSize";
+    private static final String PROPERTY_KEEP_HOURS = "directory.import.job.keepHours";
+    private static final String PROPERTY_PATH_TMP = "path.tmp";
+    private static final String PROPERTY_LINE = "directory.import_directory_record.line";
+    private static final int DEFAULT_THRESHOLD = 102400;
+    private static final int DEFAULT_THREADS = 1;
+    private static final int DEFAULT_QUEUE_SIZE = 20;
+    private static final int DEFAULT_KEEP_HOURS = 24;
+    private static final long PROGRESS_UPDATE_INTERVAL = 1000L;
+    private static final long MILLISECONDS_PER_HOUR = 3600000L;
+    private static final int ERROR_MESSAGE_MAX_LENGTH = 255;
+    private static final String IMPORT_JOBS_DIRECTORY = "directory_import_jobs";
+    private static final String IMPORT_JOB_FILE_PREFIX = "importJob";
+    private static final String IMPORT_JOB_FILE_SUFFIX = ".csv";
+    private static final String ERROR_REPORT_FILE_SUFFIX = "-errors.txt";
+    private static final String ERROR_REPORT_SEPARATOR = " > ";
+    private static final String ERROR_REPORT_LINE_SEPARATOR = "\r\n";
+    private static final String THREAD_NAME_PREFIX = "directory-import-job-";
+    private static final String MESSAGE_QUEUE_FULL = "Too many imports are pending";
+    private static final String MESSAGE_INTERRUPTED = "The import has been interrupted by a restart";
+    private static final String MESSAGE_SHUTDOWN = "The import has been interrupted by the shutdown of the webapp";
+    private static final String SERVICE_NAME = "Directory import jobs";
+    private static final long SHUTDOWN_TIMEOUT = 30000L;
+    private static final String MESSAGE_DIRECTORY_REMOVED = "The directory has been removed";
+    private static ImportJobService _singleton = new ImportJobService( );
+    private final boolean _bEnabled;
+    private final long _lThreshold;
+    private final ThreadPoolExecutor _executor;
+    private final ConcurrentMap<Integer, ImportJob> _mapJobsInProgress = new ConcurrentHashMap<Integer, ImportJob>( );
+    private final ConcurrentMap<Integer, Boolean> _mapCancelledJobs = new ConcurrentHashMap<Integer, Boolean>( );
+    private volatile boolean _bShutdown;
+
+    /**
+     * Private constructor
+     */
+    private ImportJobService( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLE, true );
+        _lThreshold = AppPropertiesService.getPropertyInt( PROPERTY_THRESHOLD, DEFAULT_THRESHOLD );
+
+        int nThreads = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_THREADS, DEFAULT_THREADS ), 1 );
+        int nQueueSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ), 1 );
+        _executor = new ThreadPoolExecutor( nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>( nQueueSize ),
+                new ImportJobThreadFactory( ) );
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static ImportJobService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Stop the jobs when the webapp shuts down : the threads are not interrupted, the running jobs stop after their current batch of lines and the
+     * pending ones as soon as they start. They are all marked as failed.
+     */
+    @Override
+    public void process( )
+    {
+        _bShutdown = true;
+
+        for ( Integer nIdJob : _mapJobsInProgress.keySet( ) )
+        {
+            _mapCancelledJobs.put( nIdJob, Boolean.TRUE );
+        }
+
+        _executor.shutdown( );
+
+        try
+        {
+            _executor.awaitTermination( SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+
+        // the jobs which did not stop in time
+        Plugin plugin = PluginService.getPlugin( DirectoryPlugin.PLUGIN_NAME );
+
+        for ( ImportJob importJob : _mapJobsInProgress.values( ) )
+        {
+            if ( !importJob.isOver( ) )
+            {
+                deleteFile( getFile( importJob ) );
+                endJob( importJob, ImportJob.STATUS_FAILED, MESSAGE_SHUTDOWN, plugin );
+            }
+        }
+    }
+
+    /**
+     * Mark as failed the jobs left pending or running by a previous run of this node, and remove their uploaded file. The jobs of the other nodes are
+     * left to them.
+     *
+     * @param plugin
+     *            the plugin
+     */
+    public void init( Plugin plugin )
+    {
+        for ( ImportJob importJob : ImportJobHome.getListNotOver( DirectoryUtils.getNodeName( ), plugin ) )
+        {
+            if ( !_mapJobsInProgress.containsKey( importJob.getIdImportJob( ) ) )
+            {
+                deleteFile( getFile( importJob ) );
+                endJob( importJob, ImportJob.STATUS_FAILED, MESSAGE_INTERRUPTED, plugin );
+            }
+        }
+    }
+
+    /**
+     * Tells if the import of a file must be run in background
+     *
+     * @param lFileSize
+     *            the size of the file, in bytes
+     * @return true if the import must be submitted as a job
+     */
+    public boolean isJobImport( long lFileSize )
+    {
+        return _bEnabled && ( lFileSize >= _lThreshold );
+    }
+
+    /**
+     * Submit the import of an uploaded file as a background job
+     *
+     * @param directory
+     *            the directory the records are imported in
+     * @param fileItem
+     *            the uploaded file
+     * @param adminUser
+     *            the admin user requesting the import
+     * @param locale
+     *            the locale of the error report
+     * @param plugin
+     *            the plugin
+     * @return the import job, which is failed if its file cannot be stored or too many imports are pending
+     */
+    public ImportJob submit( Directory directory, FileItem fileItem, AdminUser adminUser, Locale locale, Plugin plugin )
+    {
+        removeExpiredJobs( plugin );
+
+        ImportJob importJob = new ImportJob( );
+        importJob.setIdDirectory( directory.getIdDirectory( ) );
+        importJob.setIdAdminUser( adminUser.getUserId( ) );
+        importJob.setFileName( FileUploadService.getFileNameOnly( fileItem ) );
+        importJob.setStatus( ImportJob.STATUS_PENDING );
+        importJob.setFileSize( fileItem.getSize( ) );
+        importJob.setDateCreation( DirectoryUtils.getCurrentTimestamp( ) );
+        importJob.setNodeName( DirectoryUtils.getNodeName( ) );
+        ImportJobHome.create( importJob, plugin );
+
+        // the upload is only available during the request
+        File file = getFile( importJob );
+        InputStream in = null;
+        OutputStream out = null;
+
+        try
+        {
+            file.getParentFile( ).mkdirs( );
+            in = fileItem.getInputStream( );
+            out = new FileOutputStream( file );
+            IOUtils.copyLarge( in, out );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to store the file of the directory import job " + importJob.getIdImportJob( ) + " : " + e.getMessage( ), e );
+            IOUtils.closeQuietly( out );
+            deleteFile( file );
+            endJob( importJob, ImportJob.STATUS_FAILED, e.getMessage( ), plugin );
+
+            return importJob;
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+            IOUtils.closeQuietly( out );
+        }
+
+        _mapJobsInProgress.put( importJob.getIdImportJob( ), importJob );
+
+        try
+        {
+            _executor.execute( new ImportJobRunnable( importJob, locale, plugin ) );
+        }
+        catch( RejectedExecutionException e )
+        {
+            _mapJobsInProgress.remove( importJob.getIdImportJob( ) );
+            deleteFile( file );
+            endJob( importJob, ImportJob.STATUS_FAILED, MESSAGE_QUEUE_FULL, plugin );
+        }
+
+        return importJob;
+    }
+
+    /**
+     * Get an import job, with its current progress
+     *
+     * @param nIdImportJob
+     *            the id of the import job
+     * @param plugin
+     *            the plugin
+     * @return the import job, or null if it does not exist
+     */
+    public ImportJob getJob( int nIdImportJob, Plugin plugin )
+    {
+        ImportJob importJob = _mapJobsInProgress.get( nIdImportJob );
+
+        return ( importJob != null ) ? importJob : ImportJobHome.findByPrimaryKey( nIdImportJob, plugin );
+    }
+
+    /**
+     * Get the import jobs of a directory requested by an admin user, with their current progress
+     *
+     * @param nIdDirectory
+     *            the id of the directory
+     * @param adminUser
+     *            the admin user
+     * @param plugin
+     *            the plugin
+     * @return the import jobs, the most recent first
+     */
+    public List<ImportJob> getJobs( int nIdDirectory, AdminUser adminUser, Plugin plugin )
+    {
+        List<ImportJob> listImportJob = ImportJobHome.getListByIdDirectoryAndIdAdminUser( nIdDirectory, adminUser.getUserId( ), plugin );
+
+        for ( int i = 0; i < listImportJob.size( ); i++ )
+        {
+            ImportJob importJobInProgress = _mapJobsInProgress.get( listImportJob.get( i ).getIdImportJob( ) );
+
+            if ( importJobInProgress != null )
+            {
+                listImportJob.set( i, importJobInProgress );
+            }
+        }
+
+        return listImportJob;
+    }
+
+    /**
+     * Cancel an import job. A running job stops before its next batch of lines, the records already imported are kept.
+     *
+     * @param importJob
+     *            the import job
+     * @param plugin
+     *            the plugin
+     */
+    public void cancel( ImportJob importJob, Plugin plugin )
+    {
+        if ( importJob.isOver( ) )
+        {
+            return;
+        }
+
+        _mapCancelledJobs.put( importJob.getIdImportJob( ), Boolean.TRUE );
+
+        if ( !_mapJobsInProgress.containsKey( importJob.getIdImportJob( ) ) )
+        {
+            // the job is not run by this node : its own node, if still running it, stops on its next progress update
+            deleteFile( getFile( importJob ) );
+            endJob( importJob, ImportJob.STATUS_CANCELLED, null, plugin );
+            _mapCancelledJobs.remove( importJob.getIdImportJob( ) );
+        }
+    }
+
+    /**
+     * Remove an import job and its error report. A job in progress is cancelled.
+     *
+     * @param importJob
+     *            the import job
+     * @param plugin
+     *            the plugin
+     */
+    public void remove( ImportJob importJob, Plugin plugin )
+    {
+        cancel( importJob, plugin );
+
+        if ( !_mapJobsInProgress.containsKey( importJob.getIdImportJob( ) ) )
+        {
+            deleteFile( getErrorReportFile( importJob ) );
+        }
+
+        ImportJobHome.remove( importJob.getIdImportJob( ), plugin );
+    }
+
+    /**
+     * Get the error report of an import job
+     *
+     * @param importJob
+     *            the import job
+     * @return the file, which exists only once the job is over if lines have been rejected
+     */
+    public File getErrorReportFile( ImportJob importJob )
+    {
+        return new File( getJobsDirectory( ), IMPORT_JOB_FILE_PREFIX + importJob.getIdImportJob( ) + ERROR_REPORT_FILE_SUFFIX );
+    }
+
+    /**
+     * Get the copy of the uploaded file of an import job
+     *
+     * @param importJob
+     *            the import job
+     * @return the file, which exists until the job is over
+     */
+    private File getFile( ImportJob importJob )
+    {
+        return new File( getJobsDirectory( ), IMPORT_JOB_FILE_PREFIX + importJob.getIdImportJob( ) + IMPORT_JOB_FILE_SUFFIX );
+    }
+
+    /**
+     * Remove the jobs over for too long, and their error report
+     *
+     * @param plugin
+     *            the plugin
+     */
+    private void removeExpiredJobs( Plugin plugin )
+    {
+        long lKeepTime = AppPropertiesService.getPropertyInt( PROPERTY_KEEP_HOURS, DEFAULT_KEEP_HOURS ) * MILLISECONDS_PER_HOUR;
+        Timestamp tLimit = new Timestamp( System.currentTimeMillis( ) - lKeepTime );
+
+        for ( ImportJob importJob : ImportJobHome.getListOverBefore( tLimit, plugin ) )
+        {
+            deleteFile( getErrorReportFile( importJob ) );
+            ImportJobHome.remove( importJob.getIdImportJob( ), plugin );
+        }
+    }
+
+    /**
+     * Store the end of a job
+     *
+     * @param importJob
+     *            the import job
+     * @param nStatus
+     *            the final status of the job
+     * @param strErrorMessage
+     *            the error message, or null
+     * @param plugin
+     *            the plugin
+     */
+    private void endJob( ImportJob importJob, int nStatus, String strErrorMessage, Plugin plugin )
+    {
+        importJob.setStatus( nStatus );
+        importJob.setDateEnd( DirectoryUtils.getCurrentTimestamp( ) );
+        importJob.setErrorMessage( StringUtils.abbreviate( strErrorMessage, ERROR_MESSAGE_MAX_LENGTH ) );
+        ImportJobHome.update( importJob, plugin );
+    }
+
+    /**
+     * Delete a file of a job, if it exists
+     *
+     * @param file
+     *            the file
+     */
+    private void deleteFile( File file )
+    {
+        if ( file.exists( ) && !file.delete( ) )
+        {
+            AppLogService.error( "Unable to delete the file " + file.getName( ) + " of a directory import job" );
+        }
+    }
+
+    /**
+     * Get the directory of the files of the import jobs, in the webapp tmp dir if possible
+     *
+     * @return the directory
+     */
+    private File getJobsDirectory( )
+    {
+        String strPathTmp = AppPropertiesService.getProperty( PROPERTY_PATH_TMP );
+        File tmpDir = ( strPathTmp != null ) ? new File( AppPathService.getWebAppPath( ) + strPathTmp ) : new File( System.getProperty( "java.io.tmpdir" ) );
+
+        return new File( tmpDir, IMPORT_JOBS_DIRECTORY );
+    }
+
+    /**
+     * Runs an import job
+     */
+    private final class ImportJobRunnable implements Runnable, IImportProgressListener
+    {
+        private final ImportJob _importJob;
+        private final Locale _locale;
+        private final Plugin _plugin;
+        private final String _strLineLabel;
+        private CountingInputStream _countingInputStream;
+        private Writer _errorReportWriter;
+        private long _lLastProgressUpdate;
+        private boolean _bRemoved;
+
+        /**
+         * Constructor
+         *
+         * @param importJob
+         *            the import job
+         * @param locale
+         *            the locale of the error report
+         * @param plugin
+         *            the plugin
+         */
+        ImportJobRunnable( ImportJob importJob, Locale locale, Plugin plugin )
+        {
+            _importJob = importJob;
+            _locale = locale;
+            _plugin = plugin;
+            _strLineLabel = I18nService.getLocalizedString( PROPERTY_LINE, locale ).trim( ) + StringUtils.SPACE;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            int nIdImportJob = _importJob.getIdImportJob( );
+            File file = getFile( _importJob );
+            Reader reader = null;
+            int nStatus = ImportJob.STATUS_FAILED;
+            String strErrorMessage = null;
+
+            try
+            {
+                checkCancelledByAnotherNode( );
+
+                if ( isCancelled( ) )
+                {
+                    nStatus = ImportJob.STATUS_CANCELLED;
+
+                    return;
+                }
+
+                Directory directory = DirectoryHome.findByPrimaryKey( _importJob.getIdDirectory( ), _plugin );
+
+                if ( directory == null )
+                {
+                    strErrorMessage = MESSAGE_DIRECTORY_REMOVED;
+
+                    return;
+                }
+
+                _importJob.setStatus( ImportJob.STATUS_RUNNING );
+                ImportJobHome.update( _importJob, _plugin );
+
+                _countingInputStream = new CountingInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+                reader = new InputStreamReader( _countingInputStream );
+
+                boolean bCompleted = new DirectoryImport( directory, _locale, _plugin ).read( reader, this );
+                _importJob.setNbBytesRead( _countingInputStream.getByteCount( ) );
+                nStatus = ( bCompleted && !isCancelled( ) ) ? ImportJob.STATUS_DONE : ImportJob.STATUS_CANCELLED;
+            }
+            catch( Exception e )
+            {
+                AppLogService.error( "Error during the directory import job " + nIdImportJob + " : " + e.getMessage( ), e );
+                strErrorMessage = e.getMessage( );
+            }
+            finally
+            {
+                IOUtils.closeQuietly( reader );
+                IOUtils.closeQuietly( _errorReportWriter );
+
+                if ( _bShutdown && ( nStatus == ImportJob.STATUS_CANCELLED ) )
+                {
+                    nStatus = ImportJob.STATUS_FAILED;
+                    strErrorMessage = MESSAGE_SHUTDOWN;
+                }
+
+                deleteFile( file );
+
+                if ( _bRemoved )
+                {
+                    deleteFile( getErrorReportFile( _importJob ) );
+                }
+
+                endJob( _importJob, nStatus, strErrorMessage, _plugin );
+                _mapJobsInProgress.remove( nIdImportJob );
+                _mapCancelledJobs.remove( nIdImportJob );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onError( int nLine, String strError )
+        {
+            try
+            {
+                if ( _errorReportWriter == null )
+                {
+                    _errorReportWriter = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( getErrorReportFile( _importJob ) ),
+                            ERROR_REPORT_ENCODING ) );
+                }
+
+                _errorReportWriter.write( _strLineLabel + nLine + ERROR_REPORT_SEPARATOR + strError + ERROR_REPORT_LINE_SEPARATOR );
+            }
+            catch( IOException e )
+            {
+                AppLogService.error( "Unable to write the error report of the directory import job " + _importJob.getIdImportJob( ) + " : " + e.getMessage( ),
+                        e );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onProgress( int nNbLines, int nNbLinesImported, int nNbLinesFailure )
+        {
+            _importJob.setNbBytesRead( _countingInputStream.getByteCount( ) );
+            _importJob.setNbLines( nNbLines );
+            _importJob.setNbLinesImported( nNbLinesImported );
+            _importJob.setNbLinesFailure( nNbLinesFailure );
+
+            long lNow = System.currentTimeMillis( );
+
+            if ( ( lNow - _lLastProgressUpdate ) >= PROGRESS_UPDATE_INTERVAL )
+            {
+                _lLastProgressUpdate = lNow;
+                ImportJobHome.updateProgress( _importJob, _plugin );
+                checkCancelledByAnotherNode( );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isCancelled( )
+        {
+            return _mapCancelledJobs.containsKey( _importJob.getIdImportJob( ) );
+        }
+
+        /**
+         * Mark the job as cancelled if it has been cancelled or removed from another node
+         */
+        private void checkCancelledByAnotherNode( )
+        {
+            ImportJob storedImportJob = ImportJobHome.findByPrimaryKey( _importJob.getIdImportJob( ), _plugin );
+            _bRemoved = storedImportJob == null;
+
+            if ( _bRemoved || ( storedImportJob.getStatus( ) == ImportJob.STATUS_CANCELLED ) )
+            {
+                _mapCancelledJobs.put( _importJob.getIdImportJob( ), Boolean.TRUE );
+            }
+        }
+    }
+
+    /**
+     * Creates the daemon threads of the import jobs
+     */
+    private static final class ImportJobThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger _nThreadNumber = new AtomicInteger( 1 );
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + _nThreadNumber.getAndIncrement( ) );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+}
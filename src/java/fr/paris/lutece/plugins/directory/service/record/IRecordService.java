@@ -42,6 +42,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -62,6 +63,17 @@ public interface IRecordService
     @Transactional( "directory.transactionManager" )
     int create( Record record, Plugin plugin );
 
+    /**
+     * Creation of records in a single transaction
+     *
+     * @param listRecord
+     *            The records which contain the informations to store
+     * @param plugin
+     *            the Plugin
+     */
+    @Transactional( "directory.transactionManager" )
+    void create( List<Record> listRecord, Plugin plugin );
+
     /**
      * Copy an instance of record
      *
@@ -107,6 +119,17 @@ public interface IRecordService
     @Transactional( "directory.transactionManager" )
     void remove( int nIdRecord, Plugin plugin );
 
+    /**
+     * Remove records with set-based queries, by chunks of records each removed in its own transaction. Removing many records thus neither runs the
+     * queries record by record nor holds the locks until the end : if a chunk fails, the chunks already removed stay removed.
+     *
+     * @param listIdRecord
+     *            The ids of the records to remove
+     * @param plugin
+     *            the Plugin
+     */
+    void removeAll( List<Integer> listIdRecord, Plugin plugin );
+
     // /////////////////////////////////////////////////////////////////////////
     // Finders
 
@@ -187,6 +210,17 @@ public interface IRecordService
      */
     Integer getDirectoryIdByRecordId( Integer nRecordId, Plugin plugin );
 
+    /**
+     * Get the directory id of each record of a list
+     * 
+     * @param listIdRecord
+     *            the list of record id
+     * @param plugin
+     *            the plugin
+     * @return the map record id / directory id, without the records which do not exist
+     */
+    Map<Integer, Integer> getDirectoryIdByListRecordId( List<Integer> listIdRecord, Plugin plugin );
+
     /**
      * Is the file authorized for viewing.
      *
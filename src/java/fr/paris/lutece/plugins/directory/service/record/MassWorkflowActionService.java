@@ -0,0 +1,792 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.record;
+
+import fr.paris.lutece.portal.service.init.ShutdownService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.web.LocalVariables;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ *
+ * MassWorkflowActionService : runs the workflow actions on large selections of records by chunks, on a bounded pool of threads shared by all the users
+ *
+ */
+public final class MassWorkflowActionService implements ShutdownService
+{
+    private static final String PROPERTY_ENABLE = "directory.massAction.enable";
+    private static final String PROPERTY_THRESHOLD = "directory.massAction.threshold";
+    private static final String PROPERTY_CHUNK_SIZE = "directory.massAction.chunkSize";
+    private static final String PROPERTY_THREADS = "directory.massAction.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "directory.massAction.queueSize";
+    private static final int DEFAULT_THRESHOLD = 50;
+    private static final int DEFAULT_CHUNK_SIZE = 50;
+    private static final int DEFAULT_THREADS = 2;
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final String THREAD_NAME_PREFIX = "directory-mass-action-";
+    private static final String SERVICE_NAME = "Directory mass workflow actions";
+    private static final long SHUTDOWN_TIMEOUT = 30000L;
+    private static MassWorkflowActionService _singleton = new MassWorkflowActionService( );
+    private final boolean _bEnabled;
+    private final int _nThreshold;
+    private final int _nChunkSize;
+    private final ThreadPoolExecutor _executor;
+    private volatile boolean _bShutdown;
+
+    /**
+     * Private constructor
+     */
+    private MassWorkflowActionService( )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLE, true );
+        _nThreshold = AppPropertiesService.getPropertyInt( PROPERTY_THRESHOLD, DEFAULT_THRESHOLD );
+        _nChunkSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_CHUNK_SIZE, DEFAULT_CHUNK_SIZE ), 1 );
+
+        int nThreads = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_THREADS, DEFAULT_THREADS ), 1 );
+        int nQueueSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE ), 1 );
+
+        // When too many chunks are waiting, the thread submitting the action runs the chunk itself, which slows down the new mass actions
+        // instead of rejecting them
+        _executor = new ThreadPoolExecutor( nThreads, nThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>( nQueueSize ),
+                new MassWorkflowActionThreadFactory( ), new ThreadPoolExecutor.CallerRunsPolicy( ) );
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static MassWorkflowActionService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Stop the mass actions when the webapp shuts down : the pending chunks are dropped, and the running chunks stop before their next record
+     */
+    @Override
+    public void process( )
+    {
+        _bShutdown = true;
+        _executor.shutdownNow( );
+
+        try
+        {
+            _executor.awaitTermination( SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    /**
+     * Tells if the webapp is shutting down, in which case the running chunks must stop
+     * 
+     * @return true if the service has been shut down
+     */
+    public boolean isShutdown( )
+    {
+        return _bShutdown;
+    }
+
+    /**
+     * Tells if a workflow action on the given number of records must be run in background
+     * 
+     * @param nNbRecords
+     *            the number of records
+     * @return true if the action must be run in background
+     */
+    public boolean isBackground( int nNbRecords )
+    {
+        return _bEnabled && ( nNbRecords > _nThreshold );
+    }
+
+    /**
+     * Split a list of ids of records in chunks processed by one task of the pool
+     * 
+     * @param listIdsRecord
+     *            the list of ids of records
+     * @return the list of chunks
+     */
+    public List<String [ ]> getChunks( String [ ] listIdsRecord )
+    {
+        List<String [ ]> listChunks = new ArrayList<String [ ]>( ( listIdsRecord.length / _nChunkSize ) + 1 );
+
+        for ( int nIndex = 0; nIndex < listIdsRecord.length; nIndex += _nChunkSize )
+        {
+            String [ ] chunk = new String [ Math.min( _nChunkSize, listIdsRecord.length - nIndex )];
+            System.arraycopy( listIdsRecord, nIndex, chunk, 0, chunk.length );
+            listChunks.add( chunk );
+        }
+
+        return listChunks;
+    }
+
+    /**
+     * Run a chunk of a mass workflow action in background. The detached request is made available to the chunk through {@link LocalVariables}, as it is for
+     * the threads of the container.
+     * 
+     * @param chunkTask
+     *            the task processing the chunk
+     * @param detachedRequest
+     *            the request returned by {@link #detach( HttpServletRequest )}
+     */
+    public void execute( Runnable chunkTask, HttpServletRequest detachedRequest )
+    {
+        _executor.execute( new LocalVariablesTask( chunkTask, detachedRequest ) );
+    }
+
+    /**
+     * Copy the data of an HTTP request the workflow tasks may use, so that they can still be read once the request is over. The copy never reads the
+     * original request afterwards, since the container may reuse it for another user.
+     * 
+     * @param request
+     *            the HTTP request
+     * @return the copy of the request
+     */
+    public HttpServletRequest detach( HttpServletRequest request )
+    {
+        return new DetachedHttpServletRequest( request );
+    }
+
+    /**
+     * Tells if the session of a detached request has been invalidated, for instance because the user has logged out while the action was running. In that
+     * case the remaining records cannot be processed on behalf of the user.
+     * 
+     * @param request
+     *            the request given to the chunk
+     * @return true if the request is detached and its session has been invalidated
+     */
+    public static boolean isSessionInvalidated( HttpServletRequest request )
+    {
+        return ( request instanceof DetachedHttpServletRequest ) && ( (DetachedHttpServletRequest) request ).isSessionInvalidated( );
+    }
+
+    /**
+     * An HTTP request whose parameters, attributes, headers, session and user data are copied from the original request. The original request is not kept :
+     * the wrapped request returns null, false or 0 for every value that has not been copied.
+     */
+    private static final class DetachedHttpServletRequest extends HttpServletRequestWrapper
+    {
+        private final Map<String, String [ ]> _mapParameters;
+        private final Map<String, Object> _mapAttributes;
+        private final Map<String, List<String>> _mapHeaders;
+        private final HttpSession _session;
+        private final Locale _locale;
+        private final String _strScheme;
+        private final String _strServerName;
+        private final int _nServerPort;
+        private final String _strContextPath;
+        private final String _strServletPath;
+        private final String _strRequestURI;
+        private final String _strRequestURL;
+        private final String _strRemoteAddr;
+        private final String _strRemoteHost;
+        private final String _strMethod;
+        private final String _strQueryString;
+        private final String _strProtocol;
+        private final String _strCharacterEncoding;
+        private final String _strAuthType;
+        private final String _strRemoteUser;
+        private final Principal _userPrincipal;
+        private final Cookie [ ] _cookies;
+        private final List<Locale> _listLocales;
+        private final boolean _bSecure;
+        private final AtomicBoolean _bSessionInvalidated = new AtomicBoolean( );
+
+        /**
+         * Constructor
+         * 
+         * @param request
+         *            the HTTP request to copy
+         */
+        @SuppressWarnings( "unchecked" )
+        DetachedHttpServletRequest( HttpServletRequest request )
+        {
+            super( newReleasedRequest( ) );
+            _mapParameters = new HashMap<String, String [ ]>( request.getParameterMap( ) );
+            _mapAttributes = Collections.synchronizedMap( new HashMap<String, Object>( ) );
+
+            Enumeration<String> enumAttributeNames = request.getAttributeNames( );
+
+            while ( enumAttributeNames.hasMoreElements( ) )
+            {
+                String strName = enumAttributeNames.nextElement( );
+                _mapAttributes.put( strName, request.getAttribute( strName ) );
+            }
+
+            _mapHeaders = new HashMap<String, List<String>>( );
+
+            Enumeration<String> enumHeaderNames = request.getHeaderNames( );
+
+            while ( ( enumHeaderNames != null ) && enumHeaderNames.hasMoreElements( ) )
+            {
+                String strName = enumHeaderNames.nextElement( );
+                _mapHeaders.put( strName.toLowerCase( ), Collections.list( (Enumeration<String>) request.getHeaders( strName ) ) );
+            }
+
+            _session = request.getSession( false );
+            _locale = request.getLocale( );
+            _strScheme = request.getScheme( );
+            _strServerName = request.getServerName( );
+            _nServerPort = request.getServerPort( );
+            _strContextPath = request.getContextPath( );
+            _strServletPath = request.getServletPath( );
+            _strRequestURI = request.getRequestURI( );
+            _strRequestURL = request.getRequestURL( ).toString( );
+            _strRemoteAddr = request.getRemoteAddr( );
+            _strRemoteHost = request.getRemoteHost( );
+            _strMethod = request.getMethod( );
+            _strQueryString = request.getQueryString( );
+            _strProtocol = request.getProtocol( );
+            _strCharacterEncoding = request.getCharacterEncoding( );
+            _strAuthType = request.getAuthType( );
+            _strRemoteUser = request.getRemoteUser( );
+            _userPrincipal = request.getUserPrincipal( );
+            _cookies = ( request.getCookies( ) != null ) ? request.getCookies( ).clone( ) : null;
+            _listLocales = Collections.list( (Enumeration<Locale>) request.getLocales( ) );
+            _bSecure = request.isSecure( );
+        }
+
+        /**
+         * Tells if the session of the request has been invalidated. The invalidation is logged once.
+         * 
+         * @return true if the session has been invalidated
+         */
+        boolean isSessionInvalidated( )
+        {
+            if ( _bSessionInvalidated.get( ) )
+            {
+                return true;
+            }
+
+            if ( _session == null )
+            {
+                return false;
+            }
+
+            try
+            {
+                _session.getLastAccessedTime( );
+
+                return false;
+            }
+            catch( IllegalStateException e )
+            {
+                if ( _bSessionInvalidated.compareAndSet( false, true ) )
+                {
+                    AppLogService.info( "The session of a mass workflow action has been invalidated : the remaining records are not processed" );
+                }
+
+                return true;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getParameter( String strName )
+        {
+            String [ ] values = _mapParameters.get( strName );
+
+            return ( ( values != null ) && ( values.length > 0 ) ) ? values [0] : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String [ ] getParameterValues( String strName )
+        {
+            return _mapParameters.get( strName );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Map<String, String [ ]> getParameterMap( )
+        {
+            return Collections.unmodifiableMap( _mapParameters );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Enumeration<String> getParameterNames( )
+        {
+            return Collections.enumeration( _mapParameters.keySet( ) );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object getAttribute( String strName )
+        {
+            return _mapAttributes.get( strName );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Enumeration<String> getAttributeNames( )
+        {
+            synchronized( _mapAttributes )
+            {
+                return Collections.enumeration( new ArrayList<String>( _mapAttributes.keySet( ) ) );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setAttribute( String strName, Object value )
+        {
+            if ( value == null )
+            {
+                _mapAttributes.remove( strName );
+            }
+            else
+            {
+                _mapAttributes.put( strName, value );
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void removeAttribute( String strName )
+        {
+            _mapAttributes.remove( strName );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getHeader( String strName )
+        {
+            List<String> listValues = _mapHeaders.get( strName.toLowerCase( ) );
+
+            return ( ( listValues != null ) && !listValues.isEmpty( ) ) ? listValues.get( 0 ) : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Enumeration<String> getHeaders( String strName )
+        {
+            List<String> listValues = _mapHeaders.get( strName.toLowerCase( ) );
+
+            return Collections.enumeration( ( listValues != null ) ? listValues : new ArrayList<String>( ) );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Enumeration<String> getHeaderNames( )
+        {
+            return Collections.enumeration( _mapHeaders.keySet( ) );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public HttpSession getSession( )
+        {
+            return _session;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public HttpSession getSession( boolean bCreate )
+        {
+            return _session;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Locale getLocale( )
+        {
+            return _locale;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getScheme( )
+        {
+            return _strScheme;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getServerName( )
+        {
+            return _strServerName;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getServerPort( )
+        {
+            return _nServerPort;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getContextPath( )
+        {
+            return _strContextPath;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getServletPath( )
+        {
+            return _strServletPath;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getRequestURI( )
+        {
+            return _strRequestURI;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public StringBuffer getRequestURL( )
+        {
+            return new StringBuffer( _strRequestURL );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getRemoteAddr( )
+        {
+            return _strRemoteAddr;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getRemoteHost( )
+        {
+            return _strRemoteHost;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getMethod( )
+        {
+            return _strMethod;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getQueryString( )
+        {
+            return _strQueryString;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getProtocol( )
+        {
+            return _strProtocol;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getCharacterEncoding( )
+        {
+            return _strCharacterEncoding;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getAuthType( )
+        {
+            return _strAuthType;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getRemoteUser( )
+        {
+            return _strRemoteUser;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Principal getUserPrincipal( )
+        {
+            return _userPrincipal;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isSecure( )
+        {
+            return _bSecure;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Cookie [ ] getCookies( )
+        {
+            return ( _cookies != null ) ? _cookies.clone( ) : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Enumeration<Locale> getLocales( )
+        {
+            return Collections.enumeration( _listLocales );
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isUserInRole( String strRole )
+        {
+            // The roles of the container cannot be copied
+            return false;
+        }
+
+        /**
+         * Create the request wrapped by the detached request, which holds no data
+         * 
+         * @return the released request
+         */
+        private static HttpServletRequest newReleasedRequest( )
+        {
+            return (HttpServletRequest) Proxy.newProxyInstance( HttpServletRequest.class.getClassLoader( ), new Class<?> [ ] {
+                HttpServletRequest.class
+            }, new ReleasedRequestHandler( ) );
+        }
+    }
+
+    /**
+     * Answers the calls to a request which holds no data : null, false or 0, depending on the type of the method
+     */
+    private static final class ReleasedRequestHandler implements InvocationHandler
+    {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Object invoke( Object proxy, Method method, Object [ ] args )
+        {
+            Class<?> returnType = method.getReturnType( );
+
+            if ( "equals".equals( method.getName( ) ) && ( args != null ) && ( args.length == 1 ) )
+            {
+                return proxy == args [0];
+            }
+
+            if ( "hashCode".equals( method.getName( ) ) && ( args == null ) )
+            {
+                return System.identityHashCode( proxy );
+            }
+
+            if ( returnType == boolean.class )
+            {
+                return Boolean.FALSE;
+            }
+
+            if ( returnType == int.class )
+            {
+                return 0;
+            }
+
+            if ( returnType == long.class )
+            {
+                return 0L;
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Runs a chunk with the detached request set in {@link LocalVariables}. The previous local variables are restored afterwards, since a chunk may be run
+     * by the thread of the container when the queue is full.
+     */
+    private static final class LocalVariablesTask implements Runnable
+    {
+        private final Runnable _task;
+        private final HttpServletRequest _request;
+
+        /**
+         * Constructor
+         * 
+         * @param task
+         *            the task to run
+         * @param request
+         *            the detached request
+         */
+        LocalVariablesTask( Runnable task, HttpServletRequest request )
+        {
+            _task = task;
+            _request = request;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            ServletConfig config = LocalVariables.getConfig( );
+            HttpServletRequest request = LocalVariables.getRequest( );
+            HttpServletResponse response = LocalVariables.getResponse( );
+
+            LocalVariables.setLocal( config, _request, null );
+
+            try
+            {
+                _task.run( );
+            }
+            finally
+            {
+                LocalVariables.setLocal( config, request, response );
+            }
+        }
+    }
+
+    /**
+     * Creates the daemon threads of the mass workflow actions
+     */
+    private static final class MassWorkflowActionThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger _nThreadNumber = new AtomicInteger( 1 );
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, THREAD_NAME_PREFIX + _nThreadNumber.getAndIncrement( ) );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+}
@@ -54,11 +54,13 @@ import fr.paris.lutece.portal.service.rbac.RBACService;
 import fr.paris.lutece.portal.service.resource.ExtendableResourceRemovalListenerService;
 import fr.paris.lutece.portal.service.security.SecurityService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.service.workgroup.AdminWorkgroupService;
 
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -71,6 +73,8 @@ public class RecordService implements IRecordService
      * Name of the bean of this service
      */
     public static final String BEAN_SERVICE = "directory.recordService";
+    private static final String PROPERTY_REMOVAL_CHUNK_SIZE = "directory.record.removal.chunkSize";
+    private static final int DEFAULT_REMOVAL_CHUNK_SIZE = 500;
 
     /**
      * {@inheritDoc}
@@ -92,6 +96,16 @@ public class RecordService implements IRecordService
         return RecordHome.create( record, plugin );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Transactional( "directory.transactionManager" )
+    public void create( List<Record> listRecord, Plugin plugin )
+    {
+        RecordHome.create( listRecord, plugin );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -103,6 +117,27 @@ public class RecordService implements IRecordService
         RecordHome.remove( nIdRecord, plugin );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAll( List<Integer> listIdRecord, Plugin plugin )
+    {
+        int nChunkSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_REMOVAL_CHUNK_SIZE, DEFAULT_REMOVAL_CHUNK_SIZE ), 1 );
+
+        for ( int nIndex = 0; nIndex < listIdRecord.size( ); nIndex += nChunkSize )
+        {
+            List<Integer> listIdRecordChunk = listIdRecord.subList( nIndex, Math.min( nIndex + nChunkSize, listIdRecord.size( ) ) );
+
+            for ( Integer nIdRecord : listIdRecordChunk )
+            {
+                ExtendableResourceRemovalListenerService.doRemoveResourceExtentions( Record.EXTENDABLE_RESOURCE_TYPE, Integer.toString( nIdRecord ) );
+            }
+
+            RecordHome.remove( listIdRecordChunk, plugin );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -161,6 +196,15 @@ public class RecordService implements IRecordService
         return RecordHome.getDirectoryIdByRecordId( nRecordId, plugin );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Integer> getDirectoryIdByListRecordId( List<Integer> listIdRecord, Plugin plugin )
+    {
+        return RecordHome.getDirectoryIdByListRecordId( listIdRecord, plugin );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.record;
+
+import fr.paris.lutece.plugins.directory.business.Directory;
+import fr.paris.lutece.plugins.directory.business.Record;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.plugins.workflowcore.business.state.State;
+import fr.paris.lutece.plugins.workflowcore.business.state.StateFilter;
+import fr.paris.lutece.plugins.workflowcore.service.resource.IResourceWorkflowService;
+import fr.paris.lutece.plugins.workflowcore.service.resource.ResourceWorkflowService;
+import fr.paris.lutece.plugins.workflowcore.service.state.IStateService;
+import fr.paris.lutece.plugins.workflowcore.service.state.StateService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.workflow.WorkflowService;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Resolves the workflow states of the records of a directory rendered in bulk (pages of records, exports, result lists). The states of the rendered records
+ * are read at once from their ids, and each state is loaded only once. A resolver is meant to be used for a single rendering.
+ */
+public class RecordStateResolver
+{
+    private final Directory _directory;
+    private final boolean _bEnabled;
+    private final List<Integer> _listIdRecord;
+    private Map<Integer, State> _mapStateByIdRecord;
+
+    /**
+     * Constructor
+     * 
+     * @param directory
+     *            the directory of the records
+     * @param listIdRecord
+     *            the ids of all the records which will be rendered
+     */
+    public RecordStateResolver( Directory directory, List<Integer> listIdRecord )
+    {
+        _directory = directory;
+        _bEnabled = ( directory.getIdWorkflow( ) != DirectoryUtils.CONSTANT_ID_NULL ) && WorkflowService.getInstance( ).isAvailable( );
+        _listIdRecord = listIdRecord;
+    }
+
+    /**
+     * Get the workflow state of a record
+     * 
+     * @param nIdRecord
+     *            the id of the record
+     * @return the state of the record, or null if the directory has no workflow
+     */
+    public State getState( int nIdRecord )
+    {
+        if ( !_bEnabled )
+        {
+            return null;
+        }
+
+        if ( _mapStateByIdRecord == null )
+        {
+            _mapStateByIdRecord = loadStates( );
+        }
+
+        State state = _mapStateByIdRecord.get( nIdRecord );
+
+        if ( state != null )
+        {
+            return state;
+        }
+
+        // The records which have not entered the workflow yet are initialized by the workflow service
+        return WorkflowService.getInstance( ).getState( nIdRecord, Record.WORKFLOW_RESOURCE_TYPE, _directory.getIdWorkflow( ),
+                Integer.valueOf( _directory.getIdDirectory( ) ) );
+    }
+
+    /**
+     * Load the states of the rendered records : the ids of their states are read by chunks of ids, and the states of the workflow are loaded once
+     * 
+     * @return the states by record id
+     */
+    private Map<Integer, State> loadStates( )
+    {
+        Map<Integer, State> mapStateByIdRecord = new HashMap<Integer, State>( _listIdRecord.size( ) );
+
+        if ( _listIdRecord.isEmpty( ) )
+        {
+            return mapStateByIdRecord;
+        }
+
+        IStateService stateService = SpringContextService.getBean( StateService.BEAN_SERVICE );
+        StateFilter filter = new StateFilter( );
+        filter.setIdWorkflow( _directory.getIdWorkflow( ) );
+
+        Collection<State> listState = stateService.getListStateByFilter( filter );
+
+        if ( listState == null )
+        {
+            return mapStateByIdRecord;
+        }
+
+        Map<Integer, State> mapStateById = new HashMap<Integer, State>( listState.size( ) );
+
+        for ( State state : listState )
+        {
+            mapStateById.put( state.getId( ), state );
+        }
+
+        IResourceWorkflowService resourceWorkflowService = SpringContextService.getBean( ResourceWorkflowService.BEAN_SERVICE );
+
+        for ( List<Integer> listIdRecordChunk : DirectoryUtils.getSqlInListChunks( _listIdRecord ) )
+        {
+            Map<Integer, Integer> mapIdStateByIdRecord = resourceWorkflowService.getListIdStateByListId( listIdRecordChunk, _directory.getIdWorkflow( ),
+                    Record.WORKFLOW_RESOURCE_TYPE, Integer.valueOf( _directory.getIdDirectory( ) ) );
+
+            if ( mapIdStateByIdRecord == null )
+            {
+                continue;
+            }
+
+            for ( Entry<Integer, Integer> entry : mapIdStateByIdRecord.entrySet( ) )
+            {
+                State state = mapStateById.get( entry.getValue( ) );
+
+                if ( state != null )
+                {
+                    mapStateByIdRecord.put( entry.getKey( ), state );
+                }
+            }
+        }
+
+        return mapStateByIdRecord;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.service.record;
+
+import fr.paris.lutece.plugins.directory.business.IEntry;
+import fr.paris.lutece.plugins.directory.business.Record;
+import fr.paris.lutece.plugins.directory.service.DirectoryCacheService;
+import fr.paris.lutece.plugins.workflowcore.business.state.State;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * RecordXmlCacheService : keeps in memory the XML fragments of the records rendered by the front office. The cache holds one element per record, which
+ * contains the fragments of all its renderings (entries displayed, locale, state and display flags), so that a record is invalidated in a single operation
+ * when it is updated or removed, or when one of its record fields is written through RecordFieldHome. A fragment is also discarded when the modification
+ * date of the record or the version of the directory definitions, shared by all the nodes, no longer matches.
+ * The cache is local to the node and bounded by the settings of its cache in caches.properties. The record fields written on another node without
+ * updating their record are only seen when the element expires : a cluster whose modules write the record fields directly should set a time to live
+ * for this cache.
+ */
+public final class RecordXmlCacheService extends AbstractCacheableService
+{
+    private static final String SERVICE_NAME = "Directory Record XML Cache Service";
+    private static final String KEY_SEPARATOR = ":";
+    private static final String KEY_ENTRY_SEPARATOR = ",";
+    private static final String KEY_NO_STATE = "-";
+    private static RecordXmlCacheService _singleton = new RecordXmlCacheService( );
+
+    /**
+     * Private constructor
+     */
+    private RecordXmlCacheService( )
+    {
+        initCache( );
+    }
+
+    /**
+     * @return the instance of the service
+     */
+    public static RecordXmlCacheService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName( )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Return the key identifying a rendering of the records, to be computed once for all the records of a page
+     * 
+     * @param listEntry
+     *            the entries displayed
+     * @param locale
+     *            the locale
+     * @param strDisplayFlags
+     *            the display flags given to {@link Record#getXml}
+     * @return the key of the rendering
+     */
+    public String getRenderingKey( List<IEntry> listEntry, Locale locale, String strDisplayFlags )
+    {
+        StringBuilder sbKey = new StringBuilder( );
+        sbKey.append( locale ).append( KEY_SEPARATOR ).append( strDisplayFlags ).append( KEY_SEPARATOR );
+
+        for ( IEntry entry : listEntry )
+        {
+            sbKey.append( entry.getIdEntry( ) ).append( KEY_ENTRY_SEPARATOR );
+        }
+
+        return sbKey.toString( );
+    }
+
+    /**
+     * Return the cached XML of a record
+     * 
+     * @param record
+     *            the record
+     * @param state
+     *            the state of the record, may be null
+     * @param strRenderingKey
+     *            the key of the rendering given by {@link #getRenderingKey}
+     * @return the XML, or null if it is not in cache
+     */
+    public String getXml( Record record, State state, String strRenderingKey )
+    {
+        if ( !isCacheEnable( ) )
+        {
+            return null;
+        }
+
+        RecordXmlFragments fragments = (RecordXmlFragments) getFromCache( getCacheKey( record.getIdRecord( ) ) );
+
+        if ( ( fragments == null ) || !fragments.isValid( getDateModification( record ), DirectoryCacheService.getInstance( ).getVersion( ) ) )
+        {
+            return null;
+        }
+
+        return fragments.get( getFragmentKey( state, strRenderingKey ) );
+    }
+
+    /**
+     * Put the XML of a record in cache
+     * 
+     * @param record
+     *            the record
+     * @param state
+     *            the state of the record, may be null
+     * @param strRenderingKey
+     *            the key of the rendering given by {@link #getRenderingKey}
+     * @param strXml
+     *            the XML of the record
+     */
+    public void putXml( Record record, State state, String strRenderingKey, String strXml )
+    {
+        if ( !isCacheEnable( ) )
+        {
+            return;
+        }
+
+        String strCacheKey = getCacheKey( record.getIdRecord( ) );
+        long lDateModification = getDateModification( record );
+        long lDefinitionsVersion = DirectoryCacheService.getInstance( ).getVersion( );
+        RecordXmlFragments fragments = (RecordXmlFragments) getFromCache( strCacheKey );
+
+        if ( ( fragments == null ) || !fragments.isValid( lDateModification, lDefinitionsVersion ) )
+        {
+            fragments = new RecordXmlFragments( lDateModification, lDefinitionsVersion );
+            putInCache( strCacheKey, fragments );
+        }
+
+        fragments.put( getFragmentKey( state, strRenderingKey ), strXml );
+    }
+
+    /**
+     * Remove from cache the XML of a record which has been updated or removed
+     * 
+     * @param nIdRecord
+     *            the id of the record
+     */
+    public void invalidateRecord( int nIdRecord )
+    {
+        if ( isCacheEnable( ) )
+        {
+            removeKey( getCacheKey( nIdRecord ) );
+        }
+    }
+
+    /**
+     * Return the cache key of a record
+     * 
+     * @param nIdRecord
+     *            the id of the record
+     * @return the key
+     */
+    private static String getCacheKey( int nIdRecord )
+    {
+        return Integer.toString( nIdRecord );
+    }
+
+    /**
+     * Return the key of a fragment in the element of its record
+     * 
+     * @param state
+     *            the state of the record, may be null
+     * @param strRenderingKey
+     *            the key of the rendering
+     * @return the key
+     */
+    private static String getFragmentKey( State state, String strRenderingKey )
+    {
+        return ( ( state != null ) ? Integer.toString( state.getId( ) ) : KEY_NO_STATE ) + KEY_SEPARATOR + strRenderingKey;
+    }
+
+    /**
+     * Return the modification date of a record in milliseconds
+     * 
+     * @param record
+     *            the record
+     * @return the modification date, 0 if it is not set
+     */
+    private static long getDateModification( Record record )
+    {
+        return ( record.getDateModification( ) != null ) ? record.getDateModification( ).getTime( ) : 0L;
+    }
+
+    /**
+     * The XML fragments of a record, valid for one modification date of the record and one version of the directory definitions
+     */
+    private static final class RecordXmlFragments
+    {
+        private final long _lDateModification;
+        private final long _lDefinitionsVersion;
+        private final ConcurrentMap<String, String> _mapXml = new ConcurrentHashMap<String, String>( );
+
+        /**
+         * Constructor
+         * 
+         * @param lDateModification
+         *            the modification date of the record
+         * @param lDefinitionsVersion
+         *            the version of the directory definitions
+         */
+        RecordXmlFragments( long lDateModification, long lDefinitionsVersion )
+        {
+            _lDateModification = lDateModification;
+            _lDefinitionsVersion = lDefinitionsVersion;
+        }
+
+        /**
+         * @param lDateModification
+         *            the current modification date of the record
+         * @param lDefinitionsVersion
+         *            the current version of the directory definitions
+         * @return true if the fragments are still valid
+         */
+        boolean isValid( long lDateModification, long lDefinitionsVersion )
+        {
+            return ( _lDateModification == lDateModification ) && ( _lDefinitionsVersion == lDefinitionsVersion );
+        }
+
+        /**
+         * @param strKey
+         *            the key of the fragment
+         * @return the fragment, or null
+         */
+        String get( String strKey )
+        {
+            return _mapXml.get( strKey );
+        }
+
+        /**
+         * @param strKey
+         *            the key of the fragment
+         * @param strXml
+         *            the fragment
+         */
+        void put( String strKey, String strXml )
+        {
+            _mapXml.put( strKey, strXml );
+        }
+    }
+}
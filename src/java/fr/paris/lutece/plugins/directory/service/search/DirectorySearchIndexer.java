@@ -46,7 +46,6 @@ import fr.paris.lutece.plugins.directory.business.RecordFieldHome;
 import fr.paris.lutece.plugins.directory.service.DirectoryPlugin;
 import fr.paris.lutece.plugins.directory.service.record.IRecordService;
 import fr.paris.lutece.plugins.directory.service.record.RecordService;
-import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.portal.service.content.XPageAppService;
 import fr.paris.lutece.portal.service.message.SiteMessageException;
 import fr.paris.lutece.portal.service.plugin.Plugin;
@@ -73,7 +72,11 @@ import org.apache.lucene.document.TextField;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Directory global indexer
@@ -89,6 +92,9 @@ public class DirectorySearchIndexer implements SearchIndexer
     private static final String PARAMETER_VIEW_DIRECTORY_RECORD = "view_directory_record";
     private static final String PROPERTY_INDEXER_ENABLE = "directory.globalIndexer.enable";
     private static final String ROLE_NONE = "none";
+    private static final String PROPERTY_INDEXER_PAGE_SIZE = "directory.globalIndexer.pageSize";
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final String CONSTANT_SPACE = " ";
 
     /**
      * {@inheritDoc}
@@ -182,28 +188,12 @@ public class DirectorySearchIndexer implements SearchIndexer
             return new ArrayList<Document>( 0 );
         }
 
-        int nIdDirectory = directory.getIdDirectory( );
+        DirectoryIndexedEntries indexedEntries = new DirectoryIndexedEntries( directory.getIdDirectory( ), plugin );
+        List<Integer> listIdRecord = new ArrayList<Integer>( 1 );
+        listIdRecord.add( nIdRecord );
 
-        // Parse the entries to gather the ones marked as indexed
-        EntryFilter entryFilter = new EntryFilter( );
-        entryFilter.setIdDirectory( nIdDirectory );
-        entryFilter.setIsIndexed( EntryFilter.FILTER_TRUE );
-
-        List<IEntry> listIndexedEntry = EntryHome.getEntryList( entryFilter, plugin );
-
-        entryFilter = new EntryFilter( );
-        entryFilter.setIdDirectory( nIdDirectory );
-        entryFilter.setIsIndexedAsTitle( EntryFilter.FILTER_TRUE );
-
-        List<IEntry> listIndexedAsTitleEntry = EntryHome.getEntryList( entryFilter, plugin );
-
-        entryFilter = new EntryFilter( );
-        entryFilter.setIdDirectory( nIdDirectory );
-        entryFilter.setIsIndexedAsSummary( EntryFilter.FILTER_TRUE );
-
-        List<IEntry> listIndexedAsSummaryEntry = EntryHome.getEntryList( entryFilter, plugin );
-
-        Document doc = getDocument( record, listIndexedEntry, listIndexedAsTitleEntry, listIndexedAsSummaryEntry, plugin );
+        Document doc = getDocument( record, RecordFieldHome.getEntryValuesListByListIdRecord( listIdRecord, indexedEntries.getListIdEntry( ), plugin ),
+                indexedEntries );
 
         if ( doc != null )
         {
@@ -223,6 +213,7 @@ public class DirectorySearchIndexer implements SearchIndexer
     public void indexDocuments( ) throws IOException, InterruptedException, SiteMessageException
     {
         Plugin plugin = PluginService.getPlugin( DirectoryPlugin.PLUGIN_NAME );
+        int nPageSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_INDEXER_PAGE_SIZE, DEFAULT_PAGE_SIZE ), 1 );
 
         // Index only the directories that have the attribute is_indexed as true
         DirectoryFilter dirFilter = new DirectoryFilter( );
@@ -240,41 +231,54 @@ public class DirectorySearchIndexer implements SearchIndexer
             recFilter.setIdDirectory( nIdDirectory );
             recFilter.setIsDisabled( RecordFieldFilter.FILTER_TRUE ); // Bad naming: IsDisable( true ) stands for enabled
 
-            List<Record> listRecord = recordService.getListRecord( recFilter, plugin );
+            List<Integer> listIdRecord = recordService.getListRecordId( recFilter, plugin );
 
             // Keep processing this directory only if there are enabled records
-            if ( !listRecord.isEmpty( ) )
+            if ( listIdRecord.isEmpty( ) )
             {
-                // Parse the entries to gather the ones marked as indexed
-                EntryFilter entryFilter = new EntryFilter( );
-                entryFilter.setIdDirectory( nIdDirectory );
-                entryFilter.setIsIndexed( EntryFilter.FILTER_TRUE );
+                continue;
+            }
 
-                List<IEntry> listIndexedEntry = EntryHome.getEntryList( entryFilter, plugin );
+            DirectoryIndexedEntries indexedEntries = new DirectoryIndexedEntries( nIdDirectory, plugin );
+            int nListIdRecordSize = listIdRecord.size( );
 
-                entryFilter = new EntryFilter( );
-                entryFilter.setIdDirectory( nIdDirectory );
-                entryFilter.setIsIndexedAsTitle( EntryFilter.FILTER_TRUE );
+            // The records are processed by pages : the values of the indexed entries of a page are loaded with a single query
+            for ( int i = 0; i < nListIdRecordSize; i += nPageSize )
+            {
+                List<Integer> listIdRecordPage = listIdRecord.subList( i, Math.min( i + nPageSize, nListIdRecordSize ) );
+                Map<Integer, List<RecordField>> mapRecordFields = new HashMap<Integer, List<RecordField>>( );
 
-                List<IEntry> listIndexedAsTitleEntry = EntryHome.getEntryList( entryFilter, plugin );
+                for ( RecordField recordField : RecordFieldHome.getEntryValuesListByListIdRecord( listIdRecordPage, indexedEntries.getListIdEntry( ),
+                        plugin ) )
+                {
+                    List<RecordField> listRecordField = mapRecordFields.get( recordField.getRecord( ).getIdRecord( ) );
 
-                entryFilter = new EntryFilter( );
-                entryFilter.setIdDirectory( nIdDirectory );
-                entryFilter.setIsIndexedAsSummary( EntryFilter.FILTER_TRUE );
+                    if ( listRecordField == null )
+                    {
+                        listRecordField = new ArrayList<RecordField>( );
+                        mapRecordFields.put( recordField.getRecord( ).getIdRecord( ), listRecordField );
+                    }
 
-                List<IEntry> listIndexedAsSummaryEntry = EntryHome.getEntryList( entryFilter, plugin );
+                    listRecordField.add( recordField );
+                }
 
-                for ( Record record : listRecord )
+                for ( Record record : recordService.loadListByListId( listIdRecordPage, plugin ) )
                 {
+                    // the records removed since their ids have been listed are skipped
+                    if ( record == null )
+                    {
+                        continue;
+                    }
+
                     Document recordDoc = null;
 
                     try
                     {
-                        recordDoc = getDocument( record, listIndexedEntry, listIndexedAsTitleEntry, listIndexedAsSummaryEntry, plugin );
+                        recordDoc = getDocument( record, mapRecordFields.get( record.getIdRecord( ) ), indexedEntries );
                     }
                     catch( Exception e )
                     {
-                        String strMessage = "Directory ID : " + directory.getIdDirectory( ) + " - Record ID : " + record.getIdRecord( );
+                        String strMessage = "Directory ID : " + nIdDirectory + " - Record ID : " + record.getIdRecord( );
                         IndexationService.error( this, e, strMessage );
                     }
 
@@ -304,34 +308,75 @@ public class DirectorySearchIndexer implements SearchIndexer
      */
     public Document getDocument( Record record, List<IEntry> listContentEntry, List<IEntry> listTitleEntry, List<IEntry> listSummaryEntry, Plugin plugin )
     {
-        Document doc = new Document( );
+        DirectoryIndexedEntries indexedEntries = new DirectoryIndexedEntries( listContentEntry, listTitleEntry, listSummaryEntry );
+        List<Integer> listIdRecord = new ArrayList<Integer>( 1 );
+        listIdRecord.add( record.getIdRecord( ) );
 
-        FieldType ft = new FieldType( StringField.TYPE_STORED );
-        ft.setOmitNorms( false );
-
-        FieldType ftNotStored = new FieldType( StringField.TYPE_NOT_STORED );
-        ftNotStored.setOmitNorms( false );
-        ftNotStored.setTokenized( false );
+        return getDocument( record, RecordFieldHome.getEntryValuesListByListIdRecord( listIdRecord, indexedEntries.getListIdEntry( ), plugin ),
+                indexedEntries );
+    }
 
-        boolean bFallback = false;
+    /**
+     * Builds a document which will be used by Lucene during the indexing of this record. The title, the content and the summary are computed in a single
+     * pass over the record fields.
+     * 
+     * @param record
+     *            the record to convert into a document
+     * @param listRecordField
+     *            the record fields of the indexed entries of the record, in the order of the entries, may be null
+     * @param indexedEntries
+     *            the indexed entries of the directory of the record
+     * @return a lucene document filled with the record data
+     */
+    private Document getDocument( Record record, List<RecordField> listRecordField, DirectoryIndexedEntries indexedEntries )
+    {
+        StringBuilder sbTitle = new StringBuilder( );
+        StringBuilder sbContent = new StringBuilder( );
+        StringBuilder sbSummary = new StringBuilder( );
+        StringBuilder sbFirstContentEntry = new StringBuilder( );
 
-        // Fallback if there is no entry marker as indexed_as_title
-        // Uses the first indexed field instead
-        if ( listTitleEntry.isEmpty( ) && !listContentEntry.isEmpty( ) )
+        if ( listRecordField != null )
         {
-            listTitleEntry.add( listContentEntry.get( 0 ) );
-            bFallback = true;
-        }
+            for ( RecordField recordField : listRecordField )
+            {
+                String strValue = recordField.getValue( );
+
+                if ( strValue == null )
+                {
+                    continue;
+                }
+
+                Integer nIdEntry = recordField.getEntry( ).getIdEntry( );
+
+                if ( indexedEntries.isTitle( nIdEntry ) )
+                {
+                    sbTitle.append( strValue ).append( CONSTANT_SPACE );
+                }
 
-        String strTitle = getContentToIndex( record, listTitleEntry, plugin );
+                if ( indexedEntries.isContent( nIdEntry ) )
+                {
+                    sbContent.append( strValue ).append( CONSTANT_SPACE );
+                }
 
-        // Fallback if fields were empty
+                if ( indexedEntries.isSummary( nIdEntry ) )
+                {
+                    sbSummary.append( strValue ).append( CONSTANT_SPACE );
+                }
+
+                if ( nIdEntry.equals( indexedEntries.getIdFirstContentEntry( ) ) )
+                {
+                    sbFirstContentEntry.append( strValue ).append( CONSTANT_SPACE );
+                }
+            }
+        }
+
+        // Fallback if there is no entry marker as indexed_as_title or if its fields were empty
         // Uses the first indexed field instead
-        if ( StringUtils.isBlank( strTitle ) && !bFallback && !listContentEntry.isEmpty( ) )
+        String strTitle = sbTitle.toString( );
+
+        if ( StringUtils.isBlank( strTitle ) )
         {
-            listTitleEntry.clear( );
-            listTitleEntry.add( listContentEntry.get( 0 ) );
-            strTitle = getContentToIndex( record, listTitleEntry, plugin );
+            strTitle = sbFirstContentEntry.toString( );
         }
 
         // No more fallback. Giving up
@@ -340,26 +385,29 @@ public class DirectorySearchIndexer implements SearchIndexer
             return null;
         }
 
+        Document doc = new Document( );
+
+        FieldType ft = new FieldType( StringField.TYPE_STORED );
+        ft.setOmitNorms( false );
+
+        FieldType ftNotStored = new FieldType( StringField.TYPE_NOT_STORED );
+        ftNotStored.setOmitNorms( false );
+        ftNotStored.setTokenized( false );
+
         doc.add( new Field( SearchItem.FIELD_TITLE, strTitle, ft ) );
 
-        if ( !listContentEntry.isEmpty( ) )
-        {
-            String strContent = getContentToIndex( record, listContentEntry, plugin );
+        String strContent = sbContent.toString( );
 
-            if ( StringUtils.isNotBlank( strContent ) )
-            {
-                doc.add( new Field( SearchItem.FIELD_CONTENTS, strContent, TextField.TYPE_NOT_STORED ) );
-            }
+        if ( StringUtils.isNotBlank( strContent ) )
+        {
+            doc.add( new Field( SearchItem.FIELD_CONTENTS, strContent, TextField.TYPE_NOT_STORED ) );
         }
 
-        if ( !listSummaryEntry.isEmpty( ) )
-        {
-            String strSummary = getContentToIndex( record, listSummaryEntry, plugin );
+        String strSummary = sbSummary.toString( );
 
-            if ( StringUtils.isNotBlank( strSummary ) )
-            {
-                doc.add( new StoredField( SearchItem.FIELD_SUMMARY, strSummary ) );
-            }
+        if ( StringUtils.isNotBlank( strSummary ) )
+        {
+            doc.add( new StoredField( SearchItem.FIELD_SUMMARY, strSummary ) );
         }
 
         String strRoleKey = record.getRoleKey( );
@@ -395,36 +443,148 @@ public class DirectorySearchIndexer implements SearchIndexer
     }
 
     /**
-     * Concatenates the value of the specified field in this record
-     * 
-     * @param record
-     *            the record to seek
-     * @param listEntry
-     *            the list of field to concatenate
-     * @param plugin
-     *            the plugin object
-     * @return
+     * The indexed entries of a directory
      */
-    private String getContentToIndex( Record record, List<IEntry> listEntry, Plugin plugin )
+    private static final class DirectoryIndexedEntries
     {
-        List<Integer> listIdEntry = new ArrayList<Integer>( listEntry.size( ) );
+        private final List<Integer> _listIdEntry = new ArrayList<Integer>( );
+        private final Set<Integer> _setContentEntry = new HashSet<Integer>( );
+        private final Set<Integer> _setTitleEntry = new HashSet<Integer>( );
+        private final Set<Integer> _setSummaryEntry = new HashSet<Integer>( );
+        private Integer _nIdFirstContentEntry;
+
+        /**
+         * Load the indexed entries of a directory
+         * 
+         * @param nIdDirectory
+         *            the id of the directory
+         * @param plugin
+         *            the plugin
+         */
+        DirectoryIndexedEntries( int nIdDirectory, Plugin plugin )
+        {
+            // Parse the entries to gather the ones marked as indexed
+            EntryFilter entryFilter = new EntryFilter( );
+            entryFilter.setIdDirectory( nIdDirectory );
+            entryFilter.setIsIndexed( EntryFilter.FILTER_TRUE );
+
+            List<IEntry> listIndexedEntry = EntryHome.getEntryList( entryFilter, plugin );
+
+            entryFilter = new EntryFilter( );
+            entryFilter.setIdDirectory( nIdDirectory );
+            entryFilter.setIsIndexedAsTitle( EntryFilter.FILTER_TRUE );
+
+            List<IEntry> listIndexedAsTitleEntry = EntryHome.getEntryList( entryFilter, plugin );
+
+            entryFilter = new EntryFilter( );
+            entryFilter.setIdDirectory( nIdDirectory );
+            entryFilter.setIsIndexedAsSummary( EntryFilter.FILTER_TRUE );
 
-        for ( IEntry entry : listEntry )
+            init( listIndexedEntry, listIndexedAsTitleEntry, EntryHome.getEntryList( entryFilter, plugin ) );
+        }
+
+        /**
+         * Constructor
+         * 
+         * @param listContentEntry
+         *            the entries marked as is_indexed
+         * @param listTitleEntry
+         *            the entries marked as is_indexed_as_title
+         * @param listSummaryEntry
+         *            the entries marked as is_indexed_as_summary
+         */
+        DirectoryIndexedEntries( List<IEntry> listContentEntry, List<IEntry> listTitleEntry, List<IEntry> listSummaryEntry )
         {
-            listIdEntry.add( entry.getIdEntry( ) );
+            init( listContentEntry, listTitleEntry, listSummaryEntry );
         }
 
-        StringBuffer sb = new StringBuffer( );
+        /**
+         * Initialize the sets of entries
+         * 
+         * @param listContentEntry
+         *            the entries marked as is_indexed
+         * @param listTitleEntry
+         *            the entries marked as is_indexed_as_title
+         * @param listSummaryEntry
+         *            the entries marked as is_indexed_as_summary
+         */
+        private void init( List<IEntry> listContentEntry, List<IEntry> listTitleEntry, List<IEntry> listSummaryEntry )
+        {
+            addEntries( listContentEntry, _setContentEntry );
+            addEntries( listTitleEntry, _setTitleEntry );
+            addEntries( listSummaryEntry, _setSummaryEntry );
 
-        List<RecordField> listField = RecordFieldHome.getRecordFieldSpecificList( listIdEntry, record.getIdRecord( ), plugin,
-                DirectoryUtils.getMapFieldsOfListEntry( listEntry, plugin ) );
+            if ( !listContentEntry.isEmpty( ) )
+            {
+                _nIdFirstContentEntry = listContentEntry.get( 0 ).getIdEntry( );
+            }
+        }
 
-        for ( RecordField field : listField )
+        /**
+         * Add entries to a set and to the list of all the indexed entries
+         * 
+         * @param listEntry
+         *            the entries
+         * @param setIdEntry
+         *            the set
+         */
+        private void addEntries( List<IEntry> listEntry, Set<Integer> setIdEntry )
         {
-            sb.append( RecordFieldHome.findByPrimaryKey( field.getIdRecordField( ), plugin ).getValue( ) );
-            sb.append( " " );
+            for ( IEntry entry : listEntry )
+            {
+                setIdEntry.add( entry.getIdEntry( ) );
+
+                if ( !_listIdEntry.contains( entry.getIdEntry( ) ) )
+                {
+                    _listIdEntry.add( entry.getIdEntry( ) );
+                }
+            }
         }
 
-        return sb.toString( );
+        /**
+         * @return the ids of all the indexed entries
+         */
+        List<Integer> getListIdEntry( )
+        {
+            return _listIdEntry;
+        }
+
+        /**
+         * @return the id of the first entry marked as is_indexed, or null
+         */
+        Integer getIdFirstContentEntry( )
+        {
+            return _nIdFirstContentEntry;
+        }
+
+        /**
+         * @param nIdEntry
+         *            the id of an entry
+         * @return true if the entry is marked as is_indexed
+         */
+        boolean isContent( Integer nIdEntry )
+        {
+            return _setContentEntry.contains( nIdEntry );
+        }
+
+        /**
+         * @param nIdEntry
+         *            the id of an entry
+         * @return true if the entry is marked as is_indexed_as_title
+         */
+        boolean isTitle( Integer nIdEntry )
+        {
+            return _setTitleEntry.contains( nIdEntry );
+        }
+
+        /**
+         * @param nIdEntry
+         *            the id of an entry
+         * @return true if the entry is marked as is_indexed_as_summary
+         */
+        boolean isSummary( Integer nIdEntry )
+        {
+            return _setSummaryEntry.contains( nIdEntry );
+        }
     }
 }
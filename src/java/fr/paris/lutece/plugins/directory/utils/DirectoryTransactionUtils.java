@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.utils;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactions of the plugin with actions run after their commit, such as the updates of the in-memory caches and queues which must only see committed
+ * data. The transactions of the TransactionManager are nested : the actions are run when the outermost transaction is committed, and dropped when it is
+ * rolled back.
+ */
+public final class DirectoryTransactionUtils
+{
+    private static final ThreadLocal<List<Runnable>> _tlAfterCommitActions = new ThreadLocal<List<Runnable>>( );
+
+    /**
+     * Private constructor
+     */
+    private DirectoryTransactionUtils( )
+    {
+    }
+
+    /**
+     * Begin a transaction, or a nested transaction
+     * 
+     * @param plugin
+     *            the plugin
+     */
+    public static void beginTransaction( Plugin plugin )
+    {
+        TransactionManager.beginTransaction( plugin );
+    }
+
+    /**
+     * Commit a transaction. The actions registered during the transaction are run once the outermost transaction is committed.
+     * 
+     * @param plugin
+     *            the plugin
+     */
+    public static void commitTransaction( Plugin plugin )
+    {
+        TransactionManager.commitTransaction( plugin );
+
+        if ( TransactionManager.getCurrentTransaction( plugin ) == null )
+        {
+            List<Runnable> listAction = _tlAfterCommitActions.get( );
+            _tlAfterCommitActions.remove( );
+
+            if ( listAction != null )
+            {
+                for ( Runnable action : listAction )
+                {
+                    run( action );
+                }
+            }
+        }
+    }
+
+    /**
+     * Roll back a transaction. The actions registered during the transaction are dropped once the outermost transaction is rolled back.
+     * 
+     * @param plugin
+     *            the plugin
+     */
+    public static void rollBack( Plugin plugin )
+    {
+        TransactionManager.rollBack( plugin );
+
+        if ( TransactionManager.getCurrentTransaction( plugin ) == null )
+        {
+            _tlAfterCommitActions.remove( );
+        }
+    }
+
+    /**
+     * Run an action after the commit of the transaction in progress, or immediately if there is none. The actions registered during a Spring
+     * transaction are run after its commit.
+     * 
+     * @param action
+     *            the action
+     * @param plugin
+     *            the plugin
+     */
+    public static void runAfterCommit( final Runnable action, Plugin plugin )
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive( ) )
+        {
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter( )
+            {
+                @Override
+                public void afterCommit( )
+                {
+                    run( action );
+                }
+            } );
+        }
+        else
+            if ( TransactionManager.getCurrentTransaction( plugin ) != null )
+            {
+                List<Runnable> listAction = _tlAfterCommitActions.get( );
+
+                if ( listAction == null )
+                {
+                    listAction = new ArrayList<Runnable>( );
+                    _tlAfterCommitActions.set( listAction );
+                }
+
+                listAction.add( action );
+            }
+            else
+            {
+                run( action );
+            }
+    }
+
+    /**
+     * Run an action after a commit. Its failure does not affect the data already committed.
+     * 
+     * @param action
+     *            the action
+     */
+    private static void run( Runnable action )
+    {
+        try
+        {
+            action.run( );
+        }
+        catch( RuntimeException e )
+        {
+            AppLogService.error( "Error after the commit of a directory transaction : " + e.getMessage( ), e );
+        }
+    }
+}
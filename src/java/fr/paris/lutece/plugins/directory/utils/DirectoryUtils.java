@@ -51,6 +51,7 @@ import fr.paris.lutece.plugins.directory.business.RecordField;
 import fr.paris.lutece.plugins.directory.business.RecordFieldFilter;
 import fr.paris.lutece.plugins.directory.business.RecordFieldHome;
 import fr.paris.lutece.plugins.directory.business.attribute.DirectoryAttribute;
+import fr.paris.lutece.plugins.directory.service.DirectoryCacheService;
 import fr.paris.lutece.plugins.directory.service.DirectoryPlugin;
 import fr.paris.lutece.plugins.directory.service.directorysearch.DirectorySearchService;
 import fr.paris.lutece.plugins.directory.service.upload.DirectoryAsynchronousUploadHandler;
@@ -80,6 +81,9 @@ import org.apache.commons.lang.StringUtils;
 
 import org.springframework.util.ReflectionUtils;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
 import java.sql.Timestamp;
 
 import java.util.ArrayList;
@@ -91,8 +95,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.TreeSet;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -142,6 +144,7 @@ public final class DirectoryUtils
     public static final String PARAMETER_ID_FILE = "id_file";
     public static final String PARAMETER_ID_ACTION = "id_action";
     public static final String PARAMETER_SHOW_ACTION_RESULT = "show_action_result";
+    public static final String PARAMETER_MASS_ACTION = "mass_action";
     public static final String PARAMETER_DATECREATION = "dateCreation";
     public static final String PARAMETER_DATEMODIFICATION = "dateModification";
 
@@ -155,12 +158,19 @@ public final class DirectoryUtils
     // PROPERTIES
     public static final String PROPERTY_LUTECE_BASE_URL = "lutece.base.url";
     public static final String PROPERTY_LUTECE_PROD_URL = "lutece.prod.url";
+    private static final String PROPERTY_SQL_IN_LIST_MAX_SIZE = "directory.sql.inList.maxSize";
+    private static final int DEFAULT_SQL_IN_LIST_MAX_SIZE = 1000;
+    private static final String PROPERTY_NODE_NAME = "directory.node.name";
+    private static final String DEFAULT_HOST_NAME = "localhost";
+    private static final String CONSTANT_NODE_NAME_SEPARATOR = ":";
+    private static final int CONSTANT_NODE_NAME_MAX_LENGTH = 255;
     private static final String PARAMETER_ID_ENTRY_TYPE = "id_type";
     private static final String CONSTANT_CHARACTER_DOUBLE_QUOTE = "\"";
     private static final String CONSTANT_CHARACTER_SIMPLE_QUOTE = "'";
     private static final String CONSTANTE_CHARACTERNEW_LINE = "\n";
     private static final String CONSTANTE_CHARACTER_RETURN = "\r";
     private static final String REGEX_ID = "^[\\d]+$";
+    private static String _strNodeName;
 
     /**
      * DirectoryUtils
@@ -180,6 +190,41 @@ public final class DirectoryUtils
         return new Timestamp( GregorianCalendar.getInstance( ).getTimeInMillis( ) );
     }
 
+    /**
+     * Get the name of this node of the cluster, stored with the background jobs it runs. It is read from the directory.node.name property, and defaults
+     * to the host name followed by the path of the webapp.
+     *
+     * @return the name of this node
+     */
+    public static synchronized String getNodeName( )
+    {
+        if ( _strNodeName == null )
+        {
+            String strNodeName = AppPropertiesService.getProperty( PROPERTY_NODE_NAME );
+
+            if ( StringUtils.isBlank( strNodeName ) )
+            {
+                String strHostName;
+
+                try
+                {
+                    strHostName = InetAddress.getLocalHost( ).getHostName( );
+                }
+                catch( UnknownHostException e )
+                {
+                    AppLogService.error( "Unable to get the host name of the node : " + e.getMessage( ), e );
+                    strHostName = DEFAULT_HOST_NAME;
+                }
+
+                strNodeName = strHostName + CONSTANT_NODE_NAME_SEPARATOR + AppPathService.getWebAppPath( );
+            }
+
+            _strNodeName = StringUtils.abbreviate( strNodeName.trim( ), CONSTANT_NODE_NAME_MAX_LENGTH );
+        }
+
+        return _strNodeName;
+    }
+
     /**
      * return an instance of IEntry function of type entry
      *
@@ -214,27 +259,12 @@ public final class DirectoryUtils
 
         if ( entryType != null )
         {
-            try
+            entry = DirectoryCacheService.getInstance( ).newEntry( entryType.getClassName( ) );
+
+            if ( entry != null )
             {
-                entry = (IEntry) Class.forName( entryType.getClassName( ) ).newInstance( );
                 entry.setEntryType( entryType );
             }
-            catch( ClassNotFoundException e )
-            {
-                // class doesn't exist
-                AppLogService.error( e );
-            }
-            catch( InstantiationException e )
-            {
-                // Class is abstract or is an interface or haven't accessible
-                // builder
-                AppLogService.error( e );
-            }
-            catch( IllegalAccessException e )
-            {
-                // can't access to rhe class
-                AppLogService.error( e );
-            }
         }
 
         return entry;
@@ -520,20 +550,7 @@ public final class DirectoryUtils
     {
         Map<String, List<RecordField>> map = new HashMap<String, List<RecordField>>( );
 
-        List<Integer> listIdEntry = new ArrayList<Integer>( );
-
-        for ( IEntry entryFistLevel : lisEntry )
-        {
-            listIdEntry.add( entryFistLevel.getIdEntry( ) );
-
-            if ( entryFistLevel.getChildren( ) != null )
-            {
-                for ( IEntry child : entryFistLevel.getChildren( ) )
-                {
-                    listIdEntry.add( child.getIdEntry( ) );
-                }
-            }
-        }
+        List<Integer> listIdEntry = getListIdEntryWithChildren( lisEntry );
 
         List<RecordField> lRF = RecordFieldHome.getRecordFieldSpecificList( listIdEntry, nIdRecord, plugin, mapFieldEntry );
         Map<Integer, List<RecordField>> tt = new HashMap<Integer, List<RecordField>>( );
@@ -565,6 +582,84 @@ public final class DirectoryUtils
         return map;
     }
 
+    /**
+     * get for each record of a list the Map which contains for each entry the list of recordField object associated, as
+     * {@link #getSpecificMapIdEntryListRecordField(List, int, Plugin, Map)} does for a single record. The record fields of all the records are loaded
+     * by a single query, so that a page of records is rendered without a query per record.
+     *
+     * @param lisEntry
+     *            the list of entry associate to the records
+     * @param listIdRecord
+     *            the ids of the records
+     * @param plugin
+     *            plugin
+     * @param mapFieldEntry
+     *            a map containing all fields associated to the list of entry
+     * @return a map of the map of each record, by record id. The records without record field have an empty map.
+     */
+    public static Map<Integer, Map<String, List<RecordField>>> getSpecificMapIdRecordMapIdEntryListRecordField( List<IEntry> lisEntry,
+            List<Integer> listIdRecord, Plugin plugin, Map<Integer, Field> mapFieldEntry )
+    {
+        Map<Integer, Map<String, List<RecordField>>> mapRecords = new HashMap<Integer, Map<String, List<RecordField>>>( listIdRecord.size( ) * 2 );
+
+        for ( Integer nIdRecord : listIdRecord )
+        {
+            mapRecords.put( nIdRecord, new HashMap<String, List<RecordField>>( ) );
+        }
+
+        if ( listIdRecord.isEmpty( ) )
+        {
+            return mapRecords;
+        }
+
+        List<Integer> listIdEntry = getListIdEntryWithChildren( lisEntry );
+
+        // the record fields are ordered by entry and field position, so is each list built here
+        for ( RecordField rf : RecordFieldHome.getRecordFieldSpecificList( listIdEntry, listIdRecord, plugin, mapFieldEntry ) )
+        {
+            Map<String, List<RecordField>> map = mapRecords.get( rf.getRecord( ).getIdRecord( ) );
+            String strIdEntry = Integer.toString( rf.getEntry( ).getIdEntry( ) );
+            List<RecordField> lRF = map.get( strIdEntry );
+
+            if ( lRF == null )
+            {
+                lRF = new ArrayList<RecordField>( );
+                map.put( strIdEntry, lRF );
+            }
+
+            lRF.add( rf );
+        }
+
+        return mapRecords;
+    }
+
+    /**
+     * Get the ids of a list of entries and of their children
+     *
+     * @param lisEntry
+     *            the list of entry
+     * @return the ids of the entries
+     */
+    private static List<Integer> getListIdEntryWithChildren( List<IEntry> lisEntry )
+    {
+        List<Integer> listIdEntry = new ArrayList<Integer>( );
+
+        for ( IEntry entryFistLevel : lisEntry )
+        {
+            listIdEntry.add( entryFistLevel.getIdEntry( ) );
+
+            if ( entryFistLevel.getChildren( ) != null )
+            {
+                for ( IEntry child : entryFistLevel.getChildren( ) )
+                {
+                    listIdEntry.add( child.getIdEntry( ) );
+                }
+            }
+        }
+
+        return listIdEntry;
+    }
+
     /**
      * Get the request data and if there is no error insert the data in the record specified in parameter. return null if there is no error or else return a
      * DirectoryError object
@@ -901,6 +996,28 @@ public final class DirectoryUtils
         return null;
     }
 
+    /**
+     * Split a list of ids in consecutive chunks, each small enough to be used in the IN list of a query. The maximum size of the IN lists is set by the
+     * directory.sql.inList.maxSize property.
+     *
+     * @param listId
+     *            the list of ids
+     * @return the chunks of the list, in the order of the list
+     */
+    public static List<List<Integer>> getSqlInListChunks( List<Integer> listId )
+    {
+        int nMaxSize = Math.max( AppPropertiesService.getPropertyInt( PROPERTY_SQL_IN_LIST_MAX_SIZE, DEFAULT_SQL_IN_LIST_MAX_SIZE ), 1 );
+        int nSize = listId.size( );
+        List<List<Integer>> listChunks = new ArrayList<List<Integer>>( ( nSize / nMaxSize ) + 1 );
+
+        for ( int i = 0; i < nSize; i += nMaxSize )
+        {
+            listChunks.add( listId.subList( i, Math.min( i + nMaxSize, nSize ) ) );
+        }
+
+        return listChunks;
+    }
+
     /**
      * Builds a query with filters placed in parameters. Consider using {@link #buildQueryWithFilter(StringBuilder, List, String)} instead.
      *
@@ -1040,42 +1157,12 @@ public final class DirectoryUtils
      */
     public static List<Integer> retainAll( List<Integer> list1, List<Integer> list2 )
     {
-        List<Integer> lresult = null;
-
         if ( list1.size( ) < list2.size( ) )
         {
-            Set<Integer> ts1 = new TreeSet<Integer>( list2 );
-
-            Iterator<Integer> it = list1.iterator( );
-
-            while ( it.hasNext( ) )
-            {
-                if ( !ts1.contains( it.next( ) ) )
-                {
-                    it.remove( );
-                }
-            }
-
-            lresult = list1;
+            return RecordIdSet.valueOf( list2 ).retainInOrder( list1 );
         }
-        else
-        {
-            Set<Integer> ts1 = new TreeSet<Integer>( list1 );
-
-            Iterator<Integer> it = list2.iterator( );
 
-            while ( it.hasNext( ) )
-            {
-                if ( !ts1.contains( it.next( ) ) )
-                {
-                    it.remove( );
-                }
-            }
-
-            lresult = list2;
-        }
-
-        return lresult;
+        return RecordIdSet.valueOf( list1 ).retainInOrder( list2 );
     }
 
     /**
@@ -1089,20 +1176,7 @@ public final class DirectoryUtils
      */
     public static List<Integer> retainAllIdsKeepingFirstOrder( List<Integer> list1, List<Integer> list2 )
     {
-        Iterator<Integer> it = list1.iterator( );
-
-        // makes contains quicker
-        TreeSet<Integer> ts = new TreeSet<Integer>( list2 );
-
-        while ( it.hasNext( ) )
-        {
-            if ( !ts.contains( it.next( ) ) )
-            {
-                it.remove( );
-            }
-        }
-
-        return list1;
+        return RecordIdSet.valueOf( list2 ).retainInOrder( list1 );
     }
 
     /**
@@ -1242,7 +1316,8 @@ public final class DirectoryUtils
                     directory.getIdWorkflow( ), ( (DirectoryAdminSearchFields) searchFields ).get_nIdWorkflowSate( ),
                     Integer.valueOf( directory.getIdDirectory( ) ), adminUser );
 
-            listResultRecordId = DirectoryUtils.retainAllIdsKeepingFirstOrder( listResultRecordId, listTmpResultRecordId );
+            // keeping order is important for display
+            listResultRecordId = RecordIdSet.valueOf( listTmpResultRecordId ).retainInOrder( listResultRecordId );
         }
         else
         {
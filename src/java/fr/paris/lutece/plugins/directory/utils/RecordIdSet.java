@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ *
+ * RecordIdSet : a set of record ids stored as a bitmap. Intersections and unions are done word by word and filtering a list of ids keeps its order in
+ * linear time, without boxing the ids of the set.
+ *
+ */
+public class RecordIdSet
+{
+    private final BitSet _bitSet;
+
+    /**
+     * Create an empty set
+     */
+    public RecordIdSet( )
+    {
+        _bitSet = new BitSet( );
+    }
+
+    /**
+     * Create a set backed by the given bitmap : the bit at index n is set if the record n is in the set
+     * 
+     * @param bitSet
+     *            the bitmap
+     */
+    public RecordIdSet( BitSet bitSet )
+    {
+        _bitSet = bitSet;
+    }
+
+    /**
+     * Create a set containing the given ids
+     * 
+     * @param collectionIdRecord
+     *            the ids, may be null
+     * @return the set
+     */
+    public static RecordIdSet valueOf( Collection<Integer> collectionIdRecord )
+    {
+        RecordIdSet recordIdSet = new RecordIdSet( );
+
+        if ( collectionIdRecord != null )
+        {
+            for ( Integer nIdRecord : collectionIdRecord )
+            {
+                if ( nIdRecord != null )
+                {
+                    recordIdSet.add( nIdRecord );
+                }
+            }
+        }
+
+        return recordIdSet;
+    }
+
+    /**
+     * Add an id to the set. Negative ids are ignored
+     * 
+     * @param nIdRecord
+     *            the id
+     */
+    public void add( int nIdRecord )
+    {
+        if ( nIdRecord >= 0 )
+        {
+            _bitSet.set( nIdRecord );
+        }
+    }
+
+    /**
+     * @param nIdRecord
+     *            the id
+     * @return true if the set contains the id
+     */
+    public boolean contains( int nIdRecord )
+    {
+        return ( nIdRecord >= 0 ) && _bitSet.get( nIdRecord );
+    }
+
+    /**
+     * @return the number of ids in the set
+     */
+    public int size( )
+    {
+        return _bitSet.cardinality( );
+    }
+
+    /**
+     * @return true if the set contains no id
+     */
+    public boolean isEmpty( )
+    {
+        return _bitSet.isEmpty( );
+    }
+
+    /**
+     * Keep in this set only the ids also contained in the other set
+     * 
+     * @param other
+     *            the other set
+     * @return this set
+     */
+    public RecordIdSet intersect( RecordIdSet other )
+    {
+        _bitSet.and( other._bitSet );
+
+        return this;
+    }
+
+    /**
+     * Add to this set all the ids of the other set
+     * 
+     * @param other
+     *            the other set
+     * @return this set
+     */
+    public RecordIdSet union( RecordIdSet other )
+    {
+        _bitSet.or( other._bitSet );
+
+        return this;
+    }
+
+    /**
+     * Removes from the list all the ids that are not contained in this set, keeping the order of the list
+     * 
+     * @param listIdRecord
+     *            the list to filter, modified in place
+     * @return the given list
+     */
+    public List<Integer> retainInOrder( List<Integer> listIdRecord )
+    {
+        int nSize = listIdRecord.size( );
+        int nRetained = 0;
+
+        for ( int i = 0; i < nSize; i++ )
+        {
+            Integer nIdRecord = listIdRecord.get( i );
+
+            if ( ( nIdRecord != null ) && contains( nIdRecord ) )
+            {
+                listIdRecord.set( nRetained++, nIdRecord );
+            }
+        }
+
+        listIdRecord.subList( nRetained, nSize ).clear( );
+
+        return listIdRecord;
+    }
+
+    /**
+     * @return the ids of the set in ascending order
+     */
+    public List<Integer> toList( )
+    {
+        List<Integer> listIdRecord = new ArrayList<Integer>( size( ) );
+
+        for ( int nIdRecord = _bitSet.nextSetBit( 0 ); nIdRecord >= 0; nIdRecord = _bitSet.nextSetBit( nIdRecord + 1 ) )
+        {
+            listIdRecord.add( nIdRecord );
+        }
+
+        return listIdRecord;
+    }
+}
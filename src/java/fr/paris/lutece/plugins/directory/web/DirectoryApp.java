@@ -65,6 +65,8 @@ import fr.paris.lutece.plugins.directory.business.RecordFieldFilter;
 import fr.paris.lutece.plugins.directory.business.RecordFieldHome;
 import fr.paris.lutece.plugins.directory.service.record.IRecordService;
 import fr.paris.lutece.plugins.directory.service.record.RecordService;
+import fr.paris.lutece.plugins.directory.service.record.RecordStateResolver;
+import fr.paris.lutece.plugins.directory.service.record.RecordXmlCacheService;
 import fr.paris.lutece.plugins.directory.utils.DirectoryErrorException;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.plugins.directory.web.action.DirectorySiteSearchFields;
@@ -204,6 +206,10 @@ public class DirectoryApp implements XPageApplication
     private static final String TAG_NO = "no";
     private static final String TAG_STATUS = "status";
 
+    // Renderings of the records XML cache, each one stands for the display flags given to Record.getXml
+    private static final String CACHE_RENDERING_RESULT_LIST = "result_list";
+    private static final String CACHE_RENDERING_RESULT_RECORD = "result_record";
+
     /**
      * Returns the Directory XPage result content depending on the request parameters and the current mode.
      *
@@ -677,18 +683,53 @@ public class DirectoryApp implements XPageApplication
 
         Map<Integer, Field> hashFields = DirectoryUtils.getMapFieldsOfListEntry( listEntrySearchResult, plugin );
 
+        List<Integer> listIdRecord = new ArrayList<Integer>( listRecord.size( ) );
+
+        for ( Record record : listRecord )
+        {
+            listIdRecord.add( record.getIdRecord( ) );
+        }
+
+        RecordStateResolver stateResolver = new RecordStateResolver( directory, listIdRecord );
+        RecordXmlCacheService cacheService = RecordXmlCacheService.getInstance( );
+        String strRenderingKey = cacheService.getRenderingKey( listEntrySearchResult, locale, CACHE_RENDERING_RESULT_LIST );
+        Map<Integer, State> mapStates = new HashMap<Integer, State>( );
+        Map<Integer, String> mapCachedXml = new HashMap<Integer, String>( );
+        List<Integer> listIdRecordToRender = new ArrayList<Integer>( );
+
         for ( Record record : listRecord )
         {
+            State state = stateResolver.getState( record.getIdRecord( ) );
+            String strXml = cacheService.getXml( record, state, strRenderingKey );
+            mapStates.put( record.getIdRecord( ), state );
+
+            if ( strXml != null )
+            {
+                mapCachedXml.put( record.getIdRecord( ), strXml );
+            }
+            else
+            {
+                listIdRecordToRender.add( record.getIdRecord( ) );
+            }
+        }
+
+        // the record fields of the records of the page which are not in cache are loaded at once
+        Map<Integer, Map<String, List<RecordField>>> mapRecordFields = DirectoryUtils.getSpecificMapIdRecordMapIdEntryListRecordField( listEntrySearchResult,
+                listIdRecordToRender, plugin, hashFields );
 
-            State state = null;
+        for ( Record record : listRecord )
+        {
+            String strXml = mapCachedXml.get( record.getIdRecord( ) );
 
-            if ( directory.getIdWorkflow( ) != DirectoryUtils.CONSTANT_ID_NULL && WorkflowService.getInstance( ).isAvailable( ) )
+            if ( strXml == null )
             {
-                state = WorkflowService.getInstance( ).getState( record.getIdRecord( ), Record.WORKFLOW_RESOURCE_TYPE, directory.getIdWorkflow( ),
-                        Integer.valueOf( directory.getIdDirectory( ) ) );
+                State state = mapStates.get( record.getIdRecord( ) );
+                strXml = record.getXml( plugin, locale, false, state, listEntrySearchResult, true, true, false, true, false, hashFields,
+                        mapRecordFields.get( record.getIdRecord( ) ) ).toString( );
+                cacheService.putXml( record, state, strRenderingKey, strXml );
             }
 
-            strBufferListRecordXml.append( record.getXml( plugin, locale, false, state, listEntrySearchResult, true, true, false, true, hashFields ) );
+            strBufferListRecordXml.append( strXml );
         }
 
         for ( IEntry entry : listEntrySearchResult )
@@ -762,13 +803,6 @@ public class DirectoryApp implements XPageApplication
      */
     private String getHtmlResultRecord( Directory directory, Record record, Locale locale, Plugin plugin, HttpSession session )
     {
-        RecordFieldFilter filter = new RecordFieldFilter( );
-        filter.setIdRecord( record.getIdRecord( ) );
-        filter.setIsEntryShownInResultRecord( RecordFieldFilter.FILTER_TRUE );
-
-        List<RecordField> listRecordField = RecordFieldHome.getRecordFieldList( filter, plugin );
-        record.setListRecordField( listRecordField );
-
         StringBuffer strBufferListEntryXml = new StringBuffer( );
 
         // get directory Entry
@@ -782,9 +816,25 @@ public class DirectoryApp implements XPageApplication
             entry.getXml( plugin, locale, strBufferListEntryXml );
         }
 
-        StringBuffer strBufferListRecordXml = new StringBuffer( );
-        strBufferListRecordXml.append( record.getXml( plugin, locale, false, null, listEntry, true, true, false, true,
-                DirectoryUtils.getMapFieldsOfListEntry( listEntry, plugin ) ) );
+        RecordXmlCacheService cacheService = RecordXmlCacheService.getInstance( );
+        String strRenderingKey = cacheService.getRenderingKey( listEntry, locale, CACHE_RENDERING_RESULT_RECORD );
+        String strRecordXml = cacheService.getXml( record, null, strRenderingKey );
+
+        if ( strRecordXml == null )
+        {
+            RecordFieldFilter filter = new RecordFieldFilter( );
+            filter.setIdRecord( record.getIdRecord( ) );
+            filter.setIsEntryShownInResultRecord( RecordFieldFilter.FILTER_TRUE );
+
+            List<RecordField> listRecordField = RecordFieldHome.getRecordFieldList( filter, plugin );
+            record.setListRecordField( listRecordField );
+
+            strRecordXml = record.getXml( plugin, locale, false, null, listEntry, true, true, false, true,
+                    DirectoryUtils.getMapFieldsOfListEntry( listEntry, plugin ) ).toString( );
+            cacheService.putXml( record, null, strRenderingKey, strRecordXml );
+        }
+
+        StringBuffer strBufferListRecordXml = new StringBuffer( strRecordXml );
 
         StringBuilder strBufferXml = new StringBuilder( );
         strBufferXml.append( XmlUtil.getXmlHeader( ) );
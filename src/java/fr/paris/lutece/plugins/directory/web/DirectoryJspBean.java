@@ -60,13 +60,18 @@ import fr.paris.lutece.plugins.directory.service.DirectoryResourceIdService;
 import fr.paris.lutece.plugins.directory.service.DirectoryService;
 import fr.paris.lutece.plugins.directory.service.RecordRemovalListenerService;
 import fr.paris.lutece.plugins.directory.service.directorysearch.DirectorySearchService;
+import fr.paris.lutece.plugins.directory.service.importation.DirectoryImport;
+import fr.paris.lutece.plugins.directory.service.importation.IImportProgressListener;
+import fr.paris.lutece.plugins.directory.service.importation.ImportJobService;
 import fr.paris.lutece.plugins.directory.service.parameter.DirectoryParameterService;
 import fr.paris.lutece.plugins.directory.service.parameter.EntryParameterService;
 import fr.paris.lutece.plugins.directory.service.record.IRecordService;
 import fr.paris.lutece.plugins.directory.service.record.RecordService;
+import fr.paris.lutece.plugins.directory.service.record.RecordStateResolver;
 import fr.paris.lutece.plugins.directory.service.security.DirectoryUserAttributesManager;
 import fr.paris.lutece.plugins.directory.service.upload.DirectoryAsynchronousUploadHandler;
 import fr.paris.lutece.plugins.directory.utils.DirectoryErrorException;
+import fr.paris.lutece.plugins.directory.utils.DirectoryTransactionUtils;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.plugins.directory.web.action.DirectoryActionResult;
 import fr.paris.lutece.plugins.directory.web.action.DirectoryAdminSearchFields;
@@ -108,16 +113,17 @@ import fr.paris.lutece.util.ReferenceList;
 import fr.paris.lutece.util.filesystem.FileSystemUtil;
 import fr.paris.lutece.util.html.HtmlTemplate;
 import fr.paris.lutece.util.html.Paginator;
-import fr.paris.lutece.util.sql.TransactionManager;
 import fr.paris.lutece.util.string.StringUtil;
 import fr.paris.lutece.util.url.UrlItem;
 
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -364,6 +370,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
     private static final String MARK_HAS_THUMBNAIL = "has_thumbnail";
     private static final String MARK_HAS_BIG_THUMBNAIL = "has_big_thumbnail";
     private static final String MARK_SHOW_ACTION_RESULT = "show_action_result";
+    private static final String MARK_MASS_ACTION = "mass_action";
     private static final String MARK_ITEM_NAVIGATOR = "item_navigator";
     private static final String MARK_ACTION = "action";
 
@@ -3106,10 +3113,13 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
         // since it must call a webservice to get the file name
         boolean bGetFileName = false;
 
+        // the workflow states of the records of the page are read at once
+        RecordStateResolver stateResolver = new RecordStateResolver( directory, paginator.getPageItems( ) );
+
         for ( Record record : lRecord )
         {
             listResourceActions.add( DirectoryService.getInstance( ).getResourceAction( record, directory, listEntryResultSearch, adminUser,
-                    listActionsForDirectoryEnable, listActionsForDirectoryDisable, bGetFileName, getPlugin( ) ) );
+                    listActionsForDirectoryEnable, listActionsForDirectoryDisable, bGetFileName, stateResolver, getPlugin( ) ) );
         }
 
         Map<String, Object> model = new HashMap<String, Object>( );
@@ -3295,115 +3305,56 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
             throw new AccessDeniedException( MESSAGE_ACCESS_DENIED );
         }
 
-        Character strCsvSeparator = AppPropertiesService.getProperty( PROPERTY_IMPORT_CSV_DELIMITER ).charAt( 0 );
-        _searchFields.setError( new StringBuffer( ) );
-
-        EntryFilter filter = new EntryFilter( );
-        filter.setIdDirectory( nIdDirectory );
-        filter.setIsComment( EntryFilter.FILTER_FALSE );
-        filter.setIsEntryParentNull( EntryFilter.FILTER_TRUE );
-
-        List<IEntry> listEntry = new ArrayList<IEntry>( );
-
-        List<IEntry> listEntryFirstLevel = EntryHome.getEntryList( filter, getPlugin( ) );
-
-        filter.setIsEntryParentNull( EntryFilter.ALL_INT );
-
-        for ( IEntry entry : listEntryFirstLevel )
+        if ( ImportJobService.getInstance( ).isJobImport( fileItem.getSize( ) ) )
         {
-            if ( !entry.getEntryType( ).getGroup( ) )
-            {
-                listEntry.add( EntryHome.findByPrimaryKey( entry.getIdEntry( ), getPlugin( ) ) );
-            }
-
-            filter.setIdEntryParent( entry.getIdEntry( ) );
-
-            List<IEntry> listChildren = EntryHome.getEntryList( filter, getPlugin( ) );
+            ImportJobService.getInstance( ).submit( directory, fileItem, getUser( ), getLocale( ), getPlugin( ) );
 
-            for ( IEntry entryChild : listChildren )
-            {
-                listEntry.add( EntryHome.findByPrimaryKey( entryChild.getIdEntry( ), getPlugin( ) ) );
-            }
+            return ImportJobJspBean.getJspManageImportJobs( request, nIdDirectory );
         }
 
-        Object [ ] tabEntry = listEntry.toArray( );
+        _searchFields.setError( new StringBuffer( ) );
+        _searchFields.setCountLine( 0 );
+        _searchFields.setCountLineFailure( 0 );
+
+        Reader reader = null;
 
         try
         {
-            InputStreamReader inputStreamReader = new InputStreamReader( fileItem.getInputStream( ) );
-            CSVReader csvReader = new CSVReader( inputStreamReader, strCsvSeparator, '\"' );
-
-            String [ ] nextLine;
-
-            _searchFields.setCountLine( 0 );
-            _searchFields.setCountLineFailure( 0 );
-
-            while ( ( nextLine = csvReader.readNext( ) ) != null )
+            reader = new InputStreamReader( fileItem.getInputStream( ) );
+            new DirectoryImport( directory, getLocale( ), getPlugin( ) ).read( reader, new IImportProgressListener( )
             {
-                _searchFields.setCountLine( _searchFields.getCountLine( ) + 1 );
-
-                if ( nextLine.length != tabEntry.length )
+                @Override
+                public void onError( int nLine, String strError )
                 {
                     _searchFields.getError( ).append( I18nService.getLocalizedString( PROPERTY_LINE, getLocale( ) ) );
-                    _searchFields.getError( ).append( _searchFields.getCountLine( ) );
+                    _searchFields.getError( ).append( nLine );
                     _searchFields.getError( ).append( " > " );
-                    _searchFields.getError( ).append( I18nService.getLocalizedString( MESSAGE_ERROR_CSV_NUMBER_SEPARATOR, getLocale( ) ) );
+                    _searchFields.getError( ).append( strError );
                     _searchFields.getError( ).append( "<br/>" );
-                    _searchFields.setCountLineFailure( _searchFields.getCountLineFailure( ) + 1 );
                 }
-                else
-                {
-                    Record record = new Record( );
-                    record.setDirectory( directory );
-
-                    List<RecordField> listRecordField = new ArrayList<RecordField>( );
-
-                    try
-                    {
-                        for ( int i = 0; i < nextLine.length; i++ )
-                        {
-                            ( (IEntry) tabEntry [i] ).getImportRecordFieldData( record, nextLine [i], true, listRecordField, getLocale( ) );
-                        }
-
-                        record.setListRecordField( listRecordField );
-                        record.setDateCreation( DirectoryUtils.getCurrentTimestamp( ) );
-                        // Autopublication
-                        record.setEnabled( true );
-                        _recordService.create( record, getPlugin( ) );
-                    }
-                    catch( DirectoryErrorException error )
-                    {
-                        _searchFields.getError( ).append( I18nService.getLocalizedString( PROPERTY_LINE, getLocale( ) ) );
-                        _searchFields.getError( ).append( _searchFields.getCountLine( ) );
-                        _searchFields.getError( ).append( " > " );
 
-                        if ( error.isMandatoryError( ) )
-                        {
-                            Object [ ] tabRequiredFields = {
-                                error.getTitleField( )
-                            };
-                            _searchFields.getError( ).append(
-                                    I18nService.getLocalizedString( MESSAGE_DIRECTORY_ERROR_MANDATORY_FIELD, tabRequiredFields, getLocale( ) ) );
-                        }
-                        else
-                        {
-                            Object [ ] tabRequiredFields = {
-                                    error.getTitleField( ), error.getErrorMessage( )
-                            };
-                            _searchFields.getError( ).append( I18nService.getLocalizedString( MESSAGE_DIRECTORY_ERROR, tabRequiredFields, getLocale( ) ) );
-                        }
+                @Override
+                public void onProgress( int nNbLines, int nNbLinesImported, int nNbLinesFailure )
+                {
+                    _searchFields.setCountLine( nNbLines );
+                    _searchFields.setCountLineFailure( nNbLinesFailure );
+                }
 
-                        _searchFields.getError( ).append( "<br/>" );
-                        _searchFields.setCountLineFailure( _searchFields.getCountLineFailure( ) + 1 );
-                    }
+                @Override
+                public boolean isCancelled( )
+                {
+                    return false;
                 }
-            }
+            } );
         }
-
         catch( IOException e )
         {
             AppLogService.error( e );
         }
+        finally
+        {
+            IOUtils.closeQuietly( reader );
+        }
 
         return getJspImportDirectoryRecord( request, nIdDirectory );
     }
@@ -3700,7 +3651,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
             // Autopublication
             record.setEnabled( directory.isRecordActivated( ) );
 
-            TransactionManager.beginTransaction( getPlugin( ) );
+            DirectoryTransactionUtils.beginTransaction( getPlugin( ) );
 
             try
             {
@@ -3714,14 +3665,14 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
                             Integer.valueOf( directory.getIdDirectory( ) ) );
                 }
 
-                TransactionManager.commitTransaction( getPlugin( ) );
+                DirectoryTransactionUtils.commitTransaction( getPlugin( ) );
             }
             catch( Exception ex )
             {
                 // something very wrong happened... a database check might be needed
                 AppLogService.error( ex.getMessage( ) + " for Record " + record.getIdRecord( ), ex );
                 // revert
-                TransactionManager.rollBack( getPlugin( ) );
+                DirectoryTransactionUtils.rollBack( getPlugin( ) );
 
                 // throw a message to the user
                 return AdminMessageService.getMessageUrl( request, MESSAGE_ERROR_GENERIC_MESSAGE, AdminMessage.TYPE_STOP );
@@ -3880,7 +3831,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
      */
     public String getConfirmRemoveDirectoryRecord( HttpServletRequest request ) throws AccessDeniedException
     {
-        String [ ] listIdsDirectoryRecord = request.getParameterValues( PARAMETER_ID_DIRECTORY_RECORD );
+        String [ ] listIdsDirectoryRecord = getListIdsDirectoryRecord( request );
 
         if ( ( listIdsDirectoryRecord != null ) && ( listIdsDirectoryRecord.length > 0 ) )
         {
@@ -3902,22 +3853,18 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
             UrlItem url = new UrlItem( JSP_DO_REMOVE_DIRECTORY_RECORD );
             url.addParameter( DirectoryUtils.PARAMETER_ID_DIRECTORY, nIdDirectory );
 
-            for ( String strIdDirectoryRecord : listIdsDirectoryRecord )
-            {
-                int nIdDirectoryRecord = DirectoryUtils.convertStringToInt( strIdDirectoryRecord );
-                Record record = _recordService.findByPrimaryKey( nIdDirectoryRecord, getPlugin( ) );
+            List<Integer> listIdRecord = checkRemoveDirectoryRecord( listIdsDirectoryRecord, directory );
 
-                if ( ( record == null )
-                        || ( directory == null )
-                        || ( record.getDirectory( ).getIdDirectory( ) != nIdDirectory )
-                        || !RBACService.isAuthorized( Directory.RESOURCE_TYPE, Integer.toString( nIdDirectory ),
-                                DirectoryResourceIdService.PERMISSION_DELETE_RECORD, getUser( ) ) || !AdminWorkgroupService.isAuthorized( record, getUser( ) )
-                        || !AdminWorkgroupService.isAuthorized( directory, getUser( ) ) )
+            if ( isMassAction( request ) )
+            {
+                url.addParameter( DirectoryUtils.PARAMETER_MASS_ACTION, request.getParameter( DirectoryUtils.PARAMETER_MASS_ACTION ) );
+            }
+            else
+            {
+                for ( Integer nIdDirectoryRecord : listIdRecord )
                 {
-                    throw new AccessDeniedException( MESSAGE_ACCESS_DENIED );
+                    url.addParameter( PARAMETER_ID_DIRECTORY_RECORD, nIdDirectoryRecord );
                 }
-
-                url.addParameter( PARAMETER_ID_DIRECTORY_RECORD, nIdDirectoryRecord );
             }
 
             return AdminMessageService.getMessageUrl( request, MESSAGE_CONFIRM_REMOVE_DIRECTORY_RECORD, url.getUrl( ), AdminMessage.TYPE_CONFIRMATION );
@@ -3937,7 +3884,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
      */
     public String doRemoveDirectoryRecord( HttpServletRequest request ) throws AccessDeniedException
     {
-        String [ ] listIdsDirectoryRecord = request.getParameterValues( PARAMETER_ID_DIRECTORY_RECORD );
+        String [ ] listIdsDirectoryRecord = getListIdsDirectoryRecord( request );
 
         if ( ( listIdsDirectoryRecord != null ) && ( listIdsDirectoryRecord.length > 0 ) )
         {
@@ -3945,23 +3892,11 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
             int nIdDirectory = DirectoryUtils.convertStringToInt( strIdDirectory );
             Directory directory = DirectoryHome.findByPrimaryKey( nIdDirectory, getPlugin( ) );
             List<String> listErrors = new ArrayList<String>( );
+            List<Integer> listIdRecord = checkRemoveDirectoryRecord( listIdsDirectoryRecord, directory );
 
-            for ( String strIdDirectoryRecord : listIdsDirectoryRecord )
+            for ( Integer nIdDirectoryRecord : listIdRecord )
             {
-                int nIdDirectoryRecord = DirectoryUtils.convertStringToInt( strIdDirectoryRecord );
-                Record record = _recordService.findByPrimaryKey( nIdDirectoryRecord, getPlugin( ) );
-
-                if ( ( record == null )
-                        || ( directory == null )
-                        || ( record.getDirectory( ).getIdDirectory( ) != nIdDirectory )
-                        || !RBACService.isAuthorized( Directory.RESOURCE_TYPE, Integer.toString( nIdDirectory ),
-                                DirectoryResourceIdService.PERMISSION_DELETE_RECORD, getUser( ) ) || !AdminWorkgroupService.isAuthorized( record, getUser( ) )
-                        || !AdminWorkgroupService.isAuthorized( directory, getUser( ) ) )
-                {
-                    throw new AccessDeniedException( MESSAGE_ACCESS_DENIED );
-                }
-
-                if ( !RecordRemovalListenerService.getService( ).checkForRemoval( strIdDirectoryRecord, listErrors, getLocale( ) ) )
+                if ( !RecordRemovalListenerService.getService( ).checkForRemoval( Integer.toString( nIdDirectoryRecord ), listErrors, getLocale( ) ) )
                 {
                     String strCause = AdminMessageService.getFormattedList( listErrors, getLocale( ) );
                     Object [ ] args = {
@@ -3970,21 +3905,22 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
 
                     return AdminMessageService.getMessageUrl( request, MESSAGE_CANNOT_REMOVE_RECORD, args, AdminMessage.TYPE_STOP );
                 }
+            }
 
-                try
-                {
-                    _recordService.remove( nIdDirectoryRecord, getPlugin( ) );
-                }
-                catch( Exception ex )
-                {
-                    // something very wrong happened... a database check might be needed
-                    AppLogService.error( ex.getMessage( ) + " when deleting Record " + record.getIdRecord( ), ex );
+            removeMassActionRecords( request );
 
-                    // throw a message to the user
-                    return AdminMessageService.getMessageUrl( request, MESSAGE_ERROR_GENERIC_MESSAGE, AdminMessage.TYPE_STOP );
-                }
+            try
+            {
+                // The records, their fields, files and workflow resources are removed by chunks with set-based queries
+                _recordService.removeAll( listIdRecord, getPlugin( ) );
+            }
+            catch( Exception ex )
+            {
+                // something very wrong happened... a database check might be needed
+                AppLogService.error( ex.getMessage( ) + " when deleting " + listIdRecord.size( ) + " Records", ex );
 
-                WorkflowService.getInstance( ).doRemoveWorkFlowResource( nIdDirectoryRecord, Record.WORKFLOW_RESOURCE_TYPE );
+                // throw a message to the user
+                return AdminMessageService.getMessageUrl( request, MESSAGE_ERROR_GENERIC_MESSAGE, AdminMessage.TYPE_STOP );
             }
 
             return DirectoryUtils.getJspManageDirectoryRecord( request, nIdDirectory );
@@ -3993,6 +3929,45 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
         return AdminMessageService.getMessageUrl( request, Messages.MANDATORY_FIELDS, AdminMessage.TYPE_STOP );
     }
 
+    /**
+     * Check that the current user can remove the given records of a directory. The records are loaded with a single query.
+     * 
+     * @param listIdsDirectoryRecord
+     *            the ids of the records
+     * @param directory
+     *            the directory of the records
+     * @return the ids of the records
+     * @throws AccessDeniedException
+     *             if a record does not exist, is not in the directory or cannot be removed by the user
+     */
+    private List<Integer> checkRemoveDirectoryRecord( String [ ] listIdsDirectoryRecord, Directory directory ) throws AccessDeniedException
+    {
+        if ( ( directory == null )
+                || !RBACService.isAuthorized( Directory.RESOURCE_TYPE, Integer.toString( directory.getIdDirectory( ) ),
+                        DirectoryResourceIdService.PERMISSION_DELETE_RECORD, getUser( ) ) || !AdminWorkgroupService.isAuthorized( directory, getUser( ) ) )
+        {
+            throw new AccessDeniedException( MESSAGE_ACCESS_DENIED );
+        }
+
+        List<Integer> listIdRecord = new ArrayList<Integer>( listIdsDirectoryRecord.length );
+
+        for ( String strIdDirectoryRecord : listIdsDirectoryRecord )
+        {
+            listIdRecord.add( DirectoryUtils.convertStringToInt( strIdDirectoryRecord ) );
+        }
+
+        for ( Record record : _recordService.loadListByListId( listIdRecord, getPlugin( ) ) )
+        {
+            if ( ( record == null ) || ( record.getDirectory( ).getIdDirectory( ) != directory.getIdDirectory( ) )
+                    || !AdminWorkgroupService.isAuthorized( record, getUser( ) ) )
+            {
+                throw new AccessDeniedException( MESSAGE_ACCESS_DENIED );
+            }
+        }
+
+        return listIdRecord;
+    }
+
     /**
      * copy the directory whose key is specified in the Http request
      * 
@@ -4184,7 +4159,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
      */
     public String getTasksForm( HttpServletRequest request )
     {
-        String [ ] listIdsDirectoryRecord = request.getParameterValues( DirectoryUtils.PARAMETER_ID_DIRECTORY_RECORD );
+        String [ ] listIdsDirectoryRecord = getListIdsDirectoryRecord( request );
         String strIdAction = request.getParameter( PARAMETER_ID_ACTION );
 
         if ( ( listIdsDirectoryRecord != null ) && ( listIdsDirectoryRecord.length > 0 ) && StringUtils.isNotBlank( strIdAction )
@@ -4205,7 +4180,15 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
 
             model.put( MARK_TASKS_FORM, strHtmlTasksForm );
             model.put( MARK_ID_ACTION, nIdAction );
-            model.put( MARK_LIST_IDS_DIRECTORY_RECORD, listIdsDirectoryRecord );
+            if ( isMassAction( request ) )
+            {
+                model.put( MARK_MASS_ACTION, request.getParameter( DirectoryUtils.PARAMETER_MASS_ACTION ) );
+            }
+            else
+            {
+                model.put( MARK_LIST_IDS_DIRECTORY_RECORD, listIdsDirectoryRecord );
+            }
+
             model.put( MARK_SHOW_ACTION_RESULT, request.getParameter( DirectoryUtils.PARAMETER_SHOW_ACTION_RESULT ) );
 
             setPageTitleProperty( PROPERTY_TASKS_FORM_WORKFLOW_PAGE_TITLE );
@@ -4227,7 +4210,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
      */
     public String doSaveTasksForm( HttpServletRequest request )
     {
-        String [ ] listIdsDirectoryRecord = request.getParameterValues( DirectoryUtils.PARAMETER_ID_DIRECTORY_RECORD );
+        String [ ] listIdsDirectoryRecord = getListIdsDirectoryRecord( request );
 
         if ( ( listIdsDirectoryRecord != null ) && ( listIdsDirectoryRecord.length > 0 ) )
         {
@@ -4315,11 +4298,17 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
                     return strError;
                 }
 
+                removeMassActionRecords( request );
+
                 if ( bShowActionResult )
                 {
                     return getJspActionResults( request, nIdDirectory, nIdAction );
                 }
             }
+            else
+            {
+                removeMassActionRecords( request );
+            }
 
             return getRedirectUrl( request );
         }
@@ -4755,7 +4744,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
      */
     public String doProcessAction( HttpServletRequest request )
     {
-        String [ ] listIdsDirectoryRecord = request.getParameterValues( DirectoryUtils.PARAMETER_ID_DIRECTORY_RECORD );
+        String [ ] listIdsDirectoryRecord = getListIdsDirectoryRecord( request );
 
         if ( ( listIdsDirectoryRecord != null ) && ( listIdsDirectoryRecord.length > 0 ) )
         {
@@ -4784,6 +4773,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
 
             int nIdDirectory = DirectoryUtils.convertStringToInt( strIdDirectory );
 
+            removeMassActionRecords( request );
             _directoryActionResult.doProcessAction( nIdDirectory, nIdAction, listIdsDirectoryRecord, getPlugin( ), getLocale( ), request );
 
             if ( bShowActionResult )
@@ -4797,6 +4787,52 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
         return getRedirectUrl( request );
     }
 
+    /**
+     * Get the ids of the records an action applies to : the selection of the mass action kept in session under the token given in the request, or the ids
+     * given in the request
+     * 
+     * @param request
+     *            the HTTP request
+     * @return the ids of the records, or null if there is none
+     */
+    private String [ ] getListIdsDirectoryRecord( HttpServletRequest request )
+    {
+        if ( isMassAction( request ) )
+        {
+            List<String> listMassActionRecords = _searchFields.getMassActionRecords( request.getParameter( DirectoryUtils.PARAMETER_MASS_ACTION ) );
+
+            return ( listMassActionRecords != null ) ? listMassActionRecords.toArray( new String [ listMassActionRecords.size( )] ) : null;
+        }
+
+        return request.getParameterValues( DirectoryUtils.PARAMETER_ID_DIRECTORY_RECORD );
+    }
+
+    /**
+     * Tells if the request applies to the selection of a mass action kept in session
+     * 
+     * @param request
+     *            the HTTP request
+     * @return true if the request applies to the selection of a mass action
+     */
+    private boolean isMassAction( HttpServletRequest request )
+    {
+        return request.getParameter( DirectoryUtils.PARAMETER_MASS_ACTION ) != null;
+    }
+
+    /**
+     * Consume the selection of the mass action the request applies to, so that it cannot be performed twice
+     * 
+     * @param request
+     *            the HTTP request
+     */
+    private void removeMassActionRecords( HttpServletRequest request )
+    {
+        if ( isMassAction( request ) )
+        {
+            _searchFields.removeMassActionRecords( request.getParameter( DirectoryUtils.PARAMETER_MASS_ACTION ) );
+        }
+    }
+
     /**
      * return url of the jsp manage commentaire
      * 
@@ -4820,13 +4856,18 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
             url.addParameter( DirectoryUtils.PARAMETER_SHOW_ACTION_RESULT, DirectoryUtils.CONSTANT_TRUE );
         }
 
-        if ( ( listIdsTestResource != null ) && ( listIdsTestResource.length > 0 ) )
+        if ( isMassAction( request ) )
         {
-            for ( String strIdTestResource : listIdsTestResource )
+            url.addParameter( DirectoryUtils.PARAMETER_MASS_ACTION, request.getParameter( DirectoryUtils.PARAMETER_MASS_ACTION ) );
+        }
+        else
+            if ( ( listIdsTestResource != null ) && ( listIdsTestResource.length > 0 ) )
             {
-                url.addParameter( DirectoryUtils.PARAMETER_ID_DIRECTORY_RECORD, strIdTestResource );
+                for ( String strIdTestResource : listIdsTestResource )
+                {
+                    url.addParameter( DirectoryUtils.PARAMETER_ID_DIRECTORY_RECORD, strIdTestResource );
+                }
             }
-        }
 
         String strUploadAction = DirectoryAsynchronousUploadHandler.getHandler( ).getUploadAction( request );
 
@@ -5412,7 +5453,7 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
      */
     public String getConfirmChangeStatesRecord( HttpServletRequest request ) throws AccessDeniedException
     {
-        String [ ] listIdsDirectoryRecord = request.getParameterValues( PARAMETER_ID_DIRECTORY_RECORD );
+        String [ ] listIdsDirectoryRecord = getListIdsDirectoryRecord( request );
 
         if ( ( listIdsDirectoryRecord != null ) && ( listIdsDirectoryRecord.length > 0 ) )
         {
@@ -5434,6 +5475,13 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
             UrlItem url = new UrlItem( JSP_DO_CHANGE_STATES_RECORD );
             url.addParameter( DirectoryUtils.PARAMETER_ID_DIRECTORY, nIdDirectory );
 
+            boolean bMassAction = isMassAction( request );
+
+            if ( bMassAction )
+            {
+                url.addParameter( DirectoryUtils.PARAMETER_MASS_ACTION, request.getParameter( DirectoryUtils.PARAMETER_MASS_ACTION ) );
+            }
+
             for ( String strIdDirectoryRecord : listIdsDirectoryRecord )
             {
                 int nIdDirectoryRecord = DirectoryUtils.convertStringToInt( strIdDirectoryRecord );
@@ -5449,7 +5497,10 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
                     throw new AccessDeniedException( MESSAGE_ACCESS_DENIED );
                 }
 
-                url.addParameter( PARAMETER_ID_DIRECTORY_RECORD, nIdDirectoryRecord );
+                if ( !bMassAction )
+                {
+                    url.addParameter( PARAMETER_ID_DIRECTORY_RECORD, nIdDirectoryRecord );
+                }
             }
 
             return AdminMessageService.getMessageUrl( request, MESSAGE_CONFIRM_CHANGE_STATES_RECORD, url.getUrl( ), AdminMessage.TYPE_CONFIRMATION );
@@ -5469,13 +5520,14 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
      */
     public String doChangeStatesRecord( HttpServletRequest request ) throws AccessDeniedException
     {
-        String [ ] listIdsDirectoryRecord = request.getParameterValues( PARAMETER_ID_DIRECTORY_RECORD );
+        String [ ] listIdsDirectoryRecord = getListIdsDirectoryRecord( request );
 
         if ( ( listIdsDirectoryRecord != null ) && ( listIdsDirectoryRecord.length > 0 ) )
         {
             String strIdDirectory = request.getParameter( DirectoryUtils.PARAMETER_ID_DIRECTORY );
             int nIdDirectory = DirectoryUtils.convertStringToInt( strIdDirectory );
             Directory directory = DirectoryHome.findByPrimaryKey( nIdDirectory, getPlugin( ) );
+            List<Record> listRecord = new ArrayList<Record>( listIdsDirectoryRecord.length );
 
             for ( String strIdDirectoryRecord : listIdsDirectoryRecord )
             {
@@ -5492,6 +5544,13 @@ public class DirectoryJspBean extends PluginAdminPageJspBean
                     throw new AccessDeniedException( MESSAGE_ACCESS_DENIED );
                 }
 
+                listRecord.add( record );
+            }
+
+            removeMassActionRecords( request );
+
+            for ( Record record : listRecord )
+            {
                 record.setEnabled( !record.isEnabled( ) );
                 _recordService.update( record, getPlugin( ) );
             }
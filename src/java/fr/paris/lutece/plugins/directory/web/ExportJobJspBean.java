@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.web;
+
+import fr.paris.lutece.plugins.directory.business.Directory;
+import fr.paris.lutece.plugins.directory.business.DirectoryHome;
+import fr.paris.lutece.plugins.directory.business.ExportJob;
+import fr.paris.lutece.plugins.directory.service.DirectoryResourceIdService;
+import fr.paris.lutece.plugins.directory.service.export.ExportCompression;
+import fr.paris.lutece.plugins.directory.service.export.ExportJobService;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.portal.service.admin.AccessDeniedException;
+import fr.paris.lutece.portal.service.rbac.RBACService;
+import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.workgroup.AdminWorkgroupService;
+import fr.paris.lutece.portal.web.admin.PluginAdminPageJspBean;
+import fr.paris.lutece.util.filesystem.FileSystemUtil;
+import fr.paris.lutece.util.html.HtmlTemplate;
+import fr.paris.lutece.util.url.UrlItem;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ *
+ * class ExportJobJspBean : follow-up, cancellation and download of the directory exports run in background
+ *
+ */
+public class ExportJobJspBean extends PluginAdminPageJspBean
+{
+    /**
+     * Generated serial version UID
+     */
+    private static final long serialVersionUID = 4417394573210961045L;
+
+    // templates
+    private static final String TEMPLATE_MANAGE_EXPORT_JOBS = "admin/plugins/directory/manage_export_jobs.html";
+
+    // Markers
+    private static final String MARK_DIRECTORY = "directory";
+    private static final String MARK_EXPORT_JOB_LIST = "export_job_list";
+    private static final String MARK_REFRESH = "refresh";
+
+    // parameters
+    private static final String PARAMETER_ID_DIRECTORY = "id_directory";
+    private static final String PARAMETER_ID_EXPORT_JOB = "id_export_job";
+
+    // properties
+    private static final String PROPERTY_MANAGE_EXPORT_JOBS_PAGE_TITLE = "directory.manage_export_jobs.page_title";
+
+    // Jsp Definition
+    private static final String JSP_MANAGE_EXPORT_JOBS = "jsp/admin/plugins/directory/ManageExportJobs.jsp";
+
+    // other constants
+    private static final String CONSTANT_MIME_TYPE_CSV = "application/csv";
+    private static final String CONSTANT_MIME_TYPE_OCTETSTREAM = "application/octet-stream";
+    private static final String CONSTANT_EXTENSION_CSV = ".csv";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+
+    /**
+     * Return the export jobs of a directory requested by the current user
+     * 
+     * @param request
+     *            The Http request
+     * @throws AccessDeniedException
+     *             the {@link AccessDeniedException}
+     * @return Html export jobs management
+     */
+    public String getManageExportJobs( HttpServletRequest request ) throws AccessDeniedException
+    {
+        Directory directory = getAuthorizedDirectory( request.getParameter( PARAMETER_ID_DIRECTORY ) );
+        List<ExportJob> listExportJob = ExportJobService.getInstance( ).getJobs( directory.getIdDirectory( ), getUser( ), getPlugin( ) );
+        boolean bRefresh = false;
+
+        for ( ExportJob exportJob : listExportJob )
+        {
+            bRefresh = bRefresh || !exportJob.isOver( );
+        }
+
+        Map<String, Object> model = new HashMap<String, Object>( );
+        model.put( MARK_DIRECTORY, directory );
+        model.put( MARK_EXPORT_JOB_LIST, listExportJob );
+        model.put( MARK_REFRESH, bRefresh );
+        setPageTitleProperty( PROPERTY_MANAGE_EXPORT_JOBS_PAGE_TITLE );
+
+        HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_MANAGE_EXPORT_JOBS, getLocale( ), model );
+
+        return getAdminPage( template.getHtml( ) );
+    }
+
+    /**
+     * Cancel an export job
+     * 
+     * @param request
+     *            The Http request
+     * @throws AccessDeniedException
+     *             the {@link AccessDeniedException}
+     * @return The URL to go after performing the action
+     */
+    public String doCancelExportJob( HttpServletRequest request ) throws AccessDeniedException
+    {
+        ExportJob exportJob = getAuthorizedExportJob( request );
+        ExportJobService.getInstance( ).cancel( exportJob, getPlugin( ) );
+
+        return getJspManageExportJobs( request, exportJob.getIdDirectory( ) );
+    }
+
+    /**
+     * Remove an export job and its file
+     * 
+     * @param request
+     *            The Http request
+     * @throws AccessDeniedException
+     *             the {@link AccessDeniedException}
+     * @return The URL to go after performing the action
+     */
+    public String doRemoveExportJob( HttpServletRequest request ) throws AccessDeniedException
+    {
+        ExportJob exportJob = getAuthorizedExportJob( request );
+        ExportJobService.getInstance( ).remove( exportJob, getPlugin( ) );
+
+        return getJspManageExportJobs( request, exportJob.getIdDirectory( ) );
+    }
+
+    /**
+     * Send the file of a done export job
+     * 
+     * @param request
+     *            The Http request
+     * @param response
+     *            The Http response
+     * @throws AccessDeniedException
+     *             the {@link AccessDeniedException}
+     */
+    public void doDownloadExportJob( HttpServletRequest request, HttpServletResponse response ) throws AccessDeniedException
+    {
+        ExportJob exportJob = getAuthorizedExportJob( request );
+        File file = ExportJobService.getInstance( ).getFile( exportJob );
+
+        if ( ( exportJob.getStatus( ) != ExportJob.STATUS_DONE ) || !file.exists( ) )
+        {
+            throw new AccessDeniedException( "The export job " + exportJob.getIdExportJob( ) + " has no file to download" );
+        }
+
+        DirectoryUtils.addHeaderResponse( request, response, exportJob.getFileName( ) );
+
+        String strMimeType = ExportCompression.getMimeType( exportJob.getFileName( ) );
+
+        if ( strMimeType == null )
+        {
+            response.setCharacterEncoding( exportJob.getEncoding( ) );
+            strMimeType = exportJob.getFileName( ).endsWith( CONSTANT_EXTENSION_CSV ) ? CONSTANT_MIME_TYPE_CSV : FileSystemUtil.getMIMEType( exportJob
+                    .getFileName( ) );
+        }
+
+        response.setContentType( ( strMimeType != null ) ? strMimeType : CONSTANT_MIME_TYPE_OCTETSTREAM );
+        response.setHeader( HEADER_CONTENT_LENGTH, Long.toString( file.length( ) ) );
+
+        InputStream in = null;
+        OutputStream out = null;
+
+        try
+        {
+            in = new FileInputStream( file );
+            out = response.getOutputStream( );
+            IOUtils.copyLarge( in, out );
+            out.flush( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+            IOUtils.closeQuietly( out );
+        }
+    }
+
+    /**
+     * Get the export job of the request, if it has been requested by the current user
+     * 
+     * @param request
+     *            The Http request
+     * @throws AccessDeniedException
+     *             if the job does not exist or belongs to another user
+     * @return the export job
+     */
+    private ExportJob getAuthorizedExportJob( HttpServletRequest request ) throws AccessDeniedException
+    {
+        int nIdExportJob = DirectoryUtils.convertStringToInt( request.getParameter( PARAMETER_ID_EXPORT_JOB ) );
+        ExportJob exportJob = ExportJobService.getInstance( ).getJob( nIdExportJob, getPlugin( ) );
+
+        if ( ( exportJob == null ) || ( exportJob.getIdAdminUser( ) != getUser( ).getUserId( ) ) )
+        {
+            throw new AccessDeniedException( "Unauthorized access to the export job " + nIdExportJob );
+        }
+
+        getAuthorizedDirectory( Integer.toString( exportJob.getIdDirectory( ) ) );
+
+        return exportJob;
+    }
+
+    /**
+     * Get a directory whose records the current user can manage
+     * 
+     * @param strIdDirectory
+     *            the id of the directory
+     * @throws AccessDeniedException
+     *             if the directory does not exist or the user cannot manage its records
+     * @return the directory
+     */
+    private Directory getAuthorizedDirectory( String strIdDirectory ) throws AccessDeniedException
+    {
+        Directory directory = DirectoryHome.findByPrimaryKey( DirectoryUtils.convertStringToInt( strIdDirectory ), getPlugin( ) );
+
+        if ( ( directory == null )
+                || !RBACService.isAuthorized( Directory.RESOURCE_TYPE, strIdDirectory, DirectoryResourceIdService.PERMISSION_MANAGE_RECORD, getUser( ) )
+                || !AdminWorkgroupService.isAuthorized( directory, getUser( ) ) )
+        {
+            throw new AccessDeniedException( "Unauthorized access to the directory " + strIdDirectory );
+        }
+
+        return directory;
+    }
+
+    /**
+     * Return the URL of the export jobs management of a directory
+     * 
+     * @param request
+     *            The Http request
+     * @param nIdDirectory
+     *            the id of the directory
+     * @return The URL of the export jobs management
+     */
+    public static String getJspManageExportJobs( HttpServletRequest request, int nIdDirectory )
+    {
+        UrlItem urlItem = new UrlItem( AppPathService.getBaseUrl( request ) + JSP_MANAGE_EXPORT_JOBS );
+        urlItem.addParameter( PARAMETER_ID_DIRECTORY, nIdDirectory );
+
+        return urlItem.getUrl( );
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2002-2017, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.directory.web;
+
+import fr.paris.lutece.plugins.directory.business.Directory;
+import fr.paris.lutece.plugins.directory.business.DirectoryHome;
+import fr.paris.lutece.plugins.directory.business.ImportJob;
+import fr.paris.lutece.plugins.directory.service.DirectoryResourceIdService;
+import fr.paris.lutece.plugins.directory.service.importation.ImportJobService;
+import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
+import fr.paris.lutece.portal.service.admin.AccessDeniedException;
+import fr.paris.lutece.portal.service.rbac.RBACService;
+import fr.paris.lutece.portal.service.template.AppTemplateService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.workgroup.AdminWorkgroupService;
+import fr.paris.lutece.portal.web.admin.PluginAdminPageJspBean;
+import fr.paris.lutece.util.html.HtmlTemplate;
+import fr.paris.lutece.util.url.UrlItem;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ *
+ * class ImportJobJspBean : follow-up, cancellation and error reports of the directory imports run in background
+ *
+ */
+public class ImportJobJspBean extends PluginAdminPageJspBean
+{
+    /**
+     * Generated serial version UID
+     */
+    private static final long serialVersionUID = -2745370839521937412L;
+
+    // templates
+    private static final String TEMPLATE_MANAGE_IMPORT_JOBS = "admin/plugins/directory/manage_import_jobs.html";
+
+    // Markers
+    private static final String MARK_DIRECTORY = "directory";
+    private static final String MARK_IMPORT_JOB_LIST = "import_job_list";
+    private static final String MARK_REFRESH = "refresh";
+
+    // parameters
+    private static final String PARAMETER_ID_DIRECTORY = "id_directory";
+    private static final String PARAMETER_ID_IMPORT_JOB = "id_import_job";
+
+    // properties
+    private static final String PROPERTY_MANAGE_IMPORT_JOBS_PAGE_TITLE = "directory.manage_import_jobs.page_title";
+
+    // Jsp Definition
+    private static final String JSP_MANAGE_IMPORT_JOBS = "jsp/admin/plugins/directory/ManageImportJobs.jsp";
+
+    // other constants
+    private static final String CONSTANT_MIME_TYPE_TEXT = "text/plain";
+    private static final String CONSTANT_ERROR_REPORT_SUFFIX = "_errors.txt";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+
+    /**
+     * Return the import jobs of a directory requested by the current user
+     * 
+     * @param request
+     *            The Http request
+     * @throws AccessDeniedException
+     *             the {@link AccessDeniedException}
+     * @return Html import jobs management
+     */
+    public String getManageImportJobs( HttpServletRequest request ) throws AccessDeniedException
+    {
+        Directory directory = getAuthorizedDirectory( request.getParameter( PARAMETER_ID_DIRECTORY ) );
+        List<ImportJob> listImportJob = ImportJobService.getInstance( ).getJobs( directory.getIdDirectory( ), getUser( ), getPlugin( ) );
+        boolean bRefresh = false;
+
+        for ( ImportJob importJob : listImportJob )
+        {
+            bRefresh = bRefresh || !importJob.isOver( );
+        }
+
+        Map<String, Object> model = new HashMap<String, Object>( );
+        model.put( MARK_DIRECTORY, directory );
+        model.put( MARK_IMPORT_JOB_LIST, listImportJob );
+        model.put( MARK_REFRESH, bRefresh );
+        setPageTitleProperty( PROPERTY_MANAGE_IMPORT_JOBS_PAGE_TITLE );
+
+        HtmlTemplate template = AppTemplateService.getTemplate( TEMPLATE_MANAGE_IMPORT_JOBS, getLocale( ), model );
+
+        return getAdminPage( template.getHtml( ) );
+    }
+
+    /**
+     * Cancel an import job
+     * 
+     * @param request
+     *            The Http request
+     * @throws AccessDeniedException
+     *             the {@link AccessDeniedException}
+     * @return The URL to go after performing the action
+     */
+    public String doCancelImportJob( HttpServletRequest request ) throws AccessDeniedException
+    {
+        ImportJob importJob = getAuthorizedImportJob( request );
+        ImportJobService.getInstance( ).cancel( importJob, getPlugin( ) );
+
+        return getJspManageImportJobs( request, importJob.getIdDirectory( ) );
+    }
+
+    /**
+     * Remove an import job and its error report
+     * 
+     * @param request
+     *            The Http request
+     * @throws AccessDeniedException
+     *             the {@link AccessDeniedException}
+     * @return The URL to go after performing the action
+     */
+    public String doRemoveImportJob( HttpServletRequest request ) throws AccessDeniedException
+    {
+        ImportJob importJob = getAuthorizedImportJob( request );
+        ImportJobService.getInstance( ).remove( importJob, getPlugin( ) );
+
+        return getJspManageImportJobs( request, importJob.getIdDirectory( ) );
+    }
+
+    /**
+     * Send the error report of an import job which is over
+     * 
+     * @param request
+     *            The Http request
+     * @param response
+     *            The Http response
+     * @throws AccessDeniedException
+     *             the {@link AccessDeniedException}
+     */
+    public void doDownloadImportJobErrors( HttpServletRequest request, HttpServletResponse response ) throws AccessDeniedException
+    {
+        ImportJob importJob = getAuthorizedImportJob( request );
+        File file = ImportJobService.getInstance( ).getErrorReportFile( importJob );
+
+        if ( !importJob.isOver( ) || !file.exists( ) )
+        {
+            throw new AccessDeniedException( "The import job " + importJob.getIdImportJob( ) + " has no error report to download" );
+        }
+
+        DirectoryUtils.addHeaderResponse( request, response, FilenameUtils.getBaseName( importJob.getFileName( ) ) + CONSTANT_ERROR_REPORT_SUFFIX );
+        response.setCharacterEncoding( ImportJobService.ERROR_REPORT_ENCODING );
+        response.setContentType( CONSTANT_MIME_TYPE_TEXT );
+        response.setHeader( HEADER_CONTENT_LENGTH, Long.toString( file.length( ) ) );
+
+        InputStream in = null;
+        OutputStream out = null;
+
+        try
+        {
+            in = new FileInputStream( file );
+            out = response.getOutputStream( );
+            IOUtils.copyLarge( in, out );
+            out.flush( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( e.getMessage( ), e );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( in );
+            IOUtils.closeQuietly( out );
+        }
+    }
+
+    /**
+     * Get the import job of the request, if it has been requested by the current user
+     * 
+     * @param request
+     *            The Http request
+     * @throws AccessDeniedException
+     *             if the job does not exist or belongs to another user
+     * @return the import job
+     */
+    private ImportJob getAuthorizedImportJob( HttpServletRequest request ) throws AccessDeniedException
+    {
+        int nIdImportJob = DirectoryUtils.convertStringToInt( request.getParameter( PARAMETER_ID_IMPORT_JOB ) );
+        ImportJob importJob = ImportJobService.getInstance( ).getJob( nIdImportJob, getPlugin( ) );
+
+        if ( ( importJob == null ) || ( importJob.getIdAdminUser( ) != getUser( ).getUserId( ) ) )
+        {
+            throw new AccessDeniedException( "Unauthorized access to the import job " + nIdImportJob );
+        }
+
+        getAuthorizedDirectory( Integer.toString( importJob.getIdDirectory( ) ) );
+
+        return importJob;
+    }
+
+    /**
+     * Get a directory whose records the current user can manage
+     * 
+     * @param strIdDirectory
+     *            the id of the directory
+     * @throws AccessDeniedException
+     *             if the directory does not exist or the user cannot manage its records
+     * @return the directory
+     */
+    private Directory getAuthorizedDirectory( String strIdDirectory ) throws AccessDeniedException
+    {
+        Directory directory = DirectoryHome.findByPrimaryKey( DirectoryUtils.convertStringToInt( strIdDirectory ), getPlugin( ) );
+
+        if ( ( directory == null )
+                || !RBACService.isAuthorized( Directory.RESOURCE_TYPE, strIdDirectory, DirectoryResourceIdService.PERMISSION_MANAGE_RECORD, getUser( ) )
+                || !AdminWorkgroupService.isAuthorized( directory, getUser( ) ) )
+        {
+            throw new AccessDeniedException( "Unauthorized access to the directory " + strIdDirectory );
+        }
+
+        return directory;
+    }
+
+    /**
+     * Return the URL of the import jobs management of a directory
+     * 
+     * @param request
+     *            The Http request
+     * @param nIdDirectory
+     *            the id of the directory
+     * @return The URL of the import jobs management
+     */
+    public static String getJspManageImportJobs( HttpServletRequest request, int nIdDirectory )
+    {
+        UrlItem urlItem = new UrlItem( AppPathService.getBaseUrl( request ) + JSP_MANAGE_IMPORT_JOBS );
+        urlItem.addParameter( PARAMETER_ID_DIRECTORY, nIdDirectory );
+
+        return urlItem.getUrl( );
+    }
+}
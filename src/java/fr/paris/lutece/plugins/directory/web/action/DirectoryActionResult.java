@@ -37,7 +37,9 @@ import fr.paris.lutece.plugins.directory.business.Directory;
 import fr.paris.lutece.plugins.directory.business.IEntry;
 import fr.paris.lutece.plugins.directory.business.Record;
 import fr.paris.lutece.plugins.directory.service.record.IRecordService;
+import fr.paris.lutece.plugins.directory.service.record.MassWorkflowActionService;
 import fr.paris.lutece.plugins.directory.service.record.RecordService;
+import fr.paris.lutece.plugins.directory.service.record.RecordStateResolver;
 import fr.paris.lutece.plugins.directory.utils.DirectoryUtils;
 import fr.paris.lutece.plugins.workflowcore.business.state.State;
 import fr.paris.lutece.plugins.workflowcore.service.action.ActionService;
@@ -53,10 +55,13 @@ import org.apache.commons.lang.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -74,13 +79,24 @@ public class DirectoryActionResult
     private static final String MARK_LIST_SUCCESS_RECORDS = "list_success_records";
     private static final String MARK_LIST_FAIL_RECORDS = "list_fail_records";
     private static final String MARK_MAP_FAIL_RECORD_CAUSES = "map_fail_record_causes";
+    private static final String MARK_RUNNING = "running";
+    private static final String MARK_NB_RECORDS = "nb_records";
+    private static final String MARK_NB_PROCESSED_RECORDS = "nb_processed_records";
+    private static final String MARK_PROGRESS = "progress";
+
+    // MESSAGES
+    private static final String MESSAGE_SESSION_EXPIRED = "directory.message.record.session_expired";
+    private static final String MESSAGE_MASS_ACTION_SHUTDOWN = "directory.message.record.mass_action_shutdown";
 
     // VARIABLES
-    private List<Integer> _listIdsSuccessRecord;
-    private Map<String, String> _mapFailRecords;
+    private volatile List<Integer> _listIdsSuccessRecord;
+    private volatile Map<String, String> _mapFailRecords;
+    private volatile int _nNbRecords;
+    private volatile AtomicInteger _nNbProcessedRecords;
 
     /**
-     * Do process the workflow action
+     * Do process the workflow action. When there are many records, the action is run in background by chunks of records, and its progress can be followed
+     * with {@link #isRunning( )}
      * 
      * @param nIdDirectory
      *            the id directory
@@ -97,52 +113,39 @@ public class DirectoryActionResult
      */
     public void doProcessAction( int nIdDirectory, int nIdAction, String [ ] listIdsDirectoryRecord, Plugin plugin, Locale locale, HttpServletRequest request )
     {
-        _listIdsSuccessRecord = new ArrayList<Integer>( );
-        _mapFailRecords = new HashMap<String, String>( );
-
-        for ( String strIdDirectoryRecord : listIdsDirectoryRecord )
-        {
-            int nIdRecord = DirectoryUtils.convertStringToInt( strIdDirectoryRecord );
+        // The results are written by the threads of the pool while the action result page reads them
+        _listIdsSuccessRecord = Collections.synchronizedList( new ArrayList<Integer>( ) );
+        _mapFailRecords = new ConcurrentHashMap<String, String>( );
+        _nNbRecords = listIdsDirectoryRecord.length;
+        _nNbProcessedRecords = new AtomicInteger( );
 
-            // Get the id action to execute : it may not be the one given in the parameter, but one
-            // of the linked actions
-            int nIdActionToExecute = getIdActionToExecute( nIdDirectory, nIdAction, nIdRecord, request );
+        MassWorkflowActionService massActionService = MassWorkflowActionService.getInstance( );
 
-            // If nIdActionToExecute == -1, then there are no actions that can be executed to the record
-            if ( nIdActionToExecute != DirectoryUtils.CONSTANT_ID_NULL )
-            {
-                IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
-                boolean bHasSucceed = false;
+        if ( !massActionService.isBackground( listIdsDirectoryRecord.length ) )
+        {
+            new ProcessActionChunk( nIdDirectory, nIdAction, listIdsDirectoryRecord, plugin, locale, request ).run( );
 
-                try
-                {
-                    WorkflowService.getInstance( ).doProcessAction( nIdRecord, Record.WORKFLOW_RESOURCE_TYPE, nIdActionToExecute, nIdDirectory, request,
-                            locale, false );
-                    bHasSucceed = true;
-                }
-                catch( Exception e )
-                {
-                    AppLogService.error( "Error processing action for id record '" + nIdRecord + "' - cause : " + e.getMessage( ), e );
-                    _mapFailRecords.put( strIdDirectoryRecord, e.getMessage( ) );
-                }
+            return;
+        }
 
-                if ( bHasSucceed )
-                {
-                    _listIdsSuccessRecord.add( nIdRecord );
+        HttpServletRequest detachedRequest = massActionService.detach( request );
 
-                    // Update record modification date
-                    Record record = recordService.findByPrimaryKey( nIdRecord, plugin );
-                    recordService.update( record, plugin );
-                }
-            }
-            else
-            {
-                String strMessage = I18nService.getLocalizedString( DirectoryUtils.MESSAGE_RECORD_INVALID_STATE, locale );
-                _mapFailRecords.put( strIdDirectoryRecord, strMessage );
-            }
+        for ( String [ ] chunk : massActionService.getChunks( listIdsDirectoryRecord ) )
+        {
+            massActionService.execute( new ProcessActionChunk( nIdDirectory, nIdAction, chunk, plugin, locale, detachedRequest ), detachedRequest );
         }
     }
 
+    /**
+     * Tells if the last workflow action is still being processed in background
+     * 
+     * @return true if some records have not been processed yet
+     */
+    public boolean isRunning( )
+    {
+        return ( _nNbProcessedRecords != null ) && ( _nNbProcessedRecords.get( ) < _nNbRecords );
+    }
+
     /**
      * Do save the task form
      * 
@@ -164,6 +167,8 @@ public class DirectoryActionResult
     {
         _listIdsSuccessRecord = new ArrayList<Integer>( );
         _mapFailRecords = new HashMap<String, String>( );
+        _nNbRecords = listIdsDirectoryRecord.length;
+        _nNbProcessedRecords = null;
 
         for ( String strIdDirectoryRecord : listIdsDirectoryRecord )
         {
@@ -229,13 +234,31 @@ public class DirectoryActionResult
      */
     public void fillModel( Map<String, Object> model, List<IEntry> listEntries, Plugin plugin, AdminUser user, Directory directory )
     {
+        // Only the progress is shown while the action is running in background
+        AtomicInteger nbProcessedRecords = _nNbProcessedRecords;
+
+        if ( ( nbProcessedRecords != null ) && ( nbProcessedRecords.get( ) < _nNbRecords ) )
+        {
+            int nNbProcessedRecords = nbProcessedRecords.get( );
+            model.put( MARK_RUNNING, true );
+            model.put( MARK_NB_RECORDS, _nNbRecords );
+            model.put( MARK_NB_PROCESSED_RECORDS, nNbProcessedRecords );
+            model.put( MARK_PROGRESS, ( 100 * nNbProcessedRecords ) / _nNbRecords );
+
+            return;
+        }
+
+        model.put( MARK_RUNNING, false );
+
         IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
 
         // Add the success records to the model
         if ( ( _listIdsSuccessRecord != null ) && !_listIdsSuccessRecord.isEmpty( ) )
         {
-            List<Record> listRecords = recordService.loadListByListId( _listIdsSuccessRecord, plugin );
-            List<Map<String, Object>> listMapRecords = new ArrayList<Map<String, Object>>( _listIdsSuccessRecord.size( ) );
+            List<Integer> listIdsSuccessRecord = new ArrayList<Integer>( _listIdsSuccessRecord );
+            List<Record> listRecords = recordService.loadListByListId( listIdsSuccessRecord, plugin );
+            RecordStateResolver stateResolver = new RecordStateResolver( directory, listIdsSuccessRecord );
+            List<Map<String, Object>> listMapRecords = new ArrayList<Map<String, Object>>( listIdsSuccessRecord.size( ) );
 
             for ( Record record : listRecords )
             {
@@ -244,9 +267,7 @@ public class DirectoryActionResult
                 mapRecord.put( MARK_MAP_ID_ENTRY_LIST_RECORD_FIELD,
                         DirectoryUtils.getMapIdEntryListRecordField( listEntries, record.getIdRecord( ), plugin, false ) );
 
-                WorkflowService workflowService = WorkflowService.getInstance( );
-                State state = workflowService.getState( record.getIdRecord( ), Record.WORKFLOW_RESOURCE_TYPE, directory.getIdWorkflow( ),
-                        Integer.valueOf( directory.getIdDirectory( ) ) );
+                State state = stateResolver.getState( record.getIdRecord( ) );
                 mapRecord.put( MARK_WORKFLOW_STATE, state );
                 listMapRecords.add( mapRecord );
             }
@@ -265,6 +286,7 @@ public class DirectoryActionResult
             }
 
             List<Record> listRecords = recordService.loadListByListId( listIdsFailRecord, plugin );
+            RecordStateResolver stateResolver = new RecordStateResolver( directory, listIdsFailRecord );
             List<Map<String, Object>> listMapRecords = new ArrayList<Map<String, Object>>( listIdsFailRecord.size( ) );
 
             for ( Record record : listRecords )
@@ -274,9 +296,7 @@ public class DirectoryActionResult
                 mapRecord.put( MARK_MAP_ID_ENTRY_LIST_RECORD_FIELD,
                         DirectoryUtils.getMapIdEntryListRecordField( listEntries, record.getIdRecord( ), plugin, false ) );
 
-                WorkflowService workflowService = WorkflowService.getInstance( );
-                State state = workflowService.getState( record.getIdRecord( ), Record.WORKFLOW_RESOURCE_TYPE, directory.getIdWorkflow( ),
-                        Integer.valueOf( directory.getIdDirectory( ) ) );
+                State state = stateResolver.getState( record.getIdRecord( ) );
                 mapRecord.put( MARK_WORKFLOW_STATE, state );
                 listMapRecords.add( mapRecord );
             }
@@ -327,7 +347,7 @@ public class DirectoryActionResult
      *            the HTTP request
      * @return the ID action to execute
      */
-    private int getIdActionToExecute( int nIdDirectory, int nIdAction, int nIdRecord, HttpServletRequest request )
+    private static int getIdActionToExecute( int nIdDirectory, int nIdAction, int nIdRecord, HttpServletRequest request )
     {
         if ( WorkflowService.getInstance( ).canProcessAction( nIdRecord, Record.WORKFLOW_RESOURCE_TYPE, nIdAction, nIdDirectory, request, false ) )
         {
@@ -350,4 +370,175 @@ public class DirectoryActionResult
 
         return DirectoryUtils.CONSTANT_ID_NULL;
     }
+
+    /**
+     * Processes the workflow action on a chunk of records, and records the outcome for each of them
+     */
+    private final class ProcessActionChunk implements Runnable
+    {
+        private final int _nIdDirectory;
+        private final int _nIdAction;
+        private final String [ ] _listIdsDirectoryRecord;
+        private final Plugin _plugin;
+        private final Locale _locale;
+        private final HttpServletRequest _request;
+        private final List<Integer> _listIdsSuccess;
+        private final Map<String, String> _mapFail;
+        private final AtomicInteger _nNbProcessed;
+
+        /**
+         * Constructor
+         * 
+         * @param nIdDirectory
+         *            the id directory
+         * @param nIdAction
+         *            the id action
+         * @param listIdsDirectoryRecord
+         *            the ids of the records of the chunk
+         * @param plugin
+         *            the plugin
+         * @param locale
+         *            the locale
+         * @param request
+         *            the HTTP request
+         */
+        ProcessActionChunk( int nIdDirectory, int nIdAction, String [ ] listIdsDirectoryRecord, Plugin plugin, Locale locale, HttpServletRequest request )
+        {
+            _nIdDirectory = nIdDirectory;
+            _nIdAction = nIdAction;
+            _listIdsDirectoryRecord = listIdsDirectoryRecord;
+            _plugin = plugin;
+            _locale = locale;
+            _request = request;
+
+            // Keep the results of this action, even if another one is started meanwhile
+            _listIdsSuccess = _listIdsSuccessRecord;
+            _mapFail = _mapFailRecords;
+            _nNbProcessed = _nNbProcessedRecords;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run( )
+        {
+            List<Integer> listIdsSuccessRecord = new ArrayList<Integer>( _listIdsDirectoryRecord.length );
+
+            try
+            {
+                for ( int nIndex = 0; nIndex < _listIdsDirectoryRecord.length; nIndex++ )
+                {
+                    String strIdDirectoryRecord = _listIdsDirectoryRecord [nIndex];
+
+                    // Once the session of the user is over, the action cannot be run on behalf of the user anymore : the remaining records
+                    // are reported as failed, so that every record of the chunk is either a success or a failure
+                    if ( MassWorkflowActionService.isSessionInvalidated( _request ) )
+                    {
+                        failRemainingRecords( nIndex, MESSAGE_SESSION_EXPIRED );
+
+                        break;
+                    }
+
+                    if ( MassWorkflowActionService.getInstance( ).isShutdown( ) )
+                    {
+                        failRemainingRecords( nIndex, MESSAGE_MASS_ACTION_SHUTDOWN );
+
+                        break;
+                    }
+
+                    int nIdRecord = DirectoryUtils.convertStringToInt( strIdDirectoryRecord );
+
+                    if ( processRecord( nIdRecord, strIdDirectoryRecord ) )
+                    {
+                        listIdsSuccessRecord.add( nIdRecord );
+                    }
+                }
+
+                if ( !listIdsSuccessRecord.isEmpty( ) )
+                {
+                    // Update the modification date of the records of the chunk
+                    IRecordService recordService = SpringContextService.getBean( RecordService.BEAN_SERVICE );
+
+                    for ( Record record : recordService.loadListByListId( listIdsSuccessRecord, _plugin ) )
+                    {
+                        try
+                        {
+                            recordService.update( record, _plugin );
+                        }
+                        catch( Exception e )
+                        {
+                            AppLogService.error( "Error updating the modification date of record '" + record.getIdRecord( ) + "' - cause : " + e.getMessage( ),
+                                    e );
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                // The chunk is counted as processed only once its results are published, so that the action is not seen as over without them
+                _listIdsSuccess.addAll( listIdsSuccessRecord );
+                _nNbProcessed.addAndGet( _listIdsDirectoryRecord.length );
+            }
+        }
+
+        /**
+         * Report as failed the records of the chunk which have not been processed
+         * 
+         * @param nFirstIndex
+         *            the index of the first record not processed
+         * @param strMessageKey
+         *            the key of the message explaining the failure
+         */
+        private void failRemainingRecords( int nFirstIndex, String strMessageKey )
+        {
+            String strMessage = I18nService.getLocalizedString( strMessageKey, _locale );
+
+            for ( int nIndex = nFirstIndex; nIndex < _listIdsDirectoryRecord.length; nIndex++ )
+            {
+                _mapFail.put( _listIdsDirectoryRecord [nIndex], strMessage );
+            }
+        }
+
+        /**
+         * Process the workflow action on a record
+         * 
+         * @param nIdRecord
+         *            the id of the record
+         * @param strIdDirectoryRecord
+         *            the id of the record, as given in the request
+         * @return true if the action has been executed
+         */
+        private boolean processRecord( int nIdRecord, String strIdDirectoryRecord )
+        {
+            try
+            {
+                // Get the id action to execute : it may not be the one given in the parameter, but one
+                // of the linked actions
+                int nIdActionToExecute = getIdActionToExecute( _nIdDirectory, _nIdAction, nIdRecord, _request );
+
+                // If nIdActionToExecute == -1, then there are no actions that can be executed to the record
+                if ( nIdActionToExecute == DirectoryUtils.CONSTANT_ID_NULL )
+                {
+                    String strMessage = I18nService.getLocalizedString( DirectoryUtils.MESSAGE_RECORD_INVALID_STATE, _locale );
+                    _mapFail.put( strIdDirectoryRecord, strMessage );
+
+                    return false;
+                }
+
+                WorkflowService.getInstance( ).doProcessAction( nIdRecord, Record.WORKFLOW_RESOURCE_TYPE, nIdActionToExecute, _nIdDirectory, _request,
+                        _locale, false );
+
+                return true;
+            }
+            catch( Exception e )
+            {
+                String strExceptionError = buildErrorMessage( e );
+                AppLogService.error( "Error processing action for id record '" + nIdRecord + "' - cause : " + strExceptionError, e );
+                _mapFail.put( strIdDirectoryRecord, StringUtils.defaultString( strExceptionError ) );
+
+                return false;
+            }
+        }
+    }
 }
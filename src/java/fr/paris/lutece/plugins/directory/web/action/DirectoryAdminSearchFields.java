@@ -40,7 +40,11 @@ import fr.paris.lutece.util.url.UrlItem;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -51,6 +55,7 @@ import javax.servlet.http.HttpServletRequest;
 public final class DirectoryAdminSearchFields extends DefaultDirectorySearchFields
 {
     private static final long serialVersionUID = 7256733494058540733L;
+    private static final int CONSTANT_MAX_MASS_ACTIONS = 10;
 
     // session fields
     private String _strCurrentPageIndexDirectory;
@@ -71,6 +76,7 @@ public final class DirectoryAdminSearchFields extends DefaultDirectorySearchFiel
     private int _nIdWorkflowSate = ALL_INT;
     private StringBuffer _strError;
     private List<String> _listSelectedRecords;
+    private Map<String, List<String>> _mapMassActionRecords = new LinkedHashMap<String, List<String>>( );
     private List<Integer> _listIdsResultRecord;
     private ItemNavigator _itemNavigatorViewRecords;
     private ItemNavigator _itemNavigatorHistory;
@@ -97,6 +103,57 @@ public final class DirectoryAdminSearchFields extends DefaultDirectorySearchFiel
         _listSelectedRecords = listSelectedRecords;
     }
 
+    /**
+     * Keeps the records a mass action applies to, selected when the action was invoked. The selection is identified by a one-time token, so that a later
+     * selection cannot replace the one the user has confirmed. Only the last selections are kept.
+     * 
+     * @param listMassActionRecords
+     *            the records of the mass action
+     * @return the token of the selection
+     */
+    public synchronized String addMassActionRecords( List<String> listMassActionRecords )
+    {
+        String strToken = UUID.randomUUID( ).toString( );
+
+        _mapMassActionRecords.put( strToken, listMassActionRecords );
+
+        Iterator<String> iterator = _mapMassActionRecords.keySet( ).iterator( );
+
+        while ( ( _mapMassActionRecords.size( ) > CONSTANT_MAX_MASS_ACTIONS ) && iterator.hasNext( ) )
+        {
+            iterator.next( );
+            iterator.remove( );
+        }
+
+        return strToken;
+    }
+
+    /**
+     * Gets the records of the mass action identified by a token
+     * 
+     * @param strToken
+     *            the token of the selection
+     * @return the records of the mass action, or null if the token is unknown or has been consumed
+     */
+    public synchronized List<String> getMassActionRecords( String strToken )
+    {
+        return ( strToken != null ) ? _mapMassActionRecords.get( strToken ) : null;
+    }
+
+    /**
+     * Consumes the selection of a mass action once the action has been performed
+     * 
+     * @param strToken
+     *            the token of the selection
+     */
+    public synchronized void removeMassActionRecords( String strToken )
+    {
+        if ( strToken != null )
+        {
+            _mapMassActionRecords.remove( strToken );
+        }
+    }
+
     /**
      * Current page index directory
      * 
@@ -49,6 +49,8 @@ import fr.paris.lutece.util.url.UrlItem;
 
 import org.apache.commons.lang.StringUtils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -126,14 +128,19 @@ public class MassChangeStatesRecordDirectoryAction extends AbstractPluginAction<
             UrlItem url = new UrlItem( AppPathService.getBaseUrl( request ) + JSP_DIRECTORY_MASS_CHANGE_STATES_RECORD );
             url.addParameter( DirectoryUtils.PARAMETER_ID_DIRECTORY, strIdDirectory );
 
+            // The selection is kept in session rather than in the URL, which would be too long for large selections
+            List<String> listMassActionRecords = new ArrayList<String>( sessionFields.getSelectedRecords( ).size( ) );
+
             for ( String strIdRecord : sessionFields.getSelectedRecords( ) )
             {
                 if ( StringUtils.isNotBlank( strIdRecord ) && StringUtils.isNumeric( strIdRecord ) )
                 {
-                    url.addParameter( DirectoryUtils.PARAMETER_ID_DIRECTORY_RECORD, strIdRecord );
+                    listMassActionRecords.add( strIdRecord );
                 }
             }
 
+            url.addParameter( DirectoryUtils.PARAMETER_MASS_ACTION, sessionFields.addMassActionRecords( listMassActionRecords ) );
+
             strRedirect = url.getUrl( );
         }
         else
@@ -54,6 +54,7 @@ import fr.paris.lutece.util.url.UrlItem;
 
 import org.apache.commons.lang.StringUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -155,14 +156,19 @@ public class MassWorkflowDirectoryAction extends AbstractPluginAction<DirectoryA
             url.addParameter( DirectoryUtils.PARAMETER_ID_ACTION, strIdAction );
             url.addParameter( DirectoryUtils.PARAMETER_SHOW_ACTION_RESULT, DirectoryUtils.CONSTANT_TRUE );
 
+            // The selection is kept in session rather than in the URL, which would be too long for large selections
+            List<String> listMassActionRecords = new ArrayList<String>( sessionFields.getSelectedRecords( ).size( ) );
+
             for ( String strIdRecord : sessionFields.getSelectedRecords( ) )
             {
                 if ( StringUtils.isNotBlank( strIdRecord ) && StringUtils.isNumeric( strIdRecord ) )
                 {
-                    url.addParameter( DirectoryUtils.PARAMETER_ID_DIRECTORY_RECORD, strIdRecord );
+                    listMassActionRecords.add( strIdRecord );
                 }
             }
 
+            url.addParameter( DirectoryUtils.PARAMETER_MASS_ACTION, sessionFields.addMassActionRecords( listMassActionRecords ) );
+
             strRedirect = url.getUrl( );
         }
         else
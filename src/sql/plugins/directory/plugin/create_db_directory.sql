@@ -13,6 +13,10 @@ DROP TABLE IF EXISTS directory_record_action CASCADE;
 DROP TABLE IF EXISTS directory_file CASCADE;
 DROP TABLE IF EXISTS directory_physical_file CASCADE;
 DROP TABLE IF EXISTS directory_indexer_action CASCADE;
+DROP TABLE IF EXISTS directory_export_job CASCADE;
+DROP TABLE IF EXISTS directory_import_job CASCADE;
+DROP TABLE IF EXISTS directory_key_sequence CASCADE;
+DROP TABLE IF EXISTS directory_definition_version CASCADE;
 DROP TABLE IF EXISTS directory_directory_parameter CASCADE;
 DROP TABLE IF EXISTS directory_entry_parameter CASCADE;
 DROP TABLE IF EXISTS directory_xsl_action CASCADE;
@@ -265,9 +269,68 @@ CREATE TABLE directory_indexer_action (
   id_action INT DEFAULT 0 NOT NULL,
   id_record INT DEFAULT 0 NOT NULL,
   id_task INT DEFAULT 0 NOT NULL ,
+  id_directory INT DEFAULT 0 NOT NULL,
   PRIMARY KEY (id_action)
   );
 
+/*==============================================================*/
+/* Table structure for table directory_export_job					*/
+/*==============================================================*/
+CREATE TABLE directory_export_job (
+  id_export_job INT DEFAULT 0 NOT NULL,
+  id_directory INT DEFAULT 0 NOT NULL,
+  id_admin_user INT DEFAULT 0 NOT NULL,
+  file_name VARCHAR(255) DEFAULT NULL,
+  encoding VARCHAR(50) DEFAULT NULL,
+  status SMALLINT DEFAULT 0 NOT NULL,
+  nb_records INT DEFAULT 0 NOT NULL,
+  nb_records_exported INT DEFAULT 0 NOT NULL,
+  date_creation TIMESTAMP NULL DEFAULT NULL,
+  date_end TIMESTAMP NULL DEFAULT NULL,
+  error_message VARCHAR(255) DEFAULT NULL,
+  node_name VARCHAR(255) DEFAULT NULL,
+  PRIMARY KEY (id_export_job)
+);
+
+/*==============================================================*/
+/* Table structure for table directory_import_job					*/
+/*==============================================================*/
+CREATE TABLE directory_import_job (
+  id_import_job INT DEFAULT 0 NOT NULL,
+  id_directory INT DEFAULT 0 NOT NULL,
+  id_admin_user INT DEFAULT 0 NOT NULL,
+  file_name VARCHAR(255) DEFAULT NULL,
+  status SMALLINT DEFAULT 0 NOT NULL,
+  file_size BIGINT DEFAULT 0 NOT NULL,
+  nb_bytes_read BIGINT DEFAULT 0 NOT NULL,
+  nb_lines INT DEFAULT 0 NOT NULL,
+  nb_lines_imported INT DEFAULT 0 NOT NULL,
+  nb_lines_failure INT DEFAULT 0 NOT NULL,
+  date_creation TIMESTAMP NULL DEFAULT NULL,
+  date_end TIMESTAMP NULL DEFAULT NULL,
+  error_message VARCHAR(255) DEFAULT NULL,
+  node_name VARCHAR(255) DEFAULT NULL,
+  PRIMARY KEY (id_import_job)
+);
+
+/*==============================================================*/
+/* Table structure for table directory_key_sequence				*/
+/*==============================================================*/
+CREATE TABLE directory_key_sequence (
+  sequence_name VARCHAR(100) NOT NULL,
+  next_key INT DEFAULT 1 NOT NULL,
+  PRIMARY KEY (sequence_name)
+);
+
+/*==============================================================*/
+/* Table structure for table directory_definition_version		*/
+/*==============================================================*/
+CREATE TABLE directory_definition_version (
+  id_version INT DEFAULT 0 NOT NULL,
+  version BIGINT DEFAULT 0 NOT NULL,
+  PRIMARY KEY (id_version)
+);
+
 /*==============================================================*/
 /*Table structure for table directory_xsl_action					*/
 /*==============================================================*/
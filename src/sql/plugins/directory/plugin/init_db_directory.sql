@@ -146,3 +146,4 @@ INSERT INTO directory_entry_parameter (parameter_key, parameter_value) VALUES ('
 INSERT INTO directory_entry_parameter (parameter_key, parameter_value) VALUES ('shown_in_completeness', '0');
 INSERT INTO directory_entry_parameter (parameter_key, parameter_value) VALUES ('file_max_size', '2097152');
 INSERT INTO directory_entry_parameter (parameter_key, parameter_value) VALUES ('max_files', '1');
+INSERT INTO directory_definition_version (id_version, version) VALUES (1, 0);
@@ -0,0 +1,60 @@
+--
+-- The search forms now run on one document per record : run a full indexing of the directories after the upgrade.
+-- Until then, the searches run criterion by criterion on the documents of the previous index.
+--
+
+ALTER TABLE directory_indexer_action ADD COLUMN id_directory INT DEFAULT 0 NOT NULL;
+
+CREATE TABLE directory_export_job (
+  id_export_job INT DEFAULT 0 NOT NULL,
+  id_directory INT DEFAULT 0 NOT NULL,
+  id_admin_user INT DEFAULT 0 NOT NULL,
+  file_name VARCHAR(255) DEFAULT NULL,
+  encoding VARCHAR(50) DEFAULT NULL,
+  status SMALLINT DEFAULT 0 NOT NULL,
+  nb_records INT DEFAULT 0 NOT NULL,
+  nb_records_exported INT DEFAULT 0 NOT NULL,
+  date_creation TIMESTAMP NULL DEFAULT NULL,
+  date_end TIMESTAMP NULL DEFAULT NULL,
+  error_message VARCHAR(255) DEFAULT NULL,
+  node_name VARCHAR(255) DEFAULT NULL,
+  PRIMARY KEY (id_export_job)
+);
+
+CREATE TABLE directory_key_sequence (
+  sequence_name VARCHAR(100) NOT NULL,
+  next_key INT DEFAULT 1 NOT NULL,
+  PRIMARY KEY (sequence_name)
+);
+
+INSERT INTO directory_key_sequence ( sequence_name, next_key ) SELECT 'directory_record', COALESCE( MAX( id_record ), 0 ) + 1 FROM directory_record;
+INSERT INTO directory_key_sequence ( sequence_name, next_key ) SELECT 'directory_record_field', COALESCE( MAX( id_record_field ), 0 ) + 1 FROM directory_record_field;
+INSERT INTO directory_key_sequence ( sequence_name, next_key ) SELECT 'directory_file', COALESCE( MAX( id_file ), 0 ) + 1 FROM directory_file;
+INSERT INTO directory_key_sequence ( sequence_name, next_key ) SELECT 'directory_physical_file', COALESCE( MAX( id_physical_file ), 0 ) + 1 FROM directory_physical_file;
+INSERT INTO directory_key_sequence ( sequence_name, next_key ) SELECT 'directory_indexer_action', COALESCE( MAX( id_action ), 0 ) + 1 FROM directory_indexer_action;
+
+CREATE TABLE directory_import_job (
+  id_import_job INT DEFAULT 0 NOT NULL,
+  id_directory INT DEFAULT 0 NOT NULL,
+  id_admin_user INT DEFAULT 0 NOT NULL,
+  file_name VARCHAR(255) DEFAULT NULL,
+  status SMALLINT DEFAULT 0 NOT NULL,
+  file_size BIGINT DEFAULT 0 NOT NULL,
+  nb_bytes_read BIGINT DEFAULT 0 NOT NULL,
+  nb_lines INT DEFAULT 0 NOT NULL,
+  nb_lines_imported INT DEFAULT 0 NOT NULL,
+  nb_lines_failure INT DEFAULT 0 NOT NULL,
+  date_creation TIMESTAMP NULL DEFAULT NULL,
+  date_end TIMESTAMP NULL DEFAULT NULL,
+  error_message VARCHAR(255) DEFAULT NULL,
+  node_name VARCHAR(255) DEFAULT NULL,
+  PRIMARY KEY (id_import_job)
+);
+
+CREATE TABLE directory_definition_version (
+  id_version INT DEFAULT 0 NOT NULL,
+  version BIGINT DEFAULT 0 NOT NULL,
+  PRIMARY KEY (id_version)
+);
+
+INSERT INTO directory_definition_version (id_version, version) VALUES (1, 0);
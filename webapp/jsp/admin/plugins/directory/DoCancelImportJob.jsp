@@ -0,0 +1,6 @@
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:useBean id="directoryImportJob" scope="session" class="fr.paris.lutece.plugins.directory.web.ImportJobJspBean" />
+<% 
+	directoryImportJob.init( request, fr.paris.lutece.plugins.directory.web.ManageDirectoryJspBean.RIGHT_MANAGE_DIRECTORY);
+ 	response.sendRedirect( directoryImportJob.doCancelImportJob( request ) );
+%>
@@ -0,0 +1,6 @@
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:useBean id="directoryExportJob" scope="session" class="fr.paris.lutece.plugins.directory.web.ExportJobJspBean" />
+<% 
+	directoryExportJob.init( request, fr.paris.lutece.plugins.directory.web.ManageDirectoryJspBean.RIGHT_MANAGE_DIRECTORY);
+	directoryExportJob.doDownloadExportJob( request, response );
+%>
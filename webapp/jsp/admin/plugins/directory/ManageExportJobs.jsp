@@ -0,0 +1,8 @@
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:include page="../../AdminHeader.jsp" />
+<jsp:useBean id="directoryExportJob" scope="session" class="fr.paris.lutece.plugins.directory.web.ExportJobJspBean" />
+<% 
+	directoryExportJob.init( request, fr.paris.lutece.plugins.directory.web.ManageDirectoryJspBean.RIGHT_MANAGE_DIRECTORY);
+%>
+<%= directoryExportJob.getManageExportJobs( request ) %>
+<%@ include file="../../AdminFooter.jsp" %>
\ No newline at end of file